@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionCache;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of cached accurate conversions, one coordinate per operation. Hits use a cache which holds every
+ * coordinate, misses use one which holds half of them, so the cyclic access evicts every entry before it is used
+ * again.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private double[] gcjLat;
+    private double[] gcjLng;
+    private ConversionCache hitCache;
+    private ConversionCache missCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Coordinate[] gcj = Regions.randomCoordinates(Regions.INSIDE);
+        this.gcjLat = new double[Regions.SIZE];
+        this.gcjLng = new double[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.gcjLat[i] = gcj[i].getLat();
+            this.gcjLng[i] = gcj[i].getLng();
+        }
+        this.hitCache = new ConversionCache(ConversionKind.GCJ2WGS_ACCURATE, Regions.SIZE);
+        this.missCache = new ConversionCache(ConversionKind.GCJ2WGS_ACCURATE, Regions.SIZE / 2);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final double[] result = new double[2];
+        private int index;
+
+        private int next() {
+            return this.index = (this.index + 1) & Regions.MASK;
+        }
+
+    }
+
+    @Benchmark
+    public double[] uncached(final Cursor cursor) {
+        final int i = cursor.next();
+        GeometryUtils.gcj2wgsAccurate(this.gcjLat[i], this.gcjLng[i], cursor.result);
+        return cursor.result;
+    }
+
+    @Benchmark
+    public double[] hit(final Cursor cursor) {
+        final int i = cursor.next();
+        this.hitCache.convert(this.gcjLat[i], this.gcjLng[i], cursor.result);
+        return cursor.result;
+    }
+
+    @Benchmark
+    public double[] miss(final Cursor cursor) {
+        final int i = cursor.next();
+        this.missCache.convert(this.gcjLat[i], this.gcjLng[i], cursor.result);
+        return cursor.result;
+    }
+
+}
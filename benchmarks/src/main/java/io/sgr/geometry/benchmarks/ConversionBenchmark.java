@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.GeometryUtils;
+import io.sgr.geometry.utils.PrecisionMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of datum conversions, one coordinate per operation.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    @Param({Regions.INSIDE, Regions.OUTSIDE})
+    public String region;
+
+    @Param({"EXACT", "TABLE", "FAST_TRIG"})
+    public PrecisionMode mode;
+
+    private Coordinate[] wgs;
+    private Coordinate[] gcj;
+    private double[] wgsLat;
+    private double[] wgsLng;
+    private double[] gcjLat;
+    private double[] gcjLng;
+    private long[] wgsPacked;
+    private long[] gcjPacked;
+    private double[] outLat;
+    private double[] outLng;
+    private double[] result;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GeometryUtils.setPrecisionMode(this.mode);
+        this.wgs = Regions.randomCoordinates(this.region);
+        this.gcj = new Coordinate[Regions.SIZE];
+        this.wgsLat = new double[Regions.SIZE];
+        this.wgsLng = new double[Regions.SIZE];
+        this.gcjLat = new double[Regions.SIZE];
+        this.gcjLng = new double[Regions.SIZE];
+        this.wgsPacked = new long[Regions.SIZE];
+        this.gcjPacked = new long[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.gcj[i] = GeometryUtils.wgs2gcj(this.wgs[i]);
+            this.wgsLat[i] = this.wgs[i].getLat();
+            this.wgsLng[i] = this.wgs[i].getLng();
+            this.gcjLat[i] = this.gcj[i].getLat();
+            this.gcjLng[i] = this.gcj[i].getLng();
+            this.wgsPacked[i] = this.wgs[i].getPacked();
+            this.gcjPacked[i] = this.gcj[i].getPacked();
+        }
+        this.outLat = new double[Regions.SIZE];
+        this.outLng = new double[Regions.SIZE];
+        this.result = new double[2];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        GeometryUtils.setPrecisionMode(null);
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & Regions.MASK;
+    }
+
+    @Benchmark
+    public Coordinate wgs2gcj() {
+        return GeometryUtils.wgs2gcj(this.wgs[next()]);
+    }
+
+    @Benchmark
+    public Coordinate gcj2wgs() {
+        return GeometryUtils.gcj2wgs(this.gcj[next()]);
+    }
+
+    @Benchmark
+    public Coordinate gcj2wgsAccurate() {
+        return GeometryUtils.gcj2wgsAccurate(this.gcj[next()]);
+    }
+
+    @Benchmark
+    public double[] wgs2gcjPrimitive() {
+        final int i = next();
+        GeometryUtils.wgs2gcj(this.wgsLat[i], this.wgsLng[i], this.result);
+        return this.result;
+    }
+
+    @Benchmark
+    public double[] gcj2wgsAccuratePrimitive() {
+        final int i = next();
+        GeometryUtils.gcj2wgsAccurate(this.gcjLat[i], this.gcjLng[i], this.result);
+        return this.result;
+    }
+
+    @Benchmark
+    public long wgs2gcjPacked() {
+        return GeometryUtils.wgs2gcj(this.wgsPacked[next()]);
+    }
+
+    @Benchmark
+    public long gcj2wgsAccuratePacked() {
+        return GeometryUtils.gcj2wgsAccurate(this.gcjPacked[next()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Regions.SIZE)
+    public double[] wgs2gcjBatch() {
+        GeometryUtils.wgs2gcj(this.wgsLat, this.wgsLng, 0, Regions.SIZE, this.outLat, this.outLng);
+        return this.outLat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Regions.SIZE)
+    public double[] gcj2wgsBatch() {
+        GeometryUtils.gcj2wgs(this.gcjLat, this.gcjLng, 0, Regions.SIZE, this.outLat, this.outLng);
+        return this.outLat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Regions.SIZE)
+    public double[] gcj2wgsAccurateBatch() {
+        GeometryUtils.gcj2wgsAccurate(this.gcjLat, this.gcjLng, 0, Regions.SIZE, this.outLat, this.outLng);
+        return this.outLat;
+    }
+
+}
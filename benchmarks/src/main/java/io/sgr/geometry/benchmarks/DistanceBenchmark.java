@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.DistanceMethod;
+import io.sgr.geometry.utils.Distances;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of distances from one coordinate to {@link Regions#SIZE} coordinates per operation, and of filtering
+ * them by a radius of 50 kilometers.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistanceBenchmark {
+
+    @Param({"HAVERSINE", "EQUIRECTANGULAR", "VINCENTY"})
+    public DistanceMethod method;
+
+    private double[] lat;
+    private double[] lng;
+    private double[] distances;
+    private int[] indexes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Coordinate[] coordinates = Regions.randomCoordinates(Regions.INSIDE);
+        this.lat = new double[Regions.SIZE];
+        this.lng = new double[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.lat[i] = coordinates[i].getLat();
+            this.lng[i] = coordinates[i].getLng();
+        }
+        this.distances = new double[Regions.SIZE];
+        this.indexes = new int[Regions.SIZE];
+    }
+
+    @Benchmark
+    public double[] oneToMany() {
+        Distances.distances(this.lat[0], this.lng[0], this.lat, this.lng, 0, Regions.SIZE, this.method, this.distances);
+        return this.distances;
+    }
+
+    @Benchmark
+    public int withinRadius() {
+        return Distances.withinRadius(this.lat[0], this.lng[0], 50000, this.lat, this.lng, 0, Regions.SIZE, this.indexes);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.heatmap.Heatmap;
+import io.sgr.geometry.heatmap.HeatmapAggregator;
+import io.sgr.geometry.heatmap.HeatmapGrid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of binning one million weighted locations into Web Mercator tiles, with a map of boxed sums as the
+ * baseline. Zoom 8 uses array buffers, zoom 14 uses hash tables.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeatmapBenchmark {
+
+    private static final int SIZE = 1 << 20;
+
+    @Param({"8", "14"})
+    public int zoom;
+
+    private HeatmapGrid grid;
+    private double[] lat;
+    private double[] lng;
+    private float[] weights;
+    private WeightedLocation[] locations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.grid = HeatmapGrid.webMercator(this.zoom, 18, 73, 54, 135);
+        this.lat = new double[SIZE];
+        this.lng = new double[SIZE];
+        this.weights = new float[SIZE];
+        this.locations = new WeightedLocation[SIZE];
+        final Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            this.lat[i] = 18 + random.nextDouble() * 36;
+            this.lng[i] = 73 + random.nextDouble() * 62;
+            this.weights[i] = random.nextFloat();
+            this.locations[i] = new WeightedLocation(new Coordinate(this.lat[i], this.lng[i]), this.weights[i]);
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Float> hashMap() {
+        final Map<Long, Float> sums = new HashMap<>();
+        for (WeightedLocation location : this.locations) {
+            final Coordinate coordinate = location.getLocation();
+            final long cell = this.grid.cellOf(coordinate.getLat(), coordinate.getLng());
+            if (cell < 0) {
+                continue;
+            }
+            final Float sum = sums.get(cell);
+            sums.put(cell, sum == null ? location.getWeight() : sum + location.getWeight());
+        }
+        return sums;
+    }
+
+    @Benchmark
+    public Heatmap locations() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(this.grid);
+        for (WeightedLocation location : this.locations) {
+            aggregator.add(location);
+        }
+        return aggregator.build();
+    }
+
+    @Benchmark
+    public Heatmap partial() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(this.grid);
+        try (HeatmapAggregator.Partial partial = aggregator.newPartial()) {
+            for (WeightedLocation location : this.locations) {
+                partial.add(location);
+            }
+        }
+        return aggregator.build();
+    }
+
+    @Benchmark
+    public Heatmap sequential() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(this.grid);
+        aggregator.addAll(this.lat, this.lng, this.weights, 0, SIZE, 1);
+        return aggregator.build();
+    }
+
+    @Benchmark
+    public Heatmap parallel() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(this.grid);
+        aggregator.addAll(this.lat, this.lng, this.weights, 0, SIZE, Runtime.getRuntime().availableProcessors());
+        return aggregator.build();
+    }
+
+}
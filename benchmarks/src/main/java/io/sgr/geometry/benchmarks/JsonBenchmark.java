@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of JSON serialization with the default object mapper, and of {@link Coordinate#toString()}.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+
+    private ObjectWriter coordinateWriter;
+    private ObjectReader coordinateReader;
+    private ObjectWriter weightedLocationWriter;
+    private ObjectReader weightedLocationReader;
+    private Coordinate[] coordinates;
+    private WeightedLocation[] weightedLocations;
+    private String[] coordinateJsons;
+    private String[] weightedLocationJsons;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final ObjectMapper mapper = GeometryUtils.getObjectMapper();
+        this.coordinateWriter = mapper.writerFor(Coordinate.class);
+        this.coordinateReader = mapper.readerFor(Coordinate.class);
+        this.weightedLocationWriter = mapper.writerFor(WeightedLocation.class);
+        this.weightedLocationReader = mapper.readerFor(WeightedLocation.class);
+        this.coordinates = Regions.randomCoordinates(Regions.INSIDE);
+        this.weightedLocations = new WeightedLocation[Regions.SIZE];
+        this.coordinateJsons = new String[Regions.SIZE];
+        this.weightedLocationJsons = new String[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.weightedLocations[i] = new WeightedLocation(this.coordinates[i], i + 1);
+            this.coordinateJsons[i] = this.coordinateWriter.writeValueAsString(this.coordinates[i]);
+            this.weightedLocationJsons[i] = this.weightedLocationWriter.writeValueAsString(this.weightedLocations[i]);
+        }
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & Regions.MASK;
+    }
+
+    @Benchmark
+    public String serializeCoordinate() throws IOException {
+        return this.coordinateWriter.writeValueAsString(this.coordinates[next()]);
+    }
+
+    @Benchmark
+    public String coordinateToString() {
+        return this.coordinates[next()].toString();
+    }
+
+    @Benchmark
+    public Coordinate deserializeCoordinate() throws IOException {
+        return this.coordinateReader.readValue(this.coordinateJsons[next()]);
+    }
+
+    @Benchmark
+    public String serializeWeightedLocation() throws IOException {
+        return this.weightedLocationWriter.writeValueAsString(this.weightedLocations[next()]);
+    }
+
+    @Benchmark
+    public WeightedLocation deserializeWeightedLocation() throws IOException {
+        return this.weightedLocationReader.readValue(this.weightedLocationJsons[next()]);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionMetrics;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the overhead of {@link ConversionMetrics}, one coordinate per operation, with 4 threads recording at
+ * the same time.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    private boolean enabled;
+
+    private double[] lat;
+    private double[] lng;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Coordinate[] coordinates = Regions.randomCoordinates(Regions.INSIDE);
+        this.lat = new double[Regions.SIZE];
+        this.lng = new double[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.lat[i] = coordinates[i].getLat();
+            this.lng[i] = coordinates[i].getLng();
+        }
+        ConversionMetrics.setEnabled(this.enabled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ConversionMetrics.setEnabled(false);
+        ConversionMetrics.reset();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final double[] result = new double[2];
+        private int index;
+
+        private int next() {
+            return this.index = (this.index + 1) & Regions.MASK;
+        }
+
+    }
+
+    @Benchmark
+    public double[] wgs2gcj(final Cursor cursor) {
+        final int i = cursor.next();
+        GeometryUtils.wgs2gcj(this.lat[i], this.lng[i], cursor.result);
+        return cursor.result;
+    }
+
+    @Benchmark
+    public double[] gcj2wgsAccurate(final Cursor cursor) {
+        final int i = cursor.next();
+        GeometryUtils.gcj2wgsAccurate(this.lat[i], this.lng[i], cursor.result);
+        return cursor.result;
+    }
+
+}
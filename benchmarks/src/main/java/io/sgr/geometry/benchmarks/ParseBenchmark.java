@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing and formatting coordinates as strings.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private Coordinate[] coordinates;
+    private String[] decimals;
+    private String[] hexes;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.coordinates = Regions.randomCoordinates(Regions.INSIDE);
+        this.decimals = new String[Regions.SIZE];
+        this.hexes = new String[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            Coordinate coordinate = this.coordinates[i];
+            this.decimals[i] = String.format("%.6f, %.6f", coordinate.getLat(), coordinate.getLng());
+            this.hexes[i] = String.format("%08x,%08x", coordinate.getLatE6(), coordinate.getLngE6());
+        }
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & Regions.MASK;
+    }
+
+    @Benchmark
+    public Coordinate parseCommaSeparatedString() {
+        return Coordinate.parseCommaSeparatedString(this.decimals[next()]);
+    }
+
+    @Benchmark
+    public Coordinate parseCommaSeparatedHexString() {
+        return Coordinate.parseCommaSeparatedHexString(this.hexes[next()]);
+    }
+
+    @Benchmark
+    public String toStringCoordinate() {
+        return this.coordinates[next()].toString();
+    }
+
+}
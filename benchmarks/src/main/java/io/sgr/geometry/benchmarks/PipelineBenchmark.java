@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.ConversionPipeline;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of earth(WGS-84) to Baidu(BD-09) conversions, fused by a {@link ConversionPipeline} versus one pass per
+ * step, one coordinate per operation.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    @Param({Regions.INSIDE, Regions.OUTSIDE})
+    public String region;
+
+    private ConversionPipeline pipeline;
+    private double[] lat;
+    private double[] lng;
+    private double[] outLat;
+    private double[] outLng;
+    private double[] result;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.pipeline = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+        final Coordinate[] wgs = Regions.randomCoordinates(this.region);
+        this.lat = new double[Regions.SIZE];
+        this.lng = new double[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.lat[i] = wgs[i].getLat();
+            this.lng[i] = wgs[i].getLng();
+        }
+        this.outLat = new double[Regions.SIZE];
+        this.outLng = new double[Regions.SIZE];
+        this.result = new double[2];
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & Regions.MASK;
+    }
+
+    @Benchmark
+    public double[] stepwise() {
+        final int i = next();
+        GeometryUtils.wgs2gcj(this.lat[i], this.lng[i], this.result);
+        GeometryUtils.gcj2bd(this.result[0], this.result[1], this.result);
+        return this.result;
+    }
+
+    @Benchmark
+    public double[] fused() {
+        final int i = next();
+        this.pipeline.convert(this.lat[i], this.lng[i], this.result);
+        return this.result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Regions.SIZE)
+    public double[] stepwiseBatch() {
+        GeometryUtils.wgs2gcj(this.lat, this.lng, 0, Regions.SIZE, this.outLat, this.outLng);
+        GeometryUtils.gcj2bd(this.outLat, this.outLng, 0, Regions.SIZE, this.outLat, this.outLng);
+        return this.outLat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Regions.SIZE)
+    public double[] fusedBatch() {
+        this.pipeline.convert(this.lat, this.lng, 0, Regions.SIZE, this.outLat, this.outLng);
+        return this.outLat;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.polyline.Polyline;
+import io.sgr.geometry.polyline.PolylineDecoder;
+import io.sgr.geometry.polyline.PolylineEncoder;
+import io.sgr.geometry.polyline.VarintTrackReader;
+import io.sgr.geometry.polyline.VarintTrackWriter;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of encoding and decoding a trajectory of {@link Regions#SIZE} coordinates about 30 meters apart per
+ * operation, with JSON serialization as the baseline.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolylineBenchmark {
+
+    private double[] lat;
+    private double[] lng;
+    private ObjectWriter jsonWriter;
+    private Coordinate[] coordinates;
+    private StringBuilder text;
+    private String polyline;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+        this.lat = new double[Regions.SIZE];
+        this.lng = new double[Regions.SIZE];
+        this.coordinates = new Coordinate[Regions.SIZE];
+        double lat = 31.2304;
+        double lng = 121.4737;
+        for (int i = 0; i < Regions.SIZE; i++) {
+            lat += random.nextGaussian() * 0.0003;
+            lng += random.nextGaussian() * 0.0003;
+            this.lat[i] = lat;
+            this.lng[i] = lng;
+            this.coordinates[i] = new Coordinate(lat, lng);
+        }
+        this.jsonWriter = GeometryUtils.getObjectMapper().writerFor(Coordinate[].class);
+        this.text = new StringBuilder(Regions.SIZE * 16);
+        this.polyline = Polyline.encode(Arrays.asList(this.coordinates), Polyline.E6_PRECISION);
+        this.buffer = ByteBuffer.allocate(Regions.SIZE * 20);
+    }
+
+    @Benchmark
+    public String json() throws IOException {
+        return this.jsonWriter.writeValueAsString(this.coordinates);
+    }
+
+    @Benchmark
+    public StringBuilder encodeText() throws IOException {
+        this.text.setLength(0);
+        new PolylineEncoder(this.text, Polyline.E6_PRECISION).appendAll(this.lat, this.lng, 0, Regions.SIZE);
+        return this.text;
+    }
+
+    @Benchmark
+    public double[] decodeText() {
+        new PolylineDecoder(this.polyline, Polyline.E6_PRECISION).read(this.lat, this.lng, 0, Regions.SIZE);
+        return this.lat;
+    }
+
+    @Benchmark
+    public double[] binary() throws IOException {
+        this.buffer.clear();
+        new VarintTrackWriter(this.buffer).appendAll(this.lat, this.lng, 0, Regions.SIZE);
+        this.buffer.flip();
+        new VarintTrackReader(this.buffer).read(this.lat, this.lng, 0, Regions.SIZE);
+        return this.lat;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+
+import java.util.Random;
+
+/**
+ * Random coordinates for benchmarks, generated with a fixed seed so runs are comparable.
+ *
+ * @author SgrAlpha
+ */
+final class Regions {
+
+    /**
+     * Number of coordinates in every data set, a power of 2 so the index can wrap with a mask.
+     */
+    static final int SIZE = 1024;
+    static final int MASK = SIZE - 1;
+
+    static final String INSIDE = "inside";
+    static final String OUTSIDE = "outside";
+
+    private Regions() {
+    }
+
+    static Coordinate[] randomCoordinates(final String region) {
+        final Random random = new Random(20190101L);
+        final Coordinate[] coordinates = new Coordinate[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            if (INSIDE.equals(region)) {
+                coordinates[i] = new Coordinate(26 + random.nextDouble() * 20, 98 + random.nextDouble() * 20);
+            } else if (OUTSIDE.equals(region)) {
+                coordinates[i] = new Coordinate(30 + random.nextDouble() * 15, -120 + random.nextDouble() * 45);
+            } else {
+                throw new IllegalArgumentException(String.format("Unknown region: %s", region));
+            }
+        }
+        return coordinates;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.index.Neighbors;
+import io.sgr.geometry.index.ResultSink;
+import io.sgr.geometry.index.SpatialIndex;
+import io.sgr.geometry.utils.Distances;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of queries of a {@link SpatialIndex} of locations spread over China mainland, one query per operation,
+ * against a linear scan of the same locations. Viewports are 0.1 degree wide and radiuses 5 kilometers.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpatialIndexBenchmark {
+
+    @Param({"100000", "2000000"})
+    public int size;
+
+    private double[] lat;
+    private double[] lng;
+    private int[] indexes;
+    private SpatialIndex index;
+    private double[] queryLat;
+    private double[] queryLng;
+    private int cursor;
+    private final Neighbors neighbors = new Neighbors(10);
+    private final Counter counter = new Counter();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(20190101L);
+        this.lat = new double[this.size];
+        this.lng = new double[this.size];
+        final float[] weights = new float[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.lat[i] = 20 + random.nextDouble() * 25;
+            this.lng[i] = 100 + random.nextDouble() * 25;
+            weights[i] = 1 + random.nextInt(10);
+        }
+        this.indexes = new int[this.size];
+        this.index = SpatialIndex.of(this.lat, this.lng, weights, 0, this.size, Runtime.getRuntime().availableProcessors());
+        this.queryLat = new double[Regions.SIZE];
+        this.queryLng = new double[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.queryLat[i] = 20 + random.nextDouble() * 24.9;
+            this.queryLng[i] = 100 + random.nextDouble() * 24.9;
+        }
+    }
+
+    private int next() {
+        return this.cursor = (this.cursor + 1) & Regions.MASK;
+    }
+
+    @Benchmark
+    public int search() {
+        final int i = next();
+        return this.index.search(this.queryLat[i], this.queryLng[i], this.queryLat[i] + 0.1, this.queryLng[i] + 0.1, this.counter);
+    }
+
+    @Benchmark
+    public int within() {
+        final int i = next();
+        return this.index.within(this.queryLat[i], this.queryLng[i], 5000, this.counter);
+    }
+
+    @Benchmark
+    public Neighbors nearest() {
+        final int i = next();
+        this.index.nearest(this.queryLat[i], this.queryLng[i], this.neighbors);
+        return this.neighbors;
+    }
+
+    @Benchmark
+    public Neighbors nearestWeighted() {
+        final int i = next();
+        this.index.nearestWeighted(this.queryLat[i], this.queryLng[i], this.neighbors);
+        return this.neighbors;
+    }
+
+    @Benchmark
+    public int withinLinearScan() {
+        final int i = next();
+        return Distances.withinRadius(this.queryLat[i], this.queryLng[i], 5000, this.lat, this.lng, 0, this.size, this.indexes);
+    }
+
+    private static final class Counter implements ResultSink {
+
+        private int count;
+
+        @Override
+        public void accept(final int index) {
+            this.count++;
+        }
+
+    }
+
+}
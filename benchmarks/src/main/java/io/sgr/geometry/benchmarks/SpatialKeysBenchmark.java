@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.benchmarks;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.SpatialKeys;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of encoding {@link Regions#SIZE} coordinates into spatial keys per operation.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpatialKeysBenchmark {
+
+    private double[] lat;
+    private double[] lng;
+    private long[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Coordinate[] coordinates = Regions.randomCoordinates(Regions.INSIDE);
+        this.lat = new double[Regions.SIZE];
+        this.lng = new double[Regions.SIZE];
+        this.keys = new long[Regions.SIZE];
+        for (int i = 0; i < Regions.SIZE; i++) {
+            this.lat[i] = coordinates[i].getLat();
+            this.lng[i] = coordinates[i].getLng();
+        }
+    }
+
+    @Benchmark
+    public long[] morton() {
+        SpatialKeys.morton(this.lat, this.lng, 0, Regions.SIZE, this.keys);
+        return this.keys;
+    }
+
+    @Benchmark
+    public long[] geohashBits() {
+        SpatialKeys.geohashBits(this.lat, this.lng, 0, Regions.SIZE, SpatialKeys.MAX_GEOHASH_PRECISION, this.keys);
+        return this.keys;
+    }
+
+    @Benchmark
+    public double[] decodeMorton() {
+        SpatialKeys.decodeMorton(this.keys, 0, Regions.SIZE, this.lat, this.lng);
+        return this.lat;
+    }
+
+}
@@ -16,6 +16,8 @@
 
 package io.sgr.geometry;
 
+import io.sgr.geometry.utils.CoordinateFormat;
+import io.sgr.geometry.utils.CoordinateParser;
 import io.sgr.geometry.utils.GeometryUtils;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -23,7 +25,6 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -72,20 +73,9 @@ public class Coordinate implements Serializable {
      *         If failed to construct Coordinate object.
      */
     public static Coordinate parseCommaSeparatedString(String rawCoordinate) throws IllegalArgumentException {
-        if (rawCoordinate == null || rawCoordinate.trim().length() < 1) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", rawCoordinate));
-        }
-        String[] array = rawCoordinate.replaceAll(" ", "").split(",");
-        if (array.length != 2) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", rawCoordinate));
-        }
-        try {
-            double lat = Double.parseDouble(array[0]);
-            double lng = Double.parseDouble(array[1]);
-            return new Coordinate(lat, lng);
-        } catch (Exception e) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", rawCoordinate));
-        }
+        final double[] result = new double[2];
+        CoordinateParser.parse(rawCoordinate, CoordinateFormat.DECIMAL, result);
+        return new Coordinate(result[0], result[1]);
     }
 
     /**
@@ -98,20 +88,20 @@ public class Coordinate implements Serializable {
      *         If failed to construct Coordinate object.
      */
     public static Coordinate parseCommaSeparatedHexString(String rawCoordinate) {
-        if (rawCoordinate == null || rawCoordinate.trim().length() < 1) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", rawCoordinate));
-        }
-        String[] tmp = rawCoordinate.replaceAll(" ", "").split(",");
-        if (tmp.length != 2) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", rawCoordinate));
-        }
-        try {
-            long latE6 = (int) Long.parseLong(tmp[0], 16);
-            long lngE6 = (int) Long.parseLong(tmp[1], 16);
-            return new Coordinate(latE6 / 1e6, lngE6 / 1e6);
-        } catch (Exception e) {
-            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", rawCoordinate), e);
-        }
+        final double[] result = new double[2];
+        CoordinateParser.parse(rawCoordinate, CoordinateFormat.HEX, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * @param packed
+     *         A packed coordinate, see {@link GeometryUtils#packE6(int, int)}
+     * @return The coordinate object.
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate fromPacked(final long packed) throws IllegalArgumentException {
+        return new Coordinate(GeometryUtils.unpackLat(packed), GeometryUtils.unpackLng(packed));
     }
 
     /* (non-Javadoc)
@@ -119,12 +109,18 @@ public class Coordinate implements Serializable {
      */
     @Override
     public String toString() {
-        try {
-            return GeometryUtils.getObjectMapper().writeValueAsString(this);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return "{}";
+        return appendTo(new StringBuilder(48)).toString();
+    }
+
+    /**
+     * Append the JSON representation of this coordinate, the same as serialized by Jackson.
+     *
+     * @param builder
+     *         The builder to append to
+     * @return The builder
+     */
+    StringBuilder appendTo(final StringBuilder builder) {
+        return builder.append("{\"lat\":").append(this.lat).append(",\"lng\":").append(this.lng).append('}');
     }
 
     /**
@@ -144,19 +140,34 @@ public class Coordinate implements Serializable {
     }
 
     /**
+     * Values decoded from E6 values give back the same E6 values, see {@link GeometryUtils#toE6(double)}. Before
+     * 1.0.3, the latitude was simply floored after multiplying by 1e6, which gave one less for some of them.
+     *
      * @return The E6 value of latitude
      */
     @JsonIgnore
     public int getLatE6() {
-        return (int) Math.floor(this.lat * 1e6);
+        return GeometryUtils.toE6(this.lat);
     }
 
     /**
+     * Values decoded from E6 values give back the same E6 values, see {@link GeometryUtils#toE6(double)}. Before
+     * 1.0.3, the longitude was simply floored after multiplying by 1e6, which gave one less for some of them.
+     *
      * @return The E6 value of longitude
      */
     @JsonIgnore
     public int getLngE6() {
-        return (int) Math.floor(this.lng * 1e6);
+        return GeometryUtils.toE6(this.lng);
+    }
+
+    /**
+     * @return The E6 values of latitude and longitude packed into a single long, see {@link
+     * GeometryUtils#pack(double, double)}
+     */
+    @JsonIgnore
+    public long getPacked() {
+        return GeometryUtils.pack(this.lat, this.lng);
     }
 
     /* (non-Javadoc)
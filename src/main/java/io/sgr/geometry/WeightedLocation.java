@@ -68,4 +68,13 @@ public class WeightedLocation {
         return this.weight;
     }
 
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(72).append("{\"location\":");
+        return this.location.appendTo(builder).append(",\"weight\":").append(this.weight).append('}').toString();
+    }
+
 }
@@ -0,0 +1,716 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.flow;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.CoordinateTransformer;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts a live feed of coordinates or weighted locations in batches, and publishes them in the same order.
+ * <p>
+ * Items received are collected into batches, each converted with a single batch call of the transformer once it is
+ * full, or once its first item has waited for the maximum latency. At most the buffer size of items are requested from
+ * upstream and not published yet, so a slow subscriber slows down the publisher instead of growing the buffer.
+ * <p>
+ * Only one subscriber is supported. Failures of upstream or of conversions are passed to the subscriber right away,
+ * dropping the items buffered. For example:
+ * <pre>
+ * ConversionProcessor&lt;Coordinate&gt; processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ)
+ *         .setBatchSize(512)
+ *         .setMaxLatency(5, TimeUnit.MILLISECONDS)
+ *         .build();
+ * feed.subscribe(processor);
+ * processor.subscribe(consumer);
+ * </pre>
+ *
+ * @param <T>
+ *         The type of items, {@link Coordinate} or {@link WeightedLocation}
+ * @author SgrAlpha
+ */
+public final class ConversionProcessor<T> implements Processor<T, T> {
+
+    /**
+     * The default maximum number of items per batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    /**
+     * The default maximum time in milliseconds an item waits for its batch to fill
+     */
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 10;
+
+    private final Adapter<T> adapter;
+    private final ConversionKind kind;
+    private final CoordinateTransformer transformer;
+    private final int batchSize;
+    private final int bufferSize;
+    private final long maxLatencyNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final ArrayDeque<Batch> closed = new ArrayDeque<>();
+    private Subscription upstream;
+    private Subscriber<? super T> downstream;
+    private boolean ready;
+    private Batch open;
+    /**
+     * Items received and not published yet
+     */
+    private int buffered;
+    /**
+     * Items requested from upstream and not received yet
+     */
+    private long outstanding;
+    /**
+     * Items requested by the subscriber and not published yet
+     */
+    private long demand;
+    private boolean done;
+    private Throwable error;
+    private boolean cancelled;
+    private boolean terminated;
+
+    private ConversionProcessor(final Builder<T> builder) {
+        this.adapter = builder.adapter;
+        this.kind = builder.kind;
+        this.transformer = builder.transformer == null ? GeometryUtils.getDefaultTransformer() : builder.transformer;
+        this.batchSize = builder.batchSize;
+        this.bufferSize = builder.bufferSize == 0 ? builder.batchSize * 2 : builder.bufferSize;
+        this.maxLatencyNanos = builder.maxLatencyNanos;
+        this.scheduler = builder.scheduler == null ? SchedulerHolder.INSTANCE : builder.scheduler;
+    }
+
+    /**
+     * @param kind
+     *         The kind of conversion
+     * @return A builder of processors of coordinates
+     * @throws IllegalArgumentException
+     *         If the kind is missing
+     */
+    public static Builder<Coordinate> forCoordinates(final ConversionKind kind) throws IllegalArgumentException {
+        return new Builder<>(new CoordinateAdapter(), kind);
+    }
+
+    /**
+     * @param kind
+     *         The kind of conversion
+     * @return A builder of processors of weighted locations, which keep their weights
+     * @throws IllegalArgumentException
+     *         If the kind is missing
+     */
+    public static Builder<WeightedLocation> forWeightedLocations(final ConversionKind kind) throws IllegalArgumentException {
+        return new Builder<>(new WeightedLocationAdapter(), kind);
+    }
+
+    /**
+     * @return The maximum number of items per batch
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * @return The maximum number of items requested from upstream and not published yet
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.flow.Subscriber#onSubscribe(io.sgr.geometry.flow.Subscription)
+     */
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("Subscription should be provided");
+        }
+        final long toRequest;
+        synchronized (this.lock) {
+            if (this.upstream != null || this.cancelled || this.done) {
+                toRequest = -1;
+            } else {
+                this.upstream = subscription;
+                toRequest = reserve();
+            }
+        }
+        if (toRequest < 0) {
+            subscription.cancel();
+        } else if (toRequest > 0) {
+            subscription.request(toRequest);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.flow.Subscriber#onNext(java.lang.Object)
+     */
+    @Override
+    public void onNext(final T item) {
+        if (item == null) {
+            throw new NullPointerException("Item should be provided");
+        }
+        final double lat = this.adapter.lat(item);
+        final double lng = this.adapter.lng(item);
+        Batch full = null;
+        Subscription toCancel = null;
+        synchronized (this.lock) {
+            if (this.done || this.cancelled) {
+                return;
+            }
+            this.outstanding--;
+            this.buffered++;
+            Batch batch = this.open;
+            if (batch == null) {
+                batch = new Batch(this.batchSize);
+                this.open = batch;
+                try {
+                    batch.timer = this.scheduler.schedule(new Flush(batch), this.maxLatencyNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    toCancel = fail(e);
+                }
+            }
+            batch.add(item, lat, lng);
+            if (batch.size == this.batchSize) {
+                full = close();
+            }
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+        if (full != null) {
+            convert(full);
+        }
+        drain();
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.flow.Subscriber#onError(java.lang.Throwable)
+     */
+    @Override
+    public void onError(final Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("Throwable should be provided");
+        }
+        synchronized (this.lock) {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            if (this.error == null) {
+                this.error = throwable;
+            }
+        }
+        drain();
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.flow.Subscriber#onComplete()
+     */
+    @Override
+    public void onComplete() {
+        final Batch last;
+        synchronized (this.lock) {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            last = this.open == null ? null : close();
+        }
+        if (last != null) {
+            convert(last);
+        }
+        drain();
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.flow.Publisher#subscribe(io.sgr.geometry.flow.Subscriber)
+     */
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber should be provided");
+        }
+        final boolean accepted;
+        synchronized (this.lock) {
+            accepted = this.downstream == null;
+            if (accepted) {
+                this.downstream = subscriber;
+            }
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(final long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        subscriber.onSubscribe(new Downstream());
+        synchronized (this.lock) {
+            this.ready = true;
+        }
+        drain();
+    }
+
+    /**
+     * Take the open batch as the last one to convert, guarded by the lock.
+     */
+    private Batch close() {
+        final Batch batch = this.open;
+        this.open = null;
+        this.closed.add(batch);
+        if (batch.timer != null) {
+            batch.timer.cancel(false);
+        }
+        return batch;
+    }
+
+    /**
+     * Reserve room in the buffer to request more items from upstream, guarded by the lock. Items are requested in
+     * chunks of at least one batch, unless none is outstanding.
+     */
+    private long reserve() {
+        if (this.upstream == null || this.done || this.cancelled) {
+            return 0;
+        }
+        final long free = this.bufferSize - this.buffered - this.outstanding;
+        if (free <= 0 || (free < this.batchSize && this.outstanding > 0)) {
+            return 0;
+        }
+        this.outstanding += free;
+        return free;
+    }
+
+    /**
+     * Record a failure, guarded by the lock.
+     *
+     * @return The upstream subscription to cancel out of the lock, if not done yet
+     */
+    private Subscription fail(final Throwable throwable) {
+        if (this.error == null) {
+            this.error = throwable;
+        }
+        if (this.done) {
+            return null;
+        }
+        this.done = true;
+        return this.upstream;
+    }
+
+    private void convert(final Batch batch) {
+        try {
+            switch (this.kind) {
+                case WGS2GCJ:
+                    this.transformer.wgs2gcj(batch.lat, batch.lng, 0, batch.size, batch.outLat, batch.outLng);
+                    break;
+                case GCJ2WGS:
+                    this.transformer.gcj2wgs(batch.lat, batch.lng, 0, batch.size, batch.outLat, batch.outLng);
+                    break;
+                case GCJ2WGS_ACCURATE:
+                    this.transformer.gcj2wgsAccurate(batch.lat, batch.lng, 0, batch.size, batch.outLat, batch.outLng);
+                    break;
+                case GCJ2BD:
+                    this.transformer.gcj2bd(batch.lat, batch.lng, 0, batch.size, batch.outLat, batch.outLng);
+                    break;
+                case BD2GCJ:
+                    this.transformer.bd2gcj(batch.lat, batch.lng, 0, batch.size, batch.outLat, batch.outLng);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unsupported conversion: %s", this.kind));
+            }
+        } catch (RuntimeException e) {
+            final Subscription toCancel;
+            synchronized (this.lock) {
+                toCancel = fail(e);
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+            return;
+        }
+        synchronized (this.lock) {
+            batch.converted = true;
+        }
+    }
+
+    /**
+     * Publish converted items while there is demand, from one thread at a time.
+     */
+    private void drain() {
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            while (true) {
+                final Subscriber<? super T> subscriber;
+                final Subscription subscription;
+                T item = null;
+                Throwable failure = null;
+                long toRequest = 0;
+                synchronized (this.lock) {
+                    if (!this.ready || this.cancelled || this.terminated) {
+                        break;
+                    }
+                    subscriber = this.downstream;
+                    subscription = this.upstream;
+                    final Batch head = this.closed.peek();
+                    if (this.error != null) {
+                        failure = this.error;
+                        this.terminated = true;
+                        discard();
+                    } else if (head != null && head.converted && this.demand > 0) {
+                        final int i = head.emitted++;
+                        item = this.adapter.rebuild(head.items[i], head.lat[i], head.lng[i], head.outLat[i], head.outLng[i]);
+                        head.items[i] = null;
+                        if (head.emitted == head.size) {
+                            this.closed.poll();
+                        }
+                        this.demand--;
+                        this.buffered--;
+                        toRequest = reserve();
+                    } else if (this.done && head == null && this.open == null) {
+                        this.terminated = true;
+                    } else {
+                        break;
+                    }
+                }
+                if (failure != null) {
+                    subscriber.onError(failure);
+                } else if (item == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onNext(item);
+                    if (toRequest > 0) {
+                        subscription.request(toRequest);
+                    }
+                }
+            }
+            missed = this.wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop all buffered items, guarded by the lock.
+     */
+    private void discard() {
+        if (this.open != null) {
+            close();
+        }
+        this.closed.clear();
+        this.buffered = 0;
+    }
+
+    private final class Downstream implements Subscription {
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.flow.Subscription#request(long)
+         */
+        @Override
+        public void request(final long n) {
+            Subscription toCancel = null;
+            synchronized (ConversionProcessor.this.lock) {
+                if (n <= 0) {
+                    toCancel = fail(new IllegalArgumentException(String.format("Requested count should be positive, but got %d", n)));
+                } else {
+                    final long sum = ConversionProcessor.this.demand + n;
+                    ConversionProcessor.this.demand = sum < 0 ? Long.MAX_VALUE : sum;
+                }
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+            drain();
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.flow.Subscription#cancel()
+         */
+        @Override
+        public void cancel() {
+            final Subscription subscription;
+            synchronized (ConversionProcessor.this.lock) {
+                if (ConversionProcessor.this.cancelled) {
+                    return;
+                }
+                ConversionProcessor.this.cancelled = true;
+                discard();
+                subscription = ConversionProcessor.this.upstream;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+    }
+
+    private final class Flush implements Runnable {
+
+        private final Batch batch;
+
+        private Flush(final Batch batch) {
+            this.batch = batch;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            synchronized (ConversionProcessor.this.lock) {
+                if (ConversionProcessor.this.open != this.batch) {
+                    return;
+                }
+                close();
+            }
+            convert(this.batch);
+            drain();
+        }
+
+    }
+
+    private static final class Batch {
+
+        private final Object[] items;
+        private final double[] lat;
+        private final double[] lng;
+        private final double[] outLat;
+        private final double[] outLng;
+        private int size;
+        private int emitted;
+        private boolean converted;
+        private ScheduledFuture<?> timer;
+
+        private Batch(final int capacity) {
+            this.items = new Object[capacity];
+            this.lat = new double[capacity];
+            this.lng = new double[capacity];
+            this.outLat = new double[capacity];
+            this.outLng = new double[capacity];
+        }
+
+        private void add(final Object item, final double lat, final double lng) {
+            this.items[this.size] = item;
+            this.lat[this.size] = lat;
+            this.lng[this.size] = lng;
+            this.size++;
+        }
+
+    }
+
+    /**
+     * Reads coordinates from items and creates converted items.
+     */
+    private abstract static class Adapter<T> {
+
+        abstract double lat(T item);
+
+        abstract double lng(T item);
+
+        /**
+         * Create the converted item, or reuse the original one if the coordinate is not changed.
+         */
+        abstract T rebuild(Object item, double lat, double lng, double outLat, double outLng);
+
+    }
+
+    private static final class CoordinateAdapter extends Adapter<Coordinate> {
+
+        @Override
+        double lat(final Coordinate item) {
+            return item.getLat();
+        }
+
+        @Override
+        double lng(final Coordinate item) {
+            return item.getLng();
+        }
+
+        @Override
+        Coordinate rebuild(final Object item, final double lat, final double lng, final double outLat, final double outLng) {
+            return lat == outLat && lng == outLng ? (Coordinate) item : new Coordinate(outLat, outLng);
+        }
+
+    }
+
+    private static final class WeightedLocationAdapter extends Adapter<WeightedLocation> {
+
+        @Override
+        double lat(final WeightedLocation item) {
+            return item.getLocation().getLat();
+        }
+
+        @Override
+        double lng(final WeightedLocation item) {
+            return item.getLocation().getLng();
+        }
+
+        @Override
+        WeightedLocation rebuild(final Object item, final double lat, final double lng, final double outLat,
+                final double outLng) {
+            final WeightedLocation location = (WeightedLocation) item;
+            if (lat == outLat && lng == outLng) {
+                return location;
+            }
+            return new WeightedLocation(new Coordinate(outLat, outLng), location.getWeight());
+        }
+
+    }
+
+    /**
+     * The shared scheduler of flushes, with a single daemon thread.
+     */
+    private static class SchedulerHolder {
+
+        private static final ScheduledExecutorService INSTANCE;
+
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "conversion-processor-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            INSTANCE = executor;
+        }
+
+    }
+
+    /**
+     * Builder of {@link ConversionProcessor}. Builders are not thread safe.
+     *
+     * @param <T>
+     *         The type of items
+     */
+    public static final class Builder<T> {
+
+        private final Adapter<T> adapter;
+        private final ConversionKind kind;
+        private CoordinateTransformer transformer;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int bufferSize;
+        private long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_LATENCY_MILLIS);
+        private ScheduledExecutorService scheduler;
+
+        private Builder(final Adapter<T> adapter, final ConversionKind kind) {
+            if (kind == null) {
+                throw new IllegalArgumentException("Conversion kind should be provided");
+            }
+            this.adapter = adapter;
+            this.kind = kind;
+        }
+
+        /**
+         * @param transformer
+         *         The transformer, null for the {@link GeometryUtils#getDefaultTransformer() default transformer} at
+         *         the time of building
+         * @return This builder
+         */
+        public Builder<T> setTransformer(final CoordinateTransformer transformer) {
+            this.transformer = transformer;
+            return this;
+        }
+
+        /**
+         * @param batchSize
+         *         The maximum number of items per batch, {@link #DEFAULT_BATCH_SIZE} by default
+         * @return This builder
+         */
+        public Builder<T> setBatchSize(final int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param bufferSize
+         *         The maximum number of items requested from upstream and not published yet, at least the batch size,
+         *         or 0 for twice the batch size which is the default
+         * @return This builder
+         */
+        public Builder<T> setBufferSize(final int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * @param maxLatency
+         *         The maximum time an item waits for its batch to fill, {@link #DEFAULT_MAX_LATENCY_MILLIS}
+         *         milliseconds by default
+         * @param unit
+         *         The unit of the time
+         * @return This builder
+         */
+        public Builder<T> setMaxLatency(final long maxLatency, final TimeUnit unit) {
+            this.maxLatencyNanos = unit == null ? -1 : unit.toNanos(maxLatency);
+            return this;
+        }
+
+        /**
+         * @param scheduler
+         *         The scheduler to flush batches which are not full with, null for a shared one with a single daemon
+         *         thread
+         * @return This builder
+         */
+        public Builder<T> setScheduler(final ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @return The processor
+         * @throws IllegalArgumentException
+         *         If the batch size is less than 1, the buffer size is less than the batch size, or the maximum latency
+         *         is not positive
+         */
+        public ConversionProcessor<T> build() throws IllegalArgumentException {
+            if (this.batchSize < 1) {
+                throw new IllegalArgumentException(String.format("Batch size should be at least 1, but got %d", this.batchSize));
+            }
+            if (this.bufferSize != 0 && this.bufferSize < this.batchSize) {
+                throw new IllegalArgumentException(String.format("Buffer size should be at least %d, but got %d", this.batchSize, this.bufferSize));
+            }
+            if (this.maxLatencyNanos <= 0) {
+                throw new IllegalArgumentException("Max latency should be positive");
+            }
+            return new ConversionProcessor<>(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.flow;
+
+/**
+ * A stage which is both a {@link Subscriber} and a {@link Publisher}, the same as
+ * <code>java.util.concurrent.Flow.Processor</code>.
+ *
+ * @param <T>
+ *         The type of items received
+ * @param <R>
+ *         The type of items published
+ * @author SgrAlpha
+ */
+public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+
+}
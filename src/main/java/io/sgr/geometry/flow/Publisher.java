@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.flow;
+
+/**
+ * A producer of items received by {@link Subscriber}s on demand, the same as
+ * <code>java.util.concurrent.Flow.Publisher</code> which is not available before Java 9. Adapting either way only takes
+ * delegating each method.
+ *
+ * @param <T>
+ *         The type of items
+ * @author SgrAlpha
+ */
+public interface Publisher<T> {
+
+    /**
+     * Add a subscriber, which is then called back with {@link Subscriber#onSubscribe(Subscription)}.
+     *
+     * @param subscriber
+     *         The subscriber
+     * @throws NullPointerException
+     *         If the subscriber is null
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+
+}
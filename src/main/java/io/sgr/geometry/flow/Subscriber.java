@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.flow;
+
+/**
+ * A receiver of items, the same as <code>java.util.concurrent.Flow.Subscriber</code>. Methods of a subscriber are
+ * called one at a time, {@link #onSubscribe(Subscription)} first, and {@link #onNext(Object)} only as many times as
+ * requested.
+ *
+ * @param <T>
+ *         The type of items
+ * @author SgrAlpha
+ */
+public interface Subscriber<T> {
+
+    /**
+     * @param subscription
+     *         The subscription to request items with
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * @param item
+     *         The next item
+     */
+    void onNext(T item);
+
+    /**
+     * Called at most once when the publisher fails, no more methods are called after.
+     *
+     * @param throwable
+     *         The failure
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called at most once when all items are received, no more methods are called after.
+     */
+    void onComplete();
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.flow;
+
+/**
+ * The link between a {@link Publisher} and a {@link Subscriber}, the same as
+ * <code>java.util.concurrent.Flow.Subscription</code>.
+ *
+ * @author SgrAlpha
+ */
+public interface Subscription {
+
+    /**
+     * Add to the number of items the subscriber is ready to receive.
+     *
+     * @param n
+     *         The number of items, which should be positive
+     */
+    void request(long n);
+
+    /**
+     * Stop receiving items, possibly after a few more.
+     */
+    void cancel();
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.heatmap;
+
+import java.util.Arrays;
+
+/**
+ * Primitive sums of weights per cell, owned by a single thread until it is merged.
+ *
+ * @author SgrAlpha
+ */
+abstract class CellAccumulator {
+
+    /**
+     * Grids with up to this many cells are accumulated in arrays, 2 MB each. Larger ones use hash tables.
+     */
+    static final long DENSE_LIMIT = 1 << 18;
+
+    long count;
+    long skipped;
+
+    static CellAccumulator create(final long cellCount) {
+        return cellCount <= DENSE_LIMIT ? new Dense((int) cellCount) : new Sparse();
+    }
+
+    abstract void add(long cell, double weight);
+
+    /**
+     * Add all sums of another accumulator of the same grid to this one.
+     */
+    abstract void merge(CellAccumulator other);
+
+    /**
+     * @return The number of cells whose sum is not 0
+     */
+    abstract int size();
+
+    /**
+     * Store the cells whose sum is not 0 and their sums in ascending order of cells.
+     */
+    abstract void export(long[] cells, double[] weights);
+
+    static final class Dense extends CellAccumulator {
+
+        private final double[] sums;
+
+        private Dense(final int cellCount) {
+            this.sums = new double[cellCount];
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#add(long, double)
+         */
+        @Override
+        void add(final long cell, final double weight) {
+            this.sums[(int) cell] += weight;
+            this.count++;
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#merge(io.sgr.geometry.heatmap.CellAccumulator)
+         */
+        @Override
+        void merge(final CellAccumulator other) {
+            final double[] sums = this.sums;
+            final double[] others = ((Dense) other).sums;
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += others[i];
+            }
+            this.count += other.count;
+            this.skipped += other.skipped;
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#size()
+         */
+        @Override
+        int size() {
+            int size = 0;
+            for (double sum : this.sums) {
+                if (sum != 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#export(long[], double[])
+         */
+        @Override
+        void export(final long[] cells, final double[] weights) {
+            for (int i = 0, j = 0; i < this.sums.length; i++) {
+                if (this.sums[i] != 0) {
+                    cells[j] = i;
+                    weights[j++] = this.sums[i];
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Open addressing hash table with linear probing, kept at most half full.
+     */
+    static final class Sparse extends CellAccumulator {
+
+        private static final long EMPTY = -1;
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private long[] cells;
+        private double[] sums;
+        private int size;
+
+        private Sparse() {
+            this.cells = new long[INITIAL_CAPACITY];
+            this.sums = new double[INITIAL_CAPACITY];
+            Arrays.fill(this.cells, EMPTY);
+        }
+
+        private static int hash(final long cell) {
+            final long h = cell * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#add(long, double)
+         */
+        @Override
+        void add(final long cell, final double weight) {
+            addSum(cell, weight);
+            this.count++;
+        }
+
+        private void addSum(final long cell, final double weight) {
+            final int mask = this.cells.length - 1;
+            int i = hash(cell) & mask;
+            while (true) {
+                final long c = this.cells[i];
+                if (c == cell) {
+                    this.sums[i] += weight;
+                    return;
+                }
+                if (c == EMPTY) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            this.cells[i] = cell;
+            this.sums[i] = weight;
+            if (++this.size * 2 > this.cells.length) {
+                resize();
+            }
+        }
+
+        private void resize() {
+            final long[] oldCells = this.cells;
+            final double[] oldSums = this.sums;
+            this.cells = new long[oldCells.length * 2];
+            this.sums = new double[oldCells.length * 2];
+            Arrays.fill(this.cells, EMPTY);
+            final int mask = this.cells.length - 1;
+            for (int j = 0; j < oldCells.length; j++) {
+                if (oldCells[j] == EMPTY) {
+                    continue;
+                }
+                int i = hash(oldCells[j]) & mask;
+                while (this.cells[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                this.cells[i] = oldCells[j];
+                this.sums[i] = oldSums[j];
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#merge(io.sgr.geometry.heatmap.CellAccumulator)
+         */
+        @Override
+        void merge(final CellAccumulator other) {
+            final Sparse sparse = (Sparse) other;
+            for (int i = 0; i < sparse.cells.length; i++) {
+                if (sparse.cells[i] != EMPTY) {
+                    addSum(sparse.cells[i], sparse.sums[i]);
+                }
+            }
+            this.count += other.count;
+            this.skipped += other.skipped;
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#size()
+         */
+        @Override
+        int size() {
+            int size = 0;
+            for (int i = 0; i < this.cells.length; i++) {
+                if (this.cells[i] != EMPTY && this.sums[i] != 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        /* (non-Javadoc)
+         * @see io.sgr.geometry.heatmap.CellAccumulator#export(long[], double[])
+         */
+        @Override
+        void export(final long[] cells, final double[] weights) {
+            int j = 0;
+            for (int i = 0; i < this.cells.length; i++) {
+                if (this.cells[i] != EMPTY && this.sums[i] != 0) {
+                    cells[j++] = this.cells[i];
+                }
+            }
+            Arrays.sort(cells, 0, j);
+            for (int k = 0; k < j; k++) {
+                weights[k] = get(cells[k]);
+            }
+        }
+
+        private double get(final long cell) {
+            final int mask = this.cells.length - 1;
+            for (int i = hash(cell) & mask; ; i = (i + 1) & mask) {
+                if (this.cells[i] == cell) {
+                    return this.sums[i];
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.heatmap;
+
+import java.util.Arrays;
+
+/**
+ * Sums of weights per cell of a {@link HeatmapGrid}, built by {@link HeatmapAggregator}. Only cells with a sum other
+ * than 0 are kept, in ascending order of cells, and can be exported as they are or into a dense array.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class Heatmap {
+
+    private final HeatmapGrid grid;
+    private final long[] cells;
+    private final double[] weights;
+    private final long count;
+    private final long skipped;
+
+    Heatmap(final HeatmapGrid grid, final long[] cells, final double[] weights, final long count, final long skipped) {
+        this.grid = grid;
+        this.cells = cells;
+        this.weights = weights;
+        this.count = count;
+        this.skipped = skipped;
+    }
+
+    /**
+     * @return The grid
+     */
+    public HeatmapGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * @return The number of locations binned into cells
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return The number of locations skipped because they are out of the grid
+     */
+    public long getSkippedCount() {
+        return this.skipped;
+    }
+
+    /**
+     * @return The number of cells whose sum is not 0
+     */
+    public int size() {
+        return this.cells.length;
+    }
+
+    /**
+     * @return A copy of the indexes of cells whose sum is not 0, in ascending order
+     */
+    public long[] getCells() {
+        return this.cells.clone();
+    }
+
+    /**
+     * @return A copy of the sums of the cells returned by {@link #getCells()}, in the same order
+     */
+    public double[] getWeights() {
+        return this.weights.clone();
+    }
+
+    /**
+     * @param cell
+     *         The index of the cell, see {@link HeatmapGrid#cellOf(double, double)}
+     * @return The sum of weights in the cell
+     */
+    public double getWeight(final long cell) {
+        final int index = Arrays.binarySearch(this.cells, cell);
+        return index < 0 ? 0 : this.weights[index];
+    }
+
+    /**
+     * @return The sum of weights in all cells
+     */
+    public double getTotalWeight() {
+        double total = 0;
+        for (double weight : this.weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    /**
+     * @return The largest sum of weights in a cell, or 0 if there is no cell
+     */
+    public double getMaxWeight() {
+        double max = 0;
+        for (double weight : this.weights) {
+            max = Math.max(max, weight);
+        }
+        return max;
+    }
+
+    /**
+     * @return The sums of all cells of the grid, row by row
+     * @throws IllegalStateException
+     *         If the grid has more cells than an array can hold
+     */
+    public double[] toDense() throws IllegalStateException {
+        final long cellCount = this.grid.getCellCount();
+        if (cellCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(String.format("Too many cells for a dense array: %d", cellCount));
+        }
+        final double[] dense = new double[(int) cellCount];
+        for (int i = 0; i < this.cells.length; i++) {
+            dense[(int) this.cells[i]] = this.weights[i];
+        }
+        return dense;
+    }
+
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.heatmap;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.CoordinateStore;
+import io.sgr.geometry.utils.ForkJoinPools;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Bins weighted locations into the cells of a {@link HeatmapGrid} and sums their weights, without creating any object
+ * per location.
+ * <p>
+ * Locations added one by one or from an {@link Iterable} go to the shared sums under a lock, which is fine for a
+ * single producer. Concurrent producers should each take a {@link Partial} with {@link #newPartial()}, which sums
+ * into its own buffer without any lock and merges it when closed. Batches in the primitive layout are split among
+ * threads in the same way. Buffers are arrays for grids of up to 262144 cells and hash tables for larger ones.
+ * {@link #build()} turns the sums into a {@link Heatmap}, it includes partials closed so far.
+ *
+ * @author SgrAlpha
+ */
+public final class HeatmapAggregator {
+
+    /**
+     * Minimum number of locations per thread of batches
+     */
+    static final int MIN_CHUNK_SIZE = 8192;
+
+    private final HeatmapGrid grid;
+    private final Object lock = new Object();
+    private final CellAccumulator merged;
+
+    /**
+     * @param grid
+     *         The grid to bin locations into
+     * @throws IllegalArgumentException
+     *         If the grid is missing
+     */
+    public HeatmapAggregator(final HeatmapGrid grid) throws IllegalArgumentException {
+        if (grid == null) {
+            throw new IllegalArgumentException("Grid should be provided");
+        }
+        this.grid = grid;
+        this.merged = CellAccumulator.create(grid.getCellCount());
+    }
+
+    /**
+     * @return The grid
+     */
+    public HeatmapGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Add a location. Locations out of the grid are skipped.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param weight
+     *         The weight
+     */
+    public void add(final double lat, final double lng, final float weight) {
+        synchronized (this.lock) {
+            add(this.merged, lat, lng, weight);
+        }
+    }
+
+    /**
+     * Add a weighted location. Locations out of the grid are skipped.
+     *
+     * @param location
+     *         The weighted location
+     * @throws IllegalArgumentException
+     *         If the location is missing
+     */
+    public void add(final WeightedLocation location) throws IllegalArgumentException {
+        if (location == null) {
+            throw new IllegalArgumentException("Location should be provided");
+        }
+        final Coordinate coordinate = location.getLocation();
+        synchronized (this.lock) {
+            add(this.merged, coordinate.getLat(), coordinate.getLng(), location.getWeight());
+        }
+    }
+
+    /**
+     * Add weighted locations as they come, in the calling thread. Locations out of the grid are skipped.
+     *
+     * @param locations
+     *         The weighted locations
+     * @throws IllegalArgumentException
+     *         If the locations are missing or any of them is null
+     */
+    public void addAll(final Iterable<WeightedLocation> locations) throws IllegalArgumentException {
+        if (locations == null) {
+            throw new IllegalArgumentException("Locations should be provided");
+        }
+        synchronized (this.lock) {
+            addAll(this.merged, locations);
+        }
+    }
+
+    /**
+     * Create a partial to add locations from one thread without any lock. Its buffer takes up to 2 MB, so partials
+     * should be closed as soon as their thread is done.
+     *
+     * @return A new partial, which is merged into this aggregator when closed
+     */
+    public Partial newPartial() {
+        return new Partial(CellAccumulator.create(this.grid.getCellCount()));
+    }
+
+    /**
+     * Add a range of locations with multiple threads. Locations out of the grid are skipped.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param weights
+     *         The weights, or null to weight every location 1
+     * @param offset
+     *         The index of the first location
+     * @param length
+     *         The number of locations
+     * @param parallelism
+     *         The number of threads to use
+     * @throws IllegalArgumentException
+     *         If the latitudes or longitudes are missing, the range is out of bounds of any of the arrays, or the
+     *         parallelism is less than 1
+     */
+    public void addAll(final double[] lat, final double[] lng, final float[] weights, final int offset,
+            final int length, final int parallelism) throws IllegalArgumentException {
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length || (weights != null && end > weights.length)) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+        run(new Source() {
+            @Override
+            public void addTo(final CellAccumulator buffer, final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    add(buffer, lat[i], lng[i], weights == null ? 1 : weights[i]);
+                }
+            }
+        }, offset, length, parallelism);
+    }
+
+    /**
+     * Add all locations of a store with multiple threads. Locations out of the grid are skipped, locations of
+     * unweighted stores are weighted 1.
+     *
+     * @param store
+     *         The store
+     * @param parallelism
+     *         The number of threads to use
+     * @throws IllegalArgumentException
+     *         If the store is missing or the parallelism is less than 1
+     */
+    public void addAll(final CoordinateStore store, final int parallelism) throws IllegalArgumentException {
+        if (store == null) {
+            throw new IllegalArgumentException("Store should be provided");
+        }
+        run(new Source() {
+            @Override
+            public void addTo(final CellAccumulator buffer, final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    add(buffer, store.getLat(i), store.getLng(i), store.getWeight(i));
+                }
+            }
+        }, 0, store.size(), parallelism);
+    }
+
+    /**
+     * Build a heatmap of the sums so far. It does not clear them, so more locations can be added and built again.
+     *
+     * @return The heatmap of all locations added so far, including those of closed partials
+     */
+    public Heatmap build() {
+        final CellAccumulator result = CellAccumulator.create(this.grid.getCellCount());
+        synchronized (this.lock) {
+            result.merge(this.merged);
+        }
+        final int size = result.size();
+        final long[] cells = new long[size];
+        final double[] weights = new double[size];
+        result.export(cells, weights);
+        return new Heatmap(this.grid, cells, weights, result.count, result.skipped);
+    }
+
+    private void add(final CellAccumulator buffer, final double lat, final double lng, final double weight) {
+        final long cell = this.grid.cellOf(lat, lng);
+        if (cell < 0) {
+            buffer.skipped++;
+            return;
+        }
+        buffer.add(cell, weight);
+    }
+
+    private void addAll(final CellAccumulator buffer, final Iterable<WeightedLocation> locations) {
+        for (WeightedLocation location : locations) {
+            if (location == null) {
+                throw new IllegalArgumentException("Locations should not contain null");
+            }
+            final Coordinate coordinate = location.getLocation();
+            add(buffer, coordinate.getLat(), coordinate.getLng(), location.getWeight());
+        }
+    }
+
+    private void merge(final CellAccumulator buffer) {
+        synchronized (this.lock) {
+            this.merged.merge(buffer);
+        }
+    }
+
+    private void run(final Source source, final int offset, final int length, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism should be at least 1, but got %d", parallelism));
+        }
+        final int chunks = Math.min(parallelism, Math.max(1, length / MIN_CHUNK_SIZE));
+        if (chunks == 1) {
+            synchronized (this.lock) {
+                source.addTo(this.merged, offset, offset + length);
+            }
+            return;
+        }
+        final List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int from = offset + (int) ((long) length * c / chunks);
+            final int to = offset + (int) ((long) length * (c + 1) / chunks);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    final CellAccumulator buffer = CellAccumulator.create(HeatmapAggregator.this.grid.getCellCount());
+                    source.addTo(buffer, from, to);
+                    merge(buffer);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> future : ForkJoinPools.get(parallelism).invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while adding locations", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private interface Source {
+
+        void addTo(CellAccumulator buffer, int from, int to);
+
+    }
+
+    /**
+     * Locations added by one thread, merged into the aggregator when closed. Partials are not thread safe.
+     */
+    public final class Partial implements Closeable {
+
+        private CellAccumulator buffer;
+
+        private Partial(final CellAccumulator buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Add a location. Locations out of the grid are skipped.
+         *
+         * @param lat
+         *         The latitude
+         * @param lng
+         *         The longitude
+         * @param weight
+         *         The weight
+         * @throws IllegalStateException
+         *         If the partial is closed
+         */
+        public void add(final double lat, final double lng, final float weight) throws IllegalStateException {
+            HeatmapAggregator.this.add(buffer(), lat, lng, weight);
+        }
+
+        /**
+         * Add a weighted location. Locations out of the grid are skipped.
+         *
+         * @param location
+         *         The weighted location
+         * @throws IllegalArgumentException
+         *         If the location is missing
+         * @throws IllegalStateException
+         *         If the partial is closed
+         */
+        public void add(final WeightedLocation location) throws IllegalArgumentException, IllegalStateException {
+            if (location == null) {
+                throw new IllegalArgumentException("Location should be provided");
+            }
+            final Coordinate coordinate = location.getLocation();
+            HeatmapAggregator.this.add(buffer(), coordinate.getLat(), coordinate.getLng(), location.getWeight());
+        }
+
+        /**
+         * Add weighted locations as they come. Locations out of the grid are skipped.
+         *
+         * @param locations
+         *         The weighted locations
+         * @throws IllegalArgumentException
+         *         If the locations are missing or any of them is null
+         * @throws IllegalStateException
+         *         If the partial is closed
+         */
+        public void addAll(final Iterable<WeightedLocation> locations)
+                throws IllegalArgumentException, IllegalStateException {
+            if (locations == null) {
+                throw new IllegalArgumentException("Locations should be provided");
+            }
+            HeatmapAggregator.this.addAll(buffer(), locations);
+        }
+
+        /**
+         * Merge the locations into the aggregator and release the buffer. Closing again has no effect.
+         */
+        @Override
+        public void close() {
+            final CellAccumulator buffer = this.buffer;
+            if (buffer != null) {
+                this.buffer = null;
+                merge(buffer);
+            }
+        }
+
+        private CellAccumulator buffer() {
+            final CellAccumulator buffer = this.buffer;
+            if (buffer == null) {
+                throw new IllegalStateException("Partial is closed");
+            }
+            return buffer;
+        }
+
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.heatmap;
+
+import io.sgr.geometry.utils.GeometryUtils;
+
+/**
+ * Grid of cells which a heatmap bins locations into, either with a fixed size in degrees or made of the Web Mercator
+ * tiles of a zoom level. Cells are numbered row by row from the north-west corner for Web Mercator grids, and from the
+ * south-west corner for latitude/longitude grids, like the axes of each projection.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class HeatmapGrid {
+
+    /**
+     * The maximum Web Mercator zoom level
+     */
+    public static final int MAX_ZOOM = 30;
+    /**
+     * The maximum latitude covered by Web Mercator tiles
+     */
+    public static final double MAX_MERCATOR_LAT = 85.0511287798066;
+
+    private final boolean mercator;
+    private final int zoom;
+    private final double minLat;
+    private final double minLng;
+    private final double cellSize;
+    private final double inverseCellSize;
+    private final long minX;
+    private final long minY;
+    private final long columns;
+    private final long rows;
+
+    private HeatmapGrid(final boolean mercator, final int zoom, final double minLat, final double minLng,
+            final double cellSize, final long minX, final long minY, final long columns, final long rows) {
+        this.mercator = mercator;
+        this.zoom = zoom;
+        this.minLat = minLat;
+        this.minLng = minLng;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+        this.minX = minX;
+        this.minY = minY;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Create a grid of cells with a fixed size in degrees. Cells include their south and west edges, so locations on
+     * the north or east edge of the grid are out of it.
+     *
+     * @param minLat
+     *         The southern edge of the grid
+     * @param minLng
+     *         The western edge of the grid
+     * @param maxLat
+     *         The northern edge of the grid
+     * @param maxLng
+     *         The eastern edge of the grid
+     * @param cellSize
+     *         The size of cells in degrees
+     * @return The grid
+     * @throws IllegalArgumentException
+     *         If the bounds are invalid or empty, the cell size is not positive, or there are too many cells
+     */
+    public static HeatmapGrid latLng(final double minLat, final double minLng, final double maxLat, final double maxLng,
+            final double cellSize) throws IllegalArgumentException {
+        checkBounds(minLat, minLng, maxLat, maxLng);
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException(String.format("Cell size should be greater than 0, but got %s", cellSize));
+        }
+        final double columns = Math.ceil((maxLng - minLng) / cellSize);
+        final double rows = Math.ceil((maxLat - minLat) / cellSize);
+        if (columns * rows > Long.MAX_VALUE / 2) {
+            throw new IllegalArgumentException(String.format("Too many cells of size %s", cellSize));
+        }
+        return new HeatmapGrid(false, -1, minLat, minLng, cellSize, 0, 0, (long) columns, (long) rows);
+    }
+
+    /**
+     * Create a grid of all Web Mercator tiles of a zoom level. Use a zoom level 8 higher for cells of 1 pixel in 256
+     * pixel tiles.
+     *
+     * @param zoom
+     *         The zoom level, in range [0, 30]
+     * @return The grid
+     * @throws IllegalArgumentException
+     *         If the zoom level is out of range
+     */
+    public static HeatmapGrid webMercator(final int zoom) throws IllegalArgumentException {
+        checkZoom(zoom);
+        final long size = 1L << zoom;
+        return new HeatmapGrid(true, zoom, 0, 0, 0, 0, 0, size, size);
+    }
+
+    /**
+     * Create a grid of the Web Mercator tiles of a zoom level which intersect a bounding box.
+     *
+     * @param zoom
+     *         The zoom level, in range [0, 30]
+     * @param minLat
+     *         The southern edge of the bounding box
+     * @param minLng
+     *         The western edge of the bounding box
+     * @param maxLat
+     *         The northern edge of the bounding box
+     * @param maxLng
+     *         The eastern edge of the bounding box
+     * @return The grid
+     * @throws IllegalArgumentException
+     *         If the zoom level is out of range, or the bounds are invalid or empty
+     */
+    public static HeatmapGrid webMercator(final int zoom, final double minLat, final double minLng, final double maxLat,
+            final double maxLng) throws IllegalArgumentException {
+        checkZoom(zoom);
+        checkBounds(minLat, minLng, maxLat, maxLng);
+        final double scale = 1L << zoom;
+        final long maxTile = (1L << zoom) - 1;
+        final long minX = Math.min(maxTile, (long) Math.floor(mercatorX(minLng) * scale));
+        final long maxX = Math.min(maxTile, (long) Math.floor(mercatorX(maxLng) * scale));
+        final long minY = Math.min(maxTile, (long) Math.floor(mercatorY(Math.min(maxLat, MAX_MERCATOR_LAT)) * scale));
+        final long maxY = Math.min(maxTile, (long) Math.floor(mercatorY(Math.max(minLat, -MAX_MERCATOR_LAT)) * scale));
+        return new HeatmapGrid(true, zoom, 0, 0, 0, minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    private static void checkZoom(final int zoom) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException(String.format("Zoom should be in range [0, %d], but got %d", MAX_ZOOM, zoom));
+        }
+    }
+
+    private static void checkBounds(final double minLat, final double minLng, final double maxLat, final double maxLng) {
+        if (!GeometryUtils.isValidCoordinate(minLat, minLng) || !GeometryUtils.isValidCoordinate(maxLat, maxLng)
+                || !(minLat < maxLat) || !(minLng < maxLng)) {
+            throw new IllegalArgumentException(String.format("Invalid bounds: { minLat: %f, minLng: %f, maxLat: %f, maxLng: %f }",
+                    minLat, minLng, maxLat, maxLng));
+        }
+    }
+
+    private static double mercatorX(final double lng) {
+        return (lng + 180) / 360;
+    }
+
+    private static double mercatorY(final double lat) {
+        final double sin = Math.sin(Math.toRadians(lat));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return The index of the cell which contains the location, or -1 if it is out of this grid
+     */
+    public long cellOf(final double lat, final double lng) {
+        final double x;
+        final double y;
+        if (this.mercator) {
+            if (!(lat >= -MAX_MERCATOR_LAT && lat <= MAX_MERCATOR_LAT && lng >= -180 && lng <= 180)) {
+                return -1;
+            }
+            final double scale = 1L << this.zoom;
+            // Clamp, so the eastern and southern edges of the world fall in the last tiles.
+            final long maxTile = (1L << this.zoom) - 1;
+            x = Math.min(maxTile, (long) (mercatorX(lng) * scale)) - this.minX;
+            y = Math.min(maxTile, (long) (mercatorY(lat) * scale)) - this.minY;
+        } else {
+            x = Math.floor((lng - this.minLng) * this.inverseCellSize);
+            y = Math.floor((lat - this.minLat) * this.inverseCellSize);
+        }
+        if (!(x >= 0 && x < this.columns && y >= 0 && y < this.rows)) {
+            return -1;
+        }
+        return (long) y * this.columns + (long) x;
+    }
+
+    /**
+     * @return Whether or not this grid is made of Web Mercator tiles
+     */
+    public boolean isWebMercator() {
+        return this.mercator;
+    }
+
+    /**
+     * @return The zoom level of Web Mercator grids, or -1 for latitude/longitude grids
+     */
+    public int getZoom() {
+        return this.zoom;
+    }
+
+    /**
+     * @return The size of cells in degrees of latitude/longitude grids, or 0 for Web Mercator grids
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * @return The column of the first cell, which is the tile X of Web Mercator grids, or 0 for latitude/longitude
+     * grids
+     */
+    public long getMinX() {
+        return this.minX;
+    }
+
+    /**
+     * @return The row of the first cell, which is the tile Y of Web Mercator grids, or 0 for latitude/longitude grids
+     */
+    public long getMinY() {
+        return this.minY;
+    }
+
+    /**
+     * @return The number of columns
+     */
+    public long getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * @return The number of rows
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return The number of cells
+     */
+    public long getCellCount() {
+        return this.columns * this.rows;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.index;
+
+import io.sgr.geometry.utils.Distances;
+
+/**
+ * The result of k-nearest queries of a {@link SpatialIndex}, sorted from the nearest to the farthest. Instances can
+ * be reused for any number of queries, so queries do not create any object. The results of the last query are
+ * replaced by the next one.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class Neighbors {
+
+    private final int capacity;
+    /**
+     * Positions in the index, a max-heap by score while querying, then sorted.
+     */
+    private final int[] positions;
+    private final double[] scores;
+    private final int[] indexes;
+    private final double[] distances;
+    private final float[] weights;
+    private int size;
+
+    /**
+     * @param capacity
+     *         The maximum number of neighbors to find, the k of k-nearest queries
+     * @throws IllegalArgumentException
+     *         If the capacity is less than 1
+     */
+    public Neighbors(final int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Capacity should be at least 1, but got %d", capacity));
+        }
+        this.capacity = capacity;
+        this.positions = new int[capacity];
+        this.scores = new double[capacity];
+        this.indexes = new int[capacity];
+        this.distances = new double[capacity];
+        this.weights = new float[capacity];
+    }
+
+    /**
+     * @return The maximum number of neighbors to find
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return The number of neighbors found, less than the capacity only if the index has fewer locations
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param rank
+     *         The rank of the neighbor, 0 for the nearest
+     * @return The index of the neighbor in the source the index was built from
+     * @throws IndexOutOfBoundsException
+     *         If the rank is out of range
+     */
+    public int getIndex(final int rank) throws IndexOutOfBoundsException {
+        checkRank(rank);
+        return this.indexes[rank];
+    }
+
+    /**
+     * @param rank
+     *         The rank of the neighbor, 0 for the nearest
+     * @return The distance in meters to the neighbor, by haversine
+     * @throws IndexOutOfBoundsException
+     *         If the rank is out of range
+     */
+    public double getDistance(final int rank) throws IndexOutOfBoundsException {
+        checkRank(rank);
+        return this.distances[rank];
+    }
+
+    /**
+     * @param rank
+     *         The rank of the neighbor, 0 for the nearest
+     * @return The weight of the neighbor
+     * @throws IndexOutOfBoundsException
+     *         If the rank is out of range
+     */
+    public float getWeight(final int rank) throws IndexOutOfBoundsException {
+        checkRank(rank);
+        return this.weights[rank];
+    }
+
+    private void checkRank(final int rank) {
+        if (rank < 0 || rank >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("Rank should be in range [0, %d), but got %d", this.size, rank));
+        }
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+
+    boolean isFull() {
+        return this.size == this.capacity;
+    }
+
+    /**
+     * @return The highest score kept, only meaningful when full
+     */
+    double worst() {
+        return this.scores[0];
+    }
+
+    void offer(final int position, final double score) {
+        if (this.size < this.capacity) {
+            int i = this.size++;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (this.scores[parent] >= score) {
+                    break;
+                }
+                this.positions[i] = this.positions[parent];
+                this.scores[i] = this.scores[parent];
+                i = parent;
+            }
+            this.positions[i] = position;
+            this.scores[i] = score;
+        } else if (score < this.scores[0]) {
+            siftDown(position, score, this.size);
+        }
+    }
+
+    /**
+     * Put the element at the root of the heap of the given size, and move it down to its place.
+     */
+    private void siftDown(final int position, final double score, final int heapSize) {
+        int i = 0;
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && this.scores[child + 1] > this.scores[child]) {
+                child++;
+            }
+            if (this.scores[child] <= score) {
+                break;
+            }
+            this.positions[i] = this.positions[child];
+            this.scores[i] = this.scores[child];
+            i = child;
+        }
+        this.positions[i] = position;
+        this.scores[i] = score;
+    }
+
+    /**
+     * Sort the heap in place from the lowest score to the highest, then resolve the positions.
+     */
+    void finish(final SpatialIndex index, final double x, final double y, final double z) {
+        for (int end = this.size - 1; end > 0; end--) {
+            final int position = this.positions[end];
+            final double score = this.scores[end];
+            this.positions[end] = this.positions[0];
+            this.scores[end] = this.scores[0];
+            siftDown(position, score, end);
+        }
+        for (int i = 0; i < this.size; i++) {
+            final int position = this.positions[i];
+            this.indexes[i] = index.indexAt(position);
+            this.weights[i] = index.weightAt(position);
+            final double chord = Math.sqrt(index.chord2At(position, x, y, z));
+            this.distances[i] = 2 * Distances.EARTH_RADIUS * Math.asin(Math.min(1, chord / 2));
+        }
+    }
+
+}
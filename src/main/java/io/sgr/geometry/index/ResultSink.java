@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.index;
+
+/**
+ * Receives the results of range queries of a {@link SpatialIndex}, one at a time, in no particular order.
+ *
+ * @author SgrAlpha
+ */
+public interface ResultSink {
+
+    /**
+     * @param index
+     *         The index of a location in the source the index was built from
+     */
+    void accept(int index);
+
+}
@@ -0,0 +1,653 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.index;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.Distances;
+import io.sgr.geometry.utils.ForkJoinPools;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import java.util.Collection;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Immutable index of weighted locations for bounding box, radius and k-nearest queries, bulk loaded as a KD-tree.
+ * <p>
+ * The tree is implicit: locations are reordered so that the median of every range splits it alternately by longitude
+ * and latitude, and stored in flat primitive arrays, without any node object. Ranges of up to 8 locations are
+ * scanned. Building takes O(n log n) and can be split among threads, queries visit O(log n + m) locations for m
+ * results. Queries do not create any object, results go to a {@link ResultSink} or a reusable {@link Neighbors}.
+ * <p>
+ * Distances are great-circle distances, the same as {@link Distances#haversine(double, double, double, double)}.
+ * They are computed from chords between locations projected on the unit sphere, so queries do not evaluate any
+ * trigonometric function per location, and work across the antimeridian and near the poles. Locations are identified
+ * by their index in the source the index was built from.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class SpatialIndex {
+
+    /**
+     * Maximum number of locations of ranges which are scanned instead of split
+     */
+    static final int LEAF_SIZE = 8;
+    /**
+     * Minimum number of locations of ranges which are split among threads
+     */
+    static final int MIN_CHUNK_SIZE = 8192;
+
+    private static final int STRIDE = 5;
+    private static final int LAT = 0;
+    private static final int LNG = 1;
+    private static final int X = 2;
+    private static final int Y = 3;
+    private static final int Z = 4;
+
+    private final int size;
+    /**
+     * 5 values per location, next to each other for locality: latitude, longitude, and the location on the unit sphere
+     * to compute distances without trigonometric functions.
+     */
+    private final double[] points;
+    private final float[] weights;
+    /**
+     * Maximum weight of every range which is split, stored at the position of its median.
+     */
+    private final float[] maxWeights;
+    private final int[] indexes;
+
+    private SpatialIndex(final int size) {
+        this.size = size;
+        this.points = new double[size * STRIDE];
+        this.weights = new float[size];
+        this.maxWeights = new float[size];
+        this.indexes = new int[size];
+    }
+
+    /**
+     * Build an index of coordinates, each weighted 1.
+     *
+     * @param coordinates
+     *         The coordinates, identified by their position in iteration order
+     * @param parallelism
+     *         The number of threads to use
+     * @return The index
+     * @throws IllegalArgumentException
+     *         If the coordinates are missing or contain null, or the parallelism is less than 1
+     */
+    public static SpatialIndex ofCoordinates(final Collection<Coordinate> coordinates, final int parallelism)
+            throws IllegalArgumentException {
+        if (coordinates == null) {
+            throw new IllegalArgumentException("Coordinates should be provided");
+        }
+        checkParallelism(parallelism);
+        final SpatialIndex index = new SpatialIndex(coordinates.size());
+        int i = 0;
+        for (Coordinate coordinate : coordinates) {
+            if (coordinate == null) {
+                throw new IllegalArgumentException("Coordinates should not contain null");
+            }
+            index.put(i, i, coordinate.getLat(), coordinate.getLng(), 1);
+            i++;
+        }
+        index.build(parallelism);
+        return index;
+    }
+
+    /**
+     * Build an index of weighted locations.
+     *
+     * @param locations
+     *         The weighted locations, identified by their position in iteration order
+     * @param parallelism
+     *         The number of threads to use
+     * @return The index
+     * @throws IllegalArgumentException
+     *         If the locations are missing or contain null, or the parallelism is less than 1
+     */
+    public static SpatialIndex ofWeightedLocations(final Collection<WeightedLocation> locations, final int parallelism)
+            throws IllegalArgumentException {
+        if (locations == null) {
+            throw new IllegalArgumentException("Locations should be provided");
+        }
+        checkParallelism(parallelism);
+        final SpatialIndex index = new SpatialIndex(locations.size());
+        int i = 0;
+        for (WeightedLocation location : locations) {
+            if (location == null) {
+                throw new IllegalArgumentException("Locations should not contain null");
+            }
+            final Coordinate coordinate = location.getLocation();
+            index.put(i, i, coordinate.getLat(), coordinate.getLng(), location.getWeight());
+            i++;
+        }
+        index.build(parallelism);
+        return index;
+    }
+
+    /**
+     * Build an index of a range of locations in the primitive layout.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param weights
+     *         The weights, or null to weight every location 1
+     * @param offset
+     *         The index of the first location
+     * @param length
+     *         The number of locations
+     * @param parallelism
+     *         The number of threads to use
+     * @return The index, where locations are identified by their index in the arrays
+     * @throws IllegalArgumentException
+     *         If the latitudes or longitudes are missing, the range is out of bounds of any of the arrays, any of the
+     *         coordinates is out of range, any of the weights is not greater than 0, or the parallelism is less than 1
+     */
+    public static SpatialIndex of(final double[] lat, final double[] lng, final float[] weights, final int offset,
+            final int length, final int parallelism) throws IllegalArgumentException {
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length || (weights != null && end > weights.length)) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+        checkParallelism(parallelism);
+        final SpatialIndex index = new SpatialIndex(length);
+        for (int i = 0; i < length; i++) {
+            index.put(i, offset + i, lat[offset + i], lng[offset + i], weights == null ? 1 : weights[offset + i]);
+        }
+        index.build(parallelism);
+        return index;
+    }
+
+    private static void checkParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism should be at least 1, but got %d", parallelism));
+        }
+    }
+
+    private static void checkCoordinate(final double lat, final double lng) {
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+    }
+
+    private void put(final int position, final int index, final double lat, final double lng, final float weight) {
+        checkCoordinate(lat, lng);
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException(String.format("Weight should be greater than 0, but got %s", weight));
+        }
+        this.points[position * STRIDE + LAT] = lat;
+        this.points[position * STRIDE + LNG] = lng;
+        this.weights[position] = weight;
+        this.indexes[position] = index;
+    }
+
+    private void build(final int parallelism) {
+        final BuildTask task = new BuildTask(this, 0, this.size, 0, parallelism > 1);
+        if (parallelism == 1 || this.size <= MIN_CHUNK_SIZE) {
+            task.compute();
+            return;
+        }
+        ForkJoinPools.get(parallelism).invoke(task);
+    }
+
+    /**
+     * @return The number of locations
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Find the locations in a bounding box, edges included. The box crosses the antimeridian if the western edge is
+     * east of the eastern edge.
+     *
+     * @param minLat
+     *         The southern edge
+     * @param minLng
+     *         The western edge
+     * @param maxLat
+     *         The northern edge
+     * @param maxLng
+     *         The eastern edge
+     * @param sink
+     *         The sink to receive the indexes of locations in the box
+     * @return The number of locations in the box
+     * @throws IllegalArgumentException
+     *         If the sink is missing, any of the edges is out of range, or the southern edge is north of the northern
+     *         edge
+     */
+    public int search(final double minLat, final double minLng, final double maxLat, final double maxLng,
+            final ResultSink sink) throws IllegalArgumentException {
+        if (sink == null) {
+            throw new IllegalArgumentException("Result sink should be provided");
+        }
+        checkCoordinate(minLat, minLng);
+        checkCoordinate(maxLat, maxLng);
+        if (minLat > maxLat) {
+            throw new IllegalArgumentException(String.format("Invalid bounding box: latitude from %f to %f", minLat, maxLat));
+        }
+        if (minLng <= maxLng) {
+            return search(0, this.size, 0, minLat, minLng, maxLat, maxLng, sink);
+        }
+        return search(0, this.size, 0, minLat, minLng, maxLat, 180, sink)
+                + search(0, this.size, 0, minLat, -180, maxLat, maxLng, sink);
+    }
+
+    private int search(final int from, final int to, final int depth, final double minLat, final double minLng,
+            final double maxLat, final double maxLng, final ResultSink sink) {
+        if (to - from <= LEAF_SIZE) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                final double lat = this.points[i * STRIDE + LAT];
+                final double lng = this.points[i * STRIDE + LNG];
+                if (lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng) {
+                    sink.accept(this.indexes[i]);
+                    count++;
+                }
+            }
+            return count;
+        }
+        final int mid = (from + to) >>> 1;
+        final double lat = this.points[mid * STRIDE + LAT];
+        final double lng = this.points[mid * STRIDE + LNG];
+        int count = 0;
+        if (lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng) {
+            sink.accept(this.indexes[mid]);
+            count++;
+        }
+        final double split = (depth & 1) == 0 ? lng : lat;
+        final double min = (depth & 1) == 0 ? minLng : minLat;
+        final double max = (depth & 1) == 0 ? maxLng : maxLat;
+        if (min <= split) {
+            count += search(from, mid, depth + 1, minLat, minLng, maxLat, maxLng, sink);
+        }
+        if (max >= split) {
+            count += search(mid + 1, to, depth + 1, minLat, minLng, maxLat, maxLng, sink);
+        }
+        return count;
+    }
+
+    /**
+     * Find the locations within a radius of a center, by haversine.
+     *
+     * @param lat
+     *         The latitude of the center
+     * @param lng
+     *         The longitude of the center
+     * @param radius
+     *         The radius in meters
+     * @param sink
+     *         The sink to receive the indexes of locations within the radius
+     * @return The number of locations within the radius
+     * @throws IllegalArgumentException
+     *         If the sink is missing, the center is out of range, or the radius is negative
+     */
+    public int within(final double lat, final double lng, final double radius, final ResultSink sink)
+            throws IllegalArgumentException {
+        if (sink == null) {
+            throw new IllegalArgumentException("Result sink should be provided");
+        }
+        checkCoordinate(lat, lng);
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException(String.format("Radius should not be negative, but got %f", radius));
+        }
+        final double chord = 2 * Math.sin(Math.min(radius / Distances.EARTH_RADIUS, Math.PI) / 2);
+        final double radLat = Math.toRadians(lat);
+        final double radLng = Math.toRadians(lng);
+        final double cosLat = Math.cos(radLat);
+        return within(0, this.size, 0, 0, lat, lng, cosLat, cosLat * Math.cos(radLng), cosLat * Math.sin(radLng),
+                Math.sin(radLat), chord, sink);
+    }
+
+    private int within(final int from, final int to, final int depth, final double bound, final double lat,
+            final double lng, final double cosLat, final double x, final double y, final double z, final double chord,
+            final ResultSink sink) {
+        if (bound > chord) {
+            return 0;
+        }
+        final double maxChord2 = chord * chord;
+        if (to - from <= LEAF_SIZE) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (chord2At(i, x, y, z) <= maxChord2) {
+                    sink.accept(this.indexes[i]);
+                    count++;
+                }
+            }
+            return count;
+        }
+        final int mid = (from + to) >>> 1;
+        int count = 0;
+        if (chord2At(mid, x, y, z) <= maxChord2) {
+            sink.accept(this.indexes[mid]);
+            count++;
+        }
+        final boolean left = isLeft(mid, depth, lat, lng);
+        final double far = Math.max(bound, splitBound(mid, depth, lat, lng, cosLat));
+        count += within(from, mid, depth + 1, left ? bound : far, lat, lng, cosLat, x, y, z, chord, sink);
+        count += within(mid + 1, to, depth + 1, left ? far : bound, lat, lng, cosLat, x, y, z, chord, sink);
+        return count;
+    }
+
+    /**
+     * Find the locations nearest to a point.
+     *
+     * @param lat
+     *         The latitude of the point
+     * @param lng
+     *         The longitude of the point
+     * @param neighbors
+     *         The neighbors to store the result, whose capacity is the number of locations to find
+     * @throws IllegalArgumentException
+     *         If the neighbors are missing or the point is out of range
+     */
+    public void nearest(final double lat, final double lng, final Neighbors neighbors) throws IllegalArgumentException {
+        nearest(lat, lng, neighbors, false);
+    }
+
+    /**
+     * Find the locations nearest to a point, where distances are divided by weights, so heavier locations rank as if
+     * they were nearer. Neighbors are sorted by weighted distance, and report their actual distances.
+     *
+     * @param lat
+     *         The latitude of the point
+     * @param lng
+     *         The longitude of the point
+     * @param neighbors
+     *         The neighbors to store the result, whose capacity is the number of locations to find
+     * @throws IllegalArgumentException
+     *         If the neighbors are missing or the point is out of range
+     */
+    public void nearestWeighted(final double lat, final double lng, final Neighbors neighbors)
+            throws IllegalArgumentException {
+        nearest(lat, lng, neighbors, true);
+    }
+
+    private void nearest(final double lat, final double lng, final Neighbors neighbors, final boolean weighted) {
+        if (neighbors == null) {
+            throw new IllegalArgumentException("Neighbors should be provided");
+        }
+        checkCoordinate(lat, lng);
+        final double radLat = Math.toRadians(lat);
+        final double radLng = Math.toRadians(lng);
+        final double cosLat = Math.cos(radLat);
+        final double x = cosLat * Math.cos(radLng);
+        final double y = cosLat * Math.sin(radLng);
+        final double z = Math.sin(radLat);
+        neighbors.clear();
+        if (weighted) {
+            nearestWeighted(0, this.size, 0, 0, lat, lng, cosLat, x, y, z, neighbors);
+        } else {
+            nearest(0, this.size, 0, 0, lat, lng, cosLat, x, y, z, neighbors);
+        }
+        neighbors.finish(this, x, y, z);
+    }
+
+    /**
+     * Scores are squared chords, which rank the same as distances.
+     */
+    private void nearest(final int from, final int to, final int depth, final double bound, final double lat,
+            final double lng, final double cosLat, final double x, final double y, final double z,
+            final Neighbors neighbors) {
+        if (neighbors.isFull() && bound * bound >= neighbors.worst()) {
+            return;
+        }
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                neighbors.offer(i, chord2At(i, x, y, z));
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        neighbors.offer(mid, chord2At(mid, x, y, z));
+        final double far = Math.max(bound, splitBound(mid, depth, lat, lng, cosLat));
+        if (isLeft(mid, depth, lat, lng)) {
+            nearest(from, mid, depth + 1, bound, lat, lng, cosLat, x, y, z, neighbors);
+            nearest(mid + 1, to, depth + 1, far, lat, lng, cosLat, x, y, z, neighbors);
+        } else {
+            nearest(mid + 1, to, depth + 1, bound, lat, lng, cosLat, x, y, z, neighbors);
+            nearest(from, mid, depth + 1, far, lat, lng, cosLat, x, y, z, neighbors);
+        }
+    }
+
+    /**
+     * Scores are central angles divided by weights. Chords are never longer than central angles, so they rule out most
+     * locations before computing angles.
+     */
+    private void nearestWeighted(final int from, final int to, final int depth, final double bound, final double lat,
+            final double lng, final double cosLat, final double x, final double y, final double z,
+            final Neighbors neighbors) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                offerWeighted(i, x, y, z, neighbors);
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        if (neighbors.isFull() && bound / this.maxWeights[mid] >= neighbors.worst()) {
+            return;
+        }
+        offerWeighted(mid, x, y, z, neighbors);
+        final double far = Math.max(bound, splitBound(mid, depth, lat, lng, cosLat));
+        if (isLeft(mid, depth, lat, lng)) {
+            nearestWeighted(from, mid, depth + 1, bound, lat, lng, cosLat, x, y, z, neighbors);
+            nearestWeighted(mid + 1, to, depth + 1, far, lat, lng, cosLat, x, y, z, neighbors);
+        } else {
+            nearestWeighted(mid + 1, to, depth + 1, bound, lat, lng, cosLat, x, y, z, neighbors);
+            nearestWeighted(from, mid, depth + 1, far, lat, lng, cosLat, x, y, z, neighbors);
+        }
+    }
+
+    private void offerWeighted(final int position, final double x, final double y, final double z,
+            final Neighbors neighbors) {
+        final double chord = Math.sqrt(chord2At(position, x, y, z));
+        final float weight = this.weights[position];
+        if (neighbors.isFull() && chord / weight >= neighbors.worst()) {
+            return;
+        }
+        neighbors.offer(position, 2 * Math.asin(Math.min(1, chord / 2)) / weight);
+    }
+
+    /**
+     * @return Whether or not the point is on the side of the split which holds the lower values
+     */
+    private boolean isLeft(final int mid, final int depth, final double lat, final double lng) {
+        return (depth & 1) == 0 ? lng < this.points[mid * STRIDE + LNG] : lat < this.points[mid * STRIDE + LAT];
+    }
+
+    /**
+     * @return A lower bound of the chord from the point to any location on the other side of the split, on the unit
+     * sphere. Bounds are computed without trigonometric functions, by sin(x) &gt;= x - x^3 / 6.
+     */
+    private double splitBound(final int mid, final int depth, final double lat, final double lng, final double cosLat) {
+        final double angle;
+        if ((depth & 1) != 0) {
+            angle = Math.toRadians(Math.abs(lat - this.points[mid * STRIDE + LAT]));
+        } else {
+            final double split = this.points[mid * STRIDE + LNG];
+            // The other side may also be reached across the antimeridian.
+            final double dLng = lng < split ? Math.min(split - lng, lng + 180) : Math.min(lng - split, 180 - lng);
+            // The nearest point of a meridian is at most 90 degrees of longitude away, at asin(cos(lat) * sin(dLng)).
+            final double delta = Math.toRadians(Math.min(dLng, 90));
+            angle = cosLat * delta * (1 - delta * delta / 6);
+        }
+        return angle * (1 - angle * angle / 24);
+    }
+
+    /**
+     * @return The squared chord between a location and a point on the unit sphere
+     */
+    double chord2At(final int position, final double x, final double y, final double z) {
+        final int offset = position * STRIDE;
+        final double dx = this.points[offset + X] - x;
+        final double dy = this.points[offset + Y] - y;
+        final double dz = this.points[offset + Z] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    int indexAt(final int position) {
+        return this.indexes[position];
+    }
+
+    float weightAt(final int position) {
+        return this.weights[position];
+    }
+
+    private void project(final int position) {
+        final int offset = position * STRIDE;
+        final double radLat = Math.toRadians(this.points[offset + LAT]);
+        final double radLng = Math.toRadians(this.points[offset + LNG]);
+        final double cosLat = Math.cos(radLat);
+        this.points[offset + X] = cosLat * Math.cos(radLng);
+        this.points[offset + Y] = cosLat * Math.sin(radLng);
+        this.points[offset + Z] = Math.sin(radLat);
+    }
+
+    private float maxWeight(final int from, final int to) {
+        if (to - from <= LEAF_SIZE) {
+            float max = 0;
+            for (int i = from; i < to; i++) {
+                max = Math.max(max, this.weights[i]);
+            }
+            return max;
+        }
+        return this.maxWeights[(from + to) >>> 1];
+    }
+
+    /**
+     * Move the k-th smallest value of a range to position k, smaller or equal values before it and greater or equal
+     * ones after it.
+     */
+    private void select(final int from, final int to, final int k, final int key) {
+        final double[] points = this.points;
+        int left = from;
+        int right = to - 1;
+        while (right > left) {
+            final int middle = (left + right) >>> 1;
+            if (points[middle * STRIDE + key] < points[left * STRIDE + key]) {
+                swap(middle, left);
+            }
+            if (points[right * STRIDE + key] < points[left * STRIDE + key]) {
+                swap(right, left);
+            }
+            if (points[right * STRIDE + key] < points[middle * STRIDE + key]) {
+                swap(right, middle);
+            }
+            final double pivot = points[middle * STRIDE + key];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[i * STRIDE + key] < pivot) {
+                    i++;
+                }
+                while (points[j * STRIDE + key] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        // Only coordinates are set while splitting, points on the unit sphere are computed afterwards.
+        final int a = i * STRIDE;
+        final int b = j * STRIDE;
+        final double lat = this.points[a + LAT];
+        this.points[a + LAT] = this.points[b + LAT];
+        this.points[b + LAT] = lat;
+        final double lng = this.points[a + LNG];
+        this.points[a + LNG] = this.points[b + LNG];
+        this.points[b + LNG] = lng;
+        final float weight = this.weights[i];
+        this.weights[i] = this.weights[j];
+        this.weights[j] = weight;
+        final int index = this.indexes[i];
+        this.indexes[i] = this.indexes[j];
+        this.indexes[j] = index;
+    }
+
+    /**
+     * Fork/join task which splits a range at its median, then builds both halves, in parallel if they are large enough.
+     */
+    private static final class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 2960468157371372035L;
+
+        private final SpatialIndex index;
+        private final int from;
+        private final int to;
+        private final int depth;
+        private final boolean parallel;
+
+        private BuildTask(final SpatialIndex index, final int from, final int to, final int depth, final boolean parallel) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            build(this.from, this.to, this.depth);
+        }
+
+        private void build(final int from, final int to, final int depth) {
+            final SpatialIndex index = this.index;
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    index.project(i);
+                }
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            index.select(from, to, mid, (depth & 1) == 0 ? LNG : LAT);
+            index.project(mid);
+            if (this.parallel && to - from > MIN_CHUNK_SIZE) {
+                invokeAll(new BuildTask(index, from, mid, depth + 1, true), new BuildTask(index, mid + 1, to, depth + 1, true));
+            } else {
+                build(from, mid, depth + 1);
+                build(mid + 1, to, depth + 1);
+            }
+            index.maxWeights[mid] = Math.max(index.weights[mid], Math.max(index.maxWeight(from, mid), index.maxWeight(mid + 1, to)));
+        }
+
+    }
+
+}
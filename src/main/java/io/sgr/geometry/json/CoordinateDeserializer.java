@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.json;
+
+import io.sgr.geometry.Coordinate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads {@link Coordinate} directly from the {@link JsonParser}. Like the annotation based mapping, unknown properties
+ * are ignored and missing ones are 0.
+ *
+ * @author SgrAlpha
+ */
+public class CoordinateDeserializer extends StdDeserializer<Coordinate> {
+
+    private static final long serialVersionUID = 6020591326117563384L;
+
+    public CoordinateDeserializer() {
+        super(Coordinate.class);
+    }
+
+    @Override
+    public Coordinate deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (Coordinate) ctxt.handleUnexpectedToken(Coordinate.class, p);
+        }
+        double lat = 0;
+        double lng = 0;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String name = p.getCurrentName();
+            p.nextToken();
+            if ("lat".equals(name)) {
+                lat = _parseDoublePrimitive(p, ctxt);
+            } else if ("lng".equals(name)) {
+                lng = _parseDoublePrimitive(p, ctxt);
+            } else {
+                p.skipChildren();
+            }
+        }
+        try {
+            return new Coordinate(lat, lng);
+        } catch (IllegalArgumentException e) {
+            throw ctxt.instantiationException(Coordinate.class, e);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.json;
+
+import io.sgr.geometry.Coordinate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link Coordinate} as <code>{"lat":0.0,"lng":0.0}</code> directly to the {@link JsonGenerator}.
+ *
+ * @author SgrAlpha
+ */
+public class CoordinateSerializer extends StdSerializer<Coordinate> {
+
+    private static final long serialVersionUID = -1790745498426577032L;
+
+    public CoordinateSerializer() {
+        super(Coordinate.class);
+    }
+
+    @Override
+    public void serialize(final Coordinate value, final JsonGenerator gen, final SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("lat", value.getLat());
+        gen.writeNumberField("lng", value.getLng());
+        gen.writeEndObject();
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.json;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads {@link WeightedLocation} directly from the {@link JsonParser}. Like the annotation based mapping, unknown
+ * properties are ignored.
+ *
+ * @author SgrAlpha
+ */
+public class WeightedLocationDeserializer extends StdDeserializer<WeightedLocation> {
+
+    private static final long serialVersionUID = -3342187166250186357L;
+
+    private final CoordinateDeserializer coordinateDeserializer = new CoordinateDeserializer();
+
+    public WeightedLocationDeserializer() {
+        super(WeightedLocation.class);
+    }
+
+    @Override
+    public WeightedLocation deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return (WeightedLocation) ctxt.handleUnexpectedToken(WeightedLocation.class, p);
+        }
+        Coordinate location = null;
+        float weight = 0;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String name = p.getCurrentName();
+            final JsonToken value = p.nextToken();
+            if ("location".equals(name)) {
+                location = value == JsonToken.VALUE_NULL ? null : this.coordinateDeserializer.deserialize(p, ctxt);
+            } else if ("weight".equals(name)) {
+                weight = _parseFloatPrimitive(p, ctxt);
+            } else {
+                p.skipChildren();
+            }
+        }
+        try {
+            return new WeightedLocation(location, weight);
+        } catch (IllegalArgumentException e) {
+            throw ctxt.instantiationException(WeightedLocation.class, e);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.json;
+
+import io.sgr.geometry.WeightedLocation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link WeightedLocation} as <code>{"location":{"lat":0.0,"lng":0.0},"weight":1.0}</code> directly to the
+ * {@link JsonGenerator}.
+ *
+ * @author SgrAlpha
+ */
+public class WeightedLocationSerializer extends StdSerializer<WeightedLocation> {
+
+    private static final long serialVersionUID = 2405404263426427343L;
+
+    private final CoordinateSerializer coordinateSerializer = new CoordinateSerializer();
+
+    public WeightedLocationSerializer() {
+        super(WeightedLocation.class);
+    }
+
+    @Override
+    public void serialize(final WeightedLocation value, final JsonGenerator gen, final SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("location");
+        this.coordinateSerializer.serialize(value.getLocation(), gen, provider);
+        gen.writeNumberField("weight", value.getWeight());
+        gen.writeEndObject();
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.polyline;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.CoordinateTransformer;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shortcuts to encode and decode whole trajectories in the
+ * <a href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">encoded polyline format</a>.
+ * Use {@link PolylineEncoder} and {@link PolylineDecoder} to do it incrementally, or {@link VarintTrackWriter} and
+ * {@link VarintTrackReader} for the binary format.
+ *
+ * @author SgrAlpha
+ */
+public final class Polyline {
+
+    /**
+     * The precision of Google Maps, 5 decimal digits
+     */
+    public static final int GOOGLE_PRECISION = 5;
+    /**
+     * The precision of E6 values, 6 decimal digits
+     */
+    public static final int E6_PRECISION = 6;
+
+    static final int MAX_PRECISION = 7;
+
+    private Polyline() {
+    }
+
+    /**
+     * @param coordinates
+     *         The coordinates to encode
+     * @return The encoded polyline with {@link #GOOGLE_PRECISION}
+     * @throws IllegalArgumentException
+     *         If the coordinates are missing or contain null
+     */
+    public static String encode(final List<Coordinate> coordinates) throws IllegalArgumentException {
+        return encode(coordinates, GOOGLE_PRECISION);
+    }
+
+    /**
+     * @param coordinates
+     *         The coordinates to encode
+     * @param precision
+     *         The number of decimal digits to keep, in range [1, 7]
+     * @return The encoded polyline
+     * @throws IllegalArgumentException
+     *         If the coordinates are missing or contain null, or the precision is out of range
+     */
+    public static String encode(final List<Coordinate> coordinates, final int precision) throws IllegalArgumentException {
+        if (coordinates == null) {
+            throw new IllegalArgumentException("Coordinates should be provided");
+        }
+        final StringBuilder builder = new StringBuilder(coordinates.size() * 8);
+        final PolylineEncoder encoder = new PolylineEncoder(builder, precision);
+        try {
+            for (Coordinate coordinate : coordinates) {
+                encoder.append(coordinate);
+            }
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param polyline
+     *         The encoded polyline with {@link #GOOGLE_PRECISION}
+     * @return The decoded coordinates
+     * @throws IllegalArgumentException
+     *         If the polyline is missing or malformed
+     */
+    public static List<Coordinate> decode(final CharSequence polyline) throws IllegalArgumentException {
+        return decode(polyline, GOOGLE_PRECISION);
+    }
+
+    /**
+     * @param polyline
+     *         The encoded polyline
+     * @param precision
+     *         The number of decimal digits of the polyline, in range [1, 7]
+     * @return The decoded coordinates
+     * @throws IllegalArgumentException
+     *         If the polyline is missing or malformed, or the precision is out of range
+     */
+    public static List<Coordinate> decode(final CharSequence polyline, final int precision) throws IllegalArgumentException {
+        final PolylineDecoder decoder = new PolylineDecoder(polyline, precision);
+        final List<Coordinate> coordinates = new ArrayList<>();
+        while (decoder.hasNext()) {
+            coordinates.add(decoder.next());
+        }
+        return coordinates;
+    }
+
+    static double scaleOf(final int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("Precision should be in range [1, %d], but got %d", MAX_PRECISION, precision));
+        }
+        double scale = 1;
+        for (int i = 0; i < precision; i++) {
+            scale *= 10;
+        }
+        return scale;
+    }
+
+    static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void checkConversion(final CoordinateTransformer transformer, final ConversionKind kind) {
+        if (transformer == null || kind == null) {
+            throw new IllegalArgumentException("Transformer and conversion kind should be provided");
+        }
+    }
+
+    /**
+     * Store a decoded coordinate, converted if a conversion is given.
+     */
+    static void output(final CoordinateTransformer transformer, final ConversionKind kind, final double lat,
+            final double lng, final double[] result) {
+        if (kind == null) {
+            if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+                throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+            }
+            result[0] = lat;
+            result[1] = lng;
+            return;
+        }
+        switch (kind) {
+            case WGS2GCJ:
+                transformer.wgs2gcj(lat, lng, result);
+                break;
+            case GCJ2WGS:
+                transformer.gcj2wgs(lat, lng, result);
+                break;
+            case GCJ2WGS_ACCURATE:
+                transformer.gcj2wgsAccurate(lat, lng, result);
+                break;
+            case GCJ2BD:
+                transformer.gcj2bd(lat, lng, result);
+                break;
+            case BD2GCJ:
+                transformer.bd2gcj(lat, lng, result);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported conversion: %s", kind));
+        }
+    }
+
+    static void checkRange(final double[] lat, final double[] lng, final int offset, final int length) {
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+    }
+
+    static void checkResult(final double[] result) {
+        if (result == null || result.length < 2) {
+            throw new IllegalArgumentException("Result array should have at least 2 elements");
+        }
+    }
+
+}
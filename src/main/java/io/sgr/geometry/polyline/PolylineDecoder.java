@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.polyline;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.CoordinateTransformer;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes coordinates one by one from the encoded polyline format, without decoding the rest of the polyline. The
+ * coordinates can be converted to another datum as they are decoded.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class PolylineDecoder {
+
+    private final CharSequence polyline;
+    private final double scale;
+    private final CoordinateTransformer transformer;
+    private final ConversionKind kind;
+    private int index;
+    private long lat;
+    private long lng;
+
+    /**
+     * @param polyline
+     *         The encoded polyline
+     * @param precision
+     *         The number of decimal digits of the polyline, in range [1, 7]
+     * @throws IllegalArgumentException
+     *         If the polyline is missing or the precision is out of range
+     */
+    public PolylineDecoder(final CharSequence polyline, final int precision) throws IllegalArgumentException {
+        this(polyline, precision, null, null, false);
+    }
+
+    /**
+     * @param polyline
+     *         The encoded polyline
+     * @param precision
+     *         The number of decimal digits of the polyline, in range [1, 7]
+     * @param transformer
+     *         The transformer to convert decoded coordinates with
+     * @param kind
+     *         The kind of conversion
+     * @throws IllegalArgumentException
+     *         If any of the arguments is missing or the precision is out of range
+     */
+    public PolylineDecoder(final CharSequence polyline, final int precision, final CoordinateTransformer transformer,
+            final ConversionKind kind) throws IllegalArgumentException {
+        this(polyline, precision, transformer, kind, true);
+    }
+
+    private PolylineDecoder(final CharSequence polyline, final int precision, final CoordinateTransformer transformer,
+            final ConversionKind kind, final boolean convert) {
+        if (polyline == null) {
+            throw new IllegalArgumentException("Polyline should be provided");
+        }
+        if (convert) {
+            Polyline.checkConversion(transformer, kind);
+        }
+        this.scale = Polyline.scaleOf(precision);
+        this.polyline = polyline;
+        this.transformer = transformer;
+        this.kind = kind;
+    }
+
+    /**
+     * @return Whether or not there are more coordinates to decode
+     */
+    public boolean hasNext() {
+        return this.index < this.polyline.length();
+    }
+
+    /**
+     * @return The next coordinate
+     * @throws NoSuchElementException
+     *         If there are no more coordinates
+     * @throws IllegalArgumentException
+     *         If the polyline is malformed
+     */
+    public Coordinate next() throws NoSuchElementException, IllegalArgumentException {
+        final double[] result = new double[2];
+        next(result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * @param result
+     *         An array of at least 2 elements to store the next latitude and longitude
+     * @throws NoSuchElementException
+     *         If there are no more coordinates
+     * @throws IllegalArgumentException
+     *         If the result array is too small or the polyline is malformed
+     */
+    public void next(final double[] result) throws NoSuchElementException, IllegalArgumentException {
+        Polyline.checkResult(result);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.lat += read();
+        this.lng += read();
+        Polyline.output(this.transformer, this.kind, this.lat / this.scale, this.lng / this.scale, result);
+    }
+
+    /**
+     * Decode up to a number of coordinates into arrays.
+     *
+     * @param lat
+     *         The array to store latitudes
+     * @param lng
+     *         The array to store longitudes
+     * @param offset
+     *         The index to store the first coordinate at
+     * @param length
+     *         The maximum number of coordinates to decode
+     * @return The number of coordinates decoded, less than the length only if there are no more
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or the polyline is malformed
+     */
+    public int read(final double[] lat, final double[] lng, final int offset, final int length)
+            throws IllegalArgumentException {
+        Polyline.checkRange(lat, lng, offset, length);
+        final double[] result = new double[2];
+        int count = 0;
+        while (count < length && hasNext()) {
+            next(result);
+            lat[offset + count] = result[0];
+            lng[offset + count] = result[1];
+            count++;
+        }
+        return count;
+    }
+
+    private long read() {
+        final CharSequence polyline = this.polyline;
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (this.index >= polyline.length()) {
+                throw new IllegalArgumentException(String.format("Truncated polyline at %d", this.index));
+            }
+            final int chunk = polyline.charAt(this.index) - 63;
+            if (chunk < 0 || chunk > 63 || shift > 60) {
+                throw new IllegalArgumentException(String.format("Malformed polyline at %d", this.index));
+            }
+            this.index++;
+            value |= (long) (chunk & 0x1f) << shift;
+            if (chunk < 0x20) {
+                return Polyline.unZigZag(value);
+            }
+            shift += 5;
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.polyline;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import java.io.IOException;
+
+/**
+ * Encodes coordinates one by one in the encoded polyline format, appending the characters to an {@link Appendable} as
+ * it goes. Each coordinate is rounded to the precision and written as the differences from the previous one, so
+ * nearby coordinates take a few characters each.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class PolylineEncoder {
+
+    private final Appendable out;
+    private final double scale;
+    private long lastLat;
+    private long lastLng;
+    private long count;
+
+    /**
+     * @param out
+     *         Where to append the encoded characters
+     * @throws IllegalArgumentException
+     *         If the output is missing
+     */
+    public PolylineEncoder(final Appendable out) throws IllegalArgumentException {
+        this(out, Polyline.GOOGLE_PRECISION);
+    }
+
+    /**
+     * @param out
+     *         Where to append the encoded characters
+     * @param precision
+     *         The number of decimal digits to keep, in range [1, 7]
+     * @throws IllegalArgumentException
+     *         If the output is missing or the precision is out of range
+     */
+    public PolylineEncoder(final Appendable out, final int precision) throws IllegalArgumentException {
+        if (out == null) {
+            throw new IllegalArgumentException("Output should be provided");
+        }
+        this.scale = Polyline.scaleOf(precision);
+        this.out = out;
+    }
+
+    /**
+     * @param coordinate
+     *         The coordinate to append
+     * @throws IOException
+     *         If failed to append to the output
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing
+     */
+    public void append(final Coordinate coordinate) throws IOException, IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        append(coordinate.getLat(), coordinate.getLng());
+    }
+
+    /**
+     * @param lat
+     *         The latitude to append
+     * @param lng
+     *         The longitude to append
+     * @throws IOException
+     *         If failed to append to the output
+     * @throws IllegalArgumentException
+     *         If the coordinate is out of range
+     */
+    public void append(final double lat, final double lng) throws IOException, IllegalArgumentException {
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+        final long latValue = Math.round(lat * this.scale);
+        final long lngValue = Math.round(lng * this.scale);
+        write(latValue - this.lastLat);
+        write(lngValue - this.lastLng);
+        this.lastLat = latValue;
+        this.lastLng = lngValue;
+        this.count++;
+    }
+
+    /**
+     * Append a range of coordinates.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @throws IOException
+     *         If failed to append to the output
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range
+     */
+    public void appendAll(final double[] lat, final double[] lng, final int offset, final int length)
+            throws IOException, IllegalArgumentException {
+        Polyline.checkRange(lat, lng, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            append(lat[i], lng[i]);
+        }
+    }
+
+    /**
+     * @return The number of coordinates appended so far
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    private void write(final long delta) throws IOException {
+        long value = Polyline.zigZag(delta);
+        while (value >= 0x20) {
+            this.out.append((char) ((0x20 | (int) (value & 0x1f)) + 63));
+            value >>>= 5;
+        }
+        this.out.append((char) (value + 63));
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.polyline;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.CoordinateTransformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes coordinates one by one from the binary format written by {@link VarintTrackWriter}, reading from an {@link
+ * InputStream} or a {@link ByteBuffer} only as far as needed. The coordinates can be converted to another datum as
+ * they are decoded.
+ * <p>
+ * Streams are read a byte at a time, so they should be buffered. Instances are not thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class VarintTrackReader {
+
+    private static final double SCALE = 1e6;
+
+    private final InputStream stream;
+    private final ByteBuffer buffer;
+    private final CoordinateTransformer transformer;
+    private final ConversionKind kind;
+    /**
+     * The byte read from the stream ahead to tell if there is a next coordinate, -1 at the end, or -2 if not read.
+     */
+    private int peeked = -2;
+    private long lat;
+    private long lng;
+
+    /**
+     * @param stream
+     *         The stream to read from
+     * @throws IllegalArgumentException
+     *         If the stream is missing
+     */
+    public VarintTrackReader(final InputStream stream) throws IllegalArgumentException {
+        this(stream, null, null, null, false);
+    }
+
+    /**
+     * @param stream
+     *         The stream to read from
+     * @param transformer
+     *         The transformer to convert decoded coordinates with
+     * @param kind
+     *         The kind of conversion
+     * @throws IllegalArgumentException
+     *         If any of the arguments is missing
+     */
+    public VarintTrackReader(final InputStream stream, final CoordinateTransformer transformer, final ConversionKind kind)
+            throws IllegalArgumentException {
+        this(stream, null, transformer, kind, true);
+    }
+
+    /**
+     * @param buffer
+     *         The buffer to read from, from its position to its limit
+     * @throws IllegalArgumentException
+     *         If the buffer is missing
+     */
+    public VarintTrackReader(final ByteBuffer buffer) throws IllegalArgumentException {
+        this(null, buffer, null, null, false);
+    }
+
+    /**
+     * @param buffer
+     *         The buffer to read from, from its position to its limit
+     * @param transformer
+     *         The transformer to convert decoded coordinates with
+     * @param kind
+     *         The kind of conversion
+     * @throws IllegalArgumentException
+     *         If any of the arguments is missing
+     */
+    public VarintTrackReader(final ByteBuffer buffer, final CoordinateTransformer transformer, final ConversionKind kind)
+            throws IllegalArgumentException {
+        this(null, buffer, transformer, kind, true);
+    }
+
+    private VarintTrackReader(final InputStream stream, final ByteBuffer buffer, final CoordinateTransformer transformer,
+            final ConversionKind kind, final boolean convert) {
+        if (stream == null && buffer == null) {
+            throw new IllegalArgumentException("Input stream or buffer should be provided");
+        }
+        if (convert) {
+            Polyline.checkConversion(transformer, kind);
+        }
+        this.stream = stream;
+        this.buffer = buffer;
+        this.transformer = transformer;
+        this.kind = kind;
+    }
+
+    /**
+     * @return Whether or not there are more coordinates to decode
+     * @throws IOException
+     *         If failed to read from the stream
+     */
+    public boolean hasNext() throws IOException {
+        if (this.buffer != null) {
+            return this.buffer.hasRemaining();
+        }
+        if (this.peeked == -2) {
+            this.peeked = this.stream.read();
+        }
+        return this.peeked >= 0;
+    }
+
+    /**
+     * @return The next coordinate
+     * @throws IOException
+     *         If failed to read from the stream
+     * @throws NoSuchElementException
+     *         If there are no more coordinates
+     * @throws IllegalArgumentException
+     *         If the data is malformed
+     */
+    public Coordinate next() throws IOException, NoSuchElementException, IllegalArgumentException {
+        final double[] result = new double[2];
+        next(result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * @param result
+     *         An array of at least 2 elements to store the next latitude and longitude
+     * @throws IOException
+     *         If failed to read from the stream
+     * @throws NoSuchElementException
+     *         If there are no more coordinates
+     * @throws IllegalArgumentException
+     *         If the result array is too small or the data is malformed
+     */
+    public void next(final double[] result) throws IOException, NoSuchElementException, IllegalArgumentException {
+        Polyline.checkResult(result);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.lat += Polyline.unZigZag(readVarint());
+        this.lng += Polyline.unZigZag(readVarint());
+        Polyline.output(this.transformer, this.kind, this.lat / SCALE, this.lng / SCALE, result);
+    }
+
+    /**
+     * Decode up to a number of coordinates into arrays.
+     *
+     * @param lat
+     *         The array to store latitudes
+     * @param lng
+     *         The array to store longitudes
+     * @param offset
+     *         The index to store the first coordinate at
+     * @param length
+     *         The maximum number of coordinates to decode
+     * @return The number of coordinates decoded, less than the length only if there are no more
+     * @throws IOException
+     *         If failed to read from the stream
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or the data is malformed
+     */
+    public int read(final double[] lat, final double[] lng, final int offset, final int length)
+            throws IOException, IllegalArgumentException {
+        Polyline.checkRange(lat, lng, offset, length);
+        final double[] result = new double[2];
+        int count = 0;
+        while (count < length && hasNext()) {
+            next(result);
+            lat[offset + count] = result[0];
+            lng[offset + count] = result[1];
+            count++;
+        }
+        return count;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint longer than 64 bits");
+    }
+
+    private int readByte() throws IOException {
+        if (this.buffer != null) {
+            if (!this.buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Truncated track");
+            }
+            return this.buffer.get() & 0xFF;
+        }
+        final int b;
+        if (this.peeked != -2) {
+            b = this.peeked;
+            this.peeked = -2;
+        } else {
+            b = this.stream.read();
+        }
+        if (b < 0) {
+            throw new IllegalArgumentException("Truncated track");
+        }
+        return b;
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.polyline;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes coordinates one by one in a compact binary format, writing the bytes to an {@link OutputStream} or a {@link
+ * ByteBuffer} as it goes.
+ * <p>
+ * Each coordinate is rounded to E6 values and written as the differences from the previous one, latitude first,
+ * each mapped to an unsigned value by ZigZag encoding and written as a varint of 7 bits per byte. Nearby coordinates
+ * take 2 to 4 bytes each. There is no header, so tracks can be concatenated, and the format is read by {@link
+ * VarintTrackReader}.
+ * <p>
+ * Each coordinate is written with a single call to the stream, which should be buffered. Instances are not thread
+ * safe.
+ *
+ * @author SgrAlpha
+ */
+public final class VarintTrackWriter {
+
+    private static final double SCALE = 1e6;
+
+    private final OutputStream stream;
+    private final ByteBuffer buffer;
+    private final byte[] scratch = new byte[20];
+    private long lastLat;
+    private long lastLng;
+    private long count;
+
+    /**
+     * @param stream
+     *         The stream to write to
+     * @throws IllegalArgumentException
+     *         If the stream is missing
+     */
+    public VarintTrackWriter(final OutputStream stream) throws IllegalArgumentException {
+        if (stream == null) {
+            throw new IllegalArgumentException("Output stream should be provided");
+        }
+        this.stream = stream;
+        this.buffer = null;
+    }
+
+    /**
+     * @param buffer
+     *         The buffer to write to, from its position
+     * @throws IllegalArgumentException
+     *         If the buffer is missing
+     */
+    public VarintTrackWriter(final ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer should be provided");
+        }
+        this.stream = null;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param coordinate
+     *         The coordinate to write
+     * @throws IOException
+     *         If failed to write to the stream
+     * @throws BufferOverflowException
+     *         If the buffer does not have enough space for the coordinate, in which case nothing is written, and the
+     *         same coordinate can be written again once the buffer is drained
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing
+     */
+    public void append(final Coordinate coordinate) throws IOException, BufferOverflowException, IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        append(coordinate.getLat(), coordinate.getLng());
+    }
+
+    /**
+     * @param lat
+     *         The latitude to write
+     * @param lng
+     *         The longitude to write
+     * @throws IOException
+     *         If failed to write to the stream
+     * @throws BufferOverflowException
+     *         If the buffer does not have enough space for the coordinate, in which case nothing is written, and the
+     *         same coordinate can be written again once the buffer is drained
+     * @throws IllegalArgumentException
+     *         If the coordinate is out of range
+     */
+    public void append(final double lat, final double lng) throws IOException, BufferOverflowException, IllegalArgumentException {
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+        final long latValue = Math.round(lat * SCALE);
+        final long lngValue = Math.round(lng * SCALE);
+        int size = put(this.scratch, 0, Polyline.zigZag(latValue - this.lastLat));
+        size = put(this.scratch, size, Polyline.zigZag(lngValue - this.lastLng));
+        if (this.stream != null) {
+            this.stream.write(this.scratch, 0, size);
+        } else {
+            if (this.buffer.remaining() < size) {
+                throw new BufferOverflowException();
+            }
+            this.buffer.put(this.scratch, 0, size);
+        }
+        this.lastLat = latValue;
+        this.lastLng = lngValue;
+        this.count++;
+    }
+
+    /**
+     * Write a range of coordinates.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @throws IOException
+     *         If failed to write to the stream
+     * @throws BufferOverflowException
+     *         If the buffer does not have enough space, in which case the coordinates before the one which does not
+     *         fit are written, see {@link #getCount()}
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range
+     */
+    public void appendAll(final double[] lat, final double[] lng, final int offset, final int length)
+            throws IOException, BufferOverflowException, IllegalArgumentException {
+        Polyline.checkRange(lat, lng, offset, length);
+        for (int i = offset; i < offset + length; i++) {
+            append(lat[i], lng[i]);
+        }
+    }
+
+    /**
+     * @return The number of coordinates written so far
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    private static int put(final byte[] bytes, final int offset, final long value) {
+        long remaining = value;
+        int i = offset;
+        while ((remaining & ~0x7FL) != 0) {
+            bytes[i++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        bytes[i++] = (byte) remaining;
+        return i;
+    }
+
+}
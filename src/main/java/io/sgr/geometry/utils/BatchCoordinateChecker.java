@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * A {@link CoordinateChecker} which can also check many coordinates at once. Batch conversions use it to split
+ * coordinates into the ones to pass through and the ones to transform, before converting anything.
+ *
+ * @author SgrAlpha
+ */
+public interface BatchCoordinateChecker extends CoordinateChecker {
+
+    /**
+     * Check a range of coordinates. The result of coordinate <code>offset + i</code> is bit <code>i % 64</code> of
+     * <code>mask[i / 64]</code>, which is set if the coordinate is out of China mainland. Bits after the range in the
+     * last word are cleared.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param mask
+     *         An array of at least <code>(length + 63) / 64</code> elements to store the results
+     */
+    void checkOutOfChinaMainland(double[] lat, double[] lng, int offset, int length, long[] mask);
+
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+/**
+ * Bounded cache of conversions, for workloads which convert the same positions again and again, like parked vehicles
+ * or snapped road nodes.
+ * <p>
+ * Entries are keyed by the E6 latitude and longitude packed in a long, as returned by {@link Coordinate#getLatE6()}
+ * and {@link Coordinate#getLngE6()}. They hold the offset of the conversion, which is applied to the exact input, so
+ * all coordinates in the same 1e-6 degree cell share an entry. The offset changes by less than 0.5% of any change of
+ * the position, so results of the closed form conversions differ from uncached ones by less than 1e-8 degree (about 1
+ * millimeter). The BD-09 offset changes about 4 times faster, so conversions from or to {@link Datum#BD09} use cells
+ * of 1e-7 degree, floored from the input, instead to stay within the same bound.
+ * <p>
+ * Offsets of {@link ConversionKind#GCJ2WGS_ACCURATE} also carry the error of the {@link InverseSolver}, which may stop
+ * after a different number of iterations for another coordinate of the same cell. Their results are within the
+ * tolerance of the solver plus about 5e-9 degree of the exact inverse, rather than within 1e-8 degree of uncached
+ * results.
+ * <p>
+ * Only coordinates in China mainland are cached, the others are returned as is after the check, exactly like {@link
+ * CoordinateTransformer}. The table is split into segments, each of which is an open addressing hash table guarded by
+ * its own lock and evicts entries by the CLOCK policy once full: hits mark an entry as referenced, and the clock hand
+ * clears those marks until it finds an entry which has not been used since its last pass. Conversions on misses are
+ * computed outside of the lock.
+ *
+ * @author SgrAlpha
+ */
+public final class ConversionCache {
+
+    /**
+     * The default maximum number of entries
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final CoordinateTransformer transformer;
+    private final ConversionKind kind;
+    private final boolean fineCells;
+    private final int capacity;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * Create a cache for conversions by {@link GeometryUtils#getDefaultTransformer() the current default transformer}.
+     *
+     * @param kind
+     *         The kind of conversion
+     * @param capacity
+     *         The maximum number of entries
+     * @throws IllegalArgumentException
+     *         If the kind is missing or the capacity is less than 1
+     */
+    public ConversionCache(final ConversionKind kind, final int capacity) throws IllegalArgumentException {
+        this(GeometryUtils.getDefaultTransformer(), kind, capacity);
+    }
+
+    /**
+     * @param transformer
+     *         The transformer to convert coordinates which are not cached yet
+     * @param kind
+     *         The kind of conversion
+     * @param capacity
+     *         The maximum number of entries
+     * @throws IllegalArgumentException
+     *         If the transformer or kind is missing, or the capacity is less than 1
+     */
+    public ConversionCache(final CoordinateTransformer transformer, final ConversionKind kind, final int capacity)
+            throws IllegalArgumentException {
+        if (transformer == null) {
+            throw new IllegalArgumentException("Transformer should be provided");
+        }
+        if (kind == null) {
+            throw new IllegalArgumentException("Conversion kind should be provided");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Capacity should be at least 1, but got %d", capacity));
+        }
+        this.transformer = transformer;
+        this.kind = kind;
+        this.fineCells = kind.getSource() == Datum.BD09 || kind.getTarget() == Datum.BD09;
+        this.capacity = capacity;
+        int count = 1;
+        while (count < MAX_SEGMENTS && capacity / (count * 2) >= MIN_SEGMENT_CAPACITY) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the remainder, so the segments add up to the capacity exactly.
+            this.segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * @param latE6
+     *         The E6 latitude
+     * @param lngE6
+     *         The E6 longitude
+     * @return The key of the coordinate in caches, the same as {@link GeometryUtils#packE6(int, int)}
+     */
+    public static long pack(final int latE6, final int lngE6) {
+        return GeometryUtils.packE6(latE6, lngE6);
+    }
+
+    /**
+     * @return The transformer to convert coordinates which are not cached yet
+     */
+    public CoordinateTransformer getTransformer() {
+        return this.transformer;
+    }
+
+    /**
+     * @return The kind of conversion
+     */
+    public ConversionKind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * @return The maximum number of entries
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Convert a coordinate.
+     *
+     * @param coordinate
+     *         The coordinate to convert
+     * @return The converted coordinate, or the given one if it is out of China mainland
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing.
+     */
+    public Coordinate convert(final Coordinate coordinate) throws IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        final double lat = coordinate.getLat();
+        final double lng = coordinate.getLng();
+        if (this.transformer.isOutOfChinaMainland(lat, lng)) {
+            return coordinate;
+        }
+        final double[] result = new double[2];
+        lookup(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert a coordinate without creating any object.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param result
+     *         An array of at least 2 elements to store the converted latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void convert(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        if (this.transformer.isOutOfChinaMainland(lat, lng)) {
+            result[0] = lat;
+            result[1] = lng;
+            return;
+        }
+        lookup(lat, lng, result);
+    }
+
+    /**
+     * Convert a range of coordinates. Results are written to the same range of the output arrays, which can be the
+     * input arrays themselves.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store converted latitudes
+     * @param outLng
+     *         The array to store converted longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void convert(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        final double[] result = new double[2];
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (this.transformer.isOutOfChinaMainland(lat[i], lng[i])) {
+                outLat[i] = lat[i];
+                outLng[i] = lng[i];
+                continue;
+            }
+            lookup(lat[i], lng[i], result);
+            outLat[i] = result[0];
+            outLng[i] = result[1];
+        }
+    }
+
+    /**
+     * @return The number of conversions found in this cache
+     */
+    public long getHitCount() {
+        long count = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                count += segment.hits;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of conversions computed because they were not found in this cache
+     */
+    public long getMissCount() {
+        long count = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                count += segment.misses;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of entries evicted to make room for new ones
+     */
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                count += segment.evictions;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The ratio of hits to all lookups, or 0 if there is no lookup yet
+     */
+    public double getHitRate() {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Remove all entries and reset the statistics.
+     */
+    public void clear() {
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private void lookup(final double lat, final double lng, final double[] result) {
+        final long key = pack(cellOf(lat), cellOf(lng));
+        final long hash = hash(key);
+        final Segment segment = this.segmentShift == 64 ? this.segments[0] : this.segments[(int) (hash >>> this.segmentShift)];
+        synchronized (segment) {
+            if (segment.get(key, (int) hash, lat, lng, result)) {
+                return;
+            }
+        }
+        this.transformer.transform(this.kind, lat, lng, result);
+        final double dLat = result[0] - lat;
+        final double dLng = result[1] - lng;
+        synchronized (segment) {
+            segment.put(key, (int) hash, dLat, dLng);
+        }
+    }
+
+    private int cellOf(final double value) {
+        return this.fineCells ? (int) Math.floor(value * 1e7) : GeometryUtils.toE6(value);
+    }
+
+    private static long hash(final long key) {
+        // The finalizer of MurmurHash3, so both the high bits picking the segment and the low bits picking the slot
+        // depend on all bits of the key.
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open addressing hash table with linear probing, kept at most half full, and deletion by backward shifting so no
+     * tombstone is needed. Each slot takes 4 longs: the key, the two offsets and the referenced mark, so a lookup
+     * touches a single cache line in most cases. All access should be synchronized on the segment.
+     */
+    private static final class Segment {
+
+        private static final int STRIDE = 4;
+
+        private final int maxSize;
+        private final int mask;
+        private final long[] slots;
+        private int size;
+        private int hand;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(final int maxSize) {
+            this.maxSize = maxSize;
+            final int tableSize = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+            this.mask = tableSize - 1;
+            this.slots = new long[tableSize * STRIDE];
+            clear();
+        }
+
+        /**
+         * @return The position of the key in slots, or -1 if it is not found
+         */
+        private int indexOf(final long key, final int hash) {
+            final long[] slots = this.slots;
+            for (int i = hash & this.mask; ; i = (i + 1) & this.mask) {
+                final long k = slots[i * STRIDE];
+                if (k == key) {
+                    return i * STRIDE;
+                }
+                if (k == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private boolean get(final long key, final int hash, final double lat, final double lng, final double[] result) {
+            final int index = indexOf(key, hash);
+            if (index < 0) {
+                this.misses++;
+                return false;
+            }
+            this.hits++;
+            result[0] = lat + Double.longBitsToDouble(this.slots[index + 1]);
+            result[1] = lng + Double.longBitsToDouble(this.slots[index + 2]);
+            this.slots[index + 3] = 1;
+            return true;
+        }
+
+        private void put(final long key, final int hash, final double dLat, final double dLng) {
+            final long[] slots = this.slots;
+            int index = indexOf(key, hash);
+            if (index < 0) {
+                if (this.size == this.maxSize) {
+                    evict();
+                }
+                int i = hash & this.mask;
+                while (slots[i * STRIDE] != EMPTY) {
+                    i = (i + 1) & this.mask;
+                }
+                index = i * STRIDE;
+                slots[index] = key;
+                slots[index + 3] = 0;
+                this.size++;
+            }
+            slots[index + 1] = Double.doubleToRawLongBits(dLat);
+            slots[index + 2] = Double.doubleToRawLongBits(dLng);
+        }
+
+        private void evict() {
+            final long[] slots = this.slots;
+            while (true) {
+                final int i = this.hand;
+                this.hand = (i + 1) & this.mask;
+                if (slots[i * STRIDE] == EMPTY) {
+                    continue;
+                }
+                if (slots[i * STRIDE + 3] != 0) {
+                    slots[i * STRIDE + 3] = 0;
+                    continue;
+                }
+                remove(i);
+                this.evictions++;
+                return;
+            }
+        }
+
+        private void remove(final int index) {
+            final long[] slots = this.slots;
+            int hole = index;
+            for (int i = (index + 1) & this.mask; slots[i * STRIDE] != EMPTY; i = (i + 1) & this.mask) {
+                final int home = (int) hash(slots[i * STRIDE]) & this.mask;
+                // Move the entry into the hole unless its home slot lies cyclically in (hole, i].
+                if (hole <= i ? home <= hole || home > i : home <= hole && home > i) {
+                    System.arraycopy(slots, i * STRIDE, slots, hole * STRIDE, STRIDE);
+                    hole = i;
+                }
+            }
+            slots[hole * STRIDE] = EMPTY;
+            this.size--;
+        }
+
+        private void clear() {
+            for (int i = 0; i < this.slots.length; i += STRIDE) {
+                this.slots[i] = EMPTY;
+            }
+            this.size = 0;
+            this.hand = 0;
+            this.hits = 0;
+            this.misses = 0;
+            this.evictions = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Kinds of datum conversions.
+ *
+ * @author SgrAlpha
+ */
+public enum ConversionKind {
+
+    /**
+     * From earth(WGS-84) to mars(GCJ-02)
+     */
+    WGS2GCJ(Datum.WGS84, Datum.GCJ02),
+    /**
+     * From mars(GCJ-02) to earth(WGS-84)
+     */
+    GCJ2WGS(Datum.GCJ02, Datum.WGS84),
+    /**
+     * From mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way
+     */
+    GCJ2WGS_ACCURATE(Datum.GCJ02, Datum.WGS84),
+    /**
+     * From mars(GCJ-02) to Baidu(BD-09)
+     */
+    GCJ2BD(Datum.GCJ02, Datum.BD09),
+    /**
+     * From Baidu(BD-09) to mars(GCJ-02)
+     */
+    BD2GCJ(Datum.BD09, Datum.GCJ02);
+
+    private final Datum source;
+    private final Datum target;
+
+    ConversionKind(final Datum source, final Datum target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * @return The datum to convert from
+     */
+    public Datum getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return The datum to convert to
+     */
+    public Datum getTarget() {
+        return this.target;
+    }
+
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters of conversions made by {@link CoordinateTransformer}s, including the static methods of {@link
+ * GeometryUtils}, and of parse failures of {@link CoordinateParser}, which also backs the
+ * <code>Coordinate.parseCommaSeparated*String</code> methods.
+ * <p>
+ * Metrics are disabled by default, in which case the hot paths only read a volatile field. Enable them with {@link
+ * #setEnabled(boolean)}, or by setting the system property <code>io.sgr.geometry.metrics</code> to <code>true</code>.
+ * Counters are striped by thread, each stripe on its own cache lines, so threads converting at the same time do not
+ * contend. Batch conversions are counted once per block of coordinates, not once per coordinate.
+ * <p>
+ * Metrics are read as a {@link Snapshot}, passed to {@link Listener}s by {@link #report()}, which can be scheduled
+ * with {@link #scheduleReports(ScheduledExecutorService, long, TimeUnit)}, or through JMX once {@link
+ * #registerMBean()} is called.
+ *
+ * @author SgrAlpha
+ */
+public final class ConversionMetrics {
+
+    /**
+     * The system property to enable metrics at startup
+     */
+    public static final String ENABLED_PROPERTY = "io.sgr.geometry.metrics";
+    /**
+     * The name of the MBean registered by {@link #registerMBean()}
+     */
+    public static final String OBJECT_NAME = "io.sgr.geometry:type=ConversionMetrics";
+    /**
+     * The last bucket of the iteration histogram, which also counts conversions of more iterations
+     */
+    public static final int MAX_ITERATION_BUCKET = 32;
+
+    private static final ConversionKind[] KINDS = ConversionKind.values();
+    private static final CoordinateFormat[] FORMATS = CoordinateFormat.values();
+    private static final int CALLS = 0;
+    private static final int PASS_THROUGHS = CALLS + KINDS.length;
+    private static final int NON_CONVERGED = PASS_THROUGHS + KINDS.length;
+    private static final int PARSE_FAILURES = NON_CONVERGED + 1;
+    private static final int HISTOGRAM = PARSE_FAILURES + FORMATS.length;
+    private static final int SLOTS = HISTOGRAM + MAX_ITERATION_BUCKET + 1;
+    /**
+     * Longs between stripes, a multiple of 8 so that stripes never share a cache line of 64 bytes
+     */
+    private static final int STRIDE = (SLOTS + 7 & ~7) + 8;
+    private static final int MAX_STRIPES = 64;
+
+    private static final ConversionMetrics INSTANCE = new ConversionMetrics();
+    private static volatile ConversionMetrics active = Boolean.getBoolean(ENABLED_PROPERTY) ? INSTANCE : null;
+
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private ConversionMetrics() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() * 2 && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        this.stripeMask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * STRIDE);
+    }
+
+    /**
+     * @return Whether or not metrics are being recorded
+     */
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Start or stop recording metrics. Metrics recorded so far are kept.
+     *
+     * @param enabled
+     *         Whether or not to record metrics
+     */
+    public static void setEnabled(final boolean enabled) {
+        active = enabled ? INSTANCE : null;
+    }
+
+    /**
+     * Reset all metrics to 0. Conversions made meanwhile may or may not be counted.
+     */
+    public static void reset() {
+        final AtomicLongArray cells = INSTANCE.cells;
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    /**
+     * @return The metrics recorded so far. Conversions made meanwhile may or may not be counted.
+     */
+    public static Snapshot snapshot() {
+        final AtomicLongArray cells = INSTANCE.cells;
+        final long[] sums = new long[SLOTS];
+        for (int base = 0; base < cells.length(); base += STRIDE) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                sums[slot] += cells.get(base + slot);
+            }
+        }
+        return new Snapshot(sums);
+    }
+
+    /**
+     * @param listener
+     *         The listener to add
+     * @throws IllegalArgumentException
+     *         If the listener is missing
+     */
+    public static void addListener(final Listener listener) throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener should be provided");
+        }
+        INSTANCE.listeners.add(listener);
+    }
+
+    /**
+     * @param listener
+     *         The listener to remove
+     */
+    public static void removeListener(final Listener listener) {
+        INSTANCE.listeners.remove(listener);
+    }
+
+    /**
+     * Take a snapshot and pass it to all listeners.
+     *
+     * @return The snapshot
+     */
+    public static Snapshot report() {
+        final Snapshot snapshot = snapshot();
+        for (Listener listener : INSTANCE.listeners) {
+            listener.onReport(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Call {@link #report()} periodically.
+     *
+     * @param scheduler
+     *         The scheduler to report with
+     * @param period
+     *         The period between reports
+     * @param unit
+     *         The unit of the period
+     * @return The scheduled reports, to cancel with
+     * @throws IllegalArgumentException
+     *         If the scheduler or the unit is missing, or the period is not positive
+     */
+    public static ScheduledFuture<?> scheduleReports(final ScheduledExecutorService scheduler, final long period,
+            final TimeUnit unit) throws IllegalArgumentException {
+        if (scheduler == null || unit == null) {
+            throw new IllegalArgumentException("Scheduler and time unit should be provided");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException(String.format("Period should be positive, but got %d", period));
+        }
+        return scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Register the {@link ConversionMetricsMXBean} to the platform MBean server as {@link #OBJECT_NAME}, if not
+     * registered yet.
+     *
+     * @throws IllegalStateException
+     *         If failed to register
+     */
+    public static synchronized void registerMBean() throws IllegalStateException {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register conversion metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregister the MBean registered by {@link #registerMBean()}, if registered.
+     *
+     * @throws IllegalStateException
+     *         If failed to unregister
+     */
+    public static synchronized void unregisterMBean() throws IllegalStateException {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister conversion metrics MBean", e);
+        }
+    }
+
+    /**
+     * @return The metrics to record to, or null if disabled
+     */
+    static ConversionMetrics recorder() {
+        return active;
+    }
+
+    /**
+     * Record conversions, some of which are passed through as out of China mainland.
+     */
+    void recordCalls(final ConversionKind kind, final long calls, final long passThroughs) {
+        final int base = stripe();
+        this.cells.addAndGet(base + CALLS + kind.ordinal(), calls);
+        if (passThroughs != 0) {
+            this.cells.addAndGet(base + PASS_THROUGHS + kind.ordinal(), passThroughs);
+        }
+    }
+
+    /**
+     * Record an accurate conversion, with the result of {@link InverseSolver#iterate(CoordinateTransformer, double,
+     * double, double[])}.
+     */
+    void recordInverse(final int iterations) {
+        final int base = stripe();
+        this.cells.incrementAndGet(base + HISTOGRAM + Math.min(Math.abs(iterations), MAX_ITERATION_BUCKET));
+        if (iterations < 0) {
+            this.cells.incrementAndGet(base + NON_CONVERGED);
+        }
+    }
+
+    void recordParseFailure(final CoordinateFormat format) {
+        this.cells.incrementAndGet(stripe() + PARSE_FAILURES + (format == null ? 0 : format.ordinal()));
+    }
+
+    private int stripe() {
+        final long id = Thread.currentThread().getId();
+        return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & this.stripeMask) * STRIDE;
+    }
+
+    /**
+     * Receives snapshots of metrics from {@link #report()}.
+     */
+    public interface Listener {
+
+        /**
+         * @param snapshot
+         *         The metrics
+         */
+        void onReport(Snapshot snapshot);
+
+    }
+
+    /**
+     * Metrics at some point in time. Instances are immutable.
+     */
+    public static final class Snapshot {
+
+        private final long[] sums;
+
+        private Snapshot(final long[] sums) {
+            this.sums = sums;
+        }
+
+        /**
+         * @param kind
+         *         The kind of conversion
+         * @return The number of coordinates converted, including those passed through
+         */
+        public long getCalls(final ConversionKind kind) {
+            return this.sums[CALLS + kind.ordinal()];
+        }
+
+        /**
+         * @param kind
+         *         The kind of conversion
+         * @return The number of coordinates passed through as out of China mainland
+         */
+        public long getPassThroughs(final ConversionKind kind) {
+            return this.sums[PASS_THROUGHS + kind.ordinal()];
+        }
+
+        /**
+         * @param kind
+         *         The kind of conversion
+         * @return The ratio of coordinates passed through as out of China mainland, 0 if there are no conversions
+         */
+        public double getPassThroughRatio(final ConversionKind kind) {
+            final long calls = getCalls(kind);
+            return calls == 0 ? 0 : (double) getPassThroughs(kind) / calls;
+        }
+
+        /**
+         * @return The number of accurate conversions of coordinates in China mainland by number of iterations, up to
+         * {@link #MAX_ITERATION_BUCKET} which also counts more iterations. Conversions which did not reach the
+         * tolerance are counted at their maximum number of iterations.
+         */
+        public long[] getIterationHistogram() {
+            final long[] histogram = new long[MAX_ITERATION_BUCKET + 1];
+            System.arraycopy(this.sums, HISTOGRAM, histogram, 0, histogram.length);
+            return histogram;
+        }
+
+        /**
+         * @return The number of accurate conversions of coordinates in China mainland
+         */
+        public long getInverseSolves() {
+            long total = 0;
+            for (int i = 0; i <= MAX_ITERATION_BUCKET; i++) {
+                total += this.sums[HISTOGRAM + i];
+            }
+            return total;
+        }
+
+        /**
+         * @return The mean number of iterations of accurate conversions, 0 if there are none
+         */
+        public double getMeanIterations() {
+            long total = 0;
+            long weighted = 0;
+            for (int i = 0; i <= MAX_ITERATION_BUCKET; i++) {
+                total += this.sums[HISTOGRAM + i];
+                weighted += i * this.sums[HISTOGRAM + i];
+            }
+            return total == 0 ? 0 : (double) weighted / total;
+        }
+
+        /**
+         * @return The number of accurate conversions which did not reach the tolerance
+         */
+        public long getNonConverged() {
+            return this.sums[NON_CONVERGED];
+        }
+
+        /**
+         * @param format
+         *         The format
+         * @return The number of texts failed to parse
+         */
+        public long getParseFailures(final CoordinateFormat format) {
+            return this.sums[PARSE_FAILURES + format.ordinal()];
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder("ConversionMetrics{");
+            for (ConversionKind kind : KINDS) {
+                builder.append(kind).append(": ").append(getCalls(kind)).append(" calls, ")
+                        .append(getPassThroughs(kind)).append(" passed through; ");
+            }
+            builder.append("mean iterations: ").append(getMeanIterations())
+                    .append(", non-converged: ").append(getNonConverged());
+            for (CoordinateFormat format : FORMATS) {
+                builder.append(", ").append(format).append(" parse failures: ").append(getParseFailures(format));
+            }
+            return builder.append('}').toString();
+        }
+
+    }
+
+    private static final class Bean implements ConversionMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return ConversionMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean enabled) {
+            ConversionMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getCalls() {
+            final Snapshot snapshot = snapshot();
+            final Map<String, Long> calls = new LinkedHashMap<>();
+            for (ConversionKind kind : KINDS) {
+                calls.put(kind.name(), snapshot.getCalls(kind));
+            }
+            return Collections.unmodifiableMap(calls);
+        }
+
+        @Override
+        public Map<String, Long> getPassThroughs() {
+            final Snapshot snapshot = snapshot();
+            final Map<String, Long> passThroughs = new LinkedHashMap<>();
+            for (ConversionKind kind : KINDS) {
+                passThroughs.put(kind.name(), snapshot.getPassThroughs(kind));
+            }
+            return Collections.unmodifiableMap(passThroughs);
+        }
+
+        @Override
+        public long[] getIterationHistogram() {
+            return snapshot().getIterationHistogram();
+        }
+
+        @Override
+        public long getNonConverged() {
+            return snapshot().getNonConverged();
+        }
+
+        @Override
+        public Map<String, Long> getParseFailures() {
+            final Snapshot snapshot = snapshot();
+            final Map<String, Long> failures = new LinkedHashMap<>();
+            for (CoordinateFormat format : FORMATS) {
+                failures.put(format.name(), snapshot.getParseFailures(format));
+            }
+            return Collections.unmodifiableMap(failures);
+        }
+
+        @Override
+        public void reset() {
+            ConversionMetrics.reset();
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link ConversionMetrics}, registered by {@link ConversionMetrics#registerMBean()}.
+ *
+ * @author SgrAlpha
+ */
+public interface ConversionMetricsMXBean {
+
+    /**
+     * @return Whether or not metrics are being recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled
+     *         Whether or not to record metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return The number of coordinates converted, by name of {@link ConversionKind}
+     */
+    Map<String, Long> getCalls();
+
+    /**
+     * @return The number of coordinates passed through as out of China mainland, by name of {@link ConversionKind}
+     */
+    Map<String, Long> getPassThroughs();
+
+    /**
+     * @return The number of accurate conversions by number of iterations, see {@link
+     * ConversionMetrics.Snapshot#getIterationHistogram()}
+     */
+    long[] getIterationHistogram();
+
+    /**
+     * @return The number of accurate conversions which did not reach the tolerance
+     */
+    long getNonConverged();
+
+    /**
+     * @return The number of texts failed to parse, by name of {@link CoordinateFormat}
+     */
+    Map<String, Long> getParseFailures();
+
+    /**
+     * Reset all metrics to 0.
+     */
+    void reset();
+
+}
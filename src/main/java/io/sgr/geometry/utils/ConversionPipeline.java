@@ -0,0 +1,271 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chain of conversions applied in a single pass, like from earth(WGS-84) to Baidu(BD-09) through mars(GCJ-02), or
+ * back with {@link ConversionKind#GCJ2WGS_ACCURATE}.
+ * <p>
+ * Each step should convert from the datum the previous one converts to. The {@link CoordinateChecker} of the
+ * transformer is applied once to the source coordinates: those out of China mainland are returned as is, the others go
+ * through every step without being checked again, and no intermediate result is created.
+ * <p>
+ * Pipelines are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class ConversionPipeline {
+
+    private final CoordinateTransformer transformer;
+    private final ConversionKind[] steps;
+
+    private ConversionPipeline(final CoordinateTransformer transformer, final ConversionKind[] steps) {
+        this.transformer = transformer;
+        this.steps = steps;
+    }
+
+    /**
+     * Create a pipeline running on {@link GeometryUtils#getDefaultTransformer() the current default transformer}.
+     *
+     * @param steps
+     *         The steps, in order
+     * @return The pipeline
+     * @throws IllegalArgumentException
+     *         If there is no step, or any step does not convert from the datum the previous one converts to
+     */
+    public static ConversionPipeline of(final ConversionKind... steps) throws IllegalArgumentException {
+        final Builder builder = newBuilder();
+        if (steps != null) {
+            for (ConversionKind step : steps) {
+                builder.then(step);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return The transformer running the steps
+     */
+    public CoordinateTransformer getTransformer() {
+        return this.transformer;
+    }
+
+    /**
+     * @return The steps, in order
+     */
+    public List<ConversionKind> getSteps() {
+        return Collections.unmodifiableList(Arrays.asList(this.steps));
+    }
+
+    /**
+     * @return The datum the pipeline converts from
+     */
+    public Datum getSource() {
+        return this.steps[0].getSource();
+    }
+
+    /**
+     * @return The datum the pipeline converts to
+     */
+    public Datum getTarget() {
+        return this.steps[this.steps.length - 1].getTarget();
+    }
+
+    /**
+     * @param coordinate
+     *         The source coordinate
+     * @return The target coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing
+     */
+    public Coordinate convert(final Coordinate coordinate) throws IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        return this.transformer.convert(this.steps, coordinate, new double[2]);
+    }
+
+    /**
+     * @param lat
+     *         The source latitude
+     * @param lng
+     *         The source longitude
+     * @return The target coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate convert(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        convert(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert a coordinate without creating any object.
+     *
+     * @param lat
+     *         The source latitude
+     * @param lng
+     *         The source longitude
+     * @param result
+     *         An array of at least 2 elements to store the target latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void convert(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        this.transformer.convert(this.steps, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate, see {@link GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed source coordinate
+     * @return The packed target coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long convert(final long packed) throws IllegalArgumentException {
+        return this.transformer.convert(this.steps, packed);
+    }
+
+    /**
+     * Convert coordinates in place.
+     *
+     * @param lat
+     *         The source latitudes, will be overwritten by target latitudes
+     * @param lng
+     *         The source longitudes, will be overwritten by target longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void convert(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        convert(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates. Results are written to the same range of the output arrays, which can be the
+     * input arrays themselves.
+     *
+     * @param lat
+     *         The source latitudes
+     * @param lng
+     *         The source longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store target latitudes
+     * @param outLng
+     *         The array to store target longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void convert(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        this.transformer.convertRange(this.steps, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().append(getSource());
+        for (ConversionKind step : this.steps) {
+            builder.append(" -> ").append(step.getTarget());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return A builder to create a pipeline
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builders are not thread safe.
+     */
+    public static final class Builder {
+
+        private final List<ConversionKind> steps = new ArrayList<>();
+        private CoordinateTransformer transformer;
+
+        private Builder() {
+        }
+
+        /**
+         * @param transformer
+         *         The transformer running the steps, null for {@link GeometryUtils#getDefaultTransformer() the default
+         *         transformer} when the pipeline is built
+         * @return This builder
+         */
+        public Builder setTransformer(final CoordinateTransformer transformer) {
+            this.transformer = transformer;
+            return this;
+        }
+
+        /**
+         * @param step
+         *         The next step
+         * @return This builder
+         * @throws IllegalArgumentException
+         *         If the step is missing, or does not convert from the datum the previous step converts to
+         */
+        public Builder then(final ConversionKind step) throws IllegalArgumentException {
+            if (step == null) {
+                throw new IllegalArgumentException("Conversion kind should be provided");
+            }
+            if (!this.steps.isEmpty()) {
+                final ConversionKind previous = this.steps.get(this.steps.size() - 1);
+                if (previous.getTarget() != step.getSource()) {
+                    throw new IllegalArgumentException(String.format("Step %s should convert from %s, but converts from %s", step, previous.getTarget(), step.getSource()));
+                }
+            }
+            this.steps.add(step);
+            return this;
+        }
+
+        /**
+         * @return The pipeline
+         * @throws IllegalArgumentException
+         *         If there is no step
+         */
+        public ConversionPipeline build() throws IllegalArgumentException {
+            if (this.steps.isEmpty()) {
+                throw new IllegalArgumentException("At least one step should be provided");
+            }
+            final CoordinateTransformer transformer = this.transformer == null ? GeometryUtils.getDefaultTransformer() : this.transformer;
+            return new ConversionPipeline(transformer, this.steps.toArray(new ConversionKind[this.steps.size()]));
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task which splits a range of coordinates into chunks and converts them in parallel.
+ *
+ * @author SgrAlpha
+ */
+final class ConversionTask extends RecursiveAction {
+
+    /**
+     * Minimum number of coordinates per chunk. 4096 latitudes and longitudes take 64 KB, which fits in the L2 cache
+     * of most processors.
+     */
+    static final int MIN_CHUNK_SIZE = 4096;
+
+    private static final long serialVersionUID = -5328913710231466527L;
+
+    private final CoordinateTransformer transformer;
+    private final ConversionKind kind;
+    private final boolean validateOnly;
+    private final double[] lat;
+    private final double[] lng;
+    private final Coordinate[] source;
+    private final Coordinate[] target;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+
+    private ConversionTask(final CoordinateTransformer transformer, final ConversionKind kind, final boolean validateOnly,
+            final double[] lat, final double[] lng, final Coordinate[] source, final Coordinate[] target,
+            final int from, final int to, final int chunkSize) {
+        this.transformer = transformer;
+        this.kind = kind;
+        this.validateOnly = validateOnly;
+        this.lat = lat;
+        this.lng = lng;
+        this.source = source;
+        this.target = target;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+    }
+
+    static ConversionTask validate(final double[] lat, final double[] lng, final int parallelism) {
+        return new ConversionTask(null, null, true, lat, lng, null, null, 0, lat.length, chunkSize(lat.length, parallelism));
+    }
+
+    static ConversionTask convert(final CoordinateTransformer transformer, final ConversionKind kind, final double[] lat,
+            final double[] lng, final int parallelism) {
+        return new ConversionTask(transformer, kind, false, lat, lng, null, null, 0, lat.length, chunkSize(lat.length, parallelism));
+    }
+
+    static ConversionTask convert(final CoordinateTransformer transformer, final ConversionKind kind, final Coordinate[] source,
+            final Coordinate[] target, final int parallelism) {
+        return new ConversionTask(transformer, kind, false, null, null, source, target, 0, source.length, chunkSize(source.length, parallelism));
+    }
+
+    private static int chunkSize(final int length, final int parallelism) {
+        // About 4 chunks per thread, so threads which finish early can steal work from slower ones.
+        return Math.max(MIN_CHUNK_SIZE, length / (parallelism * 4) + 1);
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from > this.chunkSize) {
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new ConversionTask(this.transformer, this.kind, this.validateOnly, this.lat, this.lng, this.source, this.target, this.from, middle, this.chunkSize),
+                    new ConversionTask(this.transformer, this.kind, this.validateOnly, this.lat, this.lng, this.source, this.target, middle, this.to, this.chunkSize)
+            );
+            return;
+        }
+        if (this.validateOnly) {
+            GeometryUtils.checkCoordinates(this.lat, this.lng, this.from, this.to);
+        } else if (this.source == null) {
+            this.transformer.convertRange(this.kind, this.lat, this.lng, this.from, this.to, this.lat, this.lng);
+        } else {
+            final double[] result = new double[2];
+            for (int i = this.from; i < this.to; i++) {
+                this.target[i] = this.transformer.convert(this.kind, this.source[i], result);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts text files with one comma separated coordinate per line, in {@link CoordinateFormat#DECIMAL} or
+ * {@link CoordinateFormat#HEX} format, from one datum to another.
+ * <p>
+ * The input file is memory mapped window by window and parsed directly from bytes, the output is written through a
+ * fixed size buffer, so memory usage does not depend on the size of the files. Blank lines are kept as blank lines.
+ * Instances are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public final class CoordinateFileConverter {
+
+    /**
+     * The default number of fraction digits of {@link CoordinateFormat#DECIMAL} output, same precision as E6 values.
+     */
+    public static final int DEFAULT_FRACTION_DIGITS = 6;
+
+    static final int MAX_LINE_LENGTH = 1024;
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_FRACTION_DIGITS = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    private final ConversionKind kind;
+    private final CoordinateFormat inputFormat;
+    private final CoordinateFormat outputFormat;
+    private final int fractionDigits;
+    private final long windowSize;
+
+    /**
+     * @param kind
+     *         The kind of conversion
+     * @param inputFormat
+     *         The format of input lines
+     * @param outputFormat
+     *         The format of output lines
+     * @throws IllegalArgumentException
+     *         If any of the arguments is missing
+     */
+    public CoordinateFileConverter(final ConversionKind kind, final CoordinateFormat inputFormat,
+            final CoordinateFormat outputFormat) throws IllegalArgumentException {
+        this(kind, inputFormat, outputFormat, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * @param kind
+     *         The kind of conversion
+     * @param inputFormat
+     *         The format of input lines
+     * @param outputFormat
+     *         The format of output lines
+     * @param fractionDigits
+     *         The number of fraction digits of {@link CoordinateFormat#DECIMAL} output, in range [0, 9]
+     * @throws IllegalArgumentException
+     *         If any of the arguments is missing, or the number of fraction digits is out of range
+     */
+    public CoordinateFileConverter(final ConversionKind kind, final CoordinateFormat inputFormat,
+            final CoordinateFormat outputFormat, final int fractionDigits) throws IllegalArgumentException {
+        this(kind, inputFormat, outputFormat, fractionDigits, WINDOW_SIZE);
+    }
+
+    CoordinateFileConverter(final ConversionKind kind, final CoordinateFormat inputFormat,
+            final CoordinateFormat outputFormat, final int fractionDigits, final long windowSize) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Conversion kind should be provided");
+        }
+        if (inputFormat == null || outputFormat == null) {
+            throw new IllegalArgumentException("Input and output formats should be provided");
+        }
+        if (fractionDigits < 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+            throw new IllegalArgumentException(String.format("Fraction digits should be in range [0, %d], but got %d", MAX_FRACTION_DIGITS, fractionDigits));
+        }
+        this.kind = kind;
+        this.inputFormat = inputFormat;
+        this.outputFormat = outputFormat;
+        this.fractionDigits = fractionDigits;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Convert a file in the calling thread.
+     *
+     * @param input
+     *         The file to read
+     * @param output
+     *         The file to write, will be replaced if exists
+     * @return The number of coordinates converted
+     * @throws IOException
+     *         If failed to read or write files
+     * @throws IllegalArgumentException
+     *         If any of the lines is not a valid coordinate
+     */
+    public long convert(final Path input, final Path output) throws IOException, IllegalArgumentException {
+        return convert(input, output, 1);
+    }
+
+    /**
+     * Convert a file with multiple threads. The input file is split into chunks on line boundaries, every chunk is
+     * converted into a temporary file next to the output file, then all chunks are joined in order.
+     *
+     * @param input
+     *         The file to read
+     * @param output
+     *         The file to write, will be replaced if exists
+     * @param parallelism
+     *         The number of threads to use
+     * @return The number of coordinates converted
+     * @throws IOException
+     *         If failed to read or write files
+     * @throws IllegalArgumentException
+     *         If any of the lines is not a valid coordinate, or the parallelism is less than 1
+     */
+    public long convert(final Path input, final Path output, final int parallelism) throws IOException, IllegalArgumentException {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Input and output files should be provided");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism should be at least 1, but got %d", parallelism));
+        }
+        final CoordinateTransformer transformer = GeometryUtils.getDefaultTransformer();
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            final long size = in.size();
+            if (parallelism == 1 || size < parallelism * (long) BLOCK_SIZE) {
+                try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    return convert(transformer, in, 0, size, out);
+                }
+            }
+            return convertInParallel(transformer, in, size, output, parallelism);
+        }
+    }
+
+    private long convertInParallel(final CoordinateTransformer transformer, final FileChannel in, final long size,
+            final Path output, final int parallelism) throws IOException {
+        final long[] bounds = split(in, size, parallelism);
+        final int chunks = bounds.length - 1;
+        final Path[] parts = new Path[chunks];
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            final List<Future<Long>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                final Path part = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".part");
+                parts[i] = part;
+                final long from = bounds[i];
+                final long to = bounds[i + 1];
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        try (FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                            return convert(transformer, in, from, to, out);
+                        }
+                    }
+                }));
+            }
+            long count = 0;
+            for (Future<Long> future : futures) {
+                count += await(future);
+            }
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Path part : parts) {
+                    try (FileChannel partChannel = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long position = 0;
+                        final long partSize = partChannel.size();
+                        while (position < partSize) {
+                            position += partChannel.transferTo(position, partSize - position, out);
+                        }
+                    }
+                }
+            }
+            return count;
+        } finally {
+            executor.shutdownNow();
+            for (Path part : parts) {
+                if (part != null) {
+                    Files.deleteIfExists(part);
+                }
+            }
+        }
+    }
+
+    private static long await(final Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Split the file into chunks of roughly the same size, every chunk but the first starts right after a line break.
+     */
+    private static long[] split(final FileChannel in, final long size, final int parallelism) throws IOException {
+        final long[] bounds = new long[parallelism + 1];
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_LENGTH + 1);
+        int count = 1;
+        for (int i = 1; i < parallelism; i++) {
+            long position = Math.max(size * i / parallelism, bounds[count - 1]);
+            buffer.clear();
+            in.read(buffer, position);
+            buffer.flip();
+            int newLine = -1;
+            for (int j = 0; j < buffer.limit(); j++) {
+                if (buffer.get(j) == '\n') {
+                    newLine = j;
+                    break;
+                }
+            }
+            if (newLine < 0) {
+                if (buffer.limit() > MAX_LINE_LENGTH) {
+                    throw new IllegalArgumentException(String.format("Line at byte %d is longer than %d bytes", position, MAX_LINE_LENGTH));
+                }
+                break;
+            }
+            final long bound = position + newLine + 1;
+            if (bound >= size) {
+                break;
+            }
+            if (bound > bounds[count - 1]) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count] = size;
+        final long[] result = new long[count + 1];
+        System.arraycopy(bounds, 0, result, 0, count + 1);
+        return result;
+    }
+
+    private long convert(final CoordinateTransformer transformer, final FileChannel in, final long from, final long to,
+            final WritableByteChannel out) throws IOException {
+        final byte[] block = new byte[BLOCK_SIZE];
+        final byte[] outputBytes = new byte[OUTPUT_BUFFER_SIZE];
+        final ByteBuffer outputBuffer = ByteBuffer.wrap(outputBytes);
+        final double[] result = new double[2];
+        int outputLength = 0;
+        long count = 0;
+        long windowStart = from;
+        while (windowStart < to) {
+            final long windowSize = Math.min(this.windowSize, to - windowStart);
+            final MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            final boolean lastWindow = windowStart + windowSize >= to;
+            int blockStart = 0;
+            while (blockStart < windowSize) {
+                final int blockLength = (int) Math.min(BLOCK_SIZE, windowSize - blockStart);
+                window.position(blockStart);
+                window.get(block, 0, blockLength);
+                final boolean lastBlock = lastWindow && blockStart + blockLength >= windowSize;
+                int lineStart = 0;
+                for (int i = 0; i < blockLength; i++) {
+                    if (block[i] != '\n') {
+                        continue;
+                    }
+                    if (outputLength > OUTPUT_BUFFER_SIZE - MAX_LINE_LENGTH) {
+                        flush(out, outputBuffer, outputLength);
+                        outputLength = 0;
+                    }
+                    outputLength = convertLine(transformer, block, lineStart, i, windowStart + blockStart, result, outputBytes, outputLength);
+                    if (outputLength < 0) {
+                        outputLength = -outputLength;
+                    } else {
+                        count++;
+                    }
+                    lineStart = i + 1;
+                }
+                if (lineStart == blockLength) {
+                    blockStart += blockLength;
+                } else if (lastBlock) {
+                    // The last line without a line break
+                    if (outputLength > OUTPUT_BUFFER_SIZE - MAX_LINE_LENGTH) {
+                        flush(out, outputBuffer, outputLength);
+                        outputLength = 0;
+                    }
+                    outputLength = convertLine(transformer, block, lineStart, blockLength, windowStart + blockStart, result, outputBytes, outputLength);
+                    if (outputLength < 0) {
+                        outputLength = -outputLength;
+                    } else {
+                        count++;
+                    }
+                    blockStart += blockLength;
+                } else if (blockStart + blockLength >= windowSize) {
+                    // Map the next window from the beginning of the incomplete line
+                    blockStart += lineStart;
+                    if (blockStart == 0) {
+                        throw new IllegalArgumentException(String.format("Line at byte %d is longer than %d bytes", windowStart, MAX_LINE_LENGTH));
+                    }
+                    break;
+                } else if (lineStart == 0) {
+                    throw new IllegalArgumentException(String.format("Line at byte %d is longer than %d bytes", windowStart + blockStart, MAX_LINE_LENGTH));
+                } else {
+                    // Continue from the beginning of the incomplete line
+                    blockStart += lineStart;
+                }
+            }
+            windowStart += blockStart;
+        }
+        flush(out, outputBuffer, outputLength);
+        return count;
+    }
+
+    /**
+     * @return The new length of the output, or its negative value if the line is blank
+     */
+    private int convertLine(final CoordinateTransformer transformer, final byte[] block, final int from, final int to,
+            final long blockOffset, final double[] result, final byte[] output, final int outputLength) {
+        int end = to;
+        if (end > from && block[end - 1] == '\r') {
+            end--;
+        }
+        if (end - from > MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException(String.format("Line at byte %d is longer than %d bytes", blockOffset + from, MAX_LINE_LENGTH));
+        }
+        if (isBlank(block, from, end)) {
+            output[outputLength] = '\n';
+            return -(outputLength + 1);
+        }
+        try {
+            CoordinateParser.parseChecked(block, from, end - from, this.inputFormat, result);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Invalid line at byte %d", blockOffset + from), e);
+        }
+        transformer.convert(this.kind, result[0], result[1], result);
+        int position = outputLength;
+        if (this.outputFormat == CoordinateFormat.HEX) {
+            position = writeHex(result[0], output, position);
+            output[position++] = ',';
+            position = writeHex(result[1], output, position);
+        } else {
+            position = writeDecimal(result[0], this.fractionDigits, output, position);
+            output[position++] = ',';
+            position = writeDecimal(result[1], this.fractionDigits, output, position);
+        }
+        output[position++] = '\n';
+        return position;
+    }
+
+    private static boolean isBlank(final byte[] bytes, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flush(final WritableByteChannel out, final ByteBuffer buffer, final int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    static int writeDecimal(final double value, final int fractionDigits, final byte[] output, final int offset) {
+        int position = offset;
+        final long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[fractionDigits]);
+        if (value < 0 && scaled != 0) {
+            output[position++] = '-';
+        }
+        position = writeDigits(scaled / POWERS_OF_TEN[fractionDigits], 1, output, position);
+        if (fractionDigits > 0) {
+            output[position++] = '.';
+            position = writeDigits(scaled % POWERS_OF_TEN[fractionDigits], fractionDigits, output, position);
+        }
+        return position;
+    }
+
+    private static int writeDigits(final long value, final int minDigits, final byte[] output, final int offset) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        long v = value;
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            output[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        return offset + digits;
+    }
+
+    static int writeHex(final double value, final byte[] output, final int offset) {
+        final int e6 = GeometryUtils.toE6(value);
+        for (int i = 0; i < 8; i++) {
+            output[offset + i] = HEX_DIGITS[(e6 >>> (28 - i * 4)) & 0xf];
+        }
+        return offset + 8;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Text formats of a coordinate.
+ *
+ * @author SgrAlpha
+ */
+public enum CoordinateFormat {
+
+    /**
+     * Comma separated decimal degrees, like 39.980945,116.34812. See
+     * {@link io.sgr.geometry.Coordinate#parseCommaSeparatedString(String)}.
+     */
+    DECIMAL,
+    /**
+     * Comma separated E6 values in hex, like 02c94442,04f21576. See
+     * {@link io.sgr.geometry.Coordinate#parseCommaSeparatedHexString(String)}.
+     */
+    HEX,
+
+}
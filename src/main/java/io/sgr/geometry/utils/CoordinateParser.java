@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.nio.charset.Charset;
+
+/**
+ * Parses comma separated coordinates directly from bytes or characters, following the same rules as
+ * {@link io.sgr.geometry.Coordinate#parseCommaSeparatedString(String)} and
+ * {@link io.sgr.geometry.Coordinate#parseCommaSeparatedHexString(String)}: spaces are ignored anywhere, trailing commas
+ * are ignored, and anything else must be exactly two numbers.
+ * <p>
+ * Common inputs are parsed without creating any object. Unusual ones, like exponents beyond 1e22, more than 15
+ * significant digits or non-ASCII characters, fall back to {@link Double#parseDouble(String)} and
+ * {@link Long#parseLong(String, int)}, so the results are always the same as parsing strings.
+ *
+ * @author SgrAlpha
+ */
+public final class CoordinateParser {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_HEX_DIGITS = 15;
+    private static final int MAX_FAST_CHARS = 128;
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_FAST_CHARS];
+        }
+    };
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CoordinateParser() {
+    }
+
+    /**
+     * @param text
+     *         The text to parse
+     * @param format
+     *         The format of the text
+     * @param result
+     *         An array of at least 2 elements to store the latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the text is not a valid coordinate in the given format.
+     */
+    public static void parse(final CharSequence text, final CoordinateFormat format, final double[] result)
+            throws IllegalArgumentException {
+        if (text == null) {
+            throw invalid("null", format, null);
+        }
+        parse(text, 0, text.length(), format, result);
+    }
+
+    /**
+     * @param text
+     *         The text to parse
+     * @param offset
+     *         The index of the first character
+     * @param length
+     *         The number of characters
+     * @param format
+     *         The format of the text
+     * @param result
+     *         An array of at least 2 elements to store the latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the text is not a valid coordinate in the given format.
+     */
+    public static void parse(final CharSequence text, final int offset, final int length, final CoordinateFormat format,
+            final double[] result) throws IllegalArgumentException {
+        checkArguments(text == null ? -1 : text.length(), offset, length, format, result);
+        if (length <= MAX_FAST_CHARS) {
+            final byte[] scratch = SCRATCH.get();
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(offset + i);
+                if (c > 0x7f) {
+                    ascii = false;
+                    break;
+                }
+                scratch[i] = (byte) c;
+            }
+            if (ascii) {
+                parseChecked(scratch, 0, length, format, result);
+                return;
+            }
+        }
+        final byte[] bytes = text.subSequence(offset, offset + length).toString().getBytes(UTF_8);
+        parseChecked(bytes, 0, bytes.length, format, result);
+    }
+
+    /**
+     * @param bytes
+     *         The UTF-8 bytes to parse
+     * @param offset
+     *         The index of the first byte
+     * @param length
+     *         The number of bytes
+     * @param format
+     *         The format of the bytes
+     * @param result
+     *         An array of at least 2 elements to store the latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the bytes are not a valid coordinate in the given format.
+     */
+    public static void parse(final byte[] bytes, final int offset, final int length, final CoordinateFormat format,
+            final double[] result) throws IllegalArgumentException {
+        checkArguments(bytes == null ? -1 : bytes.length, offset, length, format, result);
+        parseChecked(bytes, offset, length, format, result);
+    }
+
+    private static void checkArguments(final int size, final int offset, final int length, final CoordinateFormat format,
+            final double[] result) {
+        if (size < 0) {
+            throw invalid("null", format, null);
+        }
+        if (offset < 0 || length < 0 || offset + length < 0 || offset + length > size) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, offset + length));
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Format should be provided");
+        }
+        if (result == null || result.length < 2) {
+            throw new IllegalArgumentException("Result array should have at least 2 elements");
+        }
+    }
+
+    static void parseChecked(final byte[] bytes, final int offset, final int length, final CoordinateFormat format,
+            final double[] result) throws IllegalArgumentException {
+        final int end = offset + length;
+        int firstComma = -1;
+        int secondComma = -1;
+        for (int i = offset; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == ',') {
+                if (firstComma < 0) {
+                    firstComma = i;
+                } else if (secondComma < 0) {
+                    secondComma = i;
+                }
+            } else if (b != ' ' && secondComma >= 0) {
+                throw invalid(bytes, offset, length, format, null);
+            }
+        }
+        if (firstComma < 0) {
+            throw invalid(bytes, offset, length, format, null);
+        }
+        final int lngEnd = secondComma < 0 ? end : secondComma;
+        final double lat;
+        final double lng;
+        try {
+            if (format == CoordinateFormat.HEX) {
+                lat = parseHex(bytes, offset, firstComma) / 1e6;
+                lng = parseHex(bytes, firstComma + 1, lngEnd) / 1e6;
+            } else {
+                lat = parseDecimal(bytes, offset, firstComma);
+                lng = parseDecimal(bytes, firstComma + 1, lngEnd);
+            }
+        } catch (NumberFormatException e) {
+            throw invalid(bytes, offset, length, format, e);
+        }
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw invalid(bytes, offset, length, format, null);
+        }
+        result[0] = lat;
+        result[1] = lng;
+    }
+
+    private static double parseDecimal(final byte[] bytes, final int from, final int to) throws NumberFormatException {
+        int i = skipSpaces(bytes, from, to);
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i = skipSpaces(bytes, i + 1, to);
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            final byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        return parseDecimalSlowly(bytes, from, to);
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                }
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b != ' ') {
+                break;
+            }
+        }
+        if (!anyDigit) {
+            return parseDecimalSlowly(bytes, from, to);
+        }
+        if (i < to) {
+            if (bytes[i] != 'e' && bytes[i] != 'E') {
+                return parseDecimalSlowly(bytes, from, to);
+            }
+            i = skipSpaces(bytes, i + 1, to);
+            boolean negativeExponent = false;
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+            int explicit = 0;
+            boolean anyExponentDigit = false;
+            for (; i < to; i++) {
+                final byte b = bytes[i];
+                if (b >= '0' && b <= '9') {
+                    anyExponentDigit = true;
+                    if (explicit > 1000) {
+                        return parseDecimalSlowly(bytes, from, to);
+                    }
+                    explicit = explicit * 10 + (b - '0');
+                } else if (b != ' ') {
+                    return parseDecimalSlowly(bytes, from, to);
+                }
+            }
+            if (!anyExponentDigit) {
+                return parseDecimalSlowly(bytes, from, to);
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        final double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent < 0 && exponent >= -22) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent >= 0 && exponent <= 22) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return parseDecimalSlowly(bytes, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    private static double parseDecimalSlowly(final byte[] bytes, final int from, final int to) throws NumberFormatException {
+        return Double.parseDouble(withoutSpaces(bytes, from, to));
+    }
+
+    private static int parseHex(final byte[] bytes, final int from, final int to) throws NumberFormatException {
+        int i = skipSpaces(bytes, from, to);
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < to; i++) {
+            final byte b = bytes[i];
+            final int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else if (b >= 'A' && b <= 'F') {
+                digit = b - 'A' + 10;
+            } else if (b == ' ') {
+                continue;
+            } else {
+                return (int) Long.parseLong(withoutSpaces(bytes, from, to), 16);
+            }
+            if (++digits > MAX_FAST_HEX_DIGITS) {
+                return (int) Long.parseLong(withoutSpaces(bytes, from, to), 16);
+            }
+            value = (value << 4) | digit;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("No hex digit");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static int skipSpaces(final byte[] bytes, final int from, final int to) {
+        int i = from;
+        while (i < to && bytes[i] == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static String withoutSpaces(final byte[] bytes, final int from, final int to) {
+        return new String(bytes, from, to - from, UTF_8).replace(" ", "");
+    }
+
+    private static IllegalArgumentException invalid(final byte[] bytes, final int offset, final int length,
+            final CoordinateFormat format, final Exception cause) {
+        return invalid(new String(bytes, offset, length, UTF_8), format, cause);
+    }
+
+    private static IllegalArgumentException invalid(final String raw, final CoordinateFormat format, final Exception cause) {
+        final ConversionMetrics metrics = ConversionMetrics.recorder();
+        if (metrics != null) {
+            metrics.recordParseFailure(format);
+        }
+        final String message = format == CoordinateFormat.HEX
+                ? String.format("Invalid comma separated coordinate hex string: %s", raw)
+                : String.format("Invalid comma separated coordinate string: %s", raw);
+        return cause == null ? new IllegalArgumentException(message) : new IllegalArgumentException(message, cause);
+    }
+
+}
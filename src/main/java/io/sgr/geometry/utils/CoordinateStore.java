@@ -0,0 +1,511 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed capacity, columnar store of coordinates kept outside of the Java heap.
+ * <p>
+ * Latitudes and longitudes are stored as E6 integers, the same encoding as {@link Coordinate#getLatE6()} and
+ * {@link Coordinate#getLngE6()}, in separate columns. Stores can optionally hold a float weight per coordinate, like
+ * {@link WeightedLocation}. A coordinate costs 8 bytes, or 12 bytes with weights, instead of a {@link Coordinate}
+ * object and a reference to it.
+ * <p>
+ * A store is either backed by direct memory, see {@link #allocate(int, boolean)}, or by a memory mapped file, see
+ * {@link #create(Path, int, boolean)} and {@link #open(Path)}. Files use the same layout as the memory: a 32 bytes
+ * header followed by the columns, in little endian. Opening a file only maps it, nothing is read or deserialized until
+ * it is accessed.
+ * <p>
+ * Stores are not thread safe. Concurrent reads are fine as long as nothing is written at the same time.
+ *
+ * @author SgrAlpha
+ */
+public final class CoordinateStore {
+
+    /**
+     * The largest capacity of stores without weights
+     */
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - 32) / 8;
+    /**
+     * The largest capacity of stores with weights
+     */
+    public static final int MAX_WEIGHTED_CAPACITY = (Integer.MAX_VALUE - 32) / 12;
+
+    static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x47454f43;
+    private static final int VERSION = 1;
+    private static final int FLAG_WEIGHTED = 1;
+    private static final int SIZE_OFFSET = 16;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final ByteBuffer buffer;
+    private final IntBuffer lats;
+    private final IntBuffer lngs;
+    private final FloatBuffer weights;
+    private final int capacity;
+    private final boolean mapped;
+    private int size;
+
+    private CoordinateStore(final ByteBuffer buffer, final boolean mapped, final int capacity, final boolean weighted,
+            final int size) {
+        this.buffer = buffer.order(ORDER);
+        this.mapped = mapped;
+        this.capacity = capacity;
+        this.lats = column(buffer, HEADER_SIZE, capacity).asIntBuffer();
+        this.lngs = column(buffer, HEADER_SIZE + capacity * 4, capacity).asIntBuffer();
+        this.weights = weighted ? column(buffer, HEADER_SIZE + capacity * 8, capacity).asFloatBuffer() : null;
+        this.size = size;
+    }
+
+    private static ByteBuffer column(final ByteBuffer buffer, final int offset, final int capacity) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + capacity * 4).position(offset);
+        return duplicate.slice().order(ORDER);
+    }
+
+    /**
+     * Create a store backed by direct memory.
+     *
+     * @param capacity
+     *         The maximum number of coordinates
+     * @param weighted
+     *         Whether or not to keep a weight for each coordinate
+     * @return The store
+     * @throws IllegalArgumentException
+     *         If the capacity is negative or too large
+     */
+    public static CoordinateStore allocate(final int capacity, final boolean weighted) throws IllegalArgumentException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(byteSize(capacity, weighted));
+        writeHeader(buffer.order(ORDER), capacity, weighted);
+        return new CoordinateStore(buffer, false, capacity, weighted, 0);
+    }
+
+    /**
+     * Create a store backed by a memory mapped file. The file is created, or truncated if it exists. Appended
+     * coordinates are visible in the file without any explicit save, call {@link #force()} to make sure they are
+     * written to the storage device.
+     *
+     * @param file
+     *         The file
+     * @param capacity
+     *         The maximum number of coordinates
+     * @param weighted
+     *         Whether or not to keep a weight for each coordinate
+     * @return The store
+     * @throws IllegalArgumentException
+     *         If the file is missing, or the capacity is negative or too large
+     * @throws IOException
+     *         If failed to create or map the file
+     */
+    public static CoordinateStore create(final Path file, final int capacity, final boolean weighted)
+            throws IllegalArgumentException, IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File should be provided");
+        }
+        final int byteSize = byteSize(capacity, weighted);
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize);
+        }
+        writeHeader(buffer.order(ORDER), capacity, weighted);
+        return new CoordinateStore(buffer, true, capacity, weighted, 0);
+    }
+
+    /**
+     * Open a file written by a store, by mapping it in read and write mode.
+     *
+     * @param file
+     *         The file
+     * @return The store
+     * @throws IllegalArgumentException
+     *         If the file is missing or is not a valid store file
+     * @throws IOException
+     *         If failed to map the file
+     */
+    public static CoordinateStore open(final Path file) throws IllegalArgumentException, IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File should be provided");
+        }
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Invalid coordinate store file: %s", file));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        }
+        buffer.order(ORDER);
+        final int flags = buffer.getInt(8);
+        final int capacity = buffer.getInt(12);
+        final int size = buffer.getInt(SIZE_OFFSET);
+        final boolean weighted = (flags & FLAG_WEIGHTED) != 0;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || capacity < 0
+                || capacity > (weighted ? MAX_WEIGHTED_CAPACITY : MAX_CAPACITY)
+                || buffer.capacity() != byteSize(capacity, weighted) || size < 0 || size > capacity) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate store file: %s", file));
+        }
+        return new CoordinateStore(buffer, true, capacity, weighted, size);
+    }
+
+    private static int byteSize(final int capacity, final boolean weighted) {
+        final int max = weighted ? MAX_WEIGHTED_CAPACITY : MAX_CAPACITY;
+        if (capacity < 0 || capacity > max) {
+            throw new IllegalArgumentException(String.format("Capacity should be in range [0, %d], but got %d", max, capacity));
+        }
+        return HEADER_SIZE + capacity * (weighted ? 12 : 8);
+    }
+
+    private static void writeHeader(final ByteBuffer buffer, final int capacity, final boolean weighted) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, weighted ? FLAG_WEIGHTED : 0);
+        buffer.putInt(12, capacity);
+        buffer.putInt(SIZE_OFFSET, 0);
+    }
+
+    /**
+     * @return The number of coordinates in this store
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The maximum number of coordinates of this store
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return Whether or not this store keeps weights
+     */
+    public boolean isWeighted() {
+        return this.weights != null;
+    }
+
+    /**
+     * Append a coordinate. In stores with weights, the weight is 1.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return The index of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is invalid
+     * @throws IllegalStateException
+     *         If the store is full
+     */
+    public int append(final double lat, final double lng) throws IllegalArgumentException, IllegalStateException {
+        return append(lat, lng, 1);
+    }
+
+    /**
+     * Append a coordinate with weight. Stores without weights ignore the weight.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param weight
+     *         The weight
+     * @return The index of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is invalid or weight is less or equal to 0
+     * @throws IllegalStateException
+     *         If the store is full
+     */
+    public int append(final double lat, final double lng, final float weight)
+            throws IllegalArgumentException, IllegalStateException {
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight should be greater than 0");
+        }
+        if (this.size >= this.capacity) {
+            throw new IllegalStateException(String.format("Store is full, capacity is %d", this.capacity));
+        }
+        final int index = this.size;
+        this.lats.put(index, GeometryUtils.toE6(lat));
+        this.lngs.put(index, GeometryUtils.toE6(lng));
+        if (this.weights != null) {
+            this.weights.put(index, weight);
+        }
+        this.size = index + 1;
+        this.buffer.putInt(SIZE_OFFSET, this.size);
+        return index;
+    }
+
+    /**
+     * @param coordinate
+     *         The coordinate to append
+     * @return The index of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing
+     * @throws IllegalStateException
+     *         If the store is full
+     */
+    public int append(final Coordinate coordinate) throws IllegalArgumentException, IllegalStateException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        return append(coordinate.getLat(), coordinate.getLng(), 1);
+    }
+
+    /**
+     * @param location
+     *         The weighted location to append
+     * @return The index of the location
+     * @throws IllegalArgumentException
+     *         If the location is missing
+     * @throws IllegalStateException
+     *         If the store is full
+     */
+    public int append(final WeightedLocation location) throws IllegalArgumentException, IllegalStateException {
+        if (location == null) {
+            throw new IllegalArgumentException("Location should be provided");
+        }
+        return append(location.getLocation().getLat(), location.getLocation().getLng(), location.getWeight());
+    }
+
+    /**
+     * Replace a coordinate, the weight is kept.
+     *
+     * @param index
+     *         The index of the coordinate
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @throws IllegalArgumentException
+     *         If the coordinate is invalid
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public void set(final int index, final double lat, final double lng)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkIndex(index);
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+        this.lats.put(index, GeometryUtils.toE6(lat));
+        this.lngs.put(index, GeometryUtils.toE6(lng));
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return The E6 value of latitude
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public int getLatE6(final int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return this.lats.get(index);
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return The E6 value of longitude
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public int getLngE6(final int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return this.lngs.get(index);
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return The latitude
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public double getLat(final int index) throws IndexOutOfBoundsException {
+        return getLatE6(index) / 1e6;
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return The longitude
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public double getLng(final int index) throws IndexOutOfBoundsException {
+        return getLngE6(index) / 1e6;
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return The weight, or 1 if this store does not keep weights
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public float getWeight(final int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return this.weights == null ? 1 : this.weights.get(index);
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return A new coordinate object
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public Coordinate get(final int index) throws IndexOutOfBoundsException {
+        return new Coordinate(getLat(index), getLng(index));
+    }
+
+    /**
+     * @param index
+     *         The index of the coordinate
+     * @return A new weighted location object
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of range
+     */
+    public WeightedLocation getWeightedLocation(final int index) throws IndexOutOfBoundsException {
+        return new WeightedLocation(get(index), getWeight(index));
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("Index should be in range [0, %d), but got %d", this.size, index));
+        }
+    }
+
+    /**
+     * Convert all coordinates in place.
+     *
+     * @param kind
+     *         The kind of conversion
+     * @throws IllegalArgumentException
+     *         If the kind is missing
+     */
+    public void convert(final ConversionKind kind) throws IllegalArgumentException {
+        convert(kind, 0, this.size);
+    }
+
+    /**
+     * Convert a range of coordinates in place. Converted coordinates are encoded to E6 values again by {@link
+     * GeometryUtils#toE6(double)}, so they are within 1e-6 degree of the converted values.
+     *
+     * @param kind
+     *         The kind of conversion
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @throws IllegalArgumentException
+     *         If the kind is missing or the range is out of bounds
+     */
+    public void convert(final ConversionKind kind, final int offset, final int length) throws IllegalArgumentException {
+        if (kind == null) {
+            throw new IllegalArgumentException("Conversion kind should be provided");
+        }
+        if (offset < 0 || length < 0 || offset + length < 0 || offset + length > this.size) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, offset + length));
+        }
+        final CoordinateTransformer transformer = GeometryUtils.getDefaultTransformer();
+        final IntBuffer lats = this.lats;
+        final IntBuffer lngs = this.lngs;
+        final double[] result = new double[2];
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final double lat = lats.get(i) / 1e6;
+            final double lng = lngs.get(i) / 1e6;
+            if (transformer.isOutOfChinaMainland(lat, lng)) {
+                continue;
+            }
+            transformer.transform(kind, lat, lng, result);
+            lats.put(i, GeometryUtils.toE6(result[0]));
+            lngs.put(i, GeometryUtils.toE6(result[1]));
+        }
+    }
+
+    /**
+     * Remove all coordinates, without releasing any memory.
+     */
+    public void clear() {
+        this.size = 0;
+        this.buffer.putInt(SIZE_OFFSET, 0);
+    }
+
+    /**
+     * Write the coordinates of this store to a file, which can be opened by {@link #open(Path)}. The file is created,
+     * or truncated if it exists, and its capacity is the current size of this store.
+     *
+     * @param file
+     *         The file
+     * @throws IllegalArgumentException
+     *         If the file is missing
+     * @throws IOException
+     *         If failed to write the file
+     */
+    public void writeTo(final Path file) throws IllegalArgumentException, IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File should be provided");
+        }
+        final boolean weighted = isWeighted();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+        writeHeader(header, this.size, weighted);
+        header.putInt(SIZE_OFFSET, this.size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            writeFully(channel, column(this.buffer, HEADER_SIZE, this.size));
+            writeFully(channel, column(this.buffer, HEADER_SIZE + this.capacity * 4, this.size));
+            if (weighted) {
+                writeFully(channel, column(this.buffer, HEADER_SIZE + this.capacity * 8, this.size));
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Make sure changes are written to the storage device, if this store is backed by a memory mapped file.
+     */
+    public void force() {
+        if (this.mapped) {
+            ((MappedByteBuffer) this.buffer).force();
+        }
+    }
+
+}
@@ -0,0 +1,999 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Converts coordinates between earth(WGS-84) and mars(GCJ-02) with its own configuration: the {@link
+ * CoordinateChecker}, the {@link PrecisionMode} and the tolerance of accurate conversions.
+ * <p>
+ * Instances are immutable and thread safe, so services can keep one per configuration and use them concurrently. The
+ * static methods of {@link GeometryUtils} delegate to a default instance, see {@link
+ * GeometryUtils#getDefaultTransformer()}.
+ * <pre>
+ * CoordinateTransformer transformer = CoordinateTransformer.newBuilder()
+ *         .setCoordinateChecker(checker)
+ *         .setPrecisionMode(PrecisionMode.TABLE)
+ *         .build();
+ * Coordinate gcj = transformer.wgs2gcj(39.980945, 116.348120);
+ * </pre>
+ *
+ * @author SgrAlpha
+ */
+public final class CoordinateTransformer {
+
+    private static final CoordinateChecker DEFAULT_COORDINATE_CHECKER = new DefaultCoordinateChecker();
+    private static final int CHECK_BLOCK_SIZE = 1024;
+    private static final ConversionKind[][] SINGLE_STEPS = new ConversionKind[ConversionKind.values().length][];
+
+    static {
+        for (ConversionKind kind : ConversionKind.values()) {
+            SINGLE_STEPS[kind.ordinal()] = new ConversionKind[]{kind};
+        }
+    }
+
+    private final CoordinateChecker checker;
+    private final PrecisionMode precisionMode;
+    private final OffsetTable offsetTable;
+    /**
+     * The table to get offsets from, null to compute them.
+     */
+    private final OffsetTable deltaTable;
+    private final InverseSolver inverseSolver;
+    /**
+     * The kernel of batch conversions in {@link PrecisionMode#FAST_TRIG} mode, null if not supported.
+     */
+    private final SimdKernel simdKernel;
+
+    private CoordinateTransformer(final Builder builder) {
+        this.checker = builder.checker == null ? DEFAULT_COORDINATE_CHECKER : builder.checker;
+        this.precisionMode = builder.precisionMode == null ? PrecisionMode.EXACT : builder.precisionMode;
+        this.offsetTable = builder.offsetTable;
+        if (this.precisionMode == PrecisionMode.TABLE) {
+            this.deltaTable = this.offsetTable == null ? OffsetTable.getDefault() : this.offsetTable;
+        } else {
+            this.deltaTable = null;
+        }
+        this.simdKernel = this.precisionMode == PrecisionMode.FAST_TRIG ? SimdKernel.get() : null;
+        this.inverseSolver = builder.inverseTolerance == InverseSolver.DEFAULT_TOLERANCE
+                && builder.maxInverseIterations == InverseSolver.DEFAULT_MAX_ITERATIONS
+                ? InverseSolver.getDefault() : new InverseSolver(builder.inverseTolerance, builder.maxInverseIterations);
+    }
+
+    /**
+     * @return A builder with the default configuration
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return A builder with the configuration of this transformer
+     */
+    public Builder toBuilder() {
+        final Builder builder = new Builder();
+        builder.checker = this.checker;
+        builder.precisionMode = this.precisionMode;
+        builder.offsetTable = this.offsetTable;
+        builder.inverseTolerance = this.inverseSolver.getTolerance();
+        builder.maxInverseIterations = this.inverseSolver.getMaxIterations();
+        return builder;
+    }
+
+    /**
+     * @return The CoordinateChecker
+     */
+    public CoordinateChecker getCoordinateChecker() {
+        return this.checker;
+    }
+
+    /**
+     * @return The precision mode
+     */
+    public PrecisionMode getPrecisionMode() {
+        return this.precisionMode;
+    }
+
+    /**
+     * @return The OffsetTable used in {@link PrecisionMode#TABLE} mode, null for {@link OffsetTable#getDefault()}
+     */
+    public OffsetTable getOffsetTable() {
+        return this.offsetTable;
+    }
+
+    /**
+     * @return The solver of accurate conversions from mars(GCJ-02) to earth(WGS-84)
+     */
+    public InverseSolver getInverseSolver() {
+        return this.inverseSolver;
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return Whether or not the coordinate is out of China mainland, by the CoordinateChecker of this transformer
+     */
+    public boolean isOutOfChinaMainland(final double lat, final double lng) {
+        return this.checker.isOutOfChinaMainland(lat, lng);
+    }
+
+    /**
+     * Check many coordinates at once. The result of coordinate <code>offset + i</code> is bit <code>i % 64</code> of
+     * <code>mask[i / 64]</code>, which is set if the coordinate is out of China mainland.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param mask
+     *         An array of at least <code>(length + 63) / 64</code> elements to store the results
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, or the range is out of bounds, or the mask is too small.
+     * @see BatchCoordinateChecker
+     */
+    public void checkOutOfChinaMainland(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask) throws IllegalArgumentException {
+        GeometryUtils.checkMask(lat, lng, offset, length, mask);
+        checkRange(lat, lng, offset, length, mask);
+    }
+
+    /**
+     * Convert coordinate from earth(WGS-84) to mars(GCJ-02).
+     *
+     * @param wgs
+     *         The WGS coordinate
+     * @return An {@link Coordinate} mars coordinate
+     */
+    public Coordinate wgs2gcj(final Coordinate wgs) {
+        return convert(ConversionKind.WGS2GCJ, wgs, new double[2]);
+    }
+
+    /**
+     * Convert coordinate from earth(WGS-84) to mars(GCJ-02).
+     *
+     * @param lat
+     *         The WGS latitude
+     * @param lng
+     *         The WGS longitude
+     * @return An {@link Coordinate} mars coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate wgs2gcj(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        wgs2gcj(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert coordinate from earth(WGS-84) to mars(GCJ-02) without creating any object.
+     *
+     * @param lat
+     *         The WGS latitude
+     * @param lng
+     *         The WGS longitude
+     * @param result
+     *         An array of at least 2 elements to store the GCJ latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void wgs2gcj(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        convert(ConversionKind.WGS2GCJ, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from earth(WGS-84) to mars(GCJ-02), see {@link GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed WGS coordinate
+     * @return The packed GCJ coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long wgs2gcj(final long packed) throws IllegalArgumentException {
+        return convert(ConversionKind.WGS2GCJ, packed);
+    }
+
+    /**
+     * Convert coordinates from earth(WGS-84) to mars(GCJ-02) in place.
+     *
+     * @param lat
+     *         The WGS latitudes, will be overwritten by GCJ latitudes
+     * @param lng
+     *         The WGS longitudes, will be overwritten by GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void wgs2gcj(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        wgs2gcj(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from earth(WGS-84) to mars(GCJ-02). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The WGS latitudes
+     * @param lng
+     *         The WGS longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store GCJ latitudes
+     * @param outLng
+     *         The array to store GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void wgs2gcj(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        convertRange(ConversionKind.WGS2GCJ, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84).
+     *
+     * @param gcj
+     *         The GCJ coordinate
+     * @return An {@link Coordinate} earth coordinate
+     */
+    public Coordinate gcj2wgs(final Coordinate gcj) {
+        return convert(ConversionKind.GCJ2WGS, gcj, new double[2]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84).
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} earth coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate gcj2wgs(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        gcj2wgs(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) without creating any object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void gcj2wgs(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        convert(ConversionKind.GCJ2WGS, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to earth(WGS-84), see {@link GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed WGS coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long gcj2wgs(final long packed) throws IllegalArgumentException {
+        return convert(ConversionKind.GCJ2WGS, packed);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to earth(WGS-84) in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by WGS latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void gcj2wgs(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        gcj2wgs(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to earth(WGS-84). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store WGS latitudes
+     * @param outLng
+     *         The array to store WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void gcj2wgs(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        convertRange(ConversionKind.GCJ2WGS, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09).
+     *
+     * @param gcj
+     *         The GCJ coordinate
+     * @return An {@link Coordinate} Baidu coordinate
+     */
+    public Coordinate gcj2bd(final Coordinate gcj) {
+        return convert(ConversionKind.GCJ2BD, gcj, new double[2]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09).
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} Baidu coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate gcj2bd(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        gcj2bd(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09) without creating any object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the BD latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void gcj2bd(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        convert(ConversionKind.GCJ2BD, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to Baidu(BD-09), see {@link GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed BD coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long gcj2bd(final long packed) throws IllegalArgumentException {
+        return convert(ConversionKind.GCJ2BD, packed);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to Baidu(BD-09) in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by BD latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by BD longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void gcj2bd(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        gcj2bd(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to Baidu(BD-09). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store BD latitudes
+     * @param outLng
+     *         The array to store BD longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void gcj2bd(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        convertRange(ConversionKind.GCJ2BD, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02).
+     *
+     * @param bd
+     *         The BD coordinate
+     * @return An {@link Coordinate} mars coordinate
+     */
+    public Coordinate bd2gcj(final Coordinate bd) {
+        return convert(ConversionKind.BD2GCJ, bd, new double[2]);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02).
+     *
+     * @param lat
+     *         The BD latitude
+     * @param lng
+     *         The BD longitude
+     * @return An {@link Coordinate} mars coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate bd2gcj(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        bd2gcj(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02) without creating any object.
+     *
+     * @param lat
+     *         The BD latitude
+     * @param lng
+     *         The BD longitude
+     * @param result
+     *         An array of at least 2 elements to store the GCJ latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void bd2gcj(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        convert(ConversionKind.BD2GCJ, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from Baidu(BD-09) to mars(GCJ-02), see {@link GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed BD coordinate
+     * @return The packed GCJ coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long bd2gcj(final long packed) throws IllegalArgumentException {
+        return convert(ConversionKind.BD2GCJ, packed);
+    }
+
+    /**
+     * Convert coordinates from Baidu(BD-09) to mars(GCJ-02) in place.
+     *
+     * @param lat
+     *         The BD latitudes, will be overwritten by GCJ latitudes
+     * @param lng
+     *         The BD longitudes, will be overwritten by GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void bd2gcj(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        bd2gcj(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from Baidu(BD-09) to mars(GCJ-02). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The BD latitudes
+     * @param lng
+     *         The BD longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store GCJ latitudes
+     * @param outLng
+     *         The array to store GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void bd2gcj(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        convertRange(ConversionKind.BD2GCJ, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way.
+     *
+     * @param gcj
+     *         The GCJ coordinate
+     * @return An {@link Coordinate} earth coordinate
+     */
+    public Coordinate gcj2wgsAccurate(final Coordinate gcj) {
+        return convert(ConversionKind.GCJ2WGS_ACCURATE, gcj, new double[2]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} earth coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public Coordinate gcj2wgsAccurate(final double lat, final double lng) throws IllegalArgumentException {
+        final double[] result = new double[2];
+        gcj2wgsAccurate(lat, lng, result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, without creating any
+     * object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public void gcj2wgsAccurate(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        GeometryUtils.checkScalar(lat, lng, result);
+        convert(ConversionKind.GCJ2WGS_ACCURATE, lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, see {@link
+     * GeometryUtils#packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed WGS coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public long gcj2wgsAccurate(final long packed) throws IllegalArgumentException {
+        return convert(ConversionKind.GCJ2WGS_ACCURATE, packed);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by WGS latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public void gcj2wgsAccurate(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        gcj2wgsAccurate(lat, lng, 0, lat.length, lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way. Results are
+     * written to the same range of the output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store WGS latitudes
+     * @param outLng
+     *         The array to store WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public void gcj2wgsAccurate(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        GeometryUtils.checkBatch(lat, lng, offset, length, outLat, outLng);
+        convertRange(ConversionKind.GCJ2WGS_ACCURATE, lat, lng, offset, offset + length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinates in place with multiple threads.
+     *
+     * @param lat
+     *         The latitudes, will be overwritten by converted latitudes
+     * @param lng
+     *         The longitudes, will be overwritten by converted longitudes
+     * @param kind
+     *         The kind of conversion
+     * @param parallelism
+     *         The number of threads to use
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, any of the coordinates is out of range, or the parallelism is
+     *         less than 1.
+     */
+    public void convertAll(final double[] lat, final double[] lng, final ConversionKind kind, final int parallelism)
+            throws IllegalArgumentException {
+        GeometryUtils.checkSameLength(lat, lng);
+        GeometryUtils.checkConversion(kind, parallelism);
+        if (parallelism == 1 || lat.length <= ConversionTask.MIN_CHUNK_SIZE) {
+            GeometryUtils.checkCoordinates(lat, lng, 0, lat.length);
+            convertRange(kind, lat, lng, 0, lat.length, lat, lng);
+            return;
+        }
+        final ForkJoinPool pool = ForkJoinPools.get(parallelism);
+        // Validate everything before converting anything, so nothing is half converted on failure.
+        pool.invoke(ConversionTask.validate(lat, lng, parallelism));
+        pool.invoke(ConversionTask.convert(this, kind, lat, lng, parallelism));
+    }
+
+    /**
+     * Convert coordinates with multiple threads.
+     *
+     * @param source
+     *         The coordinates to convert
+     * @param kind
+     *         The kind of conversion
+     * @param parallelism
+     *         The number of threads to use
+     * @return A fixed-size list of converted coordinates, in the same order as the source
+     * @throws IllegalArgumentException
+     *         If the source is null or contains null, or the parallelism is less than 1.
+     */
+    public List<Coordinate> convertAll(final List<Coordinate> source, final ConversionKind kind, final int parallelism)
+            throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Coordinates should be provided");
+        }
+        GeometryUtils.checkConversion(kind, parallelism);
+        final Coordinate[] coordinates = source.toArray(new Coordinate[source.size()]);
+        for (Coordinate coordinate : coordinates) {
+            if (coordinate == null) {
+                throw new IllegalArgumentException("Coordinates should not contain null");
+            }
+        }
+        final Coordinate[] converted = new Coordinate[coordinates.length];
+        if (parallelism == 1 || coordinates.length <= ConversionTask.MIN_CHUNK_SIZE) {
+            final double[] result = new double[2];
+            for (int i = 0; i < coordinates.length; i++) {
+                converted[i] = convert(kind, coordinates[i], result);
+            }
+            return Arrays.asList(converted);
+        }
+        ForkJoinPools.get(parallelism).invoke(ConversionTask.convert(this, kind, coordinates, converted, parallelism));
+        return Arrays.asList(converted);
+    }
+
+    /**
+     * Check coordinates block by block, then copy the ones out of China mainland and transform the others, each in a
+     * tight loop. Coordinates converted in place are not copied at all. The SIMD kernel does both for several
+     * coordinates at a time when it is supported.
+     */
+    void convertRange(final ConversionKind kind, final double[] lat, final double[] lng, final int from, final int to,
+            final double[] outLat, final double[] outLng) {
+        final SimdKernel simd = kind == ConversionKind.WGS2GCJ || kind == ConversionKind.GCJ2WGS ? this.simdKernel : null;
+        if (simd != null) {
+            final long[] mask = new long[CHECK_BLOCK_SIZE / 64];
+            final ConversionMetrics metrics = ConversionMetrics.recorder();
+            // Subclasses may override the boxes, so only the exact class is checked by the kernel.
+            final boolean defaultChecker = this.checker.getClass() == DefaultCoordinateChecker.class;
+            for (int start = from; start < to; start += CHECK_BLOCK_SIZE) {
+                final int length = Math.min(CHECK_BLOCK_SIZE, to - start);
+                if (defaultChecker) {
+                    simd.checkOutOfChinaMainland(lat, lng, start, length, mask);
+                } else {
+                    checkRange(lat, lng, start, length, mask);
+                }
+                if (metrics != null) {
+                    metrics.recordCalls(kind, length, countOutside(mask, length));
+                }
+                simd.convert(kind == ConversionKind.WGS2GCJ, lat, lng, start, length, mask, outLat, outLng);
+            }
+            return;
+        }
+        convertRange(SINGLE_STEPS[kind.ordinal()], lat, lng, from, to, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinates through a chain of steps. Coordinates are checked once, those out of China mainland are
+     * copied, the others go through every step without being checked again.
+     */
+    void convertRange(final ConversionKind[] steps, final double[] lat, final double[] lng, final int from, final int to,
+            final double[] outLat, final double[] outLng) {
+        final long[] mask = new long[CHECK_BLOCK_SIZE / 64];
+        final ConversionMetrics metrics = ConversionMetrics.recorder();
+        final double[] result = new double[2];
+        final boolean copyLat = outLat != lat;
+        final boolean copyLng = outLng != lng;
+        for (int start = from; start < to; start += CHECK_BLOCK_SIZE) {
+            final int length = Math.min(CHECK_BLOCK_SIZE, to - start);
+            checkRange(lat, lng, start, length, mask);
+            if (metrics != null) {
+                recordCalls(metrics, steps, length, countOutside(mask, length));
+            }
+            for (int word = 0, words = (length + 63) >>> 6; word < words; word++) {
+                final int base = start + (word << 6);
+                final long validBits = length - (word << 6) >= 64 ? -1L : (1L << (length - (word << 6))) - 1;
+                final long outside = mask[word] & validBits;
+                if (copyLat || copyLng) {
+                    for (long bits = outside; bits != 0; bits &= bits - 1) {
+                        final int i = base + Long.numberOfTrailingZeros(bits);
+                        outLat[i] = lat[i];
+                        outLng[i] = lng[i];
+                    }
+                }
+                for (long bits = ~outside & validBits; bits != 0; bits &= bits - 1) {
+                    final int i = base + Long.numberOfTrailingZeros(bits);
+                    transform(steps, lat[i], lng[i], result);
+                    outLat[i] = result[0];
+                    outLng[i] = result[1];
+                }
+            }
+        }
+    }
+
+    private static void recordCalls(final ConversionMetrics metrics, final ConversionKind[] steps, final int calls,
+            final int passThroughs) {
+        for (ConversionKind step : steps) {
+            metrics.recordCalls(step, calls, passThroughs);
+        }
+    }
+
+    private static int countOutside(final long[] mask, final int length) {
+        int count = 0;
+        for (int word = 0, words = (length + 63) >>> 6; word < words; word++) {
+            final long validBits = length - (word << 6) >= 64 ? -1L : (1L << (length - (word << 6))) - 1;
+            count += Long.bitCount(mask[word] & validBits);
+        }
+        return count;
+    }
+
+    private void checkRange(final double[] lat, final double[] lng, final int offset, final int length, final long[] mask) {
+        final CoordinateChecker checker = this.checker;
+        if (checker instanceof BatchCoordinateChecker) {
+            ((BatchCoordinateChecker) checker).checkOutOfChinaMainland(lat, lng, offset, length, mask);
+            return;
+        }
+        GeometryUtils.checkEach(checker, lat, lng, offset, length, mask);
+    }
+
+    Coordinate convert(final ConversionKind kind, final Coordinate coordinate, final double[] result) {
+        return convert(SINGLE_STEPS[kind.ordinal()], coordinate, result);
+    }
+
+    void convert(final ConversionKind kind, final double lat, final double lng, final double[] result) {
+        convert(SINGLE_STEPS[kind.ordinal()], lat, lng, result);
+    }
+
+    long convert(final ConversionKind kind, final long packed) {
+        return convert(SINGLE_STEPS[kind.ordinal()], packed);
+    }
+
+    Coordinate convert(final ConversionKind[] steps, final Coordinate coordinate, final double[] result) {
+        final boolean outside = this.checker.isOutOfChinaMainland(coordinate.getLat(), coordinate.getLng());
+        final ConversionMetrics metrics = ConversionMetrics.recorder();
+        if (metrics != null) {
+            recordCalls(metrics, steps, 1, outside ? 1 : 0);
+        }
+        if (outside) {
+            return coordinate;
+        }
+        transform(steps, coordinate.getLat(), coordinate.getLng(), result);
+        return new Coordinate(result[0], result[1]);
+    }
+
+    void convert(final ConversionKind[] steps, final double lat, final double lng, final double[] result) {
+        final boolean outside = this.checker.isOutOfChinaMainland(lat, lng);
+        final ConversionMetrics metrics = ConversionMetrics.recorder();
+        if (metrics != null) {
+            recordCalls(metrics, steps, 1, outside ? 1 : 0);
+        }
+        if (outside) {
+            result[0] = lat;
+            result[1] = lng;
+            return;
+        }
+        transform(steps, lat, lng, result);
+    }
+
+    long convert(final ConversionKind[] steps, final long packed) {
+        final double lat = GeometryUtils.unpackLat(packed);
+        final double lng = GeometryUtils.unpackLng(packed);
+        GeometryUtils.checkCoordinate(lat, lng);
+        final double[] result = new double[2];
+        convert(steps, lat, lng, result);
+        // Coordinates passed through are packed back to the same value.
+        return GeometryUtils.packE6(GeometryUtils.toE6(result[0]), GeometryUtils.toE6(result[1]));
+    }
+
+    /**
+     * Convert a coordinate known to be in China mainland through a chain of steps.
+     */
+    void transform(final ConversionKind[] steps, final double lat, final double lng, final double[] result) {
+        transform(steps[0], lat, lng, result);
+        for (int i = 1; i < steps.length; i++) {
+            transform(steps[i], result[0], result[1], result);
+        }
+    }
+
+    /**
+     * Convert a coordinate known to be in China mainland.
+     */
+    void transform(final ConversionKind kind, final double lat, final double lng, final double[] result) {
+        switch (kind) {
+            case WGS2GCJ:
+                delta(lat, lng, result);
+                result[0] += lat;
+                result[1] += lng;
+                break;
+            case GCJ2WGS:
+                delta(lat, lng, result);
+                result[0] = lat - result[0];
+                result[1] = lng - result[1];
+                break;
+            case GCJ2WGS_ACCURATE:
+                final int iterations = this.inverseSolver.iterate(this, lat, lng, result);
+                final ConversionMetrics metrics = ConversionMetrics.recorder();
+                if (metrics != null) {
+                    metrics.recordInverse(iterations);
+                }
+                break;
+            case GCJ2BD:
+                GeometryUtils.gcjToBd(lat, lng, result);
+                break;
+            case BD2GCJ:
+                GeometryUtils.bdToGcj(lat, lng, result);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported conversion: %s", kind));
+        }
+    }
+
+    void delta(final double lat, final double lng, final double[] out) {
+        final OffsetTable table = this.deltaTable;
+        if (table != null) {
+            table.delta(lat, lng, out);
+            return;
+        }
+        if (this.precisionMode == PrecisionMode.FAST_TRIG) {
+            FastTrig.delta(lat, lng, out);
+            return;
+        }
+        GeometryUtils.exactDelta(lat, lng, out);
+    }
+
+    /**
+     * Builder of {@link CoordinateTransformer}. Builders are not thread safe.
+     */
+    public static final class Builder {
+
+        private CoordinateChecker checker;
+        private PrecisionMode precisionMode;
+        private OffsetTable offsetTable;
+        private double inverseTolerance = InverseSolver.DEFAULT_TOLERANCE;
+        private int maxInverseIterations = InverseSolver.DEFAULT_MAX_ITERATIONS;
+
+        private Builder() {
+        }
+
+        /**
+         * @param checker
+         *         The CoordinateChecker, null for {@link DefaultCoordinateChecker}
+         * @return This builder
+         */
+        public Builder setCoordinateChecker(final CoordinateChecker checker) {
+            this.checker = checker;
+            return this;
+        }
+
+        /**
+         * @param precisionMode
+         *         The precision mode, null for {@link PrecisionMode#EXACT}
+         * @return This builder
+         */
+        public Builder setPrecisionMode(final PrecisionMode precisionMode) {
+            this.precisionMode = precisionMode;
+            return this;
+        }
+
+        /**
+         * @param offsetTable
+         *         The OffsetTable used in {@link PrecisionMode#TABLE} mode, null for {@link OffsetTable#getDefault()}
+         * @return This builder
+         */
+        public Builder setOffsetTable(final OffsetTable offsetTable) {
+            this.offsetTable = offsetTable;
+            return this;
+        }
+
+        /**
+         * @param inverseTolerance
+         *         The tolerance in degrees of accurate conversions from mars(GCJ-02) to earth(WGS-84), see {@link
+         *         InverseSolver}
+         * @return This builder
+         */
+        public Builder setInverseTolerance(final double inverseTolerance) {
+            this.inverseTolerance = inverseTolerance;
+            return this;
+        }
+
+        /**
+         * @param maxInverseIterations
+         *         The maximum number of iterations of accurate conversions from mars(GCJ-02) to earth(WGS-84), see
+         *         {@link InverseSolver}
+         * @return This builder
+         */
+        public Builder setMaxInverseIterations(final int maxInverseIterations) {
+            this.maxInverseIterations = maxInverseIterations;
+            return this;
+        }
+
+        /**
+         * @return The transformer
+         * @throws IllegalArgumentException
+         *         If the inverse tolerance is not positive or the maximum number of inverse iterations is less than 1
+         */
+        public CoordinateTransformer build() throws IllegalArgumentException {
+            return new CoordinateTransformer(this);
+        }
+
+    }
+
+}
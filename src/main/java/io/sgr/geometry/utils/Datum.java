@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Geodetic datums which coordinates can be converted between.
+ *
+ * @author SgrAlpha
+ */
+public enum Datum {
+
+    /**
+     * Earth, the World Geodetic System 1984
+     */
+    WGS84,
+    /**
+     * Mars, the datum required for maps of China mainland, derived from {@link #WGS84}
+     */
+    GCJ02,
+    /**
+     * Baidu, used by Baidu Maps, derived from {@link #GCJ02}
+     */
+    BD09,
+
+}
@@ -22,17 +22,47 @@ package io.sgr.geometry.utils;
  *
  * @author SgrAlpha
  */
-public class DefaultCoordinateChecker implements CoordinateChecker {
+public class DefaultCoordinateChecker implements BatchCoordinateChecker {
 
     /* (non-Javadoc)
      * @see io.sgr.geometry.utils.GeometryUtils.CoordinateChecker#isOutOfChinaMainland(double, double)
      */
     @Override
     public boolean isOutOfChinaMainland(double lat, double lng) {
-        return (lat < 22.446195 && lng > 113.678580 && lng < 114.427582)
-                || (lat < 22.217493 && lat > 22.177243 && lng > 113.528421 && lng < 113.563058)
-                || (lat < 25.401950 && lng < 125.502319 && lat > 21.675348 && lng > 119.827835)
-                || (lng < 72.004) || (lng > 137.8347) || (lat < 0.8293) || (lat > 55.8271);
+        return isOutOfBoxes(lat, lng);
+    }
+
+    /**
+     * Check the boxes directly over the arrays, without any virtual call per coordinate. Subclasses which override
+     * {@link #isOutOfChinaMainland(double, double)} are checked one by one with their own method instead.
+     *
+     * @see io.sgr.geometry.utils.BatchCoordinateChecker#checkOutOfChinaMainland(double[], double[], int, int, long[])
+     */
+    @Override
+    public void checkOutOfChinaMainland(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask) {
+        if (getClass() != DefaultCoordinateChecker.class) {
+            GeometryUtils.checkEach(this, lat, lng, offset, length, mask);
+            return;
+        }
+        for (int start = 0, word = 0; start < length; start += 64, word++) {
+            final int base = offset + start;
+            final int count = Math.min(64, length - start);
+            long bits = 0;
+            for (int i = 0; i < count; i++) {
+                bits |= (isOutOfBoxes(lat[base + i], lng[base + i]) ? 1L : 0L) << i;
+            }
+            mask[word] = bits;
+        }
+    }
+
+    private static boolean isOutOfBoxes(final double lat, final double lng) {
+        // All the boxes are evaluated without short-circuits, which gives the same result without unpredictable
+        // branches
+        return (lat < 22.446195 & lng > 113.678580 & lng < 114.427582)
+                | (lat < 22.217493 & lat > 22.177243 & lng > 113.528421 & lng < 113.563058)
+                | (lat < 25.401950 & lng < 125.502319 & lat > 21.675348 & lng > 119.827835)
+                | (lng < 72.004) | (lng > 137.8347) | (lat < 0.8293) | (lat > 55.8271);
     }
 
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * How distances between coordinates are computed.
+ *
+ * @author SgrAlpha
+ * @see Distances
+ */
+public enum DistanceMethod {
+
+    /**
+     * Great-circle distance on a sphere of the mean earth radius, off by less than 0.6% from the distance on the
+     * WGS-84 ellipsoid. This is the default method.
+     */
+    HAVERSINE,
+    /**
+     * Flat approximation of {@link #HAVERSINE}, which needs no trigonometry besides the cosines of both latitudes. It
+     * is off by less than 0.01% from {@link #HAVERSINE} for distances up to 100 kilometers within 70 degrees of
+     * latitude, but the error grows quickly with distance.
+     */
+    EQUIRECTANGULAR,
+    /**
+     * Geodesic distance on the WGS-84 ellipsoid by the iterative formula of Vincenty, accurate to 1 millimeter. It is
+     * the slowest, and falls back to {@link #HAVERSINE} for nearly antipodal coordinates where it does not converge.
+     */
+    VINCENTY,
+
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+/**
+ * Distances in meters and bearings in degrees between coordinates.
+ * <p>
+ * Besides pairs of coordinates, distances can be computed from one coordinate to many and between two sets of
+ * coordinates, in the primitive layout. Those compute the cosine of each latitude once instead of once per pair, so
+ * {@link DistanceMethod#EQUIRECTANGULAR} needs no trigonometry per pair at all. Filtering by radius first rejects
+ * coordinates out of the bounding box of the circle with plain comparisons.
+ *
+ * @author SgrAlpha
+ * @see DistanceMethod
+ */
+public final class Distances {
+
+    /**
+     * The mean earth radius in meters, used by {@link DistanceMethod#HAVERSINE} and {@link
+     * DistanceMethod#EQUIRECTANGULAR}
+     */
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    static final double WGS84_SEMI_MAJOR_AXIS = 6378137.0;
+    static final double WGS84_FLATTENING = 1 / 298.257223563;
+    static final int VINCENTY_MAX_ITERATIONS = 200;
+
+    private static final double WGS84_SEMI_MINOR_AXIS = WGS84_SEMI_MAJOR_AXIS * (1 - WGS84_FLATTENING);
+    private static final double VINCENTY_TOLERANCE = 1e-12;
+    private static final double RAD = Math.PI / 180;
+    /**
+     * Margin in degrees of the bounding boxes of radius filters, so rounding never rejects coordinates on the circle.
+     */
+    private static final double BOX_MARGIN = 1e-9;
+
+    private Distances() {
+    }
+
+    /**
+     * @param from
+     *         The coordinate to start from
+     * @param to
+     *         The coordinate to end at
+     * @return The distance in meters by {@link DistanceMethod#HAVERSINE}
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is missing
+     */
+    public static double distance(final Coordinate from, final Coordinate to) throws IllegalArgumentException {
+        return distance(from, to, DistanceMethod.HAVERSINE);
+    }
+
+    /**
+     * @param from
+     *         The coordinate to start from
+     * @param to
+     *         The coordinate to end at
+     * @param method
+     *         How to compute the distance
+     * @return The distance in meters
+     * @throws IllegalArgumentException
+     *         If any of the coordinates or the method is missing
+     */
+    public static double distance(final Coordinate from, final Coordinate to, final DistanceMethod method)
+            throws IllegalArgumentException {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Coordinates should be provided");
+        }
+        return distance(from.getLat(), from.getLng(), to.getLat(), to.getLng(), method);
+    }
+
+    /**
+     * @param fromLat
+     *         The latitude to start from
+     * @param fromLng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitude to end at
+     * @param toLng
+     *         The longitude to end at
+     * @param method
+     *         How to compute the distance
+     * @return The distance in meters
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is out of range, or the method is missing
+     */
+    public static double distance(final double fromLat, final double fromLng, final double toLat, final double toLng,
+            final DistanceMethod method) throws IllegalArgumentException {
+        checkMethod(method);
+        GeometryUtils.checkCoordinate(fromLat, fromLng);
+        GeometryUtils.checkCoordinate(toLat, toLng);
+        return compute(method, fromLat, fromLng, Math.cos(fromLat * RAD), toLat, toLng, Math.cos(toLat * RAD));
+    }
+
+    /**
+     * @param fromLat
+     *         The latitude to start from
+     * @param fromLng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitude to end at
+     * @param toLng
+     *         The longitude to end at
+     * @return The distance in meters by {@link DistanceMethod#HAVERSINE}
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is out of range
+     */
+    public static double haversine(final double fromLat, final double fromLng, final double toLat, final double toLng)
+            throws IllegalArgumentException {
+        return distance(fromLat, fromLng, toLat, toLng, DistanceMethod.HAVERSINE);
+    }
+
+    /**
+     * @param fromLat
+     *         The latitude to start from
+     * @param fromLng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitude to end at
+     * @param toLng
+     *         The longitude to end at
+     * @return The distance in meters by {@link DistanceMethod#EQUIRECTANGULAR}
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is out of range
+     */
+    public static double equirectangular(final double fromLat, final double fromLng, final double toLat,
+            final double toLng) throws IllegalArgumentException {
+        return distance(fromLat, fromLng, toLat, toLng, DistanceMethod.EQUIRECTANGULAR);
+    }
+
+    /**
+     * @param fromLat
+     *         The latitude to start from
+     * @param fromLng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitude to end at
+     * @param toLng
+     *         The longitude to end at
+     * @return The distance in meters by {@link DistanceMethod#VINCENTY}
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is out of range
+     */
+    public static double vincenty(final double fromLat, final double fromLng, final double toLat, final double toLng)
+            throws IllegalArgumentException {
+        return distance(fromLat, fromLng, toLat, toLng, DistanceMethod.VINCENTY);
+    }
+
+    /**
+     * @param from
+     *         The coordinate to start from
+     * @param to
+     *         The coordinate to head to
+     * @return The initial bearing of the great circle in degrees clockwise from north, in range [0, 360)
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is missing
+     */
+    public static double initialBearing(final Coordinate from, final Coordinate to) throws IllegalArgumentException {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Coordinates should be provided");
+        }
+        return initialBearing(from.getLat(), from.getLng(), to.getLat(), to.getLng());
+    }
+
+    /**
+     * @param fromLat
+     *         The latitude to start from
+     * @param fromLng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitude to head to
+     * @param toLng
+     *         The longitude to head to
+     * @return The initial bearing of the great circle in degrees clockwise from north, in range [0, 360). It is 0 if
+     * both coordinates are the same.
+     * @throws IllegalArgumentException
+     *         If any of the coordinates is out of range
+     */
+    public static double initialBearing(final double fromLat, final double fromLng, final double toLat,
+            final double toLng) throws IllegalArgumentException {
+        GeometryUtils.checkCoordinate(fromLat, fromLng);
+        GeometryUtils.checkCoordinate(toLat, toLng);
+        final double lat1 = fromLat * RAD;
+        final double lat2 = toLat * RAD;
+        final double dLng = (toLng - fromLng) * RAD;
+        final double cosLat2 = Math.cos(lat2);
+        final double y = Math.sin(dLng) * cosLat2;
+        final double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * cosLat2 * Math.cos(dLng);
+        final double bearing = Math.toDegrees(Math.atan2(y, x));
+        return bearing < 0 ? bearing + 360 : bearing + 0.0;
+    }
+
+    /**
+     * Compute the distances from one coordinate to a range of coordinates.
+     *
+     * @param lat
+     *         The latitude to start from
+     * @param lng
+     *         The longitude to start from
+     * @param toLat
+     *         The latitudes to end at
+     * @param toLng
+     *         The longitudes to end at
+     * @param offset
+     *         The index of the first coordinate to end at
+     * @param length
+     *         The number of coordinates to end at
+     * @param method
+     *         How to compute the distances
+     * @param result
+     *         The array to store the distances in meters, at the same indexes as the coordinates
+     * @throws IllegalArgumentException
+     *         If any of the arrays or the method is missing, the range is out of bounds of any of the arrays, or any
+     *         of the coordinates is out of range
+     */
+    public static void distances(final double lat, final double lng, final double[] toLat, final double[] toLng,
+            final int offset, final int length, final DistanceMethod method, final double[] result)
+            throws IllegalArgumentException {
+        checkMethod(method);
+        GeometryUtils.checkCoordinate(lat, lng);
+        if (result == null) {
+            throw new IllegalArgumentException("Result array should be provided");
+        }
+        checkRange(toLat, toLng, offset, length, result.length);
+        GeometryUtils.checkCoordinates(toLat, toLng, offset, offset + length);
+        final double cosLat = Math.cos(lat * RAD);
+        for (int i = offset; i < offset + length; i++) {
+            result[i] = compute(method, lat, lng, cosLat, toLat[i], toLng[i], Math.cos(toLat[i] * RAD));
+        }
+    }
+
+    /**
+     * Compute the distances between every pair of two sets of coordinates.
+     *
+     * @param fromLat
+     *         The latitudes to start from
+     * @param fromLng
+     *         The longitudes to start from
+     * @param toLat
+     *         The latitudes to end at
+     * @param toLng
+     *         The longitudes to end at
+     * @param method
+     *         How to compute the distances
+     * @param result
+     *         The array to store the distances in meters row by row, the distance from <code>i</code> to
+     *         <code>j</code> at <code>i * toLat.length + j</code>
+     * @throws IllegalArgumentException
+     *         If any of the arrays or the method is missing, the latitudes and longitudes of any set are not of the
+     *         same length, the result array is too small, or any of the coordinates is out of range
+     */
+    public static void distances(final double[] fromLat, final double[] fromLng, final double[] toLat,
+            final double[] toLng, final DistanceMethod method, final double[] result) throws IllegalArgumentException {
+        checkMethod(method);
+        GeometryUtils.checkSameLength(fromLat, fromLng);
+        GeometryUtils.checkSameLength(toLat, toLng);
+        final long size = (long) fromLat.length * toLat.length;
+        if (result == null || result.length < size) {
+            throw new IllegalArgumentException(String.format("Result array should have at least %d elements", size));
+        }
+        GeometryUtils.checkCoordinates(fromLat, fromLng, 0, fromLat.length);
+        GeometryUtils.checkCoordinates(toLat, toLng, 0, toLat.length);
+        final double[] toCos = new double[toLat.length];
+        for (int j = 0; j < toLat.length; j++) {
+            toCos[j] = Math.cos(toLat[j] * RAD);
+        }
+        int k = 0;
+        for (int i = 0; i < fromLat.length; i++) {
+            final double lat = fromLat[i];
+            final double lng = fromLng[i];
+            final double cosLat = Math.cos(lat * RAD);
+            for (int j = 0; j < toLat.length; j++) {
+                result[k++] = compute(method, lat, lng, cosLat, toLat[j], toLng[j], toCos[j]);
+            }
+        }
+    }
+
+    /**
+     * Find the coordinates of a range within a radius of a center, by {@link DistanceMethod#HAVERSINE}.
+     *
+     * @param lat
+     *         The latitude of the center
+     * @param lng
+     *         The longitude of the center
+     * @param radius
+     *         The radius in meters
+     * @param toLat
+     *         The latitudes to filter
+     * @param toLng
+     *         The longitudes to filter
+     * @param offset
+     *         The index of the first coordinate to filter
+     * @param length
+     *         The number of coordinates to filter
+     * @param indexes
+     *         An array of at least <code>length</code> elements to store the indexes of coordinates within the
+     *         radius, in ascending order
+     * @return The number of coordinates within the radius
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, the range is out of bounds of any of the arrays, the indexes array is
+     *         too small, the radius is negative, or any of the coordinates is out of range
+     */
+    public static int withinRadius(final double lat, final double lng, final double radius, final double[] toLat,
+            final double[] toLng, final int offset, final int length, final int[] indexes)
+            throws IllegalArgumentException {
+        GeometryUtils.checkCoordinate(lat, lng);
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException(String.format("Radius should not be negative, but got %s", radius));
+        }
+        checkRange(toLat, toLng, offset, length, Integer.MAX_VALUE);
+        if (indexes == null || indexes.length < length) {
+            throw new IllegalArgumentException(String.format("Indexes array should have at least %d elements", length));
+        }
+        GeometryUtils.checkCoordinates(toLat, toLng, offset, offset + length);
+        final double angle = Math.min(radius / EARTH_RADIUS, Math.PI);
+        final double latLimit = Math.toDegrees(angle) + BOX_MARGIN;
+        final double cosLat = Math.cos(lat * RAD);
+        // Points within the angle differ in longitude by at most asin(sin(angle) / cos(lat)), unless the circle
+        // reaches a pole.
+        final double lngLimit = Math.abs(lat) + latLimit < 90
+                ? Math.toDegrees(Math.asin(Math.sin(angle) / cosLat)) + BOX_MARGIN
+                : 180;
+        final double sinHalf = Math.sin(angle / 2);
+        final double threshold = sinHalf * sinHalf;
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final double dLat = toLat[i] - lat;
+            if (Math.abs(dLat) > latLimit) {
+                continue;
+            }
+            double dLng = Math.abs(toLng[i] - lng);
+            if (dLng > 180) {
+                dLng = 360 - dLng;
+            }
+            if (dLng > lngLimit) {
+                continue;
+            }
+            if (haversineTerm(dLat, dLng, cosLat, Math.cos(toLat[i] * RAD)) <= threshold) {
+                indexes[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    private static double compute(final DistanceMethod method, final double lat1, final double lng1,
+            final double cosLat1, final double lat2, final double lng2, final double cosLat2) {
+        switch (method) {
+            case EQUIRECTANGULAR:
+                double dLng = lng2 - lng1;
+                if (dLng > 180) {
+                    dLng -= 360;
+                } else if (dLng < -180) {
+                    dLng += 360;
+                }
+                final double x = dLng * RAD * (cosLat1 + cosLat2) / 2;
+                final double y = (lat2 - lat1) * RAD;
+                return EARTH_RADIUS * Math.sqrt(x * x + y * y);
+            case VINCENTY:
+                return vincentyOf(lat1, lng1, lat2, lng2, cosLat1, cosLat2);
+            case HAVERSINE:
+            default:
+                return haversineOf(lat2 - lat1, lng2 - lng1, cosLat1, cosLat2);
+        }
+    }
+
+    private static double haversineOf(final double dLat, final double dLng, final double cosLat1, final double cosLat2) {
+        final double a = haversineTerm(dLat, dLng, cosLat1, cosLat2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double haversineTerm(final double dLat, final double dLng, final double cosLat1,
+            final double cosLat2) {
+        final double sinLat = Math.sin(dLat * RAD / 2);
+        final double sinLng = Math.sin(dLng * RAD / 2);
+        return sinLat * sinLat + cosLat1 * cosLat2 * sinLng * sinLng;
+    }
+
+    private static double vincentyOf(final double lat1, final double lng1, final double lat2, final double lng2,
+            final double cosLat1, final double cosLat2) {
+        final double f = WGS84_FLATTENING;
+        final double l = (lng2 - lng1) * RAD;
+        final double u1 = Math.atan((1 - f) * Math.tan(lat1 * RAD));
+        final double u2 = Math.atan((1 - f) * Math.tan(lat2 * RAD));
+        final double sinU1 = Math.sin(u1);
+        final double cosU1 = Math.cos(u1);
+        final double sinU2 = Math.sin(u2);
+        final double cosU2 = Math.cos(u2);
+        double lambda = l;
+        double sinSigma;
+        double cosSigma;
+        double sigma;
+        double cosSqAlpha;
+        double cos2SigmaM;
+        int iterations = 0;
+        while (true) {
+            final double sinLambda = Math.sin(lambda);
+            final double cosLambda = Math.cos(lambda);
+            final double p = cosU2 * sinLambda;
+            final double q = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(p * p + q * q);
+            if (sinSigma == 0) {
+                // Coincident points
+                return 0;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            final double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            // Both points on the equator
+            cos2SigmaM = cosSqAlpha == 0 ? 0 : cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha;
+            final double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+            final double previous = lambda;
+            lambda = l + (1 - c) * f * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - previous) < VINCENTY_TOLERANCE) {
+                break;
+            }
+            if (++iterations >= VINCENTY_MAX_ITERATIONS) {
+                return haversineOf(lat2 - lat1, lng2 - lng1, cosLat1, cosLat2);
+            }
+        }
+        final double a = WGS84_SEMI_MAJOR_AXIS;
+        final double b = WGS84_SEMI_MINOR_AXIS;
+        final double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+        final double bigA = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        final double bigB = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        final double cos2SigmaMSq = cos2SigmaM * cos2SigmaM;
+        final double deltaSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 * (cosSigma * (-1 + 2 * cos2SigmaMSq)
+                - bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaMSq)));
+        return b * bigA * (sigma - deltaSigma);
+    }
+
+    private static void checkMethod(final DistanceMethod method) {
+        if (method == null) {
+            throw new IllegalArgumentException("Distance method should be provided");
+        }
+    }
+
+    private static void checkRange(final double[] lat, final double[] lng, final int offset, final int length,
+            final int resultLength) {
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length || end > resultLength) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Evaluates the GCJ-02 offsets with far fewer trigonometric calls than {@link GeometryUtils#exactDelta(double, double,
+ * double[])}, used in {@link PrecisionMode#FAST_TRIG} mode.
+ * <p>
+ * The series uses the sines of 6, 2, 1, 1/3, 1/12 and 1/30 times <code>x&middot;&pi;</code> and 1, 1/3, 1/12 and 1/30
+ * times <code>y&middot;&pi;</code>, which are all integer multiples of <code>&theta; = x&middot;&pi;/60</code> and
+ * <code>y&middot;&pi;/60</code> respectively. So only the sine and cosine of those two angles and of the latitude are
+ * evaluated, by range reduction to [-&pi;/4, &pi;/4] and the minimax polynomials of fdlibm, and the others are derived
+ * with the double and triple angle formulas. The terms shared by both offsets are computed once.
+ * <p>
+ * Deriving <code>360&theta;</code> from <code>&theta;</code> amplifies the rounding errors by a few hundred times, but
+ * the offsets still differ from the exact ones by less than {@link #MAX_ERROR} degree for latitudes within 85 degrees,
+ * which is about 1e-8 millimeter. Closer to the poles the longitude offset and its error grow with
+ * <code>1 / cos(lat)</code>.
+ *
+ * @author SgrAlpha
+ */
+final class FastTrig {
+
+    /**
+     * The maximum difference in degrees from the exact offsets, for latitudes within 85 degrees
+     */
+    static final double MAX_ERROR = 1e-13;
+
+    private static final double PI_OVER_60 = Math.PI / 60;
+    private static final double PI_OVER_180 = Math.PI / 180;
+    private static final double TWO_OVER_PI = 2 / Math.PI;
+    // pi/2 split in two parts, the first of which has 33 bits so k * PIO2_HI is exact for any realistic k.
+    private static final double PIO2_HI = 1.57079632673412561417e+00;
+    private static final double PIO2_LO = 6.07710050650619224932e-11;
+
+    private static final double S1 = -1.66666666666666324348e-01;
+    private static final double S2 = 8.33333333332248946124e-03;
+    private static final double S3 = -1.98412698298579493134e-04;
+    private static final double S4 = 2.75573137070700676789e-06;
+    private static final double S5 = -2.50507602534068634195e-08;
+    private static final double S6 = 1.58969099521155010221e-10;
+
+    private static final double C1 = 4.16666666666666019037e-02;
+    private static final double C2 = -1.38888888888741095749e-03;
+    private static final double C3 = 2.48015872894767294178e-05;
+    private static final double C4 = -2.75573143513906633035e-07;
+    private static final double C5 = 2.08757232129817482790e-09;
+    private static final double C6 = -1.13596475577881948265e-11;
+
+    private static final double LAT_SCALE = 180.0
+            / (GeometryUtils.SEMI_MAJOR_AXIS * (1 - GeometryUtils.ECCENTRICITY_SQUARED) * Math.PI);
+    private static final double LNG_SCALE = 180.0 / (GeometryUtils.SEMI_MAJOR_AXIS * Math.PI);
+    private static final double TWO_THIRDS = 2.0 / 3.0;
+
+    private FastTrig() {
+    }
+
+    /**
+     * Get the GCJ-02 offset of a coordinate.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param out
+     *         An array of at least 2 elements to store the latitude and longitude offsets, in that order
+     */
+    static void delta(final double lat, final double lng, final double[] out) {
+        final double x = lng - 105.0;
+        final double y = lat - 35.0;
+
+        sinCos(x * PI_OVER_60, out);
+        double s = out[0];
+        double c = out[1];
+        final double sinX30 = 2 * s * c;
+        double c2 = 1 - 2 * s * s;
+        double s4 = 2 * sinX30 * c2;
+        double c4 = 1 - 2 * sinX30 * sinX30;
+        final double sinX12 = s4 * c + c4 * s;
+        double c5 = c4 * c - s4 * s;
+        double s10 = 2 * sinX12 * c5;
+        double c10 = 1 - 2 * sinX12 * sinX12;
+        final double sinX3 = 2 * s10 * c10;
+        double c20 = 1 - 2 * s10 * s10;
+        final double sinX = sinX3 * (3 - 4 * sinX3 * sinX3);
+        final double cosX = c20 * (4 * c20 * c20 - 3);
+        final double sin2X = 2 * sinX * cosX;
+        final double sin6X = sin2X * (3 - 4 * sin2X * sin2X);
+
+        sinCos(y * PI_OVER_60, out);
+        s = out[0];
+        c = out[1];
+        final double sinY30 = 2 * s * c;
+        c2 = 1 - 2 * s * s;
+        s4 = 2 * sinY30 * c2;
+        c4 = 1 - 2 * sinY30 * sinY30;
+        final double sinY12 = s4 * c + c4 * s;
+        c5 = c4 * c - s4 * s;
+        s10 = 2 * sinY12 * c5;
+        c10 = 1 - 2 * sinY12 * sinY12;
+        final double sinY3 = 2 * s10 * c10;
+        final double sinY = sinY3 * (3 - 4 * sinY3 * sinY3);
+
+        final double sqrtX = Math.sqrt(Math.abs(x));
+        final double common = 0.1 * x * y + (20.0 * sin6X + 20.0 * sin2X) * TWO_THIRDS;
+        final double dLat = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.2 * sqrtX + common
+                + (20.0 * sinY + 40.0 * sinY3) * TWO_THIRDS
+                + (160.0 * sinY12 + 320 * sinY30) * TWO_THIRDS;
+        final double dLng = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * sqrtX + common
+                + (20.0 * sinX + 40.0 * sinX3) * TWO_THIRDS
+                + (150.0 * sinX12 + 300.0 * sinX30) * TWO_THIRDS;
+
+        sinCos(lat * PI_OVER_180, out);
+        final double magic = 1 - GeometryUtils.ECCENTRICITY_SQUARED * out[0] * out[0];
+        final double sqrtMagic = Math.sqrt(magic);
+        final double cosLat = out[1];
+        out[0] = dLat * magic * sqrtMagic * LAT_SCALE;
+        out[1] = dLng * sqrtMagic / cosLat * LNG_SCALE;
+    }
+
+    /**
+     * Compute the sine and cosine of an angle, which should be less than a few thousand radians.
+     *
+     * @param angle
+     *         The angle in radians
+     * @param out
+     *         An array of at least 2 elements to store the sine and cosine, in that order
+     */
+    static void sinCos(final double angle, final double[] out) {
+        final double k = Math.rint(angle * TWO_OVER_PI);
+        final double r = angle - k * PIO2_HI - k * PIO2_LO;
+        final double z = r * r;
+        final double sin = r + r * z * (S1 + z * (S2 + z * (S3 + z * (S4 + z * (S5 + z * S6)))));
+        final double cos = 1 - 0.5 * z + z * z * (C1 + z * (C2 + z * (C3 + z * (C4 + z * (C5 + z * C6)))));
+        switch ((int) k & 3) {
+            case 0:
+                out[0] = sin;
+                out[1] = cos;
+                break;
+            case 1:
+                out[0] = cos;
+                out[1] = -sin;
+                break;
+            case 2:
+                out[0] = -sin;
+                out[1] = -cos;
+                break;
+            default:
+                out[0] = -cos;
+                out[1] = sin;
+                break;
+        }
+    }
+
+}
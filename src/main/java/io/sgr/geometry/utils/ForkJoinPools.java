@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fork/join pools shared by the multi-threaded operations of this library, one per parallelism level, so calls do not
+ * pay for starting and stopping threads every time.
+ * <p>
+ * Pools are created on first use and never shut down. Their workers are daemon threads, which are started on demand
+ * and end after being idle for a while, so unused pools hold no thread.
+ *
+ * @author SgrAlpha
+ */
+public final class ForkJoinPools {
+
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private ForkJoinPools() {
+    }
+
+    /**
+     * @param parallelism
+     *         The number of threads
+     * @return The shared pool of the parallelism level, which should not be shut down
+     * @throws IllegalArgumentException
+     *         If the parallelism is less than 1
+     */
+    public static ForkJoinPool get(final int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism should be at least 1, but got %d", parallelism));
+        }
+        final ForkJoinPool pool = POOLS.get(parallelism);
+        if (pool != null) {
+            return pool;
+        }
+        final ForkJoinPool created = new ForkJoinPool(parallelism, new WorkerFactory(parallelism), null, false);
+        final ForkJoinPool existing = POOLS.putIfAbsent(parallelism, created);
+        if (existing != null) {
+            created.shutdown();
+            return existing;
+        }
+        return created;
+    }
+
+    private static class WorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final int parallelism;
+
+        private WorkerFactory(final int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory#newThread(java.util.concurrent.ForkJoinPool)
+         */
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(String.format("geometry-pool-%d-worker-%d", this.parallelism, thread.getPoolIndex()));
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -17,10 +17,13 @@
 package io.sgr.geometry.utils;
 
 import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.json.GeometryModule;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.List;
+
 /**
  * @author SgrAlpha
  */
@@ -43,18 +46,40 @@ public final class GeometryUtils {
      */
     public static final int LAT_MIN = -90000000;
 
+    static final double SEMI_MAJOR_AXIS = 6378137.0;
+    static final double ECCENTRICITY_SQUARED = 0.00669342162296594323;
+    private static final double BD_FACTOR = Math.PI * 3000.0 / 180.0;
+
     private static final JsonFactory JSON_FACTORY = new JsonFactory();
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY);
-    private static final CoordinateChecker DEFAULT_COORDINATE_CHECKER = new DefaultCoordinateChecker();
-    private static CoordinateChecker COORDINATE_CHECKER = DEFAULT_COORDINATE_CHECKER;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY).registerModule(new GeometryModule());
+    private static volatile CoordinateTransformer DEFAULT_TRANSFORMER = CoordinateTransformer.newBuilder().build();
 
     /**
-     * @return The default object mapper
+     * @return The default object mapper, with {@link GeometryModule} registered
      */
     public static ObjectMapper getObjectMapper() {
         return OBJECT_MAPPER;
     }
 
+    /**
+     * @return The transformer which all conversions of this class delegate to. It is immutable, so keep it to convert
+     * many coordinates with the same configuration even if the global one is changed meanwhile.
+     */
+    public static CoordinateTransformer getDefaultTransformer() {
+        return DEFAULT_TRANSFORMER;
+    }
+
+    /**
+     * Replace the global configuration of conversions with the one of a transformer.
+     * Set to null will go back to default configuration.
+     *
+     * @param transformer
+     *         The CoordinateTransformer to set
+     */
+    public static synchronized void setDefaultTransformer(final CoordinateTransformer transformer) {
+        DEFAULT_TRANSFORMER = transformer == null ? CoordinateTransformer.newBuilder().build() : transformer;
+    }
+
     /**
      * Override the global CoordinateChecker with a customized implementation.
      * Set to null will go back to default implementation.
@@ -62,8 +87,30 @@ public final class GeometryUtils {
      * @param checker
      *         The CoordinateChecker to set
      */
-    public static void setCoordinateChecker(final CoordinateChecker checker) {
-        COORDINATE_CHECKER = checker == null ? DEFAULT_COORDINATE_CHECKER : checker;
+    public static synchronized void setCoordinateChecker(final CoordinateChecker checker) {
+        DEFAULT_TRANSFORMER = DEFAULT_TRANSFORMER.toBuilder().setCoordinateChecker(checker).build();
+    }
+
+    /**
+     * Change the global precision mode of conversions.
+     * Set to null will go back to {@link PrecisionMode#EXACT}.
+     *
+     * @param mode
+     *         The PrecisionMode to set
+     */
+    public static synchronized void setPrecisionMode(final PrecisionMode mode) {
+        DEFAULT_TRANSFORMER = DEFAULT_TRANSFORMER.toBuilder().setPrecisionMode(mode).build();
+    }
+
+    /**
+     * Override the OffsetTable used in {@link PrecisionMode#TABLE} mode, for example with a different sampling step.
+     * Set to null will go back to {@link OffsetTable#getDefault()}.
+     *
+     * @param table
+     *         The OffsetTable to set
+     */
+    public static synchronized void setOffsetTable(final OffsetTable table) {
+        DEFAULT_TRANSFORMER = DEFAULT_TRANSFORMER.toBuilder().setOffsetTable(table).build();
     }
 
     /**
@@ -95,6 +142,73 @@ public final class GeometryUtils {
         return latInRange(lat) && lngInRange(lng);
     }
 
+    /**
+     * Pack E6 values into a single long, the latitude in the high 32 bits and the longitude in the low 32 bits. A
+     * packed coordinate takes 8 bytes, and can be kept in primitive arrays, maps and atomic variables.
+     *
+     * @param latE6
+     *         The E6 latitude
+     * @param lngE6
+     *         The E6 longitude
+     * @return The packed coordinate
+     */
+    public static long packE6(final int latE6, final int lngE6) {
+        return ((long) latE6 << 32) | (lngE6 & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Pack a coordinate into a single long, see {@link #packE6(int, int)}. The E6 values are encoded by {@link
+     * #toE6(double)}, like {@link Coordinate#getLatE6()}.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return The packed coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long pack(final double lat, final double lng) throws IllegalArgumentException {
+        checkCoordinate(lat, lng);
+        return packE6(toE6(lat), toE6(lng));
+    }
+
+    /**
+     * @param packed
+     *         The packed coordinate
+     * @return The E6 latitude
+     */
+    public static int unpackLatE6(final long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * @param packed
+     *         The packed coordinate
+     * @return The E6 longitude
+     */
+    public static int unpackLngE6(final long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * @param packed
+     *         The packed coordinate
+     * @return The latitude
+     */
+    public static double unpackLat(final long packed) {
+        return unpackLatE6(packed) / 1e6;
+    }
+
+    /**
+     * @param packed
+     *         The packed coordinate
+     * @return The longitude
+     */
+    public static double unpackLng(final long packed) {
+        return unpackLngE6(packed) / 1e6;
+    }
+
     /**
      * Convert coordinate from earth(WGS-84) to mars(GCJ-02).
      *
@@ -103,13 +217,38 @@ public final class GeometryUtils {
      * @return An {@link Coordinate} mars coordinate
      */
     public static Coordinate wgs2gcj(final Coordinate wgs) {
-        double wgsLat = wgs.getLat();
-        double wgsLng = wgs.getLng();
-        if (COORDINATE_CHECKER.isOutOfChinaMainland(wgsLat, wgsLng)) {
-            return new Coordinate(wgsLat, wgsLng);
-        }
-        Coordinate d = delta(wgsLat, wgsLng);
-        return new Coordinate(wgsLat + d.getLat(), wgsLng + d.getLng());
+        return DEFAULT_TRANSFORMER.wgs2gcj(wgs);
+    }
+
+    /**
+     * Convert coordinate from earth(WGS-84) to mars(GCJ-02).
+     *
+     * @param lat
+     *         The WGS latitude
+     * @param lng
+     *         The WGS longitude
+     * @return An {@link Coordinate} mars coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate wgs2gcj(final double lat, final double lng) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.wgs2gcj(lat, lng);
+    }
+
+    /**
+     * Convert coordinate from earth(WGS-84) to mars(GCJ-02) without creating any object.
+     *
+     * @param lat
+     *         The WGS latitude
+     * @param lng
+     *         The WGS longitude
+     * @param result
+     *         An array of at least 2 elements to store the GCJ latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public static void wgs2gcj(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.wgs2gcj(lat, lng, result);
     }
 
     /**
@@ -120,41 +259,39 @@ public final class GeometryUtils {
      * @return An {@link Coordinate} earth coordinate
      */
     public static Coordinate gcj2wgsAccurate(final Coordinate gcj) {
-        double gcjLat = gcj.getLat();
-        double gcjLng = gcj.getLng();
-        if (COORDINATE_CHECKER.isOutOfChinaMainland(gcjLat, gcjLng)) {
-            return new Coordinate(gcjLat, gcjLng);
-        }
-        double initDelta = 0.01;
-        double threshold = 0.000001;
-        double dLat = initDelta, dLng = initDelta;
-        double mLat = gcjLat - dLat, mLng = gcjLng - dLng;
-        double pLat = gcjLat + dLat, pLng = gcjLng + dLng;
-        Coordinate wgs = new Coordinate(mLat, mLng);
-        Coordinate tmp;
-        double wgsLat, wgsLng;
-        for (int i = 0; i < 30; i++) {
-            wgsLat = (mLat + pLat) / 2;
-            wgsLng = (mLng + pLng) / 2;
-            wgs = new Coordinate(wgsLat, wgsLng);
-            tmp = wgs2gcj(wgs);
-            dLat = tmp.getLat() - gcjLat;
-            dLng = tmp.getLng() - gcjLng;
-            if ((Math.abs(dLat) < threshold) && (Math.abs(dLng) < threshold)) {
-                return wgs;
-            }
-            if (dLat > 0) {
-                pLat = wgsLat;
-            } else {
-                mLat = wgsLat;
-            }
-            if (dLng > 0) {
-                pLng = wgsLng;
-            } else {
-                mLng = wgsLng;
-            }
-        }
-        return wgs;
+        return DEFAULT_TRANSFORMER.gcj2wgsAccurate(gcj);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} earth coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate gcj2wgsAccurate(final double lat, final double lng) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2wgsAccurate(lat, lng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, without creating any
+     * object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public static void gcj2wgsAccurate(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgsAccurate(lat, lng, result);
     }
 
     /**
@@ -165,18 +302,574 @@ public final class GeometryUtils {
      * @return An {@link Coordinate} earth coordinate
      */
     public static Coordinate gcj2wgs(final Coordinate gcj) {
-        double gcjLat = gcj.getLat();
-        double gcjLng = gcj.getLng();
-        if (COORDINATE_CHECKER.isOutOfChinaMainland(gcjLat, gcjLng)) {
-            return new Coordinate(gcjLat, gcjLng);
+        return DEFAULT_TRANSFORMER.gcj2wgs(gcj);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84).
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} earth coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate gcj2wgs(final double lat, final double lng) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2wgs(lat, lng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84) without creating any object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public static void gcj2wgs(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgs(lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from earth(WGS-84) to mars(GCJ-02), see {@link #packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed WGS coordinate
+     * @return The packed GCJ coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long wgs2gcj(final long packed) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.wgs2gcj(packed);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, see {@link
+     * #packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed WGS coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long gcj2wgsAccurate(final long packed) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2wgsAccurate(packed);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to earth(WGS-84), see {@link #packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed WGS coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long gcj2wgs(final long packed) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2wgs(packed);
+    }
+
+    /**
+     * Convert coordinates from earth(WGS-84) to mars(GCJ-02) in place.
+     *
+     * @param lat
+     *         The WGS latitudes, will be overwritten by GCJ latitudes
+     * @param lng
+     *         The WGS longitudes, will be overwritten by GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public static void wgs2gcj(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.wgs2gcj(lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from earth(WGS-84) to mars(GCJ-02). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The WGS latitudes
+     * @param lng
+     *         The WGS longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store GCJ latitudes
+     * @param outLng
+     *         The array to store GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public static void wgs2gcj(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.wgs2gcj(lat, lng, offset, length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way, in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by WGS latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public static void gcj2wgsAccurate(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgsAccurate(lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to earth(WGS-84) in a more accurate but slower way. Results are
+     * written to the same range of the output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store WGS latitudes
+     * @param outLng
+     *         The array to store WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public static void gcj2wgsAccurate(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgsAccurate(lat, lng, offset, length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to earth(WGS-84) in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by WGS latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public static void gcj2wgs(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgs(lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to earth(WGS-84). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store WGS latitudes
+     * @param outLng
+     *         The array to store WGS longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public static void gcj2wgs(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2wgs(lat, lng, offset, length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09).
+     *
+     * @param gcj
+     *         The GCJ coordinate
+     * @return An {@link Coordinate} Baidu coordinate
+     */
+    public static Coordinate gcj2bd(final Coordinate gcj) {
+        return DEFAULT_TRANSFORMER.gcj2bd(gcj);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09).
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @return An {@link Coordinate} Baidu coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate gcj2bd(final double lat, final double lng) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2bd(lat, lng);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to Baidu(BD-09) without creating any object.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the BD latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public static void gcj2bd(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2bd(lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from mars(GCJ-02) to Baidu(BD-09), see {@link #packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed GCJ coordinate
+     * @return The packed BD coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long gcj2bd(final long packed) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.gcj2bd(packed);
+    }
+
+    /**
+     * Convert coordinates from mars(GCJ-02) to Baidu(BD-09) in place.
+     *
+     * @param lat
+     *         The GCJ latitudes, will be overwritten by BD latitudes
+     * @param lng
+     *         The GCJ longitudes, will be overwritten by BD longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public static void gcj2bd(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2bd(lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from mars(GCJ-02) to Baidu(BD-09). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The GCJ latitudes
+     * @param lng
+     *         The GCJ longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store BD latitudes
+     * @param outLng
+     *         The array to store BD longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public static void gcj2bd(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.gcj2bd(lat, lng, offset, length, outLat, outLng);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02).
+     *
+     * @param bd
+     *         The BD coordinate
+     * @return An {@link Coordinate} mars coordinate
+     */
+    public static Coordinate bd2gcj(final Coordinate bd) {
+        return DEFAULT_TRANSFORMER.bd2gcj(bd);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02).
+     *
+     * @param lat
+     *         The BD latitude
+     * @param lng
+     *         The BD longitude
+     * @return An {@link Coordinate} mars coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static Coordinate bd2gcj(final double lat, final double lng) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.bd2gcj(lat, lng);
+    }
+
+    /**
+     * Convert coordinate from Baidu(BD-09) to mars(GCJ-02) without creating any object.
+     *
+     * @param lat
+     *         The BD latitude
+     * @param lng
+     *         The BD longitude
+     * @param result
+     *         An array of at least 2 elements to store the GCJ latitude and longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     */
+    public static void bd2gcj(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.bd2gcj(lat, lng, result);
+    }
+
+    /**
+     * Convert a packed coordinate from Baidu(BD-09) to mars(GCJ-02), see {@link #packE6(int, int)}.
+     *
+     * @param packed
+     *         The packed BD coordinate
+     * @return The packed GCJ coordinate
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range.
+     */
+    public static long bd2gcj(final long packed) throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.bd2gcj(packed);
+    }
+
+    /**
+     * Convert coordinates from Baidu(BD-09) to mars(GCJ-02) in place.
+     *
+     * @param lat
+     *         The BD latitudes, will be overwritten by GCJ latitudes
+     * @param lng
+     *         The BD longitudes, will be overwritten by GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, or any of the coordinates is out of range.
+     */
+    public static void bd2gcj(final double[] lat, final double[] lng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.bd2gcj(lat, lng);
+    }
+
+    /**
+     * Convert a range of coordinates from Baidu(BD-09) to mars(GCJ-02). Results are written to the same range of the
+     * output arrays, which can be the input arrays themselves.
+     *
+     * @param lat
+     *         The BD latitudes
+     * @param lng
+     *         The BD longitudes
+     * @param offset
+     *         The index of the first coordinate to convert
+     * @param length
+     *         The number of coordinates to convert
+     * @param outLat
+     *         The array to store GCJ latitudes
+     * @param outLng
+     *         The array to store GCJ longitudes
+     * @throws IllegalArgumentException
+     *         If the range is out of bounds of any of the arrays, or any of the coordinates is out of range.
+     */
+    public static void bd2gcj(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.bd2gcj(lat, lng, offset, length, outLat, outLng);
+    }
+
+    /**
+     * Check many coordinates at once with the global {@link CoordinateChecker}. The result of coordinate
+     * <code>offset + i</code> is bit <code>i % 64</code> of <code>mask[i / 64]</code>, which is set if the coordinate
+     * is out of China mainland.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param mask
+     *         An array of at least <code>(length + 63) / 64</code> elements to store the results
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, or the range is out of bounds, or the mask is too small.
+     * @see BatchCoordinateChecker
+     */
+    public static void checkOutOfChinaMainland(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask) throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.checkOutOfChinaMainland(lat, lng, offset, length, mask);
+    }
+
+    /**
+     * Check a range of coordinates one by one with any checker, see {@link
+     * BatchCoordinateChecker#checkOutOfChinaMainland(double[], double[], int, int, long[])}.
+     */
+    static void checkEach(final CoordinateChecker checker, final double[] lat, final double[] lng, final int offset,
+            final int length, final long[] mask) {
+        for (int start = 0, word = 0; start < length; start += 64, word++) {
+            final int base = offset + start;
+            final int count = Math.min(64, length - start);
+            long bits = 0;
+            for (int i = 0; i < count; i++) {
+                if (checker.isOutOfChinaMainland(lat[base + i], lng[base + i])) {
+                    bits |= 1L << i;
+                }
+            }
+            mask[word] = bits;
+        }
+    }
+
+    static void checkMask(final double[] lat, final double[] lng, final int offset, final int length, final long[] mask) {
+        if (lat == null || lng == null || mask == null) {
+            throw new IllegalArgumentException("Latitudes, longitudes and mask should be provided");
         }
-        Coordinate d = delta(gcjLat, gcjLng);
-        return new Coordinate(gcjLat - d.getLat(), gcjLng - d.getLng());
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+        if (mask.length < (length + 63) >>> 6) {
+            throw new IllegalArgumentException(String.format("Mask should have at least %d elements", (length + 63) >>> 6));
+        }
+    }
+
+    /**
+     * Convert coordinates in place with multiple threads. A snapshot of the current {@link #getDefaultTransformer()
+     * configuration} is used for the whole conversion, even if it is changed meanwhile.
+     *
+     * @param lat
+     *         The latitudes, will be overwritten by converted latitudes
+     * @param lng
+     *         The longitudes, will be overwritten by converted longitudes
+     * @param kind
+     *         The kind of conversion
+     * @param parallelism
+     *         The number of threads to use
+     * @throws IllegalArgumentException
+     *         If the arrays are not of the same length, any of the coordinates is out of range, or the parallelism is
+     *         less than 1.
+     */
+    public static void convertAll(final double[] lat, final double[] lng, final ConversionKind kind, final int parallelism)
+            throws IllegalArgumentException {
+        DEFAULT_TRANSFORMER.convertAll(lat, lng, kind, parallelism);
+    }
+
+    /**
+     * Convert coordinates with multiple threads. A snapshot of the current {@link #getDefaultTransformer()
+     * configuration} is used for the whole conversion, even if it is changed meanwhile.
+     *
+     * @param source
+     *         The coordinates to convert
+     * @param kind
+     *         The kind of conversion
+     * @param parallelism
+     *         The number of threads to use
+     * @return A fixed-size list of converted coordinates, in the same order as the source
+     * @throws IllegalArgumentException
+     *         If the source is null or contains null, or the parallelism is less than 1.
+     */
+    public static List<Coordinate> convertAll(final List<Coordinate> source, final ConversionKind kind, final int parallelism)
+            throws IllegalArgumentException {
+        return DEFAULT_TRANSFORMER.convertAll(source, kind, parallelism);
+    }
+
+    static void checkConversion(final ConversionKind kind, final int parallelism) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Conversion kind should be provided");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism should be at least 1, but got %d", parallelism));
+        }
+    }
+
+    static void checkSameLength(final double[] lat, final double[] lng) {
+        if (lat == null || lng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (lat.length != lng.length) {
+            throw new IllegalArgumentException(String.format("Latitudes and longitudes should have the same length, but got %d and %d", lat.length, lng.length));
+        }
+    }
+
+    static void checkBatch(final double[] lat, final double[] lng, final int offset, final int length,
+            final double[] outLat, final double[] outLng) {
+        if (lat == null || lng == null || outLat == null || outLng == null) {
+            throw new IllegalArgumentException("Latitudes and longitudes should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length || end > outLat.length || end > outLng.length) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+        checkCoordinates(lat, lng, offset, end);
+    }
+
+    static void checkCoordinates(final double[] lat, final double[] lng, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (!isValidCoordinate(lat[i], lng[i])) {
+                throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat[i], lng[i]));
+            }
+        }
+    }
+
+    static void checkScalar(final double lat, final double lng, final double[] result) {
+        if (result == null || result.length < 2) {
+            throw new IllegalArgumentException("Result array should have at least 2 elements");
+        }
+        checkCoordinate(lat, lng);
+    }
+
+    static void checkCoordinate(final double lat, final double lng) {
+        if (!isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+    }
+
+    /**
+     * Encode a latitude or longitude to E6 value by flooring, except that values decoded from E6 values, like
+     * {@code e6 / 1e6}, are encoded back to the same E6 values even when the product with 1e6 rounds down.
+     *
+     * @param value
+     *         The latitude or longitude
+     * @return The E6 value
+     */
+    public static int toE6(final double value) {
+        int e6 = (int) Math.floor(value * 1e6);
+        if ((e6 + 1) / 1e6 == value) {
+            e6++;
+        }
+        return e6;
+    }
+
+    /**
+     * Convert from mars(GCJ-02) to Baidu(BD-09), which rotates and scales coordinates slightly around the origin.
+     */
+    static void gcjToBd(final double lat, final double lng, final double[] out) {
+        final double z = Math.sqrt(lng * lng + lat * lat) + 0.00002 * Math.sin(lat * BD_FACTOR);
+        final double theta = Math.atan2(lat, lng) + 0.000003 * Math.cos(lng * BD_FACTOR);
+        out[0] = z * Math.sin(theta) + 0.006;
+        out[1] = z * Math.cos(theta) + 0.0065;
+    }
+
+    /**
+     * Convert from Baidu(BD-09) to mars(GCJ-02), the approximate inverse of {@link #gcjToBd(double, double, double[])}.
+     */
+    static void bdToGcj(final double lat, final double lng, final double[] out) {
+        final double x = lng - 0.0065;
+        final double y = lat - 0.006;
+        final double z = Math.sqrt(x * x + y * y) - 0.00002 * Math.sin(y * BD_FACTOR);
+        final double theta = Math.atan2(y, x) - 0.000003 * Math.cos(x * BD_FACTOR);
+        out[0] = z * Math.sin(theta);
+        out[1] = z * Math.cos(theta);
     }
 
-    private static Coordinate delta(final double lat, final double lng) {
-        double a = 6378137.0;
-        double ee = 0.00669342162296594323;
+    static void exactDelta(final double lat, final double lng, final double[] out) {
+        double a = SEMI_MAJOR_AXIS;
+        double ee = ECCENTRICITY_SQUARED;
         double dLat = transformLat(lng - 105.0, lat - 35.0);
         double dLng = transformLng(lng - 105.0, lat - 35.0);
         double radLat = lat / 180.0 * Math.PI;
@@ -185,7 +878,8 @@ public final class GeometryUtils {
         double sqrtMagic = Math.sqrt(magic);
         dLat = (dLat * 180.0) / ((a * (1 - ee)) / (magic * sqrtMagic) * Math.PI);
         dLng = (dLng * 180.0) / (a / sqrtMagic * Math.cos(radLat) * Math.PI);
-        return new Coordinate(dLat, dLng);
+        out[0] = dLat;
+        out[1] = dLng;
     }
 
     private static double transformLat(final double x, final double y) {
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Solver to convert coordinate from mars(GCJ-02) back to earth(WGS-84) accurately.
+ * <p>
+ * It uses the fixed-point iteration {@code wgs = gcj - delta(wgs)}, starting from {@code gcj - delta(gcj)}. The offset
+ * changes by less than 0.5% of any change of the position, so every iteration shrinks the error by more than two orders
+ * of magnitude, and 3 iterations are usually enough to reach 1e-6 degree. Only the GCJ coordinate is checked, the
+ * positions between iterations are not, so coordinates close to the boundary of China mainland converge as well.
+ *
+ * @author SgrAlpha
+ */
+public final class InverseSolver {
+
+    /**
+     * The default tolerance in degrees
+     */
+    public static final double DEFAULT_TOLERANCE = 0.000001;
+    /**
+     * The default maximum number of iterations
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 10;
+
+    private static final InverseSolver DEFAULT = new InverseSolver(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+
+    private final double tolerance;
+    private final int maxIterations;
+
+    /**
+     * @param tolerance
+     *         The maximum difference in degrees between the original GCJ coordinate and the GCJ coordinate converted
+     *         back from the result
+     * @param maxIterations
+     *         The maximum number of iterations, each of which costs one forward conversion
+     * @throws IllegalArgumentException
+     *         If the tolerance is not positive or the maximum number of iterations is less than 1
+     */
+    public InverseSolver(final double tolerance, final int maxIterations) throws IllegalArgumentException {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException(String.format("Tolerance should be greater than 0, but got %s", tolerance));
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException(String.format("Max iterations should be at least 1, but got %d", maxIterations));
+        }
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @return The solver used by {@link GeometryUtils#gcj2wgsAccurate(io.sgr.geometry.Coordinate)}, unless another
+     * tolerance is set by {@link CoordinateTransformer.Builder}
+     */
+    public static InverseSolver getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The tolerance in degrees
+     */
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * @return The maximum number of iterations
+     */
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84), with the CoordinateChecker and precision mode of {@link
+     * GeometryUtils#getDefaultTransformer()}.
+     *
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @return The number of iterations used, 0 if the coordinate is out of China mainland, or a negative value whose
+     * absolute value is the maximum number of iterations if the result did not reach the tolerance.
+     * @throws IllegalArgumentException
+     *         If the latitude or longitude is out of range, or the result array is too small.
+     * @see #solve(CoordinateTransformer, double, double, double[])
+     */
+    public int solve(final double lat, final double lng, final double[] result) throws IllegalArgumentException {
+        return solve(GeometryUtils.getDefaultTransformer(), lat, lng, result);
+    }
+
+    /**
+     * Convert coordinate from mars(GCJ-02) to earth(WGS-84), with the CoordinateChecker and precision mode of the
+     * given transformer.
+     *
+     * @param transformer
+     *         The transformer whose CoordinateChecker and precision mode to use
+     * @param lat
+     *         The GCJ latitude
+     * @param lng
+     *         The GCJ longitude
+     * @param result
+     *         An array of at least 2 elements to store the WGS latitude and longitude, in that order
+     * @return The number of iterations used, 0 if the coordinate is out of China mainland, or a negative value whose
+     * absolute value is the maximum number of iterations if the result did not reach the tolerance.
+     * @throws IllegalArgumentException
+     *         If the transformer is missing, the latitude or longitude is out of range, or the result array is too
+     *         small.
+     */
+    public int solve(final CoordinateTransformer transformer, final double lat, final double lng, final double[] result)
+            throws IllegalArgumentException {
+        if (transformer == null) {
+            throw new IllegalArgumentException("Transformer should be provided");
+        }
+        if (result == null || result.length < 2) {
+            throw new IllegalArgumentException("Result array should have at least 2 elements");
+        }
+        if (!GeometryUtils.isValidCoordinate(lat, lng)) {
+            throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", lat, lng));
+        }
+        if (transformer.isOutOfChinaMainland(lat, lng)) {
+            result[0] = lat;
+            result[1] = lng;
+            return 0;
+        }
+        return iterate(transformer, lat, lng, result);
+    }
+
+    int iterate(final CoordinateTransformer transformer, final double gcjLat, final double gcjLng, final double[] result) {
+        transformer.delta(gcjLat, gcjLng, result);
+        double wgsLat = gcjLat - result[0];
+        double wgsLng = gcjLng - result[1];
+        for (int i = 2; i <= this.maxIterations; i++) {
+            transformer.delta(wgsLat, wgsLng, result);
+            double dLat = wgsLat + result[0] - gcjLat;
+            double dLng = wgsLng + result[1] - gcjLng;
+            if (Math.abs(dLat) < this.tolerance && Math.abs(dLng) < this.tolerance) {
+                result[0] = wgsLat;
+                result[1] = wgsLng;
+                return i;
+            }
+            wgsLat -= dLat;
+            wgsLng -= dLng;
+        }
+        result[0] = wgsLat;
+        result[1] = wgsLng;
+        return -this.maxIterations;
+    }
+
+}
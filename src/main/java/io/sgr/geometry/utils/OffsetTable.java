@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Precomputed tables to get GCJ-02 offsets by interpolation instead of evaluating the trigonometric series on every
+ * call.
+ * <p>
+ * The GCJ-02 offset is the sum of a cheap polynomial part and trigonometric terms which depend either on longitude or
+ * on latitude only. Those terms are sampled on a regular grid along each axis over the area of China mainland, then
+ * evaluated by 4-point cubic interpolation. Coordinates outside the sampled area fall back to the exact computation.
+ * <p>
+ * With the {@link #DEFAULT_STEP default step} of 0.01 degree, the offsets differ from the exact ones by less than
+ * 1e-8 degree (about 1 millimeter). The error shrinks with the 4th power of the step.
+ *
+ * @author SgrAlpha
+ */
+public final class OffsetTable {
+
+    /**
+     * The default sampling step in degrees
+     */
+    public static final double DEFAULT_STEP = 0.01;
+
+    static final double MIN_LAT = 0;
+    static final double MAX_LAT = 56;
+    static final double MIN_LNG = 72;
+    static final double MAX_LNG = 138;
+
+    private static final double MIN_STEP = 0.0001;
+    private static final double MAX_STEP = 0.1;
+
+    private final double step;
+    private final double inverseStep;
+    /**
+     * Terms depending on longitude only, 2 per sample: latitude offset term, longitude offset term.
+     */
+    private final double[] lngTerms;
+    /**
+     * Terms depending on latitude only, 3 per sample: latitude offset term, latitude scale, longitude scale.
+     */
+    private final double[] latTerms;
+
+    /**
+     * @param step
+     *         The sampling step in degrees, should be in range [0.0001, 0.1]
+     * @throws IllegalArgumentException
+     *         If the step is out of range
+     */
+    public OffsetTable(final double step) throws IllegalArgumentException {
+        if (!(step >= MIN_STEP && step <= MAX_STEP)) {
+            throw new IllegalArgumentException(String.format("Step should be in range [%s, %s], but got %s", MIN_STEP, MAX_STEP, step));
+        }
+        this.step = step;
+        this.inverseStep = 1 / step;
+        final int lngCount = sampleCount(MIN_LNG, MAX_LNG, step);
+        this.lngTerms = new double[lngCount * 2];
+        for (int k = 0; k < lngCount; k++) {
+            double x = MIN_LNG + (k - 1) * step - 105.0;
+            double common = (20.0 * Math.sin(6.0 * x * Math.PI) + 20.0 * Math.sin(2.0 * x * Math.PI)) * 2.0 / 3.0;
+            this.lngTerms[k * 2] = common;
+            this.lngTerms[k * 2 + 1] = common
+                    + (20.0 * Math.sin(x * Math.PI) + 40.0 * Math.sin(x / 3.0 * Math.PI)) * 2.0 / 3.0
+                    + (150.0 * Math.sin(x / 12.0 * Math.PI) + 300.0 * Math.sin(x / 30.0 * Math.PI)) * 2.0 / 3.0;
+        }
+        final int latCount = sampleCount(MIN_LAT, MAX_LAT, step);
+        this.latTerms = new double[latCount * 3];
+        final double a = GeometryUtils.SEMI_MAJOR_AXIS;
+        final double ee = GeometryUtils.ECCENTRICITY_SQUARED;
+        for (int k = 0; k < latCount; k++) {
+            double lat = MIN_LAT + (k - 1) * step;
+            double y = lat - 35.0;
+            double radLat = lat / 180.0 * Math.PI;
+            double magic = Math.sin(radLat);
+            magic = 1 - ee * magic * magic;
+            double sqrtMagic = Math.sqrt(magic);
+            this.latTerms[k * 3] = (20.0 * Math.sin(y * Math.PI) + 40.0 * Math.sin(y / 3.0 * Math.PI)) * 2.0 / 3.0
+                    + (160.0 * Math.sin(y / 12.0 * Math.PI) + 320 * Math.sin(y * Math.PI / 30.0)) * 2.0 / 3.0;
+            this.latTerms[k * 3 + 1] = 180.0 / ((a * (1 - ee)) / (magic * sqrtMagic) * Math.PI);
+            this.latTerms[k * 3 + 2] = 180.0 / (a / sqrtMagic * Math.cos(radLat) * Math.PI);
+        }
+    }
+
+    private static int sampleCount(final double min, final double max, final double step) {
+        // One extra sample before min and three after max, so the 4-point stencil always fits.
+        return (int) Math.ceil((max - min) / step) + 4;
+    }
+
+    /**
+     * @return The table built with {@link #DEFAULT_STEP}, which is built on first use
+     */
+    public static OffsetTable getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return The sampling step in degrees
+     */
+    public double getStep() {
+        return this.step;
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return Whether or not the coordinate is covered by this table
+     */
+    public boolean covers(final double lat, final double lng) {
+        return lat >= MIN_LAT && lat <= MAX_LAT && lng >= MIN_LNG && lng <= MAX_LNG;
+    }
+
+    /**
+     * Get the GCJ-02 offset of a coordinate. Coordinates not {@link #covers(double, double) covered} by this table are
+     * computed exactly.
+     *
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param out
+     *         An array of at least 2 elements to store the latitude and longitude offsets, in that order
+     */
+    public void delta(final double lat, final double lng, final double[] out) {
+        if (!covers(lat, lng)) {
+            GeometryUtils.exactDelta(lat, lng, out);
+            return;
+        }
+        final double x = lng - 105.0;
+        final double y = lat - 35.0;
+
+        double u = (lng - MIN_LNG) * this.inverseStep + 1;
+        int k = (int) u;
+        double t = u - k;
+        double w0 = -t * (t - 1) * (t - 2) / 6;
+        double w1 = (t + 1) * (t - 1) * (t - 2) / 2;
+        double w2 = -(t + 1) * t * (t - 2) / 2;
+        double w3 = (t + 1) * t * (t - 1) / 6;
+        int i = (k - 1) * 2;
+        final double[] lt = this.lngTerms;
+        final double xLat = w0 * lt[i] + w1 * lt[i + 2] + w2 * lt[i + 4] + w3 * lt[i + 6];
+        final double xLng = w0 * lt[i + 1] + w1 * lt[i + 3] + w2 * lt[i + 5] + w3 * lt[i + 7];
+
+        u = (lat - MIN_LAT) * this.inverseStep + 1;
+        k = (int) u;
+        t = u - k;
+        w0 = -t * (t - 1) * (t - 2) / 6;
+        w1 = (t + 1) * (t - 1) * (t - 2) / 2;
+        w2 = -(t + 1) * t * (t - 2) / 2;
+        w3 = (t + 1) * t * (t - 1) / 6;
+        i = (k - 1) * 3;
+        final double[] yt = this.latTerms;
+        final double yLat = w0 * yt[i] + w1 * yt[i + 3] + w2 * yt[i + 6] + w3 * yt[i + 9];
+        final double latScale = w0 * yt[i + 1] + w1 * yt[i + 4] + w2 * yt[i + 7] + w3 * yt[i + 10];
+        final double lngScale = w0 * yt[i + 2] + w1 * yt[i + 5] + w2 * yt[i + 8] + w3 * yt[i + 11];
+
+        final double sqrtX = Math.sqrt(Math.abs(x));
+        final double dLat = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.1 * x * y + 0.2 * sqrtX + xLat + yLat;
+        final double dLng = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * x * y + 0.1 * sqrtX + xLng;
+        out[0] = dLat * latScale;
+        out[1] = dLng * lngScale;
+    }
+
+    private static class DefaultHolder {
+        private static final OffsetTable INSTANCE = new OffsetTable(DEFAULT_STEP);
+    }
+
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CoordinateChecker which checks coordinates against boundary polygons of China mainland.
+ * <p>
+ * Polygons are given as rings of points, a coordinate is in China mainland if it is inside an odd number of rings, so
+ * rings inside other rings are holes, like Hong Kong, Macau and Taiwan. To keep the checks fast, the bounding box of
+ * the polygons is divided into a uniform grid. Cells without any polygon edge are fully inside or fully outside, so
+ * most coordinates are answered by a single lookup. Only coordinates in cells crossed by edges are checked against the
+ * few edges of that cell.
+ * <p>
+ * No boundary data is bundled with this library, load the boundary to check against with {@link #load(InputStream,
+ * double)} or pass the rings to the constructor.
+ * <p>
+ * The result of coordinates lying exactly on an edge is undefined. Instances are immutable and thread safe.
+ *
+ * @author SgrAlpha
+ */
+public class PolygonCoordinateChecker implements BatchCoordinateChecker {
+
+    /**
+     * The default size of grid cells, in degrees
+     */
+    public static final double DEFAULT_CELL_SIZE = 0.25;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_CELLS = 1 << 24;
+    private static final double EPSILON = 1e-9;
+    private static final byte OUTSIDE = 0;
+    private static final byte INSIDE = 1;
+    private static final byte EDGE_REFERENCE_OUTSIDE = 2;
+    private static final byte EDGE_REFERENCE_INSIDE = 3;
+    private static final int REFERENCE_POSITIONS = 16;
+    private static final double MIN_REFERENCE_DISTANCE = 0.001;
+
+    private final double minLat;
+    private final double minLng;
+    private final double maxLat;
+    private final double maxLng;
+    private final double cellSize;
+    private final double inverseCellSize;
+    private final int rows;
+    private final int cols;
+    /**
+     * The state of each cell, row by row. Edge cells also keep the position of their reference point in higher bits.
+     */
+    private final byte[] cells;
+    /**
+     * Edges of cells, the edges of cell i are cellEdges[cellStarts[i]] to cellEdges[cellStarts[i + 1] - 1].
+     */
+    private final int[] cellStarts;
+    private final int[] cellEdges;
+    /**
+     * 4 elements per edge: latitude and longitude of the start, latitude and longitude of the end.
+     */
+    private final double[] edges;
+
+    /**
+     * @param rings
+     *         The rings of the polygons, each ring is an array of alternating latitudes and longitudes of at least 3
+     *         points. Rings are closed automatically.
+     * @param cellSize
+     *         The size of grid cells, in degrees
+     * @throws IllegalArgumentException
+     *         If any of the rings is invalid, or the cell size is not positive or too small for the polygons
+     */
+    public PolygonCoordinateChecker(final List<double[]> rings, final double cellSize) throws IllegalArgumentException {
+        if (rings == null || rings.isEmpty()) {
+            throw new IllegalArgumentException("Rings should be provided");
+        }
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException(String.format("Cell size should be greater than 0, but got %s", cellSize));
+        }
+        this.edges = toEdges(rings);
+        double south = Double.POSITIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY;
+        double north = Double.NEGATIVE_INFINITY;
+        double east = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.edges.length; i += 2) {
+            south = Math.min(south, this.edges[i]);
+            north = Math.max(north, this.edges[i]);
+            west = Math.min(west, this.edges[i + 1]);
+            east = Math.max(east, this.edges[i + 1]);
+        }
+        this.minLat = south;
+        this.minLng = west;
+        this.maxLat = north;
+        this.maxLng = east;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1 / cellSize;
+        this.rows = Math.max(1, (int) Math.ceil((north - south) * this.inverseCellSize));
+        this.cols = Math.max(1, (int) Math.ceil((east - west) * this.inverseCellSize));
+        if ((long) this.rows * this.cols > MAX_CELLS) {
+            throw new IllegalArgumentException(String.format("Cell size %s is too small, the grid would have more than %d cells", cellSize, MAX_CELLS));
+        }
+        this.cellStarts = new int[this.rows * this.cols + 1];
+        this.cellEdges = indexEdges();
+        this.cells = classifyCells();
+    }
+
+    private static double[] toEdges(final List<double[]> rings) {
+        int count = 0;
+        for (double[] ring : rings) {
+            if (ring == null || ring.length < 6 || ring.length % 2 != 0) {
+                throw new IllegalArgumentException("Each ring should have at least 3 points of latitude and longitude");
+            }
+            for (int i = 0; i < ring.length; i += 2) {
+                if (!GeometryUtils.isValidCoordinate(ring[i], ring[i + 1])) {
+                    throw new IllegalArgumentException(String.format("Invalid coordinate: { lat: %f, lng: %f }", ring[i], ring[i + 1]));
+                }
+            }
+            count += ring.length / 2;
+        }
+        final double[] edges = new double[count * 4];
+        int e = 0;
+        for (double[] ring : rings) {
+            final int points = ring.length / 2;
+            for (int i = 0; i < points; i++) {
+                final int j = (i + 1) % points;
+                if (ring[i * 2] == ring[j * 2] && ring[i * 2 + 1] == ring[j * 2 + 1]) {
+                    continue;
+                }
+                edges[e++] = ring[i * 2];
+                edges[e++] = ring[i * 2 + 1];
+                edges[e++] = ring[j * 2];
+                edges[e++] = ring[j * 2 + 1];
+            }
+        }
+        if (e == 0) {
+            throw new IllegalArgumentException("Rings should have at least one edge");
+        }
+        return Arrays.copyOf(edges, e);
+    }
+
+    private int[] indexEdges() {
+        addEdgesToCells(null, null);
+        for (int i = 1; i < this.cellStarts.length; i++) {
+            this.cellStarts[i] += this.cellStarts[i - 1];
+        }
+        final int[] cellEdges = new int[this.cellStarts[this.cellStarts.length - 1]];
+        addEdgesToCells(cellEdges, Arrays.copyOf(this.cellStarts, this.cellStarts.length - 1));
+        return cellEdges;
+    }
+
+    /**
+     * Count the edges of each cell if cellEdges is null, otherwise fill the edges of each cell.
+     */
+    private void addEdgesToCells(final int[] cellEdges, final int[] next) {
+        for (int e = 0; e < this.edges.length; e += 4) {
+            final double lat0 = this.edges[e];
+            final double lng0 = this.edges[e + 1];
+            final double lat1 = this.edges[e + 2];
+            final double lng1 = this.edges[e + 3];
+            final int fromRow = row(Math.min(lat0, lat1) - EPSILON);
+            final int toRow = row(Math.max(lat0, lat1) + EPSILON);
+            final int fromCol = col(Math.min(lng0, lng1) - EPSILON);
+            final int toCol = col(Math.max(lng0, lng1) + EPSILON);
+            for (int r = fromRow; r <= toRow; r++) {
+                final double south = this.minLat + r * this.cellSize - EPSILON;
+                final double north = south + this.cellSize + 2 * EPSILON;
+                for (int c = fromCol; c <= toCol; c++) {
+                    final double west = this.minLng + c * this.cellSize - EPSILON;
+                    final double east = west + this.cellSize + 2 * EPSILON;
+                    if (!intersects(lat0, lng0, lat1, lng1, south, west, north, east)) {
+                        continue;
+                    }
+                    final int cell = r * this.cols + c;
+                    if (cellEdges == null) {
+                        this.cellStarts[cell + 1]++;
+                    } else {
+                        cellEdges[next[cell]++] = e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Liang-Barsky clipping of a segment against a rectangle.
+     */
+    private static boolean intersects(final double lat0, final double lng0, final double lat1, final double lng1,
+            final double south, final double west, final double north, final double east) {
+        final double dLat = lat1 - lat0;
+        final double dLng = lng1 - lng0;
+        final double[] p = {-dLng, dLng, -dLat, dLat};
+        final double[] q = {lng0 - west, east - lng0, lat0 - south, north - lat0};
+        double t0 = 0;
+        double t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+                continue;
+            }
+            final double t = q[i] / p[i];
+            if (p[i] < 0) {
+                t0 = Math.max(t0, t);
+            } else {
+                t1 = Math.min(t1, t);
+            }
+            if (t0 > t1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] classifyCells() {
+        final byte[] cells = new byte[this.rows * this.cols];
+        final double[] crossings = new double[this.edges.length / 4];
+        for (int r = 0; r < this.rows; r++) {
+            final double referenceLat = this.minLat + (r + 0.5) * this.cellSize;
+            int count = 0;
+            for (int e = 0; e < this.edges.length; e += 4) {
+                final double lat0 = this.edges[e];
+                final double lat1 = this.edges[e + 2];
+                if ((lat0 > referenceLat) != (lat1 > referenceLat)) {
+                    final double lng0 = this.edges[e + 1];
+                    crossings[count++] = lng0 + (referenceLat - lat0) * (this.edges[e + 3] - lng0) / (lat1 - lat0);
+                }
+            }
+            Arrays.sort(crossings, 0, count);
+            for (int c = 0; c < this.cols; c++) {
+                final int cell = r * this.cols + c;
+                final int position = this.cellStarts[cell] == this.cellStarts[cell + 1] ? REFERENCE_POSITIONS / 2
+                        : chooseReference(cell, referenceLat, c);
+                final double referenceLng = referenceLng(c, position);
+                int passed = 0;
+                while (passed < count && crossings[passed] <= referenceLng) {
+                    passed++;
+                }
+                // Even-odd rule with a ray going east from the reference point
+                final boolean inside = ((count - passed) & 1) == 1;
+                if (this.cellStarts[cell] == this.cellStarts[cell + 1]) {
+                    cells[cell] = inside ? INSIDE : OUTSIDE;
+                } else {
+                    cells[cell] = (byte) (position << 2 | (inside ? EDGE_REFERENCE_INSIDE : EDGE_REFERENCE_OUTSIDE));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Choose the reference point of an edge cell on the middle latitude of the cell, as far from the edges of the cell
+     * as possible, so rounding errors can not put it on the wrong side of an edge.
+     */
+    private int chooseReference(final int cell, final double referenceLat, final int col) {
+        int best = REFERENCE_POSITIONS / 2;
+        double bestDistance = -1;
+        for (int i = 0; i < REFERENCE_POSITIONS; i++) {
+            // Try positions from the middle of the cell to its sides
+            final int position = REFERENCE_POSITIONS / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2);
+            final double referenceLng = referenceLng(col, position);
+            double distance = Double.POSITIVE_INFINITY;
+            for (int k = this.cellStarts[cell], end = this.cellStarts[cell + 1]; k < end; k++) {
+                distance = Math.min(distance, distanceToEdge(this.cellEdges[k], referenceLat, referenceLng));
+            }
+            if (distance > this.cellSize * MIN_REFERENCE_DISTANCE) {
+                return position;
+            }
+            if (distance > bestDistance) {
+                best = position;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private double distanceToEdge(final int e, final double lat, final double lng) {
+        final double lat0 = this.edges[e];
+        final double lng0 = this.edges[e + 1];
+        final double dLat = this.edges[e + 2] - lat0;
+        final double dLng = this.edges[e + 3] - lng0;
+        final double t = Math.max(0, Math.min(1, ((lat - lat0) * dLat + (lng - lng0) * dLng) / (dLat * dLat + dLng * dLng)));
+        return Math.hypot(lat - (lat0 + t * dLat), lng - (lng0 + t * dLng));
+    }
+
+    private double referenceLng(final int col, final int position) {
+        return this.minLng + (col + (position + 0.5) / REFERENCE_POSITIONS) * this.cellSize;
+    }
+
+    private int row(final double lat) {
+        return Math.max(0, Math.min(this.rows - 1, (int) Math.floor((lat - this.minLat) * this.inverseCellSize)));
+    }
+
+    private int col(final double lng) {
+        return Math.max(0, Math.min(this.cols - 1, (int) Math.floor((lng - this.minLng) * this.inverseCellSize)));
+    }
+
+    /**
+     * Load rings from text with one comma separated coordinate, like 0,0, per line. Rings are separated by blank
+     * lines, lines starting with # are ignored.
+     *
+     * @param in
+     *         The input stream of UTF-8 text, which is not closed by this method
+     * @param cellSize
+     *         The size of grid cells, in degrees
+     * @return The checker
+     * @throws IllegalArgumentException
+     *         If the input stream is missing or any of the rings is invalid
+     * @throws IOException
+     *         If failed to read from the input stream
+     */
+    public static PolygonCoordinateChecker load(final InputStream in, final double cellSize)
+            throws IllegalArgumentException, IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("Input stream should be provided");
+        }
+        final List<double[]> rings = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        final double[] result = new double[2];
+        double[] ring = new double[16];
+        int length = 0;
+        int lineNumber = 0;
+        for (String line = reader.readLine(); ; line = reader.readLine()) {
+            lineNumber++;
+            final String trimmed = line == null ? "" : line.trim();
+            if (trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.isEmpty()) {
+                if (length > 0) {
+                    rings.add(Arrays.copyOf(ring, length));
+                    length = 0;
+                }
+                if (line == null) {
+                    break;
+                }
+                continue;
+            }
+            try {
+                CoordinateParser.parse(trimmed, CoordinateFormat.DECIMAL, result);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Invalid line %d: %s", lineNumber, line), e);
+            }
+            if (length == ring.length) {
+                ring = Arrays.copyOf(ring, length * 2);
+            }
+            ring[length++] = result[0];
+            ring[length++] = result[1];
+        }
+        return new PolygonCoordinateChecker(rings, cellSize);
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.utils.CoordinateChecker#isOutOfChinaMainland(double, double)
+     */
+    @Override
+    public boolean isOutOfChinaMainland(final double lat, final double lng) {
+        if (!(lat >= this.minLat && lat <= this.maxLat && lng >= this.minLng && lng <= this.maxLng)) {
+            return true;
+        }
+        final int row = Math.min(this.rows - 1, (int) ((lat - this.minLat) * this.inverseCellSize));
+        final int col = Math.min(this.cols - 1, (int) ((lng - this.minLng) * this.inverseCellSize));
+        final int cell = row * this.cols + col;
+        final byte state = this.cells[cell];
+        if (state == INSIDE) {
+            return false;
+        }
+        if (state == OUTSIDE) {
+            return true;
+        }
+        return !isInsideEdgeCell(cell, row, col, lat, lng, state);
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.utils.BatchCoordinateChecker#checkOutOfChinaMainland(double[], double[], int, int, long[])
+     */
+    @Override
+    public void checkOutOfChinaMainland(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask) {
+        GeometryUtils.checkEach(this, lat, lng, offset, length, mask);
+    }
+
+    /**
+     * Walk from the reference point of the cell to the coordinate, first along the longitude of the reference point to
+     * the latitude of the coordinate, then along that latitude, flipping the state on each edge crossed. Both legs stay
+     * inside of the cell, so only edges of the cell can be crossed.
+     * <p>
+     * The state of the reference point is computed by a ray going east, which treats every point as if it were moved
+     * east by a tiny distance, and north by an even tinier one. Crossings exactly at the ends of the first leg follow
+     * the same rule, so the result stays right when the corner of the walk is on an edge.
+     */
+    private boolean isInsideEdgeCell(final int cell, final int row, final int col, final double lat, final double lng,
+            final byte state) {
+        final double referenceLat = this.minLat + (row + 0.5) * this.cellSize;
+        final double referenceLng = referenceLng(col, state >>> 2);
+        final double lowLat = Math.min(lat, referenceLat);
+        final double highLat = Math.max(lat, referenceLat);
+        final double lowLng = Math.min(lng, referenceLng);
+        final double highLng = Math.max(lng, referenceLng);
+        final double[] edges = this.edges;
+        boolean inside = (state & 3) == EDGE_REFERENCE_INSIDE;
+        for (int k = this.cellStarts[cell], end = this.cellStarts[cell + 1]; k < end; k++) {
+            final int e = this.cellEdges[k];
+            final double lat0 = edges[e];
+            final double lng0 = edges[e + 1];
+            final double lat1 = edges[e + 2];
+            final double lng1 = edges[e + 3];
+            if (lat != referenceLat && (lng0 > referenceLng) != (lng1 > referenceLng)) {
+                final double crossLat = lat0 + (referenceLng - lng0) * (lat1 - lat0) / (lng1 - lng0);
+                final boolean ascending = (lat1 - lat0) * (lng1 - lng0) > 0;
+                if ((crossLat > lowLat && crossLat < highLat) || (crossLat == lowLat && ascending)
+                        || (crossLat == highLat && !ascending)) {
+                    inside = !inside;
+                }
+            }
+            if ((lat0 > lat) != (lat1 > lat)) {
+                final double crossLng = lng0 + (lat - lat0) * (lng1 - lng0) / (lat1 - lat0);
+                if (crossLng > lowLng && crossLng <= highLng) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * How the GCJ-02 offsets are computed.
+ *
+ * @author SgrAlpha
+ */
+public enum PrecisionMode {
+
+    /**
+     * Evaluate the offsets exactly, this is the default mode.
+     */
+    EXACT,
+    /**
+     * Interpolate the offsets from an {@link OffsetTable}, faster but slightly less accurate.
+     */
+    TABLE,
+    /**
+     * Evaluate the offsets with shared multiple-angle trigonometry, about twice as fast as {@link #EXACT} and off by
+     * less than 1e-13 degree anywhere within 85 degrees of latitude.
+     */
+    FAST_TRIG,
+
+}
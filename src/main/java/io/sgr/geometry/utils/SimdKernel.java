@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+/**
+ * Batch kernels which evaluate several coordinates at a time with SIMD instructions.
+ * <p>
+ * The implementation lives in <code>META-INF/versions/17</code> of the multi-release jar and uses the incubating
+ * <code>jdk.incubator.vector</code> module, so it is only available on Java 17 or later, with
+ * <code>--add-modules jdk.incubator.vector</code>. Everywhere else {@link #get()} returns null and the scalar code is
+ * used. Set the system property <code>io.sgr.geometry.simd</code> to <code>false</code> to disable it.
+ *
+ * @author SgrAlpha
+ */
+abstract class SimdKernel {
+
+    static final String ENABLED_PROPERTY = "io.sgr.geometry.simd";
+
+    private static final String SUPPORT_CLASS = "io.sgr.geometry.utils.VectorSupport";
+
+    /**
+     * @return The kernel, or null if it is not supported by the runtime
+     */
+    static SimdKernel get() {
+        return Holder.INSTANCE;
+    }
+
+    private static SimdKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+            return null;
+        }
+        try {
+            return (SimdKernel) Class.forName(SUPPORT_CLASS).getMethod("create").invoke(null);
+        } catch (ClassNotFoundException e) {
+            // Runtime older than Java 17, or not running from the multi-release jar
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The number of coordinates evaluated at a time
+     */
+    abstract int lanes();
+
+    /**
+     * Same as {@link DefaultCoordinateChecker#checkOutOfChinaMainland(double[], double[], int, int, long[])}.
+     */
+    abstract void checkOutOfChinaMainland(double[] lat, double[] lng, int offset, int length, long[] mask);
+
+    /**
+     * Convert a range of coordinates with the offsets of {@link FastTrig#delta(double, double, double[])}, which the
+     * results are identical to. Coordinates whose bit is set in the mask are copied as is.
+     *
+     * @param toGcj
+     *         True to convert from earth(WGS-84) to mars(GCJ-02), false for the approximate reverse conversion
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param mask
+     *         The coordinates out of China mainland, bit <code>i % 64</code> of <code>mask[i / 64]</code> for
+     *         coordinate <code>offset + i</code>
+     * @param outLat
+     *         The array to store converted latitudes
+     * @param outLng
+     *         The array to store converted longitudes
+     */
+    abstract void convert(boolean toGcj, double[] lat, double[] lng, int offset, int length, long[] mask,
+            double[] outLat, double[] outLng);
+
+    private static class Holder {
+        private static final SimdKernel INSTANCE = load();
+    }
+
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import io.sgr.geometry.Coordinate;
+
+/**
+ * Spatial keys of coordinates, which keep nearby coordinates close to each other when sorted.
+ * <p>
+ * Morton keys interleave the bits of the {@link Coordinate#getLatE6() E6 latitude} and {@link Coordinate#getLngE6() E6
+ * longitude}, offset to be non-negative, with the longitude in the odd bits. They are non-negative, so sorting them as
+ * signed longs gives the Z-order curve, and each key identifies a cell of 1e-6 by 1e-6 degree.
+ * <p>
+ * Geohashes are the well known base32 strings, of up to {@link #MAX_GEOHASH_PRECISION} characters. Their bits can
+ * also be kept in a long, right aligned, to avoid creating strings. Cells are half-open, except the ones at latitude
+ * 90 or longitude 180, which also hold their upper bounds.
+ * <p>
+ * Bits are spread and compacted with masks instead of loops, so encoding and decoding have no branches besides the
+ * range checks.
+ *
+ * @author SgrAlpha
+ */
+public final class SpatialKeys {
+
+    /**
+     * The maximum number of characters of geohashes, which have 5 bits each
+     */
+    public static final int MAX_GEOHASH_PRECISION = 12;
+
+    private static final long LAT_OFFSET_E6 = 90000000L;
+    private static final long LNG_OFFSET_E6 = 180000000L;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final byte[] BASE32_INDEX = new byte[128];
+
+    static {
+        for (int i = 0; i < BASE32_INDEX.length; i++) {
+            BASE32_INDEX[i] = -1;
+        }
+        for (int i = 0; i < BASE32.length; i++) {
+            BASE32_INDEX[BASE32[i]] = (byte) i;
+            BASE32_INDEX[Character.toUpperCase(BASE32[i])] = (byte) i;
+        }
+    }
+
+    private SpatialKeys() {
+    }
+
+    /**
+     * @param coordinate
+     *         The coordinate
+     * @return The Morton key of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing
+     */
+    public static long morton(final Coordinate coordinate) throws IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        return mortonOf(coordinate.getLat(), coordinate.getLng());
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @return The Morton key of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is out of range
+     */
+    public static long morton(final double lat, final double lng) throws IllegalArgumentException {
+        GeometryUtils.checkCoordinate(lat, lng);
+        return mortonOf(lat, lng);
+    }
+
+    /**
+     * Get the Morton keys of a range of coordinates.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param keys
+     *         The array to store the keys, at the same indexes as the coordinates
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, the range is out of bounds of any of the arrays, or any of the
+     *         coordinates is out of range
+     */
+    public static void morton(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] keys) throws IllegalArgumentException {
+        checkKeys(lat, lng, offset, length, keys);
+        GeometryUtils.checkCoordinates(lat, lng, offset, offset + length);
+        for (int i = offset; i < offset + length; i++) {
+            keys[i] = mortonOf(lat[i], lng[i]);
+        }
+    }
+
+    private static long mortonOf(final double lat, final double lng) {
+        final long y = GeometryUtils.toE6(lat) + LAT_OFFSET_E6;
+        final long x = GeometryUtils.toE6(lng) + LNG_OFFSET_E6;
+        return spread(y) | (spread(x) << 1);
+    }
+
+    /**
+     * @param key
+     *         The Morton key
+     * @return The E6 latitude of the cell
+     */
+    public static int mortonLatE6(final long key) {
+        return (int) (compact(key) - LAT_OFFSET_E6);
+    }
+
+    /**
+     * @param key
+     *         The Morton key
+     * @return The E6 longitude of the cell
+     */
+    public static int mortonLngE6(final long key) {
+        return (int) (compact(key >>> 1) - LNG_OFFSET_E6);
+    }
+
+    /**
+     * @param key
+     *         The Morton key
+     * @return The center of the cell, which has the same key
+     * @throws IllegalArgumentException
+     *         If the key is not of a valid coordinate
+     */
+    public static Coordinate decodeMorton(final long key) throws IllegalArgumentException {
+        return new Coordinate(center(mortonLatE6(key), 90), center(mortonLngE6(key), 180));
+    }
+
+    /**
+     * Get the centers of the cells of a range of Morton keys. The keys are not validated.
+     *
+     * @param keys
+     *         The Morton keys
+     * @param offset
+     *         The index of the first key
+     * @param length
+     *         The number of keys
+     * @param lat
+     *         The array to store the latitudes, at the same indexes as the keys
+     * @param lng
+     *         The array to store the longitudes, at the same indexes as the keys
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, or the range is out of bounds of any of the arrays
+     */
+    public static void decodeMorton(final long[] keys, final int offset, final int length, final double[] lat,
+            final double[] lng) throws IllegalArgumentException {
+        checkKeys(lat, lng, offset, length, keys);
+        for (int i = offset; i < offset + length; i++) {
+            final long key = keys[i];
+            lat[i] = center(mortonLatE6(key), 90);
+            lng[i] = center(mortonLngE6(key), 180);
+        }
+    }
+
+    private static double center(final int e6, final double max) {
+        return Math.min((e6 + 0.5) / 1e6, max);
+    }
+
+    /**
+     * @param coordinate
+     *         The coordinate
+     * @param precision
+     *         The number of characters, in range [1, {@value #MAX_GEOHASH_PRECISION}]
+     * @return The geohash of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate is missing or the precision is out of range
+     */
+    public static String geohash(final Coordinate coordinate, final int precision) throws IllegalArgumentException {
+        if (coordinate == null) {
+            throw new IllegalArgumentException("Coordinate should be provided");
+        }
+        return geohash(coordinate.getLat(), coordinate.getLng(), precision);
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param precision
+     *         The number of characters, in range [1, {@value #MAX_GEOHASH_PRECISION}]
+     * @return The geohash of the coordinate
+     * @throws IllegalArgumentException
+     *         If the coordinate or the precision is out of range
+     */
+    public static String geohash(final double lat, final double lng, final int precision) throws IllegalArgumentException {
+        return geohashToString(geohashBits(lat, lng, precision), precision);
+    }
+
+    /**
+     * @param lat
+     *         The latitude
+     * @param lng
+     *         The longitude
+     * @param precision
+     *         The number of characters, in range [1, {@value #MAX_GEOHASH_PRECISION}]
+     * @return The bits of the geohash of the coordinate, <code>5 * precision</code> of them
+     * @throws IllegalArgumentException
+     *         If the coordinate or the precision is out of range
+     */
+    public static long geohashBits(final double lat, final double lng, final int precision) throws IllegalArgumentException {
+        checkPrecision(precision);
+        GeometryUtils.checkCoordinate(lat, lng);
+        return geohashOf(lat, lng, precision * 5);
+    }
+
+    /**
+     * Get the bits of the geohashes of a range of coordinates.
+     *
+     * @param lat
+     *         The latitudes
+     * @param lng
+     *         The longitudes
+     * @param offset
+     *         The index of the first coordinate
+     * @param length
+     *         The number of coordinates
+     * @param precision
+     *         The number of characters, in range [1, {@value #MAX_GEOHASH_PRECISION}]
+     * @param bits
+     *         The array to store the bits, at the same indexes as the coordinates
+     * @throws IllegalArgumentException
+     *         If any of the arrays is missing, the range is out of bounds of any of the arrays, any of the
+     *         coordinates is out of range, or the precision is out of range
+     */
+    public static void geohashBits(final double[] lat, final double[] lng, final int offset, final int length,
+            final int precision, final long[] bits) throws IllegalArgumentException {
+        checkPrecision(precision);
+        checkKeys(lat, lng, offset, length, bits);
+        GeometryUtils.checkCoordinates(lat, lng, offset, offset + length);
+        final int count = precision * 5;
+        for (int i = offset; i < offset + length; i++) {
+            bits[i] = geohashOf(lat[i], lng[i], count);
+        }
+    }
+
+    private static long geohashOf(final double lat, final double lng, final int count) {
+        // The first bit is of longitude, so longitude has one more bit than latitude if the count is odd.
+        final int latBits = count >>> 1;
+        final int lngBits = count - latBits;
+        final long latMax = (1L << latBits) - 1;
+        final long lngMax = (1L << lngBits) - 1;
+        final long y = Math.min((long) ((lat + 90) / 180 * (1L << latBits)), latMax);
+        final long x = Math.min((long) ((lng + 180) / 360 * (1L << lngBits)), lngMax);
+        final int odd = count & 1;
+        return (spread(x) << (1 - odd)) | (spread(y) << odd);
+    }
+
+    /**
+     * @param bits
+     *         The bits of a geohash
+     * @param precision
+     *         The number of characters, in range [1, {@value #MAX_GEOHASH_PRECISION}]
+     * @return The geohash
+     * @throws IllegalArgumentException
+     *         If the precision is out of range
+     */
+    public static String geohashToString(final long bits, final int precision) throws IllegalArgumentException {
+        checkPrecision(precision);
+        final char[] chars = new char[precision];
+        for (int i = 0; i < precision; i++) {
+            chars[i] = BASE32[(int) (bits >>> ((precision - 1 - i) * 5)) & 31];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param geohash
+     *         The geohash, in either case
+     * @return The bits of the geohash, <code>5 * geohash.length()</code> of them
+     * @throws IllegalArgumentException
+     *         If the geohash is missing, empty, too long or has invalid characters
+     */
+    public static long parseGeohash(final String geohash) throws IllegalArgumentException {
+        if (geohash == null) {
+            throw new IllegalArgumentException("Geohash should be provided");
+        }
+        checkPrecision(geohash.length());
+        long bits = 0;
+        for (int i = 0; i < geohash.length(); i++) {
+            final char c = geohash.charAt(i);
+            final int value = c < BASE32_INDEX.length ? BASE32_INDEX[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException(String.format("Invalid geohash: %s", geohash));
+            }
+            bits = (bits << 5) | value;
+        }
+        return bits;
+    }
+
+    /**
+     * @param geohash
+     *         The geohash
+     * @return The center of the cell
+     * @throws IllegalArgumentException
+     *         If the geohash is invalid
+     */
+    public static Coordinate decodeGeohash(final String geohash) throws IllegalArgumentException {
+        final double[] bounds = new double[4];
+        geohashBounds(geohash, bounds);
+        return new Coordinate((bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2);
+    }
+
+    /**
+     * Get the bounds of the cell of a geohash.
+     *
+     * @param geohash
+     *         The geohash
+     * @param result
+     *         An array of at least 4 elements to store the minimum latitude, minimum longitude, maximum latitude and
+     *         maximum longitude, in that order
+     * @throws IllegalArgumentException
+     *         If the geohash is invalid or the result array is too small
+     */
+    public static void geohashBounds(final String geohash, final double[] result) throws IllegalArgumentException {
+        if (result == null || result.length < 4) {
+            throw new IllegalArgumentException("Result array should have at least 4 elements");
+        }
+        final long bits = parseGeohash(geohash);
+        final int count = geohash.length() * 5;
+        final int latBits = count >>> 1;
+        final int lngBits = count - latBits;
+        final int odd = count & 1;
+        final long y = compact(bits >>> odd);
+        final long x = compact(bits >>> (1 - odd));
+        final double latSize = 180.0 / (1L << latBits);
+        final double lngSize = 360.0 / (1L << lngBits);
+        result[0] = y * latSize - 90;
+        result[1] = x * lngSize - 180;
+        result[2] = (y + 1) * latSize - 90;
+        result[3] = (x + 1) * lngSize - 180;
+    }
+
+    /**
+     * Get a neighbor cell of a geohash, of the same precision. Longitudes wrap around the antimeridian.
+     *
+     * @param geohash
+     *         The geohash
+     * @param latSteps
+     *         The number of cells to move north, or south if negative
+     * @param lngSteps
+     *         The number of cells to move east, or west if negative
+     * @return The geohash of the neighbor, or null if it is beyond a pole
+     * @throws IllegalArgumentException
+     *         If the geohash is invalid
+     */
+    public static String geohashNeighbor(final String geohash, final int latSteps, final int lngSteps)
+            throws IllegalArgumentException {
+        final long bits = parseGeohash(geohash);
+        final int precision = geohash.length();
+        final int count = precision * 5;
+        final int latBits = count >>> 1;
+        final int lngBits = count - latBits;
+        final int odd = count & 1;
+        final long y = compact(bits >>> odd) + latSteps;
+        if (y < 0 || y >= (1L << latBits)) {
+            return null;
+        }
+        final long x = (compact(bits >>> (1 - odd)) + lngSteps) & ((1L << lngBits) - 1);
+        return geohashToString((spread(x) << (1 - odd)) | (spread(y) << odd), precision);
+    }
+
+    /**
+     * @param geohash
+     *         The geohash
+     * @return The 8 neighbors of the same precision, in order of north, north east, east, south east, south, south
+     *         west, west and north west. Neighbors beyond a pole are null.
+     * @throws IllegalArgumentException
+     *         If the geohash is invalid
+     */
+    public static String[] geohashNeighbors(final String geohash) throws IllegalArgumentException {
+        return new String[]{
+                geohashNeighbor(geohash, 1, 0),
+                geohashNeighbor(geohash, 1, 1),
+                geohashNeighbor(geohash, 0, 1),
+                geohashNeighbor(geohash, -1, 1),
+                geohashNeighbor(geohash, -1, 0),
+                geohashNeighbor(geohash, -1, -1),
+                geohashNeighbor(geohash, 0, -1),
+                geohashNeighbor(geohash, 1, -1)
+        };
+    }
+
+    /**
+     * Spread the lower 32 bits of a value to the even bits.
+     */
+    static long spread(final long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        return (x | (x << 1)) & 0x5555555555555555L;
+    }
+
+    /**
+     * Gather the even bits of a value to the lower 32 bits, the reverse of {@link #spread(long)}.
+     */
+    static long compact(final long value) {
+        long x = value & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        return (x | (x >>> 16)) & 0xFFFFFFFFL;
+    }
+
+    private static void checkPrecision(final int precision) {
+        if (precision < 1 || precision > MAX_GEOHASH_PRECISION) {
+            throw new IllegalArgumentException(String.format("Precision should be in range [1, %d], but got %d", MAX_GEOHASH_PRECISION, precision));
+        }
+    }
+
+    private static void checkKeys(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] keys) {
+        if (lat == null || lng == null || keys == null) {
+            throw new IllegalArgumentException("Latitudes, longitudes and keys should be provided");
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Invalid range: offset %d, length %d", offset, length));
+        }
+        final int end = offset + length;
+        if (end < 0 || end > lat.length || end > lng.length || end > keys.length) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d) is out of bounds", offset, end));
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SimdKernel} on top of the vector API. Every lane performs exactly the same floating point operations in the
+ * same order as the scalar code, so results are identical to it, without any tolerance. The remainder of a range which
+ * does not fill a vector is handled by the scalar code.
+ *
+ * @author SgrAlpha
+ */
+final class VectorKernel extends SimdKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONG_SPECIES = VectorSpecies.of(long.class, SPECIES.vectorShape());
+    private static final CoordinateChecker SCALAR_CHECKER = new DefaultCoordinateChecker();
+
+    private static final double PI_OVER_60 = Math.PI / 60;
+    private static final double PI_OVER_180 = Math.PI / 180;
+    private static final double TWO_OVER_PI = 2 / Math.PI;
+    private static final double PIO2_HI = 1.57079632673412561417e+00;
+    private static final double PIO2_LO = 6.07710050650619224932e-11;
+    // Adding 1.5 * 2^52 rounds to the nearest integer, half to even like Math.rint, and leaves it in the low bits.
+    private static final double ROUNDING_MAGIC = 0x1.8p52;
+
+    private static final double S1 = -1.66666666666666324348e-01;
+    private static final double S2 = 8.33333333332248946124e-03;
+    private static final double S3 = -1.98412698298579493134e-04;
+    private static final double S4 = 2.75573137070700676789e-06;
+    private static final double S5 = -2.50507602534068634195e-08;
+    private static final double S6 = 1.58969099521155010221e-10;
+
+    private static final double C1 = 4.16666666666666019037e-02;
+    private static final double C2 = -1.38888888888741095749e-03;
+    private static final double C3 = 2.48015872894767294178e-05;
+    private static final double C4 = -2.75573143513906633035e-07;
+    private static final double C5 = 2.08757232129817482790e-09;
+    private static final double C6 = -1.13596475577881948265e-11;
+
+    private static final double LAT_SCALE = 180.0
+            / (GeometryUtils.SEMI_MAJOR_AXIS * (1 - GeometryUtils.ECCENTRICITY_SQUARED) * Math.PI);
+    private static final double LNG_SCALE = 180.0 / (GeometryUtils.SEMI_MAJOR_AXIS * Math.PI);
+    private static final double TWO_THIRDS = 2.0 / 3.0;
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.utils.SimdKernel#lanes()
+     */
+    @Override
+    int lanes() {
+        return SPECIES.length();
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.utils.SimdKernel#checkOutOfChinaMainland(double[], double[], int, int, long[])
+     */
+    @Override
+    void checkOutOfChinaMainland(final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask) {
+        final int lanes = SPECIES.length();
+        final int vectorEnd = offset + SPECIES.loopBound(length);
+        long bits = 0;
+        int i = offset;
+        for (; i < vectorEnd; i += lanes) {
+            final DoubleVector y = DoubleVector.fromArray(SPECIES, lat, i);
+            final DoubleVector x = DoubleVector.fromArray(SPECIES, lng, i);
+            final VectorMask<Double> hongKong = y.lt(22.446195).and(x.compare(VectorOperators.GT, 113.678580)).and(x.lt(114.427582));
+            final VectorMask<Double> macau = y.lt(22.217493).and(y.compare(VectorOperators.GT, 22.177243))
+                    .and(x.compare(VectorOperators.GT, 113.528421)).and(x.lt(113.563058));
+            final VectorMask<Double> taiwan = y.lt(25.401950).and(x.lt(125.502319))
+                    .and(y.compare(VectorOperators.GT, 21.675348)).and(x.compare(VectorOperators.GT, 119.827835));
+            final VectorMask<Double> outside = hongKong.or(macau).or(taiwan)
+                    .or(x.lt(72.004)).or(x.compare(VectorOperators.GT, 137.8347))
+                    .or(y.lt(0.8293)).or(y.compare(VectorOperators.GT, 55.8271));
+            final int bit = (i - offset) & 63;
+            bits |= outside.toLong() << bit;
+            if (bit + lanes == 64) {
+                mask[(i - offset) >>> 6] = bits;
+                bits = 0;
+            }
+        }
+        for (; i < offset + length; i++) {
+            final int bit = (i - offset) & 63;
+            bits |= (SCALAR_CHECKER.isOutOfChinaMainland(lat[i], lng[i]) ? 1L : 0L) << bit;
+            if (bit == 63) {
+                mask[(i - offset) >>> 6] = bits;
+                bits = 0;
+            }
+        }
+        if ((length & 63) != 0) {
+            mask[length >>> 6] = bits;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see io.sgr.geometry.utils.SimdKernel#convert(boolean, double[], double[], int, int, long[], double[], double[])
+     */
+    @Override
+    void convert(final boolean toGcj, final double[] lat, final double[] lng, final int offset, final int length,
+            final long[] mask, final double[] outLat, final double[] outLng) {
+        final int lanes = SPECIES.length();
+        final int vectorEnd = offset + SPECIES.loopBound(length);
+        int i = offset;
+        for (; i < vectorEnd; i += lanes) {
+            final long outside = (mask[(i - offset) >>> 6] >>> ((i - offset) & 63)) & ((1L << lanes) - 1);
+            final DoubleVector y = DoubleVector.fromArray(SPECIES, lat, i);
+            final DoubleVector x = DoubleVector.fromArray(SPECIES, lng, i);
+            if (outside == (1L << lanes) - 1) {
+                y.intoArray(outLat, i);
+                x.intoArray(outLng, i);
+                continue;
+            }
+            final DoubleVector[] d = delta(y, x);
+            DoubleVector newLat = toGcj ? y.add(d[0]) : y.sub(d[0]);
+            DoubleVector newLng = toGcj ? x.add(d[1]) : x.sub(d[1]);
+            if (outside != 0) {
+                final VectorMask<Double> keep = VectorMask.fromLong(SPECIES, outside);
+                newLat = newLat.blend(y, keep);
+                newLng = newLng.blend(x, keep);
+            }
+            newLat.intoArray(outLat, i);
+            newLng.intoArray(outLng, i);
+        }
+        final double[] result = new double[2];
+        for (; i < offset + length; i++) {
+            final int index = i - offset;
+            if ((mask[index >>> 6] & (1L << index)) != 0) {
+                outLat[i] = lat[i];
+                outLng[i] = lng[i];
+                continue;
+            }
+            FastTrig.delta(lat[i], lng[i], result);
+            outLat[i] = toGcj ? lat[i] + result[0] : lat[i] - result[0];
+            outLng[i] = toGcj ? lng[i] + result[1] : lng[i] - result[1];
+        }
+    }
+
+    /**
+     * Lane-wise {@link FastTrig#delta(double, double, double[])}.
+     */
+    private static DoubleVector[] delta(final DoubleVector lat, final DoubleVector lng) {
+        final DoubleVector x = lng.sub(105.0);
+        final DoubleVector y = lat.sub(35.0);
+
+        DoubleVector[] sc = sinCos(x.mul(PI_OVER_60));
+        DoubleVector s = sc[0];
+        DoubleVector c = sc[1];
+        final DoubleVector sinX30 = s.mul(2).mul(c);
+        DoubleVector c2 = oneMinusTwoSquared(s);
+        DoubleVector s4 = sinX30.mul(2).mul(c2);
+        DoubleVector c4 = oneMinusTwoSquared(sinX30);
+        final DoubleVector sinX12 = s4.mul(c).add(c4.mul(s));
+        DoubleVector c5 = c4.mul(c).sub(s4.mul(s));
+        DoubleVector s10 = sinX12.mul(2).mul(c5);
+        DoubleVector c10 = oneMinusTwoSquared(sinX12);
+        final DoubleVector sinX3 = s10.mul(2).mul(c10);
+        final DoubleVector c20 = oneMinusTwoSquared(s10);
+        final DoubleVector sinX = triple(sinX3);
+        final DoubleVector cosX = c20.mul(DoubleVector.broadcast(SPECIES, 4).mul(c20).mul(c20).sub(3));
+        final DoubleVector sin2X = sinX.mul(2).mul(cosX);
+        final DoubleVector sin6X = triple(sin2X);
+
+        sc = sinCos(y.mul(PI_OVER_60));
+        s = sc[0];
+        c = sc[1];
+        final DoubleVector sinY30 = s.mul(2).mul(c);
+        c2 = oneMinusTwoSquared(s);
+        s4 = sinY30.mul(2).mul(c2);
+        c4 = oneMinusTwoSquared(sinY30);
+        final DoubleVector sinY12 = s4.mul(c).add(c4.mul(s));
+        c5 = c4.mul(c).sub(s4.mul(s));
+        s10 = sinY12.mul(2).mul(c5);
+        c10 = oneMinusTwoSquared(sinY12);
+        final DoubleVector sinY3 = s10.mul(2).mul(c10);
+        final DoubleVector sinY = triple(sinY3);
+
+        final DoubleVector sqrtX = x.lanewise(VectorOperators.ABS).lanewise(VectorOperators.SQRT);
+        final DoubleVector common = x.mul(0.1).mul(y).add(sin6X.mul(20.0).add(sin2X.mul(20.0)).mul(TWO_THIRDS));
+        final DoubleVector dLat = x.mul(2.0).add(-100.0).add(y.mul(3.0)).add(y.mul(0.2).mul(y)).add(sqrtX.mul(0.2))
+                .add(common)
+                .add(sinY.mul(20.0).add(sinY3.mul(40.0)).mul(TWO_THIRDS))
+                .add(sinY12.mul(160.0).add(sinY30.mul(320)).mul(TWO_THIRDS));
+        final DoubleVector dLng = x.add(300.0).add(y.mul(2.0)).add(x.mul(0.1).mul(x)).add(sqrtX.mul(0.1))
+                .add(common)
+                .add(sinX.mul(20.0).add(sinX3.mul(40.0)).mul(TWO_THIRDS))
+                .add(sinX12.mul(150.0).add(sinX30.mul(300.0)).mul(TWO_THIRDS));
+
+        sc = sinCos(lat.mul(PI_OVER_180));
+        final DoubleVector magic = DoubleVector.broadcast(SPECIES, 1)
+                .sub(sc[0].mul(GeometryUtils.ECCENTRICITY_SQUARED).mul(sc[0]));
+        final DoubleVector sqrtMagic = magic.lanewise(VectorOperators.SQRT);
+        return new DoubleVector[]{
+                dLat.mul(magic).mul(sqrtMagic).mul(LAT_SCALE),
+                dLng.mul(sqrtMagic).div(sc[1]).mul(LNG_SCALE)
+        };
+    }
+
+    private static DoubleVector oneMinusTwoSquared(final DoubleVector s) {
+        return DoubleVector.broadcast(SPECIES, 1).sub(s.mul(2).mul(s));
+    }
+
+    private static DoubleVector triple(final DoubleVector s) {
+        return s.mul(DoubleVector.broadcast(SPECIES, 3).sub(s.mul(4).mul(s)));
+    }
+
+    /**
+     * Lane-wise {@link FastTrig#sinCos(double, double[])}.
+     */
+    private static DoubleVector[] sinCos(final DoubleVector angle) {
+        final DoubleVector rounded = angle.mul(TWO_OVER_PI).add(ROUNDING_MAGIC);
+        final LongVector quadrant = (LongVector) rounded.reinterpretShape(LONG_SPECIES, 0);
+        final DoubleVector k = rounded.sub(ROUNDING_MAGIC);
+        final DoubleVector r = angle.sub(k.mul(PIO2_HI)).sub(k.mul(PIO2_LO));
+        final DoubleVector z = r.mul(r);
+        final DoubleVector sin = r.add(r.mul(z).mul(z.mul(S6).add(S5).mul(z).add(S4).mul(z).add(S3).mul(z).add(S2).mul(z).add(S1)));
+        final DoubleVector cos = DoubleVector.broadcast(SPECIES, 1).sub(z.mul(0.5))
+                .add(z.mul(z).mul(z.mul(C6).add(C5).mul(z).add(C4).mul(z).add(C3).mul(z).add(C2).mul(z).add(C1)));
+        final VectorMask<Double> swap = quadrant.and(1L).compare(VectorOperators.NE, 0L).cast(SPECIES);
+        final VectorMask<Double> negateSin = quadrant.and(2L).compare(VectorOperators.NE, 0L).cast(SPECIES);
+        final VectorMask<Double> negateCos = quadrant.add(1L).and(2L).compare(VectorOperators.NE, 0L).cast(SPECIES);
+        final DoubleVector sinResult = sin.blend(cos, swap);
+        final DoubleVector cosResult = cos.blend(sin, swap);
+        return new DoubleVector[]{
+                sinResult.blend(sinResult.neg(), negateSin),
+                cosResult.blend(cosResult.neg(), negateCos)
+        };
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.sgr.geometry.utils;
+
+import jdk.incubator.vector.DoubleVector;
+
+/**
+ * Creates the {@link SimdKernel} on Java 17 or later, if the incubating vector module is resolved. This class does
+ * not refer to the module itself, so it can always be loaded.
+ *
+ * @author SgrAlpha
+ */
+final class VectorSupport {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private VectorSupport() {
+    }
+
+    /**
+     * @return The kernel, or null if the vector module is not resolved or the processor has no useful vector unit
+     */
+    public static SimdKernel create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        return VectorKernelLoader.create();
+    }
+
+    private static final class VectorKernelLoader {
+
+        private static SimdKernel create() {
+            return DoubleVector.SPECIES_PREFERRED.length() < 2 ? null : new VectorKernel();
+        }
+
+    }
+
+}
@@ -36,6 +36,7 @@ public class CoordinateTest {
     public void testToString() {
         Coordinate earth = new Coordinate(39.980945, 116.348120);
         assertNotEquals("{}", earth.toString());
+        assertEquals("{\"lat\":39.980945,\"lng\":116.34812}", earth.toString());
     }
 
     @Test
@@ -128,4 +129,31 @@ public class CoordinateTest {
     public void testParseFromNotNumberHex() {
         Coordinate.parseCommaSeparatedHexString("g,g");
     }
+
+    @Test
+    public void testPacked() {
+        Coordinate earth = new Coordinate(39.980945, -116.348120);
+        long packed = earth.getPacked();
+        assertEquals(earth.getLatE6(), (int) (packed >> 32));
+        assertEquals(earth.getLngE6(), (int) packed);
+        assertEquals(earth, Coordinate.fromPacked(packed));
+        assertEquals(packed, Coordinate.fromPacked(packed).getPacked());
+    }
+
+    @Test
+    public void testE6OfDecodedValues() {
+        // -67065019 / 1e6 times 1e6 rounds down to less than -67065019
+        final Coordinate coordinate = Coordinate.parseCommaSeparatedHexString("fc00ab45,00989680");
+        assertEquals(-67065019, coordinate.getLatE6());
+        assertEquals(10000000, coordinate.getLngE6());
+        assertEquals(coordinate.getLatE6(), (int) (coordinate.getPacked() >> 32));
+        assertEquals(coordinate.getLngE6(), (int) coordinate.getPacked());
+        assertEquals(-67065020, new Coordinate(-67.06502, 10).getLatE6());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromInvalidPacked() {
+        Coordinate.fromPacked(200000000L << 32);
+    }
+
 }
@@ -34,6 +34,12 @@ public class WeightedLocationTest {
         assertEquals(99, loc.getWeight(), 0);
     }
 
+    @Test
+    public void testToString() {
+        final WeightedLocation loc = new WeightedLocation(new Coordinate(39.980945, 116.348120), 2.5f);
+        assertEquals("{\"location\":{\"lat\":39.980945,\"lng\":116.34812},\"weight\":2.5}", loc.toString());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testMissingCoordinate() {
         new WeightedLocation(null, 1);
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author SgrAlpha
+ */
+public class ConversionProcessorTest {
+
+    @Test
+    public void testConvertInOrder() throws Exception {
+        final List<Coordinate> source = randomCoordinates(1000);
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ)
+                .setBatchSize(64)
+                .build();
+        final ListPublisher<Coordinate> publisher = new ListPublisher<>(source);
+        publisher.subscribe(processor);
+        final Recorder<Coordinate> recorder = new Recorder<>(Long.MAX_VALUE);
+        processor.subscribe(recorder);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertNull(recorder.error);
+        assertEquals(source.size(), recorder.items.size());
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(GeometryUtils.wgs2gcj(source.get(i)), recorder.items.get(i));
+        }
+        assertTrue(publisher.maxOutstanding <= processor.getBufferSize());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final List<Coordinate> source = randomCoordinates(500);
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.GCJ2WGS)
+                .setBatchSize(16)
+                .setBufferSize(48)
+                .setMaxLatency(1, TimeUnit.MILLISECONDS)
+                .build();
+        assertEquals(48, processor.getBufferSize());
+        final ListPublisher<Coordinate> publisher = new ListPublisher<>(source);
+        final Recorder<Coordinate> recorder = new Recorder<>(0);
+        processor.subscribe(recorder);
+        publisher.subscribe(processor);
+        // Nothing is requested downstream, so upstream stops at the buffer size.
+        assertEquals(48, publisher.index);
+        int expected = 0;
+        while (expected < source.size()) {
+            expected = Math.min(expected + 7, source.size());
+            recorder.subscription.request(7);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (recorder.items.size() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(expected, recorder.items.size());
+            assertTrue(publisher.index - recorder.items.size() <= 48);
+        }
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertTrue(publisher.maxOutstanding <= 48);
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(GeometryUtils.gcj2wgs(source.get(i)), recorder.items.get(i));
+        }
+    }
+
+    @Test
+    public void testMaxLatency() throws Exception {
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ)
+                .setBatchSize(1000)
+                .setMaxLatency(20, TimeUnit.MILLISECONDS)
+                .build();
+        final Recorder<Coordinate> recorder = new Recorder<>(Long.MAX_VALUE);
+        processor.subscribe(recorder);
+        final Subscription[] upstream = new Subscription[1];
+        processor.onSubscribe(new Subscription() {
+            @Override
+            public void request(final long n) {
+            }
+
+            @Override
+            public void cancel() {
+                upstream[0] = this;
+            }
+        });
+        final Coordinate coordinate = new Coordinate(39.9042, 116.4074);
+        processor.onNext(coordinate);
+        processor.onNext(coordinate);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recorder.items.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, recorder.items.size());
+        assertEquals(GeometryUtils.wgs2gcj(coordinate), recorder.items.get(1));
+        processor.onComplete();
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertNull(upstream[0]);
+    }
+
+    @Test
+    public void testWeightedLocations() throws Exception {
+        final WeightedLocation inside = new WeightedLocation(new Coordinate(31.2304, 121.4737), 3);
+        final WeightedLocation outside = new WeightedLocation(new Coordinate(48.8566, 2.3522), 5);
+        final List<WeightedLocation> source = new ArrayList<>();
+        source.add(inside);
+        source.add(outside);
+        final ConversionProcessor<WeightedLocation> processor = ConversionProcessor.forWeightedLocations(ConversionKind.GCJ2WGS_ACCURATE)
+                .setTransformer(GeometryUtils.getDefaultTransformer())
+                .build();
+        new ListPublisher<>(source).subscribe(processor);
+        final Recorder<WeightedLocation> recorder = new Recorder<>(Long.MAX_VALUE);
+        processor.subscribe(recorder);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, recorder.items.size());
+        assertEquals(GeometryUtils.gcj2wgsAccurate(inside.getLocation()), recorder.items.get(0).getLocation());
+        assertEquals(3, recorder.items.get(0).getWeight(), 0);
+        assertSame(outside, recorder.items.get(1));
+    }
+
+    @Test
+    public void testUpstreamError() throws Exception {
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ).build();
+        final Recorder<Coordinate> recorder = new Recorder<>(Long.MAX_VALUE);
+        processor.subscribe(recorder);
+        final IllegalStateException error = new IllegalStateException("Feed is down");
+        processor.onError(error);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertSame(error, recorder.error);
+    }
+
+    @Test
+    public void testInvalidRequest() throws Exception {
+        final ListPublisher<Coordinate> publisher = new ListPublisher<>(randomCoordinates(10));
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ).build();
+        final Recorder<Coordinate> recorder = new Recorder<>(0);
+        processor.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        publisher.subscribe(processor);
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void testSecondSubscriber() throws Exception {
+        final ConversionProcessor<Coordinate> processor = ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ).build();
+        processor.subscribe(new Recorder<Coordinate>(1));
+        final Recorder<Coordinate> second = new Recorder<>(1);
+        processor.subscribe(second);
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ).setBatchSize(100).setBufferSize(50).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxLatency() {
+        ConversionProcessor.forCoordinates(ConversionKind.WGS2GCJ).setMaxLatency(0, TimeUnit.MILLISECONDS).build();
+    }
+
+    private static List<Coordinate> randomCoordinates(final int size) {
+        final Random random = new Random(41);
+        final List<Coordinate> coordinates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            coordinates.add(new Coordinate(20 + random.nextDouble() * 20, 100 + random.nextDouble() * 20));
+        }
+        return coordinates;
+    }
+
+    /**
+     * Publishes a list on demand, from the thread which requests.
+     */
+    private static final class ListPublisher<T> implements Publisher<T> {
+
+        private final List<T> items;
+        private volatile int index;
+        private volatile long maxOutstanding;
+        private volatile boolean cancelled;
+        private long requested;
+        private boolean emitting;
+        private boolean completed;
+
+        private ListPublisher(final List<T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(final long n) {
+                    synchronized (ListPublisher.this) {
+                        ListPublisher.this.requested += n;
+                        ListPublisher.this.maxOutstanding = Math.max(ListPublisher.this.maxOutstanding, ListPublisher.this.requested);
+                        if (ListPublisher.this.emitting) {
+                            return;
+                        }
+                        ListPublisher.this.emitting = true;
+                    }
+                    while (true) {
+                        T item = null;
+                        boolean complete = false;
+                        synchronized (ListPublisher.this) {
+                            if (!ListPublisher.this.cancelled && ListPublisher.this.index < ListPublisher.this.items.size()
+                                    && ListPublisher.this.requested > 0) {
+                                item = ListPublisher.this.items.get(ListPublisher.this.index++);
+                                ListPublisher.this.requested--;
+                            } else {
+                                ListPublisher.this.emitting = false;
+                                complete = !ListPublisher.this.cancelled && !ListPublisher.this.completed
+                                        && ListPublisher.this.index == ListPublisher.this.items.size();
+                                ListPublisher.this.completed |= complete;
+                            }
+                        }
+                        if (item == null) {
+                            if (complete) {
+                                subscriber.onComplete();
+                            }
+                            return;
+                        }
+                        subscriber.onNext(item);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    ListPublisher.this.cancelled = true;
+                }
+            });
+        }
+
+    }
+
+    private static final class Recorder<T> implements Subscriber<T> {
+
+        private final List<T> items = Collections.synchronizedList(new ArrayList<T>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final long initialRequest;
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        private Recorder(final long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            if (this.initialRequest > 0) {
+                subscription.request(this.initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(final T item) {
+            this.items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+            this.done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            this.done.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.heatmap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.CoordinateStore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author SgrAlpha
+ */
+public class HeatmapAggregatorTest {
+
+    @Test
+    public void testAdd() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(HeatmapGrid.latLng(30, 110, 40, 120, 1));
+        aggregator.add(30.5, 110.5, 1);
+        aggregator.add(30.6, 110.6, 2.5f);
+        aggregator.add(new WeightedLocation(new Coordinate(39.5, 119.5), 4));
+        aggregator.add(50, 110, 8);
+        final Heatmap heatmap = aggregator.build();
+        assertEquals(3, heatmap.getCount());
+        assertEquals(1, heatmap.getSkippedCount());
+        assertEquals(2, heatmap.size());
+        assertArrayEquals(new long[]{0, 99}, heatmap.getCells());
+        assertArrayEquals(new double[]{3.5, 4}, heatmap.getWeights(), 0);
+        assertEquals(3.5, heatmap.getWeight(0), 0);
+        assertEquals(0, heatmap.getWeight(1), 0);
+        assertEquals(7.5, heatmap.getTotalWeight(), 0);
+        assertEquals(4, heatmap.getMaxWeight(), 0);
+        final double[] dense = heatmap.toDense();
+        assertEquals(100, dense.length);
+        assertEquals(3.5, dense[0], 0);
+        assertEquals(4, dense[99], 0);
+
+        // Building does not clear anything
+        aggregator.add(30.5, 110.5, 1);
+        assertEquals(4.5, aggregator.build().getWeight(0), 0);
+    }
+
+    @Test
+    public void testDenseAndSparse() {
+        final Random random = new Random(20190101L);
+        final int size = 100000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        final float[] weights = new float[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = 20 + random.nextDouble() * 30;
+            lng[i] = 100 + random.nextDouble() * 30;
+            weights[i] = random.nextInt(10);
+        }
+        // 256 x 256 cells fit in arrays, 2048 x 2048 do not.
+        for (int zoom : new int[]{8, 11}) {
+            final HeatmapGrid grid = HeatmapGrid.webMercator(zoom);
+            final Map<Long, Double> expected = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                final long cell = grid.cellOf(lat[i], lng[i]);
+                final Double sum = expected.get(cell);
+                expected.put(cell, (sum == null ? 0 : sum) + weights[i]);
+            }
+            final HeatmapAggregator aggregator = new HeatmapAggregator(grid);
+            aggregator.addAll(lat, lng, weights, 0, size / 2, 4);
+            aggregator.addAll(lat, lng, weights, size / 2, size - size / 2, 1);
+            final Heatmap heatmap = aggregator.build();
+            assertEquals(size, heatmap.getCount());
+            final long[] cells = heatmap.getCells();
+            final double[] sums = heatmap.getWeights();
+            int nonZero = 0;
+            for (Map.Entry<Long, Double> entry : expected.entrySet()) {
+                if (entry.getValue() != 0) {
+                    nonZero++;
+                }
+                assertEquals(entry.getValue(), heatmap.getWeight(entry.getKey()), 1e-9);
+            }
+            assertEquals(nonZero, cells.length);
+            for (int i = 1; i < cells.length; i++) {
+                assertEquals(true, cells[i - 1] < cells[i]);
+                assertEquals(expected.get(cells[i]), sums[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(HeatmapGrid.latLng(0, 100, 50, 140, 0.1));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final List<WeightedLocation> locations = new ArrayList<>();
+                        for (int i = 0; i < 10000; i++) {
+                            locations.add(new WeightedLocation(new Coordinate(25.05, 120.05), 1));
+                        }
+                        aggregator.addAll(locations);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final Heatmap heatmap = aggregator.build();
+        assertEquals(80000, heatmap.getCount());
+        assertEquals(1, heatmap.size());
+        assertEquals(80000, heatmap.getWeight(heatmap.getGrid().cellOf(25.05, 120.05)), 0);
+    }
+
+    @Test
+    public void testPartials() throws Exception {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(HeatmapGrid.latLng(0, 100, 50, 140, 0.1));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        try (HeatmapAggregator.Partial partial = aggregator.newPartial()) {
+                            for (int i = 0; i < 5000; i++) {
+                                partial.add(25.05, 120.05, 1);
+                                partial.add(new WeightedLocation(new Coordinate(25.05, 120.05), 1));
+                            }
+                            partial.add(60, 120, 1);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final Heatmap heatmap = aggregator.build();
+        assertEquals(80000, heatmap.getCount());
+        assertEquals(8, heatmap.getSkippedCount());
+        assertEquals(80000, heatmap.getWeight(heatmap.getGrid().cellOf(25.05, 120.05)), 0);
+    }
+
+    @Test
+    public void testPartialMergedOnClose() {
+        final HeatmapAggregator aggregator = new HeatmapAggregator(HeatmapGrid.latLng(30, 110, 40, 120, 1));
+        final HeatmapAggregator.Partial partial = aggregator.newPartial();
+        partial.add(30.5, 110.5, 2);
+        assertEquals(0, aggregator.build().getCount());
+        partial.close();
+        partial.close();
+        assertEquals(1, aggregator.build().getCount());
+        assertEquals(2, aggregator.build().getWeight(0), 0);
+        try {
+            partial.add(30.5, 110.5, 2);
+            fail("There should be an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Partial is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStore() {
+        final CoordinateStore store = CoordinateStore.allocate(50000, true);
+        for (int i = 0; i < 50000; i++) {
+            store.append(31.2 + (i % 10) * 0.01, 121.4, 0.5f);
+        }
+        final HeatmapAggregator aggregator = new HeatmapAggregator(HeatmapGrid.latLng(31, 121, 32, 122, 0.05));
+        aggregator.addAll(store, 4);
+        final Heatmap heatmap = aggregator.build();
+        assertEquals(50000, heatmap.getCount());
+        assertEquals(25000, heatmap.getTotalWeight(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new HeatmapAggregator(HeatmapGrid.webMercator(2)).addAll(new double[2], new double[2], null, 1, 2, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTooManyCellsForDense() {
+        new HeatmapAggregator(HeatmapGrid.webMercator(20)).build().toDense();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.heatmap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author SgrAlpha
+ */
+public class HeatmapGridTest {
+
+    @Test
+    public void testLatLng() {
+        final HeatmapGrid grid = HeatmapGrid.latLng(30, 110, 40, 120, 0.5);
+        assertFalse(grid.isWebMercator());
+        assertEquals(-1, grid.getZoom());
+        assertEquals(20, grid.getColumns());
+        assertEquals(20, grid.getRows());
+        assertEquals(400, grid.getCellCount());
+        assertEquals(0, grid.cellOf(30, 110));
+        assertEquals(1, grid.cellOf(30.2, 110.5));
+        assertEquals(20 * 3 + 4, grid.cellOf(31.6, 112.1));
+        assertEquals(399, grid.cellOf(39.99, 119.99));
+        assertEquals(-1, grid.cellOf(40, 115));
+        assertEquals(-1, grid.cellOf(35, 120));
+        assertEquals(-1, grid.cellOf(29.99, 115));
+        assertEquals(-1, grid.cellOf(Double.NaN, 115));
+
+        // Partial cells at the edges
+        assertEquals(3, HeatmapGrid.latLng(0, 0, 1, 1, 0.4).getColumns());
+    }
+
+    @Test
+    public void testWebMercator() {
+        final HeatmapGrid world = HeatmapGrid.webMercator(1);
+        assertTrue(world.isWebMercator());
+        assertEquals(4, world.getCellCount());
+        assertEquals(0, world.cellOf(45, -90));
+        assertEquals(1, world.cellOf(45, 90));
+        assertEquals(2, world.cellOf(-45, -90));
+        assertEquals(3, world.cellOf(-45, 90));
+        assertEquals(3, world.cellOf(-HeatmapGrid.MAX_MERCATOR_LAT, 180));
+        assertEquals(-1, world.cellOf(86, 0));
+
+        // Tile of Beijing at zoom 10, as in any slippy map
+        final HeatmapGrid beijing = HeatmapGrid.webMercator(10, 39.9, 116.3, 39.95, 116.45);
+        assertEquals(842, beijing.getMinX());
+        assertEquals(387, beijing.getMinY());
+        assertEquals(2, beijing.getColumns());
+        assertEquals(2, beijing.getRows());
+        assertEquals(1, beijing.cellOf(39.92, 116.4));
+        assertEquals(2, beijing.cellOf(39.9, 116.3));
+        assertEquals(-1, beijing.cellOf(31.23, 121.47));
+
+        assertEquals(1L << 60, HeatmapGrid.webMercator(HeatmapGrid.MAX_ZOOM).getCellCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidZoom() {
+        HeatmapGrid.webMercator(31);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        HeatmapGrid.latLng(40, 110, 30, 120, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCellSize() {
+        HeatmapGrid.latLng(30, 110, 40, 120, 0);
+    }
+
+}
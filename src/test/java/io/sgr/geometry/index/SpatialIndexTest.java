@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+import io.sgr.geometry.utils.Distances;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class SpatialIndexTest {
+
+    private static final int SIZE = 20000;
+
+    private final double[] lat = new double[SIZE];
+    private final double[] lng = new double[SIZE];
+    private final float[] weights = new float[SIZE];
+
+    public SpatialIndexTest() {
+        final Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            if (i % 4 == 0) {
+                // Spread over the globe, including the poles and the antimeridian.
+                this.lat[i] = random.nextDouble() * 180 - 90;
+                this.lng[i] = random.nextDouble() * 360 - 180;
+            } else if (i % 4 == 1) {
+                // Duplicates.
+                this.lat[i] = 39.9042;
+                this.lng[i] = 116.4074;
+            } else {
+                this.lat[i] = 39 + random.nextDouble() * 2;
+                this.lng[i] = 116 + random.nextDouble() * 2;
+            }
+            this.weights[i] = 0.5f + random.nextInt(10);
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, this.weights, 0, SIZE, 4);
+        assertEquals(SIZE, index.size());
+        final Random random = new Random(1);
+        for (int q = 0; q < 200; q++) {
+            final double minLat = random.nextDouble() * 180 - 90;
+            final double maxLat = Math.min(90, minLat + random.nextDouble() * 30);
+            final double minLng = random.nextDouble() * 360 - 180;
+            final double maxLng = random.nextDouble() * 360 - 180;
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < SIZE; i++) {
+                final boolean inLng = minLng <= maxLng ? this.lng[i] >= minLng && this.lng[i] <= maxLng
+                        : this.lng[i] >= minLng || this.lng[i] <= maxLng;
+                if (this.lat[i] >= minLat && this.lat[i] <= maxLat && inLng) {
+                    expected.add(i);
+                }
+            }
+            final Collector collector = new Collector();
+            assertEquals(expected.size(), index.search(minLat, minLng, maxLat, maxLng, collector));
+            assertEquals(expected, collector.sorted());
+        }
+        final Collector collector = new Collector();
+        assertEquals(SIZE, index.search(-90, -180, 90, 180, collector));
+        assertTrue(index.search(39.9042, 116.4074, 39.9042, 116.4074, new Collector()) >= SIZE / 4);
+    }
+
+    @Test
+    public void testWithin() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, null, 0, SIZE, 1);
+        final Random random = new Random(2);
+        final double[] radiuses = {0, 100, 5000, 100000, 2000000, 30000000};
+        for (int q = 0; q < 120; q++) {
+            final double centerLat = q % 3 == 0 ? 39.9 + random.nextDouble() * 0.2 : random.nextDouble() * 180 - 90;
+            final double centerLng = q % 3 == 0 ? 116.3 + random.nextDouble() * 0.2 : random.nextDouble() * 360 - 180;
+            final double radius = radiuses[q % radiuses.length];
+            final List<Integer> expected = new ArrayList<>();
+            int borderline = 0;
+            for (int i = 0; i < SIZE; i++) {
+                final double distance = Distances.haversine(centerLat, centerLng, this.lat[i], this.lng[i]);
+                if (Math.abs(distance - radius) < 1e-6) {
+                    borderline++;
+                }
+                if (distance <= radius) {
+                    expected.add(i);
+                }
+            }
+            final Collector collector = new Collector();
+            final int count = index.within(centerLat, centerLng, radius, collector);
+            assertEquals(0, borderline);
+            assertEquals(expected.size(), count);
+            assertEquals(expected, collector.sorted());
+        }
+        final Collector collector = new Collector();
+        assertTrue(index.within(39.9042, 116.4074, 0, collector) >= SIZE / 4);
+    }
+
+    @Test
+    public void testNearest() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, this.weights, 0, SIZE, 2);
+        final Random random = new Random(3);
+        final Neighbors neighbors = new Neighbors(10);
+        for (int q = 0; q < 200; q++) {
+            final double centerLat = q % 2 == 0 ? 39 + random.nextDouble() * 2 : random.nextDouble() * 180 - 90;
+            final double centerLng = q % 2 == 0 ? 116 + random.nextDouble() * 2 : random.nextDouble() * 360 - 180;
+            index.nearest(centerLat, centerLng, neighbors);
+            final double[] expected = new double[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                expected[i] = Distances.haversine(centerLat, centerLng, this.lat[i], this.lng[i]);
+            }
+            Arrays.sort(expected);
+            assertEquals(10, neighbors.size());
+            for (int k = 0; k < 10; k++) {
+                assertEquals(expected[k], neighbors.getDistance(k), 1e-6);
+                final int i = neighbors.getIndex(k);
+                assertEquals(neighbors.getDistance(k), Distances.haversine(centerLat, centerLng, this.lat[i], this.lng[i]), 1e-6);
+                assertEquals(this.weights[i], neighbors.getWeight(k), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestWeighted() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, this.weights, 0, SIZE, 1);
+        final Random random = new Random(4);
+        final Neighbors neighbors = new Neighbors(5);
+        for (int q = 0; q < 200; q++) {
+            final double centerLat = q % 2 == 0 ? 39 + random.nextDouble() * 2 : random.nextDouble() * 180 - 90;
+            final double centerLng = q % 2 == 0 ? 116 + random.nextDouble() * 2 : random.nextDouble() * 360 - 180;
+            index.nearestWeighted(centerLat, centerLng, neighbors);
+            final double[] expected = new double[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                expected[i] = Distances.haversine(centerLat, centerLng, this.lat[i], this.lng[i]) / this.weights[i];
+            }
+            Arrays.sort(expected);
+            assertEquals(5, neighbors.size());
+            for (int k = 0; k < 5; k++) {
+                assertEquals(expected[k], neighbors.getDistance(k) / neighbors.getWeight(k), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestWithFewLocations() {
+        final SpatialIndex index = SpatialIndex.ofCoordinates(Arrays.asList(new Coordinate(0, 179.5), new Coordinate(0, -179.5),
+                new Coordinate(0, 170)), 1);
+        final Neighbors neighbors = new Neighbors(5);
+        index.nearest(0, 179.9, neighbors);
+        assertEquals(3, neighbors.size());
+        assertEquals(0, neighbors.getIndex(0));
+        assertEquals(1, neighbors.getIndex(1));
+        assertEquals(2, neighbors.getIndex(2));
+        SpatialIndex.ofCoordinates(Collections.<Coordinate>emptyList(), 1).nearest(0, 0, neighbors);
+        assertEquals(0, neighbors.size());
+        try {
+            neighbors.getIndex(0);
+            fail("Should not get neighbors out of range");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBuildFromCollections() {
+        final List<Coordinate> coordinates = new ArrayList<>();
+        final List<WeightedLocation> locations = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            coordinates.add(new Coordinate(this.lat[i], this.lng[i]));
+            locations.add(new WeightedLocation(coordinates.get(i), this.weights[i]));
+        }
+        final SpatialIndex fromArrays = SpatialIndex.of(this.lat, this.lng, null, 0, SIZE, 1);
+        final SpatialIndex fromCoordinates = SpatialIndex.ofCoordinates(coordinates, 4);
+        final SpatialIndex fromLocations = SpatialIndex.ofWeightedLocations(locations, 4);
+        final Collector expected = new Collector();
+        final Collector actual = new Collector();
+        final Collector weighted = new Collector();
+        fromArrays.within(40, 117, 50000, expected);
+        fromCoordinates.within(40, 117, 50000, actual);
+        fromLocations.within(40, 117, 50000, weighted);
+        assertEquals(expected.sorted(), actual.sorted());
+        assertEquals(expected.sorted(), weighted.sorted());
+        final Neighbors neighbors = new Neighbors(3);
+        fromLocations.nearest(40, 117, neighbors);
+        assertEquals(this.weights[neighbors.getIndex(0)], neighbors.getWeight(0), 0);
+    }
+
+    @Test
+    public void testOffset() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, this.weights, 100, 50, 1);
+        final Collector collector = new Collector();
+        assertEquals(50, index.search(-90, -180, 90, 180, collector));
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 100; i < 150; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, collector.sorted());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        final SpatialIndex index = SpatialIndex.of(this.lat, this.lng, null, 0, 100, 1);
+        final Runnable[] calls = {
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SpatialIndex.of(new double[]{91}, new double[]{0}, null, 0, 1, 1);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SpatialIndex.of(new double[]{0}, new double[]{0}, new float[]{0}, 0, 1, 1);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SpatialIndex.of(new double[1], new double[1], null, 0, 2, 1);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SpatialIndex.of(new double[1], new double[1], null, 0, 1, 0);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SpatialIndex.ofCoordinates(Collections.<Coordinate>singletonList(null), 1);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        index.search(10, 0, 0, 0, new Collector());
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        index.search(0, 0, 10, 10, null);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        index.within(0, 0, -1, new Collector());
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        index.nearest(0, 181, new Neighbors(1));
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        new Neighbors(0);
+                    }
+                },
+        };
+        for (Runnable call : calls) {
+            try {
+                call.run();
+                fail("Should not accept invalid arguments");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBuild() {
+        final int size = 200000;
+        final Random random = new Random(5);
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = random.nextGaussian() * 10;
+            lng[i] = 110 + random.nextGaussian() * 10;
+        }
+        final SpatialIndex sequential = SpatialIndex.of(lat, lng, null, 0, size, 1);
+        final SpatialIndex parallel = SpatialIndex.of(lat, lng, null, 0, size, 4);
+        final Neighbors expected = new Neighbors(20);
+        final Neighbors actual = new Neighbors(20);
+        for (int q = 0; q < 50; q++) {
+            final double centerLat = random.nextGaussian() * 10;
+            final double centerLng = 110 + random.nextGaussian() * 10;
+            sequential.nearest(centerLat, centerLng, expected);
+            parallel.nearest(centerLat, centerLng, actual);
+            for (int k = 0; k < 20; k++) {
+                assertEquals(expected.getDistance(k), actual.getDistance(k), 0);
+            }
+            final Collector a = new Collector();
+            final Collector b = new Collector();
+            sequential.search(centerLat - 1, centerLng - 1, centerLat + 1, centerLng + 1, a);
+            parallel.search(centerLat - 1, centerLng - 1, centerLat + 1, centerLng + 1, b);
+            assertArrayEquals(a.sorted().toArray(), b.sorted().toArray());
+        }
+    }
+
+    private static final class Collector implements ResultSink {
+
+        private final List<Integer> indexes = new ArrayList<>();
+
+        @Override
+        public void accept(final int index) {
+            this.indexes.add(index);
+        }
+
+        private List<Integer> sorted() {
+            Collections.sort(this.indexes);
+            return this.indexes;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class GeometryModuleTest {
+
+    private static final ObjectMapper ANNOTATION_MAPPER = new ObjectMapper();
+    private static final ObjectMapper MODULE_MAPPER = new ObjectMapper().registerModule(new GeometryModule());
+
+    @Test
+    public void testSameAsAnnotationMapping() throws IOException {
+        final Random random = new Random(20190101L);
+        for (int i = 0; i < 10000; i++) {
+            final Coordinate coordinate = new Coordinate((random.nextDouble() - 0.5) * 180, (random.nextDouble() - 0.5) * 360);
+            final WeightedLocation location = new WeightedLocation(coordinate, random.nextFloat() * 100 + 0.001f);
+            final String json = ANNOTATION_MAPPER.writeValueAsString(coordinate);
+            assertEquals(json, MODULE_MAPPER.writeValueAsString(coordinate));
+            assertEquals(json, coordinate.toString());
+            assertEquals(coordinate, MODULE_MAPPER.readValue(json, Coordinate.class));
+            final String weightedJson = ANNOTATION_MAPPER.writeValueAsString(location);
+            assertEquals(weightedJson, MODULE_MAPPER.writeValueAsString(location));
+            assertEquals(weightedJson, location.toString());
+            final WeightedLocation read = MODULE_MAPPER.readValue(weightedJson, WeightedLocation.class);
+            assertEquals(coordinate, read.getLocation());
+            assertEquals(location.getWeight(), read.getWeight(), 0);
+        }
+    }
+
+    @Test
+    public void testDeserializeLenient() throws IOException {
+        assertEquals(new Coordinate(1.5, 2), MODULE_MAPPER.readValue("{\"lat\":\"1.5\",\"unknown\":[1,{}],\"lng\":2}", Coordinate.class));
+        assertEquals(new Coordinate(0, 0), MODULE_MAPPER.readValue("{}", Coordinate.class));
+        final WeightedLocation location = MODULE_MAPPER.readValue("{\"weight\":3,\"location\":{\"lng\":2,\"lat\":1},\"id\":\"a\"}", WeightedLocation.class);
+        assertEquals(new Coordinate(1, 2), location.getLocation());
+        assertEquals(3, location.getWeight(), 0);
+    }
+
+    @Test
+    public void testDeserializeInvalid() throws IOException {
+        assertInvalid("{\"lat\":100,\"lng\":0}", Coordinate.class);
+        assertInvalid("[1,2]", Coordinate.class);
+        assertInvalid("{\"lat\":\"a\"}", Coordinate.class);
+        assertInvalid("{\"location\":null,\"weight\":1}", WeightedLocation.class);
+        assertInvalid("{\"location\":{\"lat\":1,\"lng\":2}}", WeightedLocation.class);
+    }
+
+    private static void assertInvalid(final String json, final Class<?> type) throws IOException {
+        try {
+            MODULE_MAPPER.readValue(json, type);
+            fail("There should be a JsonMappingException for " + json);
+        } catch (JsonMappingException e) {
+            // Ignored
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.polyline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class PolylineTest {
+
+    private static final String GOOGLE_EXAMPLE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+    @Test
+    public void testGoogleExample() {
+        final List<Coordinate> coordinates = Arrays.asList(new Coordinate(38.5, -120.2), new Coordinate(40.7, -120.95),
+                new Coordinate(43.252, -126.453));
+        assertEquals(GOOGLE_EXAMPLE, Polyline.encode(coordinates));
+        assertEquals(coordinates, Polyline.decode(GOOGLE_EXAMPLE));
+        assertEquals("", Polyline.encode(new ArrayList<Coordinate>()));
+        assertTrue(Polyline.decode("").isEmpty());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random random = new Random(31);
+        final int size = 1000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        lat[0] = 31.2304;
+        lng[0] = 121.4737;
+        for (int i = 1; i < size; i++) {
+            lat[i] = Math.max(-90, Math.min(90, lat[i - 1] + random.nextGaussian() * 0.001));
+            lng[i] = Math.max(-180, Math.min(180, lng[i - 1] + random.nextGaussian() * 0.001));
+        }
+        for (int precision = 1; precision <= Polyline.MAX_PRECISION; precision++) {
+            final StringBuilder builder = new StringBuilder();
+            final PolylineEncoder encoder = new PolylineEncoder(builder, precision);
+            encoder.appendAll(lat, lng, 0, size / 2);
+            for (int i = size / 2; i < size; i++) {
+                encoder.append(new Coordinate(lat[i], lng[i]));
+            }
+            assertEquals(size, encoder.getCount());
+
+            final double[] outLat = new double[size];
+            final double[] outLng = new double[size];
+            final PolylineDecoder decoder = new PolylineDecoder(builder, precision);
+            assertEquals(10, decoder.read(outLat, outLng, 0, 10));
+            final double[] result = new double[2];
+            decoder.next(result);
+            outLat[10] = result[0];
+            outLng[10] = result[1];
+            assertEquals(size - 11, decoder.read(outLat, outLng, 11, size - 11));
+            assertFalse(decoder.hasNext());
+            final double error = 0.5 / Math.pow(10, precision) + 1e-12;
+            for (int i = 0; i < size; i++) {
+                assertEquals(lat[i], outLat[i], error);
+                assertEquals(lng[i], outLng[i], error);
+            }
+        }
+    }
+
+    @Test
+    public void testE6IsCompact() {
+        final List<Coordinate> track = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            track.add(new Coordinate(39.9 + i * 0.0001, 116.4 + i * 0.00015));
+        }
+        final String polyline = Polyline.encode(track, Polyline.E6_PRECISION);
+        assertTrue(polyline.length() < 100 * 8);
+        assertTrue(polyline.length() * 8 < GeometryUtils.getObjectMapper().valueToTree(track).toString().length());
+    }
+
+    @Test
+    public void testConvertWhileDecoding() {
+        final List<Coordinate> gcj = Arrays.asList(new Coordinate(39.908823, 116.397470), new Coordinate(31.239702, 121.499763));
+        final PolylineDecoder decoder = new PolylineDecoder(Polyline.encode(gcj, Polyline.E6_PRECISION), Polyline.E6_PRECISION,
+                GeometryUtils.getDefaultTransformer(), ConversionKind.GCJ2WGS);
+        for (Coordinate coordinate : gcj) {
+            assertEquals(GeometryUtils.gcj2wgs(coordinate), decoder.next());
+        }
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNoMore() {
+        new PolylineDecoder("", Polyline.GOOGLE_PRECISION).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        Polyline.decode(GOOGLE_EXAMPLE.substring(0, GOOGLE_EXAMPLE.length() - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() {
+        Polyline.decode("_p~iF ps|U");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        // A latitude of 100
+        Polyline.decode("_gsia@??");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() {
+        Polyline.encode(new ArrayList<Coordinate>(), 8);
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.polyline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.utils.ConversionKind;
+import io.sgr.geometry.utils.GeometryUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class VarintTrackTest {
+
+    private static final int SIZE = 1000;
+
+    private final double[] lat = new double[SIZE];
+    private final double[] lng = new double[SIZE];
+
+    public VarintTrackTest() {
+        final Random random = new Random(37);
+        this.lat[0] = 39.9042;
+        this.lng[0] = 116.4074;
+        for (int i = 1; i < SIZE; i++) {
+            this.lat[i] = this.lat[i - 1] + random.nextGaussian() * 0.0005;
+            this.lng[i] = this.lng[i - 1] + random.nextGaussian() * 0.0005;
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final VarintTrackWriter writer = new VarintTrackWriter(out);
+        writer.appendAll(this.lat, this.lng, 0, SIZE - 1);
+        writer.append(new Coordinate(this.lat[SIZE - 1], this.lng[SIZE - 1]));
+        assertEquals(SIZE, writer.getCount());
+        final byte[] bytes = out.toByteArray();
+        // Steps of about 50 meters take 2 or 3 bytes per axis
+        assertTrue(bytes.length < SIZE * 6);
+
+        final VarintTrackReader reader = new VarintTrackReader(new ByteArrayInputStream(bytes));
+        final double[] outLat = new double[SIZE];
+        final double[] outLng = new double[SIZE];
+        assertEquals(SIZE, reader.read(outLat, outLng, 0, SIZE));
+        assertFalse(reader.hasNext());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(this.lat[i], outLat[i], 5e-7);
+            assertEquals(this.lng[i], outLng[i], 5e-7);
+        }
+    }
+
+    @Test
+    public void testBuffer() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        final VarintTrackWriter writer = new VarintTrackWriter(buffer);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < SIZE; i++) {
+            try {
+                writer.append(this.lat[i], this.lng[i]);
+            } catch (BufferOverflowException e) {
+                buffer.flip();
+                out.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+                writer.append(this.lat[i], this.lng[i]);
+            }
+        }
+        buffer.flip();
+        out.write(buffer.array(), 0, buffer.limit());
+
+        final VarintTrackReader reader = new VarintTrackReader(ByteBuffer.wrap(out.toByteArray()));
+        final double[] result = new double[2];
+        for (int i = 0; i < SIZE; i++) {
+            assertTrue(reader.hasNext());
+            reader.next(result);
+            assertEquals(this.lat[i], result[0], 5e-7);
+            assertEquals(this.lng[i], result[1], 5e-7);
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testConvertWhileDecoding() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE * 20);
+        new VarintTrackWriter(buffer).appendAll(this.lat, this.lng, 0, SIZE);
+        buffer.flip();
+        final VarintTrackReader reader = new VarintTrackReader(buffer, GeometryUtils.getDefaultTransformer(), ConversionKind.WGS2GCJ);
+        for (int i = 0; i < SIZE; i++) {
+            final Coordinate expected = GeometryUtils.wgs2gcj(Math.round(this.lat[i] * 1e6) / 1e6, Math.round(this.lng[i] * 1e6) / 1e6);
+            assertEquals(expected, reader.next());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VarintTrackWriter(out).append(this.lat[0], this.lng[0]);
+        final byte[] bytes = out.toByteArray();
+        final VarintTrackReader reader = new VarintTrackReader(new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+        assertTrue(reader.hasNext());
+        try {
+            reader.next();
+            fail("Truncated track should not be decoded");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Truncated track", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingConversion() {
+        new VarintTrackReader(ByteBuffer.allocate(0), GeometryUtils.getDefaultTransformer(), null);
+    }
+
+}
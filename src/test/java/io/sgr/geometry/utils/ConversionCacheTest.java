@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author SgrAlpha
+ */
+public class ConversionCacheTest {
+
+    private static final double MAX_ERROR = 1e-8;
+
+    @Test
+    public void testHitsAndMisses() {
+        final ConversionCache cache = new ConversionCache(ConversionKind.GCJ2WGS_ACCURATE, 1000);
+        assertSame(GeometryUtils.getDefaultTransformer(), cache.getTransformer());
+        assertEquals(1000, cache.getCapacity());
+        final double[] result = new double[2];
+        final double[] expected = new double[2];
+        cache.convert(39.98229687830853, 116.35430824277233, result);
+        GeometryUtils.gcj2wgsAccurate(39.98229687830853, 116.35430824277233, expected);
+        assertEquals(expected[0], result[0], MAX_ERROR);
+        assertEquals(expected[1], result[1], MAX_ERROR);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Same E6 cell, different position
+        cache.convert(39.9822968, 116.3543082, result);
+        GeometryUtils.gcj2wgsAccurate(39.9822968, 116.3543082, expected);
+        assertEquals(expected[0], result[0], MAX_ERROR);
+        assertEquals(expected[1], result[1], MAX_ERROR);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertEquals(0.5, cache.getHitRate(), 0);
+
+        final Coordinate outOfChina = new Coordinate(41.558182, -73.915166);
+        assertSame(outOfChina, cache.convert(outOfChina));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void testAgainstTransformer() {
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder().build();
+        for (ConversionKind kind : ConversionKind.values()) {
+            final ConversionCache cache = new ConversionCache(transformer, kind, 256);
+            final Random random = new Random(20190101L);
+            final double[] lat = new double[4096];
+            final double[] lng = new double[4096];
+            for (int i = 0; i < lat.length; i++) {
+                // Few distinct cells, so both hits and evictions happen
+                lat[i] = 30 + random.nextInt(20) * 0.1 + random.nextDouble() * 0.000001;
+                lng[i] = 110 + random.nextInt(20) * 0.1 + random.nextDouble() * 0.000001;
+            }
+            final double[] outLat = new double[lat.length];
+            final double[] outLng = new double[lng.length];
+            cache.convert(lat, lng, 0, lat.length, outLat, outLng);
+            final double[] expected = new double[2];
+            for (int i = 0; i < lat.length; i++) {
+                transformer.convert(kind, lat[i], lng[i], expected);
+                assertEquals(expected[0], outLat[i], MAX_ERROR);
+                assertEquals(expected[1], outLng[i], MAX_ERROR);
+            }
+            assertEquals(lat.length, cache.getHitCount() + cache.getMissCount());
+            assertTrue(cache.getEvictionCount() > 0);
+            assertEquals(256, cache.size());
+            assertEquals(cache.getMissCount() - 256, cache.getEvictionCount());
+        }
+    }
+
+    @Test
+    public void testKeyedLikeCoordinateE6() {
+        // 32.000001 times 1e6 rounds down to less than 32000001
+        final Coordinate coordinate = new Coordinate(32.000001, 116);
+        assertEquals(32000001, coordinate.getLatE6());
+        final ConversionCache cache = new ConversionCache(ConversionKind.WGS2GCJ, 16);
+        cache.convert(coordinate);
+        cache.convert(new Coordinate(32.0000015, 116));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testClockKeepsReferencedEntries() {
+        final ConversionCache cache = new ConversionCache(ConversionKind.WGS2GCJ, 16);
+        final double[] result = new double[2];
+        for (int i = 0; i < 16; i++) {
+            cache.convert(30 + i * 0.01, 110, result);
+        }
+        cache.convert(30, 110, result);
+        assertEquals(1, cache.getHitCount());
+        for (int i = 0; i < 8; i++) {
+            cache.convert(40 + i * 0.01, 110, result);
+            cache.convert(30, 110, result);
+        }
+        assertEquals(8, cache.getEvictionCount());
+        assertEquals(9, cache.getHitCount());
+        assertEquals(16, cache.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ConversionCache cache = new ConversionCache(ConversionKind.GCJ2WGS_ACCURATE, 64);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                final long seed = t;
+                futures[t] = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final Random random = new Random(seed);
+                        final double[] result = new double[2];
+                        final double[] expected = new double[2];
+                        for (int i = 0; i < 5000; i++) {
+                            final double lat = 30 + random.nextInt(100) * 0.01;
+                            final double lng = 110 + random.nextInt(2) * 0.01;
+                            cache.convert(lat, lng, result);
+                            GeometryUtils.gcj2wgsAccurate(lat, lng, expected);
+                            assertEquals(expected[0], result[0], MAX_ERROR);
+                            assertEquals(expected[1], result[1], MAX_ERROR);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8 * 5000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new ConversionCache(ConversionKind.WGS2GCJ, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCoordinate() {
+        new ConversionCache(ConversionKind.WGS2GCJ, 10).convert(100, 0, new double[2]);
+    }
+
+    @Test
+    public void testPack() {
+        final Coordinate coordinate = new Coordinate(-39.980945, 116.348120);
+        final long key = ConversionCache.pack(coordinate.getLatE6(), coordinate.getLngE6());
+        assertEquals(coordinate.getLatE6(), (int) (key >> 32));
+        assertEquals(coordinate.getLngE6(), (int) key);
+    }
+
+}
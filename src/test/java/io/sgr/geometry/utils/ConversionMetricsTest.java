@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+/**
+ * @author SgrAlpha
+ */
+public class ConversionMetricsTest {
+
+    @Before
+    public void setUp() {
+        ConversionMetrics.setEnabled(true);
+        ConversionMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        ConversionMetrics.setEnabled(false);
+        ConversionMetrics.reset();
+    }
+
+    @Test
+    public void testDisabled() {
+        ConversionMetrics.setEnabled(false);
+        assertFalse(ConversionMetrics.isEnabled());
+        GeometryUtils.wgs2gcj(39.9042, 116.4074);
+        GeometryUtils.gcj2wgsAccurate(39.9042, 116.4074);
+        assertEquals(0, ConversionMetrics.snapshot().getCalls(ConversionKind.WGS2GCJ));
+        assertEquals(0, ConversionMetrics.snapshot().getInverseSolves());
+    }
+
+    @Test
+    public void testCalls() {
+        assertTrue(ConversionMetrics.isEnabled());
+        GeometryUtils.wgs2gcj(39.9042, 116.4074);
+        GeometryUtils.wgs2gcj(new Coordinate(51.5074, -0.1278));
+        GeometryUtils.wgs2gcj(35.6762, 139.6503, new double[2]);
+        GeometryUtils.gcj2wgs(31.2304, 121.4737);
+        final ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(3, snapshot.getCalls(ConversionKind.WGS2GCJ));
+        assertEquals(2, snapshot.getPassThroughs(ConversionKind.WGS2GCJ));
+        assertEquals(2.0 / 3, snapshot.getPassThroughRatio(ConversionKind.WGS2GCJ), 1e-12);
+        assertEquals(1, snapshot.getCalls(ConversionKind.GCJ2WGS));
+        assertEquals(0, snapshot.getPassThroughRatio(ConversionKind.GCJ2WGS), 0);
+        assertEquals(0, snapshot.getPassThroughRatio(ConversionKind.GCJ2WGS_ACCURATE), 0);
+    }
+
+    @Test
+    public void testBatchCalls() {
+        final int size = 3000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            final boolean outside = i % 3 == 0;
+            lat[i] = outside ? 48.8566 : 30 + i * 1e-3;
+            lng[i] = outside ? 2.3522 : 110 + i * 1e-3;
+        }
+        GeometryUtils.wgs2gcj(lat, lng);
+        GeometryUtils.getDefaultTransformer().toBuilder().setPrecisionMode(PrecisionMode.FAST_TRIG).build()
+                .gcj2wgs(lat, lng);
+        final ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(size, snapshot.getCalls(ConversionKind.WGS2GCJ));
+        assertEquals(size / 3, snapshot.getPassThroughs(ConversionKind.WGS2GCJ));
+        assertEquals(size, snapshot.getCalls(ConversionKind.GCJ2WGS));
+        assertEquals(size / 3, snapshot.getPassThroughs(ConversionKind.GCJ2WGS));
+    }
+
+    @Test
+    public void testIterations() {
+        final double[] result = new double[2];
+        final int iterations = InverseSolver.getDefault().solve(39.9042, 116.4074, result);
+        GeometryUtils.gcj2wgsAccurate(39.9042, 116.4074);
+        GeometryUtils.gcj2wgsAccurate(51.5074, -0.1278);
+        ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(2, snapshot.getCalls(ConversionKind.GCJ2WGS_ACCURATE));
+        assertEquals(1, snapshot.getPassThroughs(ConversionKind.GCJ2WGS_ACCURATE));
+        assertEquals(1, snapshot.getInverseSolves());
+        assertEquals(1, snapshot.getIterationHistogram()[iterations]);
+        assertEquals(iterations, snapshot.getMeanIterations(), 0);
+        assertEquals(0, snapshot.getNonConverged());
+
+        GeometryUtils.getDefaultTransformer().toBuilder().setMaxInverseIterations(1).build()
+                .gcj2wgsAccurate(39.9042, 116.4074);
+        snapshot = ConversionMetrics.snapshot();
+        assertEquals(1, snapshot.getNonConverged());
+        assertEquals(1, snapshot.getIterationHistogram()[1]);
+        assertEquals(ConversionMetrics.MAX_ITERATION_BUCKET + 1, snapshot.getIterationHistogram().length);
+    }
+
+    @Test
+    public void testParseFailures() {
+        try {
+            Coordinate.parseCommaSeparatedString("39.9,abc");
+            fail("Should not parse");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Coordinate.parseCommaSeparatedHexString("zz");
+            fail("Should not parse");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Coordinate.parseCommaSeparatedString("39.9,116.4");
+        final ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+        assertEquals(1, snapshot.getParseFailures(CoordinateFormat.DECIMAL));
+        assertEquals(1, snapshot.getParseFailures(CoordinateFormat.HEX));
+    }
+
+    @Test
+    public void testReset() {
+        GeometryUtils.wgs2gcj(39.9042, 116.4074);
+        ConversionMetrics.reset();
+        assertEquals(0, ConversionMetrics.snapshot().getCalls(ConversionKind.WGS2GCJ));
+    }
+
+    @Test
+    public void testListeners() {
+        final AtomicReference<ConversionMetrics.Snapshot> received = new AtomicReference<>();
+        final ConversionMetrics.Listener listener = new ConversionMetrics.Listener() {
+            @Override
+            public void onReport(final ConversionMetrics.Snapshot snapshot) {
+                received.set(snapshot);
+            }
+        };
+        ConversionMetrics.addListener(listener);
+        try {
+            GeometryUtils.wgs2gcj(39.9042, 116.4074);
+            final ConversionMetrics.Snapshot snapshot = ConversionMetrics.report();
+            assertSame(snapshot, received.get());
+            assertEquals(1, snapshot.getCalls(ConversionKind.WGS2GCJ));
+        } finally {
+            ConversionMetrics.removeListener(listener);
+        }
+        received.set(null);
+        ConversionMetrics.report();
+        assertEquals(null, received.get());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        ConversionMetrics.registerMBean();
+        ConversionMetrics.registerMBean();
+        try {
+            final ConversionMetricsMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName(ConversionMetrics.OBJECT_NAME), ConversionMetricsMXBean.class);
+            assertTrue(bean.isEnabled());
+            GeometryUtils.wgs2gcj(39.9042, 116.4074);
+            final Map<String, Long> calls = bean.getCalls();
+            assertEquals(Long.valueOf(1), calls.get(ConversionKind.WGS2GCJ.name()));
+            assertEquals(Long.valueOf(0), bean.getPassThroughs().get(ConversionKind.WGS2GCJ.name()));
+            assertEquals(Long.valueOf(0), bean.getParseFailures().get(CoordinateFormat.HEX.name()));
+            assertArrayEquals(new long[ConversionMetrics.MAX_ITERATION_BUCKET + 1], bean.getIterationHistogram());
+            bean.reset();
+            assertEquals(Long.valueOf(0), bean.getCalls().get(ConversionKind.WGS2GCJ.name()));
+            bean.setEnabled(false);
+            assertFalse(ConversionMetrics.isEnabled());
+        } finally {
+            ConversionMetrics.unregisterMBean();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(ConversionMetrics.OBJECT_NAME)));
+    }
+
+}
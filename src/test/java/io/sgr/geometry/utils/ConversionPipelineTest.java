@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author SgrAlpha
+ */
+public class ConversionPipelineTest {
+
+    @Test
+    public void testBuild() {
+        final ConversionPipeline pipeline = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+        assertSame(GeometryUtils.getDefaultTransformer(), pipeline.getTransformer());
+        assertEquals(Arrays.asList(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD), pipeline.getSteps());
+        assertSame(Datum.WGS84, pipeline.getSource());
+        assertSame(Datum.BD09, pipeline.getTarget());
+        assertEquals("WGS84 -> GCJ02 -> BD09", pipeline.toString());
+        try {
+            pipeline.getSteps().clear();
+            fail("Steps should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder().build();
+        final ConversionPipeline reverse = ConversionPipeline.newBuilder()
+                .setTransformer(transformer)
+                .then(ConversionKind.BD2GCJ)
+                .then(ConversionKind.GCJ2WGS_ACCURATE)
+                .build();
+        assertSame(transformer, reverse.getTransformer());
+        assertSame(Datum.BD09, reverse.getSource());
+        assertSame(Datum.WGS84, reverse.getTarget());
+    }
+
+    @Test
+    public void testInvalidSteps() {
+        try {
+            ConversionPipeline.of();
+            fail("Missing steps should not be accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("At least one step should be provided", e.getMessage());
+        }
+        try {
+            ConversionPipeline.of(ConversionKind.WGS2GCJ, null);
+            fail("Missing step should not be accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Conversion kind should be provided", e.getMessage());
+        }
+        try {
+            ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.BD2GCJ);
+            fail("Broken chain should not be accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Step BD2GCJ should convert from GCJ02, but converts from BD09", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAgainstChainedConversions() {
+        final ConversionPipeline forward = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+        final ConversionPipeline backward = ConversionPipeline.of(ConversionKind.BD2GCJ, ConversionKind.GCJ2WGS_ACCURATE);
+        final Random random = new Random(20190101L);
+        final double[] result = new double[2];
+        for (int i = 0; i < 1000; i++) {
+            final double lat = 25 + random.nextDouble() * 15;
+            final double lng = 105 + random.nextDouble() * 15;
+            final Coordinate baidu = GeometryUtils.gcj2bd(GeometryUtils.wgs2gcj(lat, lng));
+            forward.convert(lat, lng, result);
+            assertEquals(baidu.getLat(), result[0], 0);
+            assertEquals(baidu.getLng(), result[1], 0);
+            assertEquals(baidu, forward.convert(new Coordinate(lat, lng)));
+            assertEquals(baidu, forward.convert(lat, lng));
+
+            final Coordinate earth = GeometryUtils.gcj2wgsAccurate(GeometryUtils.bd2gcj(baidu));
+            final Coordinate actual = backward.convert(baidu);
+            assertEquals(earth.getLat(), actual.getLat(), 0);
+            assertEquals(earth.getLng(), actual.getLng(), 0);
+            assertEquals(lat, actual.getLat(), 0.00001);
+            assertEquals(lng, actual.getLng(), 0.00001);
+        }
+    }
+
+    @Test
+    public void testCheckedOnce() {
+        final AtomicInteger checks = new AtomicInteger();
+        final CoordinateChecker checker = new CoordinateChecker() {
+            @Override
+            public boolean isOutOfChinaMainland(final double lat, final double lng) {
+                checks.incrementAndGet();
+                return lat < 30;
+            }
+        };
+        final ConversionPipeline pipeline = ConversionPipeline.newBuilder()
+                .setTransformer(CoordinateTransformer.newBuilder().setCoordinateChecker(checker).build())
+                .then(ConversionKind.WGS2GCJ)
+                .then(ConversionKind.GCJ2BD)
+                .build();
+        final Coordinate outside = new Coordinate(29, 116);
+        assertSame(outside, pipeline.convert(outside));
+        assertEquals(1, checks.get());
+
+        final double[] lat = {29, 39.9, 29.5, 31.2};
+        final double[] lng = {116, 116.4, 121, 121.5};
+        pipeline.convert(lat, lng);
+        assertEquals(5, checks.get());
+        assertEquals(29, lat[0], 0);
+        assertEquals(116, lng[0], 0);
+        assertEquals(29.5, lat[2], 0);
+        assertEquals(121, lng[2], 0);
+        final Coordinate inside = GeometryUtils.gcj2bd(GeometryUtils.wgs2gcj(39.9, 116.4));
+        assertEquals(inside.getLat(), lat[1], 0);
+        assertEquals(inside.getLng(), lng[1], 0);
+    }
+
+    @Test
+    public void testNotCheckedWhileSolving() {
+        // The GCJ coordinate is in China mainland, while the first WGS estimate is about 0.006 degree west of it
+        final CoordinateChecker checker = new CoordinateChecker() {
+            @Override
+            public boolean isOutOfChinaMainland(final double lat, final double lng) {
+                return lng < 116.4;
+            }
+        };
+        final ConversionPipeline pipeline = ConversionPipeline.newBuilder()
+                .setTransformer(CoordinateTransformer.newBuilder().setCoordinateChecker(checker).build())
+                .then(ConversionKind.BD2GCJ)
+                .then(ConversionKind.GCJ2WGS_ACCURATE)
+                .build();
+        final Coordinate baidu = new Coordinate(39.915, 116.410);
+        final Coordinate gcj = GeometryUtils.bd2gcj(baidu);
+        assertTrue(gcj.getLng() > 116.4);
+        final Coordinate expected = GeometryUtils.gcj2wgsAccurate(gcj);
+        assertTrue(expected.getLng() < 116.4);
+        final Coordinate actual = pipeline.convert(baidu);
+        assertEquals(expected.getLat(), actual.getLat(), 0);
+        assertEquals(expected.getLng(), actual.getLng(), 0);
+    }
+
+    @Test
+    public void testBatchAgainstScalar() {
+        final ConversionPipeline pipeline = ConversionPipeline.of(ConversionKind.BD2GCJ, ConversionKind.GCJ2WGS);
+        final int size = 5000;
+        final Random random = new Random(20190101L);
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            // About half of the coordinates are out of China mainland
+            lat[i] = 10 + random.nextDouble() * 50;
+            lng[i] = 60 + random.nextDouble() * 90;
+        }
+        final double[] outLat = new double[size];
+        final double[] outLng = new double[size];
+        pipeline.convert(lat, lng, 10, size - 20, outLat, outLng);
+        final double[] inPlaceLat = lat.clone();
+        final double[] inPlaceLng = lng.clone();
+        pipeline.convert(inPlaceLat, inPlaceLng);
+        final double[] expected = new double[2];
+        for (int i = 0; i < size; i++) {
+            pipeline.convert(lat[i], lng[i], expected);
+            assertEquals(expected[0], inPlaceLat[i], 0);
+            assertEquals(expected[1], inPlaceLng[i], 0);
+            if (i >= 10 && i < size - 10) {
+                assertEquals(expected[0], outLat[i], 0);
+                assertEquals(expected[1], outLng[i], 0);
+            } else {
+                assertEquals(0, outLat[i], 0);
+                assertEquals(0, outLng[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchWithInvalidRange() {
+        final ConversionPipeline pipeline = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+        try {
+            pipeline.convert(new double[4], new double[4], 2, 3, new double[4], new double[4]);
+            fail("Range out of bounds should not be accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Range [2, 5) is out of bounds", e.getMessage());
+        }
+        try {
+            pipeline.convert(new double[]{91}, new double[]{0});
+            fail("Invalid coordinate should not be accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPacked() {
+        final ConversionPipeline pipeline = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+        final long packed = GeometryUtils.pack(39.980945, 116.348120);
+        final Coordinate expected = pipeline.convert(GeometryUtils.unpackLat(packed), GeometryUtils.unpackLng(packed));
+        assertEquals(GeometryUtils.pack(expected.getLat(), expected.getLng()), pipeline.convert(packed));
+        final long outside = GeometryUtils.pack(41.558182, -73.915166);
+        assertEquals(outside, pipeline.convert(outside));
+    }
+
+    @Test
+    public void testMetrics() {
+        ConversionMetrics.setEnabled(true);
+        ConversionMetrics.reset();
+        try {
+            final ConversionPipeline pipeline = ConversionPipeline.of(ConversionKind.WGS2GCJ, ConversionKind.GCJ2BD);
+            pipeline.convert(39.9042, 116.4074);
+            pipeline.convert(51.5074, -0.1278);
+            pipeline.convert(new double[]{31.2304, 48.8566}, new double[]{121.4737, 2.3522});
+            final ConversionMetrics.Snapshot snapshot = ConversionMetrics.snapshot();
+            assertEquals(4, snapshot.getCalls(ConversionKind.WGS2GCJ));
+            assertEquals(2, snapshot.getPassThroughs(ConversionKind.WGS2GCJ));
+            assertEquals(4, snapshot.getCalls(ConversionKind.GCJ2BD));
+            assertEquals(2, snapshot.getPassThroughs(ConversionKind.GCJ2BD));
+            assertEquals(0, snapshot.getCalls(ConversionKind.BD2GCJ));
+        } finally {
+            ConversionMetrics.setEnabled(false);
+            ConversionMetrics.reset();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class CoordinateFileConverterTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConvertDecimal() throws IOException {
+        final Path input = write("39.980945,116.348120\r\n 41.558182 , -73.915166\n\n39.98229687830853,116.35430824277233");
+        final Path output = this.folder.newFile().toPath();
+        final CoordinateFileConverter converter = new CoordinateFileConverter(ConversionKind.WGS2GCJ, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL);
+        assertEquals(3, converter.convert(input, output));
+        final List<String> lines = Files.readAllLines(output, UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals(format(GeometryUtils.wgs2gcj(39.980945, 116.348120)), lines.get(0));
+        assertEquals("41.558182,-73.915166", lines.get(1));
+        assertEquals("", lines.get(2));
+        assertEquals(format(GeometryUtils.wgs2gcj(39.98229687830853, 116.35430824277233)), lines.get(3));
+    }
+
+    @Test
+    public void testConvertHex() throws IOException {
+        final Path input = write("02c94442,04f21576\n02efe6e4,f8a92474\n");
+        final Path output = this.folder.newFile().toPath();
+        new CoordinateFileConverter(ConversionKind.GCJ2WGS, CoordinateFormat.HEX, CoordinateFormat.HEX).convert(input, output);
+        final List<String> lines = Files.readAllLines(output, UTF_8);
+        assertEquals(2, lines.size());
+        final Coordinate first = GeometryUtils.gcj2wgs(Coordinate.parseCommaSeparatedHexString("02c94442,04f21576"));
+        assertEquals(String.format("%08x,%08x", first.getLatE6(), first.getLngE6()), lines.get(0));
+        assertEquals("02efe6e4,f8a92474", lines.get(1));
+
+        new CoordinateFileConverter(ConversionKind.GCJ2WGS, CoordinateFormat.HEX, CoordinateFormat.DECIMAL, 3).convert(input, output);
+        assertEquals("49.277,-123.133", Files.readAllLines(output, UTF_8).get(1));
+    }
+
+    @Test
+    public void testHexPassThrough() throws IOException {
+        // Decoded to -67.065019, which floors back to fc00ab44
+        final String content = "fc00ab45,00989680\n";
+        final Path input = write(content);
+        final Path output = this.folder.newFile().toPath();
+        new CoordinateFileConverter(ConversionKind.WGS2GCJ, CoordinateFormat.HEX, CoordinateFormat.HEX).convert(input, output);
+        assertArrayEquals(content.getBytes(UTF_8), Files.readAllBytes(output));
+    }
+
+    @Test
+    public void testConvertInParallel() throws IOException {
+        final Random random = new Random(20190101L);
+        final StringBuilder builder = new StringBuilder();
+        final int size = 50000;
+        for (int i = 0; i < size; i++) {
+            builder.append(String.format(Locale.US, "%.6f,%.6f\n", 20 + random.nextDouble() * 30, 95 + random.nextDouble() * 40));
+        }
+        final Path input = write(builder.toString());
+        final Path sequential = this.folder.newFile().toPath();
+        final Path parallel = this.folder.newFile().toPath();
+        final Path windowed = this.folder.newFile().toPath();
+        new CoordinateFileConverter(ConversionKind.GCJ2WGS_ACCURATE, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL).convert(input, sequential);
+        assertEquals(size, new CoordinateFileConverter(ConversionKind.GCJ2WGS_ACCURATE, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL).convert(input, parallel, 4));
+        assertEquals(size, new CoordinateFileConverter(ConversionKind.GCJ2WGS_ACCURATE, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL, 6, 4099).convert(input, windowed));
+        final byte[] expected = Files.readAllBytes(sequential);
+        assertArrayEquals(expected, Files.readAllBytes(parallel));
+        assertArrayEquals(expected, Files.readAllBytes(windowed));
+
+        final List<String> lines = Files.readAllLines(sequential, UTF_8);
+        assertEquals(size, lines.size());
+        final List<String> inputs = Files.readAllLines(input, UTF_8);
+        for (int i = 0; i < size; i += 997) {
+            assertEquals(format(GeometryUtils.gcj2wgsAccurate(Coordinate.parseCommaSeparatedString(inputs.get(i)))), lines.get(i));
+        }
+    }
+
+    @Test
+    public void testInvalidLine() throws IOException {
+        final Path input = write("39.980945,116.348120\n39.980945\n");
+        try {
+            new CoordinateFileConverter(ConversionKind.WGS2GCJ, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL).convert(input, this.folder.newFile().toPath());
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid line at byte 21", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFractionDigits() {
+        new CoordinateFileConverter(ConversionKind.WGS2GCJ, CoordinateFormat.DECIMAL, CoordinateFormat.DECIMAL, 10);
+    }
+
+    private Path write(final String content) throws IOException {
+        final Path file = this.folder.newFile().toPath();
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+
+    private static String format(final Coordinate coordinate) {
+        return String.format(Locale.US, "%.6f,%.6f", coordinate.getLat(), coordinate.getLng());
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class CoordinateParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] DECIMALS = {
+            "39.980945,116.348120", " 39.980945 , 116.348120 ", "3 9.980945,116.34 8120", "39.980945,116.348120,,",
+            "-0,-0.0", "+1.5,.5", "1.,2e1", "1E-2,-2.5e+1", "\t39.9,116.3", "39.9d,116.3f", "0x1p3,1", "Infinity,0",
+            "NaN,0", "0.1234567890123456789,12345678901234567890e-18", "1e-400,1", "100,200", "1,2,3", "1,,2", ",1",
+            "1", "", " ", ",", "a,b", "1..2,3", "1e,2", "-,1", "1e5 5,1", "--1,2", "1,2,3,", "45.000000001,90"
+    };
+
+    private static final String[] HEXES = {
+            "02c94442,04f21576", "02efe6e4,f8a92474", " 02c9 4442 , 04f21576 ", "-ff,+ff", "02c94442,04f21576,",
+            "ffffffff02c94442,0", "7fffffffffffffff,0", "8000000000000000,0", "-8000000000000000,0", "g,g", "", ",",
+            "1", "1,2,3", "-,1", "+,1", "0x1,1", "FFFFFF,ABCDEF"
+    };
+
+    @Test
+    public void testSameAsStringParsing() {
+        for (String raw : DECIMALS) {
+            assertSame(raw, CoordinateFormat.DECIMAL);
+        }
+        for (String raw : HEXES) {
+            assertSame(raw, CoordinateFormat.HEX);
+        }
+    }
+
+    @Test
+    public void testRandomDecimals() {
+        final Random random = new Random(20190101L);
+        for (int i = 0; i < 100000; i++) {
+            double lat = (random.nextDouble() - 0.5) * 180;
+            double lng = (random.nextDouble() - 0.5) * 360;
+            assertSame(Double.toString(lat) + "," + Double.toString(lng), CoordinateFormat.DECIMAL);
+            assertSame(String.format("%." + random.nextInt(12) + "f,%." + random.nextInt(12) + "f", lat, lng), CoordinateFormat.DECIMAL);
+        }
+    }
+
+    @Test
+    public void testParseCharSequence() {
+        final double[] result = new double[2];
+        final StringBuilder builder = new StringBuilder("lat,lng=39.980945,116.348120;");
+        CoordinateParser.parse(builder, 8, 20, CoordinateFormat.DECIMAL, result);
+        assertEquals(39.980945, result[0], 0);
+        assertEquals(116.348120, result[1], 0);
+        CoordinateParser.parse("02c94442,04f21576", CoordinateFormat.HEX, result);
+        assertEquals(46.744642, result[0], 0);
+        assertEquals(82.97407, result[1], 0);
+        final StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longText.append(' ');
+        }
+        longText.append("1.5,2.5");
+        CoordinateParser.parse(longText, CoordinateFormat.DECIMAL, result);
+        assertEquals(1.5, result[0], 0);
+        assertEquals(2.5, result[1], 0);
+        try {
+            CoordinateParser.parse("1.5,\u00e92.5", CoordinateFormat.DECIMAL, result);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid comma separated coordinate string: 1.5,\u00e92.5", e.getMessage());
+        }
+        try {
+            CoordinateParser.parse((CharSequence) null, CoordinateFormat.HEX, result);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid comma separated coordinate hex string: null", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseOutOfBounds() {
+        CoordinateParser.parse("1,2", 1, 3, CoordinateFormat.DECIMAL, new double[2]);
+    }
+
+    private static void assertSame(final String raw, final CoordinateFormat format) {
+        Coordinate expected = null;
+        String expectedError = null;
+        try {
+            expected = format == CoordinateFormat.HEX ? parseHexString(raw) : parseString(raw);
+        } catch (IllegalArgumentException e) {
+            expectedError = e.getMessage();
+        }
+        final byte[] bytes = ("#" + raw + "#").getBytes(UTF_8);
+        final double[] result = new double[2];
+        try {
+            CoordinateParser.parse(bytes, 1, bytes.length - 2, format, result);
+            if (expected == null) {
+                fail("There should be an IllegalArgumentException for " + raw);
+            }
+            assertSameValue(raw, expected, result);
+        } catch (IllegalArgumentException e) {
+            if (expected != null) {
+                throw new AssertionError("Unexpected failure for " + raw, e);
+            }
+            assertEquals(expectedError, e.getMessage());
+        }
+        try {
+            final Coordinate coordinate = format == CoordinateFormat.HEX ? Coordinate.parseCommaSeparatedHexString(raw) : Coordinate.parseCommaSeparatedString(raw);
+            if (expected == null) {
+                fail("There should be an IllegalArgumentException for " + raw);
+            }
+            assertSameValue(raw, expected, new double[]{coordinate.getLat(), coordinate.getLng()});
+        } catch (IllegalArgumentException e) {
+            if (expected != null) {
+                throw new AssertionError("Unexpected failure for " + raw, e);
+            }
+            assertEquals(expectedError, e.getMessage());
+        }
+    }
+
+    private static void assertSameValue(final String raw, final Coordinate expected, final double[] result) {
+        assertEquals(raw, Double.doubleToLongBits(expected.getLat()), Double.doubleToLongBits(result[0]));
+        assertEquals(raw, Double.doubleToLongBits(expected.getLng()), Double.doubleToLongBits(result[1]));
+    }
+
+    /*
+     * String based parsing used by Coordinate before CoordinateParser, kept as the reference behavior.
+     */
+    private static Coordinate parseString(final String raw) {
+        if (raw == null || raw.trim().length() < 1) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", raw));
+        }
+        String[] array = raw.replaceAll(" ", "").split(",");
+        if (array.length != 2) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", raw));
+        }
+        try {
+            return new Coordinate(Double.parseDouble(array[0]), Double.parseDouble(array[1]));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate string: %s", raw));
+        }
+    }
+
+    private static Coordinate parseHexString(final String raw) {
+        if (raw == null || raw.trim().length() < 1) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", raw));
+        }
+        String[] tmp = raw.replaceAll(" ", "").split(",");
+        if (tmp.length != 2) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", raw));
+        }
+        try {
+            long latE6 = (int) Long.parseLong(tmp[0], 16);
+            long lngE6 = (int) Long.parseLong(tmp[1], 16);
+            return new Coordinate(latE6 / 1e6, lngE6 / 1e6);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(String.format("Invalid comma separated coordinate hex string: %s", raw), e);
+        }
+    }
+
+}
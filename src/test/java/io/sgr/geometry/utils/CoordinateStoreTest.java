@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+import io.sgr.geometry.WeightedLocation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class CoordinateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndGet() {
+        final CoordinateStore store = CoordinateStore.allocate(3, false);
+        assertFalse(store.isWeighted());
+        assertEquals(0, store.append(new Coordinate(39.980945, 116.348120)));
+        assertEquals(1, store.append(-33.865143, 151.209900));
+        assertEquals(2, store.size());
+        assertEquals(39980945, store.getLatE6(0));
+        assertEquals(116348120, store.getLngE6(0));
+        assertEquals(new Coordinate(39.980945, 116.348120), store.get(0));
+        assertEquals(-33.865143, store.getLat(1), 0);
+        assertEquals(151.209900, store.getLng(1), 0);
+        assertEquals(1, store.getWeight(1), 0);
+        store.set(1, 10, 20);
+        assertEquals(new Coordinate(10, 20), store.get(1));
+        store.append(0, 0);
+        try {
+            store.append(0, 0);
+            fail("There should be an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Store is full, capacity is 3", e.getMessage());
+        }
+        store.clear();
+        assertEquals(0, store.size());
+        try {
+            store.get(0);
+            fail("There should be an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals("Index should be in range [0, 0), but got 0", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendInvalidCoordinate() {
+        CoordinateStore.allocate(1, false).append(91, 0);
+    }
+
+    @Test
+    public void testSameAsCoordinateE6() {
+        final Random random = new Random(20190101L);
+        final CoordinateStore store = CoordinateStore.allocate(100000, false);
+        for (int i = 0; i < store.capacity(); i++) {
+            final Coordinate coordinate = new Coordinate((random.nextDouble() - 0.5) * 180, (random.nextDouble() - 0.5) * 360);
+            store.append(coordinate);
+            assertEquals(coordinate.getLatE6(), store.getLatE6(i));
+            assertEquals(coordinate.getLngE6(), store.getLngE6(i));
+            // Values read back are stored as the same E6 values again
+            store.set(i, store.getLat(i), store.getLng(i));
+            assertEquals(coordinate.getLatE6(), store.getLatE6(i));
+            assertEquals(coordinate.getLngE6(), store.getLngE6(i));
+        }
+    }
+
+    @Test
+    public void testSameAsCoordinateE6OfDecodedValues() {
+        // -67.065019 times 1e6 rounds down to less than -67065019
+        final Coordinate coordinate = new Coordinate(-67.065019, 10);
+        final CoordinateStore store = CoordinateStore.allocate(1, false);
+        store.append(coordinate);
+        assertEquals(-67065019, coordinate.getLatE6());
+        assertEquals(coordinate.getLatE6(), store.getLatE6(0));
+        assertEquals(coordinate.getLngE6(), store.getLngE6(0));
+        assertEquals(coordinate, store.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendNaNWeight() {
+        CoordinateStore.allocate(1, true).append(0, 0, Float.NaN);
+    }
+
+    @Test
+    public void testWeighted() {
+        final CoordinateStore store = CoordinateStore.allocate(2, true);
+        assertTrue(store.isWeighted());
+        store.append(new WeightedLocation(new Coordinate(39.980945, 116.348120), 2.5f));
+        store.append(1, 2);
+        assertEquals(2.5f, store.getWeight(0), 0);
+        assertEquals(1f, store.getWeight(1), 0);
+        final WeightedLocation location = store.getWeightedLocation(0);
+        assertEquals(new Coordinate(39.980945, 116.348120), location.getLocation());
+        assertEquals(2.5f, location.getWeight(), 0);
+    }
+
+    @Test
+    public void testConvert() {
+        final CoordinateStore store = CoordinateStore.allocate(3, false);
+        store.append(39.980945, 116.348120);
+        store.append(41.558182, -73.915166);
+        store.append(31.230416, 121.473701);
+        store.convert(ConversionKind.WGS2GCJ, 0, 2);
+        final Coordinate expected = GeometryUtils.wgs2gcj(new Coordinate(39.980945, 116.348120));
+        assertEquals(expected.getLatE6(), store.getLatE6(0));
+        assertEquals(expected.getLngE6(), store.getLngE6(0));
+        assertEquals(41558182, store.getLatE6(1));
+        assertEquals(-73915166, store.getLngE6(1));
+        assertEquals(31230416, store.getLatE6(2));
+        store.convert(ConversionKind.GCJ2WGS_ACCURATE);
+        assertEquals(39.980945, store.getLat(0), 2e-6);
+        assertEquals(116.348120, store.getLng(0), 2e-6);
+        try {
+            store.convert(ConversionKind.WGS2GCJ, 2, 2);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Range [2, 4) is out of bounds", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        final Path file = this.folder.newFile().toPath();
+        final CoordinateStore store = CoordinateStore.create(file, 10, true);
+        store.append(39.980945, 116.348120, 3);
+        store.append(-33.865143, 151.209900, 4);
+        store.force();
+        assertEquals(CoordinateStore.HEADER_SIZE + 10 * 12, Files.size(file));
+
+        final CoordinateStore reopened = CoordinateStore.open(file);
+        assertEquals(2, reopened.size());
+        assertEquals(10, reopened.capacity());
+        assertTrue(reopened.isWeighted());
+        assertEquals(new Coordinate(-33.865143, 151.209900), reopened.get(1));
+        assertEquals(4, reopened.getWeight(1), 0);
+        reopened.append(1, 2, 5);
+        assertEquals(3, CoordinateStore.open(file).size());
+    }
+
+    @Test
+    public void testWriteTo() throws IOException {
+        final CoordinateStore store = CoordinateStore.allocate(100, false);
+        store.append(39.980945, 116.348120);
+        store.append(-33.865143, 151.209900);
+        final Path file = this.folder.newFile().toPath();
+        store.writeTo(file);
+        assertEquals(CoordinateStore.HEADER_SIZE + 2 * 8, Files.size(file));
+        final CoordinateStore reopened = CoordinateStore.open(file);
+        assertEquals(2, reopened.capacity());
+        assertFalse(reopened.isWeighted());
+        assertEquals(new Coordinate(39.980945, 116.348120), reopened.get(0));
+        assertEquals(new Coordinate(-33.865143, 151.209900), reopened.get(1));
+    }
+
+    @Test
+    public void testOpenInvalidFile() throws IOException {
+        final Path file = this.folder.newFile().toPath();
+        Files.write(file, new byte[64]);
+        try {
+            CoordinateStore.open(file);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(String.format("Invalid coordinate store file: %s", file), e.getMessage());
+        }
+    }
+
+}
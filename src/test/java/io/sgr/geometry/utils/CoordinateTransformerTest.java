@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author SgrAlpha
+ */
+public class CoordinateTransformerTest {
+
+    private static final CoordinateChecker NOWHERE_IS_CHINA = new CoordinateChecker() {
+        @Override
+        public boolean isOutOfChinaMainland(final double lat, final double lng) {
+            return true;
+        }
+    };
+
+    @Test
+    public void testDefaults() {
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder().build();
+        assertTrue(transformer.getCoordinateChecker() instanceof DefaultCoordinateChecker);
+        assertSame(PrecisionMode.EXACT, transformer.getPrecisionMode());
+        assertNull(transformer.getOffsetTable());
+        assertSame(InverseSolver.getDefault(), transformer.getInverseSolver());
+
+        final double[] expected = new double[2];
+        final double[] actual = new double[2];
+        GeometryUtils.exactDelta(39.980945, 116.348120, expected);
+        transformer.wgs2gcj(39.980945, 116.348120, actual);
+        assertEquals(39.980945 + expected[0], actual[0], 0);
+        assertEquals(116.348120 + expected[1], actual[1], 0);
+        final Coordinate earth = transformer.gcj2wgsAccurate(actual[0], actual[1]);
+        assertEquals(39.980945, earth.getLat(), 0.000001);
+        assertEquals(116.348120, earth.getLng(), 0.000001);
+    }
+
+    @Test
+    public void testToBuilder() {
+        final OffsetTable table = new OffsetTable(0.05);
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder()
+                .setCoordinateChecker(NOWHERE_IS_CHINA)
+                .setPrecisionMode(PrecisionMode.TABLE)
+                .setOffsetTable(table)
+                .setInverseTolerance(0.0001)
+                .setMaxInverseIterations(3)
+                .build();
+        final CoordinateTransformer copy = transformer.toBuilder().build();
+        assertNotSame(transformer, copy);
+        assertSame(NOWHERE_IS_CHINA, copy.getCoordinateChecker());
+        assertSame(PrecisionMode.TABLE, copy.getPrecisionMode());
+        assertSame(table, copy.getOffsetTable());
+        assertEquals(0.0001, copy.getInverseSolver().getTolerance(), 0);
+        assertEquals(3, copy.getInverseSolver().getMaxIterations());
+
+        final CoordinateTransformer reset = transformer.toBuilder().setCoordinateChecker(null).setPrecisionMode(null).build();
+        assertTrue(reset.getCoordinateChecker() instanceof DefaultCoordinateChecker);
+        assertSame(PrecisionMode.EXACT, reset.getPrecisionMode());
+        assertSame(NOWHERE_IS_CHINA, transformer.getCoordinateChecker());
+    }
+
+    @Test
+    public void testPrecisionMode() {
+        final OffsetTable table = new OffsetTable(0.05);
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder()
+                .setPrecisionMode(PrecisionMode.TABLE)
+                .setOffsetTable(table)
+                .build();
+        final double[] expected = new double[2];
+        final double[] actual = new double[2];
+        table.delta(31.2304, 121.4737, expected);
+        transformer.wgs2gcj(31.2304, 121.4737, actual);
+        assertEquals(31.2304 + expected[0], actual[0], 0);
+        assertEquals(121.4737 + expected[1], actual[1], 0);
+    }
+
+    @Test
+    public void testInverseTolerance() {
+        final Coordinate gcj = GeometryUtils.wgs2gcj(39.980945, 116.348120);
+        final double[] exact = new double[2];
+        GeometryUtils.gcj2wgsAccurate(gcj.getLat(), gcj.getLng(), exact);
+        final CoordinateTransformer once = CoordinateTransformer.newBuilder().setMaxInverseIterations(1).build();
+        final double[] rough = new double[2];
+        once.gcj2wgsAccurate(gcj.getLat(), gcj.getLng(), rough);
+        final double[] plain = new double[2];
+        once.gcj2wgs(gcj.getLat(), gcj.getLng(), plain);
+        assertEquals(plain[0], rough[0], 0);
+        assertEquals(plain[1], rough[1], 0);
+        assertTrue(Math.abs(rough[0] - exact[0]) > 0.000001 || Math.abs(rough[1] - exact[1]) > 0.000001);
+
+        try {
+            CoordinateTransformer.newBuilder().setInverseTolerance(0).build();
+            fail("Should not build with a tolerance of 0");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Tolerance should be greater than 0, but got 0.0", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInstancesAreIndependent() throws Exception {
+        final CoordinateTransformer china = CoordinateTransformer.newBuilder().build();
+        final CoordinateTransformer nowhere = CoordinateTransformer.newBuilder().setCoordinateChecker(NOWHERE_IS_CHINA).build();
+        final Coordinate expected = GeometryUtils.wgs2gcj(39.980945, 116.348120);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                final boolean inChina = t % 2 == 0;
+                futures[t] = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final double[] result = new double[2];
+                        for (int i = 0; i < 10000; i++) {
+                            (inChina ? china : nowhere).wgs2gcj(39.980945, 116.348120, result);
+                            assertEquals(inChina ? expected.getLat() : 39.980945, result[0], 0);
+                            assertEquals(inChina ? expected.getLng() : 116.348120, result[1], 0);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        final CoordinateTransformer nowhere = CoordinateTransformer.newBuilder().setCoordinateChecker(NOWHERE_IS_CHINA).build();
+        final double[] lat = {39.980945, 31.2304};
+        final double[] lng = {116.348120, 121.4737};
+        final long[] mask = new long[1];
+        nowhere.checkOutOfChinaMainland(lat, lng, 0, 2, mask);
+        assertEquals(3L, mask[0]);
+        nowhere.wgs2gcj(lat, lng);
+        assertEquals(39.980945, lat[0], 0);
+        assertEquals(121.4737, lng[1], 0);
+
+        final double[] outLat = new double[2];
+        final double[] outLng = new double[2];
+        CoordinateTransformer.newBuilder().build().wgs2gcj(lat, lng, 0, 2, outLat, outLng);
+        final Coordinate expected = GeometryUtils.wgs2gcj(31.2304, 121.4737);
+        assertEquals(expected.getLat(), outLat[1], 0);
+        assertEquals(expected.getLng(), outLng[1], 0);
+    }
+
+    @Test
+    public void testDefaultTransformer() {
+        final CoordinateTransformer original = GeometryUtils.getDefaultTransformer();
+        try {
+            GeometryUtils.setCoordinateChecker(NOWHERE_IS_CHINA);
+            final CoordinateTransformer changed = GeometryUtils.getDefaultTransformer();
+            assertNotSame(original, changed);
+            assertSame(NOWHERE_IS_CHINA, changed.getCoordinateChecker());
+            assertTrue(original.getCoordinateChecker() instanceof DefaultCoordinateChecker);
+            final Coordinate unchanged = GeometryUtils.wgs2gcj(39.980945, 116.348120);
+            assertEquals(39.980945, unchanged.getLat(), 0);
+            assertEquals(116.348120, unchanged.getLng(), 0);
+        } finally {
+            GeometryUtils.setDefaultTransformer(null);
+        }
+        assertTrue(GeometryUtils.getDefaultTransformer().getCoordinateChecker() instanceof DefaultCoordinateChecker);
+        assertSame(PrecisionMode.EXACT, GeometryUtils.getDefaultTransformer().getPrecisionMode());
+    }
+
+}
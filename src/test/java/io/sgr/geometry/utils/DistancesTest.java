@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class DistancesTest {
+
+    @Test
+    public void testDistance() {
+        final Coordinate beijing = new Coordinate(39.9042, 116.4074);
+        final Coordinate shanghai = new Coordinate(31.2304, 121.4737);
+        assertEquals(1067300, Distances.distance(beijing, shanghai), 100);
+        assertEquals(Distances.distance(beijing, shanghai), Distances.distance(shanghai, beijing), 1e-6);
+        assertEquals(0, Distances.distance(beijing, beijing), 0);
+
+        // One degree of a great circle
+        assertEquals(Distances.EARTH_RADIUS * Math.PI / 180, Distances.haversine(0, 0, 0, 1), 1e-6);
+        assertEquals(Distances.EARTH_RADIUS * Math.PI, Distances.haversine(90, 0, -90, 0), 1e-6);
+        // Across the antimeridian
+        assertEquals(Distances.haversine(0, 179.5, 0, -179.5), Distances.haversine(0, 0, 0, 1), 1e-6);
+        assertEquals(Distances.haversine(0, 179.5, 0, -179.5), Distances.equirectangular(0, 179.5, 0, -179.5), 1e-6);
+    }
+
+    @Test
+    public void testVincenty() {
+        // Flinders Peak to Buninyong, from the paper of Vincenty
+        assertEquals(54972.271, Distances.vincenty(-37.95103342, 144.42486789, -37.65282114, 143.92649554), 1e-3);
+        // A quarter of the equator and a meridian
+        assertEquals(10018754.171, Distances.vincenty(0, 0, 0, 90), 1e-3);
+        assertEquals(10001965.729, Distances.vincenty(0, 0, 90, 0), 1e-3);
+        assertEquals(0, Distances.vincenty(30, 120, 30, 120), 0);
+        // Nearly antipodal points still have a distance
+        final double antipodal = Distances.vincenty(0, 0, 0.5, 179.7);
+        assertTrue(antipodal > 19900000 && antipodal < 20100000);
+    }
+
+    @Test
+    public void testErrorBounds() {
+        final Random random = new Random(19);
+        for (int i = 0; i < 100000; i++) {
+            final double lat1 = random.nextDouble() * 140 - 70;
+            final double lng1 = random.nextDouble() * 358 - 179;
+            final double lat2 = Math.max(-70, Math.min(70, lat1 + random.nextDouble() * 1.6 - 0.8));
+            final double lng2 = lng1 + random.nextDouble() * 1.6 - 0.8;
+            final double haversine = Distances.haversine(lat1, lng1, lat2, lng2);
+            final double vincenty = Distances.vincenty(lat1, lng1, lat2, lng2);
+            assertEquals(vincenty, haversine, vincenty * 0.006);
+            if (haversine <= 100000) {
+                assertEquals(haversine, Distances.equirectangular(lat1, lng1, lat2, lng2), haversine * 0.0001);
+            }
+        }
+    }
+
+    @Test
+    public void testInitialBearing() {
+        assertEquals(0, Distances.initialBearing(0, 0, 1, 0), 1e-9);
+        assertEquals(90, Distances.initialBearing(0, 0, 0, 1), 1e-9);
+        assertEquals(180, Distances.initialBearing(1, 0, 0, 0), 1e-9);
+        assertEquals(270, Distances.initialBearing(0, 1, 0, 0), 1e-9);
+        assertEquals(0, Distances.initialBearing(10, 10, 10, 10), 0);
+        assertEquals(90, Distances.initialBearing(new Coordinate(0, 179.5), new Coordinate(0, -179.5)), 1e-9);
+        final double bearing = Distances.initialBearing(new Coordinate(39.9042, 116.4074), new Coordinate(31.2304, 121.4737));
+        assertEquals(153.0727, bearing, 1e-4);
+    }
+
+    @Test
+    public void testBatch() {
+        final Random random = new Random(23);
+        final int size = 50;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = random.nextDouble() * 20 + 20;
+            lng[i] = random.nextDouble() * 20 + 100;
+        }
+        for (DistanceMethod method : DistanceMethod.values()) {
+            final double[] oneToMany = new double[size];
+            Distances.distances(lat[0], lng[0], lat, lng, 1, size - 1, method, oneToMany);
+            assertEquals(0, oneToMany[0], 0);
+            for (int i = 1; i < size; i++) {
+                assertEquals(Distances.distance(lat[0], lng[0], lat[i], lng[i], method), oneToMany[i], 0);
+            }
+            final double[] manyToMany = new double[size * size];
+            Distances.distances(lat, lng, lat, lng, method, manyToMany);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    assertEquals(Distances.distance(lat[i], lng[i], lat[j], lng[j], method), manyToMany[i * size + j], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWithinRadius() {
+        final Random random = new Random(29);
+        final int size = 20000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = random.nextDouble() * 180 - 90;
+            lng[i] = random.nextDouble() * 360 - 180;
+        }
+        final double[][] centers = {{39.9, 116.4}, {0, 179.9}, {88, 0}, {-60, -170}};
+        final double[] radiuses = {0, 10000, 500000, 3000000, 25000000};
+        final int[] indexes = new int[size];
+        for (double[] center : centers) {
+            for (double radius : radiuses) {
+                final int count = Distances.withinRadius(center[0], center[1], radius, lat, lng, 0, size, indexes);
+                int k = 0;
+                for (int i = 0; i < size; i++) {
+                    if (Distances.haversine(center[0], center[1], lat[i], lng[i]) <= radius) {
+                        assertEquals(i, indexes[k++]);
+                    }
+                }
+                assertEquals(k, count);
+            }
+        }
+        // Exactly on the circle
+        final double radius = Distances.haversine(30, 120, 30, 121);
+        assertEquals(2, Distances.withinRadius(30, 120, radius, new double[]{30, 30, 30}, new double[]{121, 119, 121.001}, 0, 3, indexes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRadius() {
+        Distances.withinRadius(0, 0, -1, new double[1], new double[1], 0, 1, new int[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResultTooSmall() {
+        Distances.distances(new double[2], new double[2], new double[3], new double[3], DistanceMethod.HAVERSINE, new double[5]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCoordinate() {
+        Distances.distance(91, 0, 0, 0, DistanceMethod.VINCENTY);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class FastTrigTest {
+
+    @Test
+    public void testSinCos() {
+        final double[] out = new double[2];
+        for (int i = -100000; i <= 100000; i++) {
+            final double angle = i * 0.003;
+            FastTrig.sinCos(angle, out);
+            assertEquals(Math.sin(angle), out[0], 1e-15);
+            assertEquals(Math.cos(angle), out[1], 1e-15);
+        }
+    }
+
+    @Test
+    public void testErrorAgainstExact() {
+        final Random random = new Random(20190101L);
+        final double[] exact = new double[2];
+        final double[] fast = new double[2];
+        for (int i = 0; i < 200000; i++) {
+            double lat = 0.8293 + random.nextDouble() * (55.8271 - 0.8293);
+            double lng = 72.004 + random.nextDouble() * (137.8347 - 72.004);
+            GeometryUtils.exactDelta(lat, lng, exact);
+            FastTrig.delta(lat, lng, fast);
+            assertEquals(exact[0], fast[0], FastTrig.MAX_ERROR);
+            assertEquals(exact[1], fast[1], FastTrig.MAX_ERROR);
+
+            lat = -85 + random.nextDouble() * 170;
+            lng = -180 + random.nextDouble() * 360;
+            GeometryUtils.exactDelta(lat, lng, exact);
+            FastTrig.delta(lat, lng, fast);
+            assertEquals(exact[0], fast[0], FastTrig.MAX_ERROR);
+            assertEquals(exact[1], fast[1], FastTrig.MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void testFastTrigMode() {
+        try {
+            GeometryUtils.setPrecisionMode(PrecisionMode.FAST_TRIG);
+            Coordinate mars = GeometryUtils.wgs2gcj(new Coordinate(39.980945, 116.348120));
+            assertEquals(39.982296901199675, mars.getLat(), FastTrig.MAX_ERROR);
+            assertEquals(116.35430834755688, mars.getLng(), FastTrig.MAX_ERROR);
+            Coordinate earth = GeometryUtils.gcj2wgsAccurate(new Coordinate(39.98229687830853, 116.35430824277233));
+            assertEquals(39.980945, earth.getLat(), 0.000001);
+            assertEquals(116.348120, earth.getLng(), 0.000001);
+        } finally {
+            GeometryUtils.setPrecisionMode(null);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author SgrAlpha
+ */
+public class ForkJoinPoolsTest {
+
+    @Test
+    public void testShared() throws Exception {
+        final ForkJoinPool pool = ForkJoinPools.get(3);
+        assertSame(pool, ForkJoinPools.get(3));
+        assertNotSame(pool, ForkJoinPools.get(2));
+        assertEquals(3, pool.getParallelism());
+        final Thread worker = pool.submit(new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        }).get();
+        assertTrue(worker.isDaemon());
+        assertTrue(worker.getName().startsWith("geometry-pool-3-worker-"));
+        assertFalse(pool.isShutdown());
+    }
+
+    @Test
+    public void testInvalidParallelism() {
+        try {
+            ForkJoinPools.get(0);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Parallelism should be at least 1, but got 0", e.getMessage());
+        }
+    }
+
+}
@@ -17,12 +17,21 @@
 
 package io.sgr.geometry.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import io.sgr.geometry.Coordinate;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 /**
  * @author SgrAlpha
  */
@@ -44,7 +53,7 @@ public class GeometryUtilsTest {
 
     @Test
     public void testMarsToEarth() {
-        Coordinate earth = GeometryUtils.gcj2wgsAccurate(new Coordinate(39.98229687830853, 116.35430824277233));
+        Coordinate earth = GeometryUtils.gcj2wgsAccurate(new Coordinate(39.982296901199675, 116.35430834755688));
         assertEquals(39.980945, earth.getLat(), 0.000001);
         assertEquals(116.348120, earth.getLng(), 0.000001);
         assertEquals(39980945, earth.getLatE6());
@@ -67,4 +76,333 @@ public class GeometryUtilsTest {
         assertEquals(-73915166, outOfChina.getLngE6());
     }
 
+    @Test
+    public void testMarsToBaidu() {
+        Coordinate baidu = GeometryUtils.gcj2bd(new Coordinate(39.915, 116.404));
+        assertEquals(39.92133699351021, baidu.getLat(), 0.000001);
+        assertEquals(116.41036949371029, baidu.getLng(), 0.000001);
+        Coordinate outOfChina = GeometryUtils.gcj2bd(new Coordinate(41.558182, -73.915166));
+        assertEquals(41.558182, outOfChina.getLat(), 0);
+        assertEquals(-73.915166, outOfChina.getLng(), 0);
+
+        final double[] lat = {39.915, 41.558182};
+        final double[] lng = {116.404, -73.915166};
+        GeometryUtils.gcj2bd(lat, lng);
+        assertEquals(baidu.getLat(), lat[0], 0);
+        assertEquals(baidu.getLng(), lng[0], 0);
+        assertEquals(41.558182, lat[1], 0);
+        assertEquals(-73.915166, lng[1], 0);
+    }
+
+    @Test
+    public void testBaiduToMars() {
+        Coordinate mars = GeometryUtils.bd2gcj(new Coordinate(39.915, 116.404));
+        assertEquals(39.90865673957631, mars.getLat(), 0.000001);
+        assertEquals(116.39762729119315, mars.getLng(), 0.000001);
+        Coordinate outOfChina = GeometryUtils.bd2gcj(new Coordinate(41.558182, -73.915166));
+        assertEquals(41.558182, outOfChina.getLat(), 0);
+        assertEquals(-73.915166, outOfChina.getLng(), 0);
+
+        // Round trips are accurate to about 1e-5 degree, like the well known implementations
+        mars = GeometryUtils.bd2gcj(GeometryUtils.gcj2bd(new Coordinate(39.915, 116.404)));
+        assertEquals(39.915, mars.getLat(), 0.00001);
+        assertEquals(116.404, mars.getLng(), 0.00001);
+        assertEquals(GeometryUtils.gcj2bd(GeometryUtils.pack(39.915, 116.404)), GeometryUtils.pack(39.92133699351021, 116.41036949371029));
+    }
+
+    @Test
+    public void testBatchEarthToMars() {
+        double[] lat = {39.980945, 41.558182, 31.230416};
+        double[] lng = {116.348120, -73.915166, 121.473701};
+        double[] outLat = new double[3];
+        double[] outLng = new double[3];
+        GeometryUtils.wgs2gcj(lat, lng, 0, lat.length, outLat, outLng);
+        for (int i = 0; i < lat.length; i++) {
+            Coordinate expected = GeometryUtils.wgs2gcj(new Coordinate(lat[i], lng[i]));
+            assertEquals(expected.getLat(), outLat[i], 0);
+            assertEquals(expected.getLng(), outLng[i], 0);
+        }
+        GeometryUtils.wgs2gcj(lat, lng);
+        assertArrayEquals(outLat, lat, 0);
+        assertArrayEquals(outLng, lng, 0);
+    }
+
+    @Test
+    public void testBatchMarsToEarth() {
+        double[] lat = {0, 39.98229687830853, 41.558182, 0};
+        double[] lng = {0, 116.35430824277233, -73.915166, 0};
+        double[] accurateLat = new double[4];
+        double[] accurateLng = new double[4];
+        GeometryUtils.gcj2wgsAccurate(lat, lng, 1, 2, accurateLat, accurateLng);
+        assertEquals(0, accurateLat[0], 0);
+        assertEquals(0, accurateLat[3], 0);
+        for (int i = 1; i < 3; i++) {
+            Coordinate expected = GeometryUtils.gcj2wgsAccurate(new Coordinate(lat[i], lng[i]));
+            assertEquals(expected.getLat(), accurateLat[i], 0);
+            assertEquals(expected.getLng(), accurateLng[i], 0);
+        }
+        double[] fastLat = lat.clone();
+        double[] fastLng = lng.clone();
+        GeometryUtils.gcj2wgs(fastLat, fastLng);
+        for (int i = 0; i < lat.length; i++) {
+            Coordinate expected = GeometryUtils.gcj2wgs(new Coordinate(lat[i], lng[i]));
+            assertEquals(expected.getLat(), fastLat[i], 0);
+            assertEquals(expected.getLng(), fastLng[i], 0);
+        }
+    }
+
+    @Test
+    public void testBatchWithMixedCoordinates() {
+        final Random random = new Random(20190101L);
+        final int size = 3000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = random.nextDouble() * 60 - 2;
+            lng[i] = random.nextDouble() * 80 + 65;
+        }
+        final double[] outLat = new double[size];
+        final double[] outLng = new double[size];
+        GeometryUtils.wgs2gcj(lat, lng, 7, size - 7, outLat, outLng);
+        final double[] inPlaceLat = lat.clone();
+        final double[] inPlaceLng = lng.clone();
+        GeometryUtils.wgs2gcj(inPlaceLat, inPlaceLng);
+        for (int i = 0; i < size; i++) {
+            final Coordinate expected = GeometryUtils.wgs2gcj(new Coordinate(lat[i], lng[i]));
+            if (i >= 7) {
+                assertEquals(expected.getLat(), outLat[i], 0);
+                assertEquals(expected.getLng(), outLng[i], 0);
+            }
+            assertEquals(expected.getLat(), inPlaceLat[i], 0);
+            assertEquals(expected.getLng(), inPlaceLng[i], 0);
+        }
+    }
+
+    @Test
+    public void testCheckOutOfChinaMainland() {
+        final Random random = new Random(20190101L);
+        final int size = 1000;
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = random.nextDouble() * 60 - 2;
+            lng[i] = random.nextDouble() * 80 + 65;
+        }
+        final CoordinateChecker scalarChecker = new CoordinateChecker() {
+            @Override
+            public boolean isOutOfChinaMainland(double lat, double lng) {
+                return lat > 30;
+            }
+        };
+        final CoordinateChecker subclassChecker = new DefaultCoordinateChecker() {
+            @Override
+            public boolean isOutOfChinaMainland(double lat, double lng) {
+                return lat > 40 || super.isOutOfChinaMainland(lat, lng);
+            }
+        };
+        final CoordinateChecker[] checkers = {null, PolygonCoordinateCheckerTest.boxes(), scalarChecker, subclassChecker};
+        for (CoordinateChecker checker : checkers) {
+            final CoordinateChecker expected = checker == null ? new DefaultCoordinateChecker() : checker;
+            try {
+                GeometryUtils.setCoordinateChecker(checker);
+                final long[] mask = new long[15];
+                Arrays.fill(mask, -1L);
+                GeometryUtils.checkOutOfChinaMainland(lat, lng, 5, 900, mask);
+                for (int i = 0; i < 900; i++) {
+                    final boolean out = (mask[i >>> 6] & (1L << i)) != 0;
+                    assertEquals(expected.isOutOfChinaMainland(lat[5 + i], lng[5 + i]), out);
+                }
+                assertEquals(0, mask[14] >>> (900 - 14 * 64));
+            } finally {
+                GeometryUtils.setCoordinateChecker(null);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckOutOfChinaMainlandWithSmallMask() {
+        GeometryUtils.checkOutOfChinaMainland(new double[65], new double[65], 0, 65, new long[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchWithDifferentLength() {
+        GeometryUtils.wgs2gcj(new double[2], new double[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchOutOfBounds() {
+        GeometryUtils.gcj2wgs(new double[2], new double[2], 1, 2, new double[2], new double[2]);
+    }
+
+    @Test
+    public void testBatchWithInvalidCoordinate() {
+        double[] lat = {39.980945, 100};
+        double[] lng = {116.348120, 200};
+        try {
+            GeometryUtils.gcj2wgsAccurate(lat, lng);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Ignored
+        }
+        assertEquals(39.980945, lat[0], 0);
+        assertEquals(116.348120, lng[0], 0);
+    }
+
+    @Test
+    public void testScalarWithoutCoordinate() {
+        Coordinate wgs = new Coordinate(39.980945, 116.348120);
+        Coordinate gcj = new Coordinate(39.98229687830853, 116.35430824277233);
+        assertEquals(GeometryUtils.wgs2gcj(wgs), GeometryUtils.wgs2gcj(wgs.getLat(), wgs.getLng()));
+        assertEquals(GeometryUtils.gcj2wgs(gcj), GeometryUtils.gcj2wgs(gcj.getLat(), gcj.getLng()));
+        assertEquals(GeometryUtils.gcj2wgsAccurate(gcj), GeometryUtils.gcj2wgsAccurate(gcj.getLat(), gcj.getLng()));
+
+        double[] result = new double[2];
+        GeometryUtils.wgs2gcj(wgs.getLat(), wgs.getLng(), result);
+        assertEquals(39.982296901199675, result[0], 0.000001);
+        assertEquals(116.35430834755688, result[1], 0.000001);
+        GeometryUtils.gcj2wgsAccurate(gcj.getLat(), gcj.getLng(), result);
+        assertEquals(39.980945, result[0], 0.000001);
+        assertEquals(116.348120, result[1], 0.000001);
+        GeometryUtils.gcj2wgs(41.558182, -73.915166, result);
+        assertEquals(41.558182, result[0], 0);
+        assertEquals(-73.915166, result[1], 0);
+
+        Coordinate outOfChina = new Coordinate(41.558182, -73.915166);
+        assertSame(outOfChina, GeometryUtils.wgs2gcj(outOfChina));
+        assertSame(outOfChina, GeometryUtils.gcj2wgs(outOfChina));
+        assertSame(outOfChina, GeometryUtils.gcj2wgsAccurate(outOfChina));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScalarWithInvalidCoordinate() {
+        GeometryUtils.wgs2gcj(100, 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScalarWithSmallResult() {
+        GeometryUtils.gcj2wgs(39.98229687830853, 116.35430824277233, new double[1]);
+    }
+
+    @Test
+    public void testConvertAll() {
+        final int size = 50000;
+        final Random random = new Random(20190101L);
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        final List<Coordinate> coordinates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lat[i] = 20 + random.nextDouble() * 30;
+            lng[i] = 95 + random.nextDouble() * 40;
+            coordinates.add(new Coordinate(lat[i], lng[i]));
+        }
+        for (ConversionKind kind : ConversionKind.values()) {
+            final double[] convertedLat = lat.clone();
+            final double[] convertedLng = lng.clone();
+            GeometryUtils.convertAll(convertedLat, convertedLng, kind, 4);
+            final List<Coordinate> converted = GeometryUtils.convertAll(coordinates, kind, 4);
+            assertEquals(size, converted.size());
+            final double[] expected = new double[2];
+            for (int i = 0; i < size; i++) {
+                GeometryUtils.getDefaultTransformer().convert(kind, lat[i], lng[i], expected);
+                assertEquals(expected[0], convertedLat[i], 0);
+                assertEquals(expected[1], convertedLng[i], 0);
+                assertEquals(expected[0], converted.get(i).getLat(), 0);
+                assertEquals(expected[1], converted.get(i).getLng(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testConvertAllWithCustomizedChecker() {
+        final double[] lat = new double[10000];
+        final double[] lng = new double[10000];
+        Arrays.fill(lat, 39.980945);
+        Arrays.fill(lng, 116.348120);
+        try {
+            GeometryUtils.setCoordinateChecker(new CoordinateChecker() {
+                @Override
+                public boolean isOutOfChinaMainland(double lat, double lng) {
+                    return true;
+                }
+            });
+            GeometryUtils.convertAll(lat, lng, ConversionKind.WGS2GCJ, 2);
+        } finally {
+            GeometryUtils.setCoordinateChecker(null);
+        }
+        for (int i = 0; i < lat.length; i++) {
+            assertEquals(39.980945, lat[i], 0);
+            assertEquals(116.348120, lng[i], 0);
+        }
+    }
+
+    @Test
+    public void testConvertAllWithInvalidCoordinate() {
+        final double[] lat = new double[10000];
+        final double[] lng = new double[10000];
+        Arrays.fill(lat, 39.980945);
+        Arrays.fill(lng, 116.348120);
+        lat[9999] = 100;
+        try {
+            GeometryUtils.convertAll(lat, lng, ConversionKind.GCJ2WGS, 2);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Ignored
+        }
+        assertEquals(39.980945, lat[0], 0);
+        assertEquals(116.348120, lng[0], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvertAllWithInvalidParallelism() {
+        GeometryUtils.convertAll(Collections.<Coordinate>emptyList(), ConversionKind.WGS2GCJ, 0);
+    }
+
+    @Test
+    public void testPack() {
+        final long packed = GeometryUtils.packE6(39904200, -116407400);
+        assertEquals(39904200, GeometryUtils.unpackLatE6(packed));
+        assertEquals(-116407400, GeometryUtils.unpackLngE6(packed));
+        assertEquals(39.9042, GeometryUtils.unpackLat(packed), 0);
+        assertEquals(-116.4074, GeometryUtils.unpackLng(packed), 0);
+        assertEquals(GeometryUtils.packE6(-90000000, 180000000), GeometryUtils.pack(-90, 180));
+        final Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            final int latE6 = random.nextInt(180000001) - 90000000;
+            final int lngE6 = random.nextInt(360000001) - 180000000;
+            final long expected = GeometryUtils.packE6(latE6, lngE6);
+            assertEquals(expected, GeometryUtils.pack(latE6 / 1e6, lngE6 / 1e6));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackInvalidCoordinate() {
+        GeometryUtils.pack(91, 0);
+    }
+
+    @Test
+    public void testPackedConversions() {
+        final Random random = new Random(11);
+        final double[] result = new double[2];
+        for (int i = 0; i < 10000; i++) {
+            final long packed = GeometryUtils.packE6(random.nextInt(180000001) - 90000000,
+                    random.nextInt(360000001) - 180000000);
+            final double lat = GeometryUtils.unpackLat(packed);
+            final double lng = GeometryUtils.unpackLng(packed);
+            GeometryUtils.wgs2gcj(lat, lng, result);
+            assertEquals(GeometryUtils.pack(result[0], result[1]), GeometryUtils.wgs2gcj(packed));
+            GeometryUtils.gcj2wgs(lat, lng, result);
+            assertEquals(GeometryUtils.pack(result[0], result[1]), GeometryUtils.gcj2wgs(packed));
+            GeometryUtils.gcj2wgsAccurate(lat, lng, result);
+            assertEquals(GeometryUtils.pack(result[0], result[1]), GeometryUtils.gcj2wgsAccurate(packed));
+        }
+        final long london = GeometryUtils.pack(51.5074, -0.1278);
+        assertEquals(london, GeometryUtils.wgs2gcj(london));
+        assertEquals(london, GeometryUtils.gcj2wgsAccurate(london));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackedConversionWithInvalidCoordinate() {
+        GeometryUtils.wgs2gcj(GeometryUtils.packE6(95000000, 0));
+    }
+
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class InverseSolverTest {
+
+    @Test
+    public void testRoundTrip() {
+        final InverseSolver solver = new InverseSolver(1e-9, 10);
+        final Random random = new Random(20190101L);
+        final double[] gcj = new double[2];
+        final double[] wgs = new double[2];
+        for (int i = 0; i < 10000; i++) {
+            double lat = 26 + random.nextDouble() * 20;
+            double lng = 98 + random.nextDouble() * 20;
+            GeometryUtils.wgs2gcj(lat, lng, gcj);
+            int iterations = solver.solve(gcj[0], gcj[1], wgs);
+            assertTrue("Used " + iterations + " iterations", iterations > 0 && iterations <= 5);
+            assertEquals(lat, wgs[0], 2e-9);
+            assertEquals(lng, wgs[1], 2e-9);
+        }
+    }
+
+    @Test
+    public void testOutOfChina() {
+        final double[] result = new double[2];
+        assertEquals(0, InverseSolver.getDefault().solve(41.558182, -73.915166, result));
+        assertEquals(41.558182, result[0], 0);
+        assertEquals(-73.915166, result[1], 0);
+    }
+
+    @Test
+    public void testCustomTransformer() {
+        final CoordinateTransformer nowhere = CoordinateTransformer.newBuilder()
+                .setCoordinateChecker(new CoordinateChecker() {
+                    @Override
+                    public boolean isOutOfChinaMainland(final double lat, final double lng) {
+                        return true;
+                    }
+                })
+                .build();
+        final double[] result = new double[2];
+        assertEquals(0, InverseSolver.getDefault().solve(nowhere, 39.982296901199675, 116.35430834755688, result));
+        assertEquals(39.982296901199675, result[0], 0);
+        assertEquals(116.35430834755688, result[1], 0);
+
+        final CoordinateTransformer table = CoordinateTransformer.newBuilder()
+                .setPrecisionMode(PrecisionMode.TABLE)
+                .build();
+        final Coordinate expected = table.gcj2wgsAccurate(39.982296901199675, 116.35430834755688);
+        assertTrue(InverseSolver.getDefault().solve(table, 39.982296901199675, 116.35430834755688, result) != 0);
+        assertEquals(expected.getLat(), result[0], 0);
+        assertEquals(expected.getLng(), result[1], 0);
+    }
+
+    @Test
+    public void testNotConverged() {
+        final InverseSolver solver = new InverseSolver(1e-15, 2);
+        final double[] result = new double[2];
+        assertEquals(-2, solver.solve(39.982296901199675, 116.35430834755688, result));
+        assertEquals(39.980945, result[0], 0.000001);
+        assertEquals(116.348120, result[1], 0.000001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTolerance() {
+        new InverseSolver(0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxIterations() {
+        new InverseSolver(1e-6, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingTransformer() {
+        InverseSolver.getDefault().solve(null, 39.982296901199675, 116.35430834755688, new double[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCoordinate() {
+        InverseSolver.getDefault().solve(100, 200, new double[2]);
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class OffsetTableTest {
+
+    private static final double MAX_ERROR = 1e-8;
+
+    @Test
+    public void testErrorAgainstExact() {
+        final OffsetTable table = OffsetTable.getDefault();
+        assertSame(table, OffsetTable.getDefault());
+        assertEquals(OffsetTable.DEFAULT_STEP, table.getStep(), 0);
+        final Random random = new Random(20190101L);
+        final double[] exact = new double[2];
+        final double[] interpolated = new double[2];
+        for (int i = 0; i < 200000; i++) {
+            double lat = 0.8293 + random.nextDouble() * (55.8271 - 0.8293);
+            double lng = 72.004 + random.nextDouble() * (137.8347 - 72.004);
+            GeometryUtils.exactDelta(lat, lng, exact);
+            table.delta(lat, lng, interpolated);
+            assertEquals(exact[0], interpolated[0], MAX_ERROR);
+            assertEquals(exact[1], interpolated[1], MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void testOutOfTable() {
+        final OffsetTable table = new OffsetTable(0.1);
+        assertTrue(table.covers(39.980945, 116.348120));
+        assertFalse(table.covers(-10, 116.348120));
+        assertFalse(table.covers(39.980945, 150));
+        final double[] exact = new double[2];
+        final double[] interpolated = new double[2];
+        GeometryUtils.exactDelta(-10, 150, exact);
+        table.delta(-10, 150, interpolated);
+        assertEquals(exact[0], interpolated[0], 0);
+        assertEquals(exact[1], interpolated[1], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStep() {
+        new OffsetTable(0);
+    }
+
+    @Test
+    public void testTableMode() {
+        try {
+            GeometryUtils.setPrecisionMode(PrecisionMode.TABLE);
+            Coordinate mars = GeometryUtils.wgs2gcj(new Coordinate(39.980945, 116.348120));
+            assertEquals(39.982296901199675, mars.getLat(), MAX_ERROR);
+            assertEquals(116.35430834755688, mars.getLng(), MAX_ERROR);
+            Coordinate earth = GeometryUtils.gcj2wgsAccurate(new Coordinate(39.98229687830853, 116.35430824277233));
+            assertEquals(39.980945, earth.getLat(), 0.000001);
+            assertEquals(116.348120, earth.getLng(), 0.000001);
+
+            GeometryUtils.setOffsetTable(new OffsetTable(0.05));
+            mars = GeometryUtils.wgs2gcj(new Coordinate(39.980945, 116.348120));
+            assertEquals(39.982296901199675, mars.getLat(), 0.00001);
+            assertEquals(116.35430834755688, mars.getLng(), 0.00001);
+        } finally {
+            GeometryUtils.setOffsetTable(null);
+            GeometryUtils.setPrecisionMode(null);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class PolygonCoordinateCheckerTest {
+
+    @Test
+    public void testSameAsDefaultChecker() {
+        final CoordinateChecker expected = new DefaultCoordinateChecker();
+        final CoordinateChecker checker = boxes();
+        assertFalse(checker.isOutOfChinaMainland(39.980945, 116.348120));
+        assertTrue(checker.isOutOfChinaMainland(22.3193, 114.1694));
+        assertTrue(checker.isOutOfChinaMainland(22.1987, 113.5439));
+        assertTrue(checker.isOutOfChinaMainland(25.0330, 121.5654));
+        assertTrue(checker.isOutOfChinaMainland(41.558182, -73.915166));
+        assertTrue(checker.isOutOfChinaMainland(Double.NaN, 116.348120));
+        final Random random = new Random(20190101L);
+        for (int i = 0; i < 1000000; i++) {
+            final double lat;
+            final double lng;
+            if (i % 2 == 0) {
+                lat = (random.nextDouble() - 0.5) * 180;
+                lng = (random.nextDouble() - 0.5) * 360;
+            } else {
+                lat = random.nextDouble() * 60 - 2;
+                lng = random.nextDouble() * 70 + 70;
+            }
+            assertEquals(lat + "," + lng, expected.isOutOfChinaMainland(lat, lng), checker.isOutOfChinaMainland(lat, lng));
+        }
+    }
+
+    @Test
+    public void testConcavePolygonsWithHoles() {
+        final List<double[]> rings = Arrays.asList(
+                star(30, 110, 10, 3, 7),
+                star(30, 110, 2, 0.5, 5),
+                new double[]{10, 90, 12.5, 95.3, 8.1, 97.7, 11, 92, 7.3, 91.1}
+        );
+        final Random random = new Random(20190101L);
+        for (double cellSize : new double[]{0.1, 0.7, 3, 100}) {
+            final PolygonCoordinateChecker checker = new PolygonCoordinateChecker(rings, cellSize);
+            for (int i = 0; i < 200000; i++) {
+                final double lat = random.nextDouble() * 30 + 5;
+                final double lng = random.nextDouble() * 35 + 88;
+                assertEquals(lat + "," + lng, !isInside(rings, lat, lng), checker.isOutOfChinaMainland(lat, lng));
+            }
+        }
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        final String text = "# comment\n\n10,10\n10,20\n 20 , 20 \n\n\n12,12\n12,14\n14,14\n14,12\n";
+        final PolygonCoordinateChecker checker = PolygonCoordinateChecker.load(new ByteArrayInputStream(text.getBytes(Charset.forName("UTF-8"))), 1);
+        assertFalse(checker.isOutOfChinaMainland(11, 18));
+        assertTrue(checker.isOutOfChinaMainland(13, 13.5));
+        assertTrue(checker.isOutOfChinaMainland(18, 11));
+        try {
+            PolygonCoordinateChecker.load(new ByteArrayInputStream("10,10\n10,a\n".getBytes(Charset.forName("UTF-8"))), 1);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid line 2: 10,a", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new PolygonCoordinateChecker(Collections.singletonList(new double[]{1, 1, 2, 2}), 1);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Each ring should have at least 3 points of latitude and longitude", e.getMessage());
+        }
+        try {
+            new PolygonCoordinateChecker(Collections.singletonList(new double[]{1, 1, 2, 2, 3, 1}), 0);
+            fail("There should be an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cell size should be greater than 0, but got 0.0", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWithGeometryUtils() {
+        try {
+            GeometryUtils.setCoordinateChecker(boxes());
+            final double[] result = new double[2];
+            GeometryUtils.wgs2gcj(25.0330, 121.5654, result);
+            assertEquals(25.0330, result[0], 0);
+            assertEquals(121.5654, result[1], 0);
+            GeometryUtils.wgs2gcj(39.980945, 116.348120, result);
+            assertEquals(GeometryUtils.wgs2gcj(39.980945, 116.348120).getLat(), result[0], 0);
+        } finally {
+            GeometryUtils.setCoordinateChecker(null);
+        }
+    }
+
+    /**
+     * @return A checker with the boxes of {@link DefaultCoordinateChecker} as rings
+     */
+    static PolygonCoordinateChecker boxes() {
+        try (InputStream in = PolygonCoordinateCheckerTest.class.getResourceAsStream("boxes.txt")) {
+            return PolygonCoordinateChecker.load(in, PolygonCoordinateChecker.DEFAULT_CELL_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double[] star(final double lat, final double lng, final double outer, final double inner, final int spikes) {
+        final double[] ring = new double[spikes * 4];
+        for (int i = 0; i < spikes * 2; i++) {
+            final double radius = i % 2 == 0 ? outer : inner;
+            final double angle = Math.PI * i / spikes;
+            ring[i * 2] = lat + radius * Math.sin(angle);
+            ring[i * 2 + 1] = lng + radius * Math.cos(angle);
+        }
+        return ring;
+    }
+
+    private static boolean isInside(final List<double[]> rings, final double lat, final double lng) {
+        boolean inside = false;
+        for (double[] ring : rings) {
+            final int points = ring.length / 2;
+            for (int i = 0, j = points - 1; i < points; j = i++) {
+                final double lat0 = ring[j * 2];
+                final double lng0 = ring[j * 2 + 1];
+                final double lat1 = ring[i * 2];
+                final double lng1 = ring[i * 2 + 1];
+                if ((lat0 > lat) != (lat1 > lat) && lng < lng0 + (lat - lat0) * (lng1 - lng0) / (lat1 - lat0)) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * The kernel is only available on Java 17 or later with the vector module, so most tests are skipped elsewhere.
+ *
+ * @author SgrAlpha
+ */
+public class SimdKernelTest {
+
+    @Test
+    public void testCheckOutOfChinaMainland() {
+        final SimdKernel kernel = SimdKernel.get();
+        assumeNotNull(kernel);
+        final CoordinateChecker checker = new DefaultCoordinateChecker();
+        final double[][] coordinates = randomCoordinates(5000);
+        final double[] lat = coordinates[0];
+        final double[] lng = coordinates[1];
+        final Random random = new Random(20190101L);
+        for (int round = 0; round < 200; round++) {
+            final int offset = random.nextInt(100);
+            final int length = random.nextInt(lat.length - offset);
+            final long[] expected = new long[(length + 63) >>> 6];
+            final long[] actual = new long[expected.length];
+            ((BatchCoordinateChecker) checker).checkOutOfChinaMainland(lat, lng, offset, length, expected);
+            kernel.checkOutOfChinaMainland(lat, lng, offset, length, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testConvert() {
+        final SimdKernel kernel = SimdKernel.get();
+        assumeNotNull(kernel);
+        final double[][] coordinates = randomCoordinates(5000);
+        final double[] lat = coordinates[0];
+        final double[] lng = coordinates[1];
+        final Random random = new Random(20190101L);
+        final double[] result = new double[2];
+        for (int round = 0; round < 200; round++) {
+            final boolean toGcj = random.nextBoolean();
+            final int offset = random.nextInt(100);
+            final int length = random.nextInt(lat.length - offset);
+            final long[] mask = new long[(length + 63) >>> 6];
+            for (int i = 0; i < mask.length; i++) {
+                mask[i] = random.nextLong() & random.nextLong();
+            }
+            final double[] outLat = new double[lat.length];
+            final double[] outLng = new double[lng.length];
+            kernel.convert(toGcj, lat, lng, offset, length, mask, outLat, outLng);
+            for (int i = offset; i < offset + length; i++) {
+                final int index = i - offset;
+                if ((mask[index >>> 6] & (1L << index)) != 0) {
+                    assertEquals(lat[i], outLat[i], 0);
+                    assertEquals(lng[i], outLng[i], 0);
+                    continue;
+                }
+                FastTrig.delta(lat[i], lng[i], result);
+                assertEquals(toGcj ? lat[i] + result[0] : lat[i] - result[0], outLat[i], 0);
+                assertEquals(toGcj ? lng[i] + result[1] : lng[i] - result[1], outLng[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testFastTrigBatch() {
+        // Runs with or without the kernel, batch results should always equal the scalar ones.
+        final CoordinateTransformer transformer = CoordinateTransformer.newBuilder()
+                .setPrecisionMode(PrecisionMode.FAST_TRIG)
+                .build();
+        final double[][] coordinates = randomCoordinates(3001);
+        final double[] lat = coordinates[0].clone();
+        final double[] lng = coordinates[1].clone();
+        transformer.wgs2gcj(lat, lng);
+        final double[] outLat = new double[lat.length];
+        final double[] outLng = new double[lng.length];
+        transformer.gcj2wgs(lat, lng, 0, lat.length, outLat, outLng);
+        final double[] result = new double[2];
+        for (int i = 0; i < lat.length; i++) {
+            transformer.wgs2gcj(coordinates[0][i], coordinates[1][i], result);
+            assertEquals(result[0], lat[i], 0);
+            assertEquals(result[1], lng[i], 0);
+            transformer.gcj2wgs(lat[i], lng[i], result);
+            assertEquals(result[0], outLat[i], 0);
+            assertEquals(result[1], outLng[i], 0);
+        }
+    }
+
+    private static double[][] randomCoordinates(final int size) {
+        final Random random = new Random(20190101L);
+        final double[] lat = new double[size];
+        final double[] lng = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 7 == 0) {
+                // On the boundaries of the boxes
+                lat[i] = new double[]{22.446195, 22.217493, 25.401950, 0.8293, 55.8271}[random.nextInt(5)];
+                lng[i] = new double[]{113.678580, 114.427582, 113.528421, 72.004, 137.8347}[random.nextInt(5)];
+            } else {
+                lat[i] = -10 + random.nextDouble() * 80;
+                lng[i] = 60 + random.nextDouble() * 90;
+            }
+        }
+        return new double[][]{lat, lng};
+    }
+
+}
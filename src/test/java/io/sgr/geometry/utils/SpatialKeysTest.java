@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017-2019 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.geometry.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.geometry.Coordinate;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author SgrAlpha
+ */
+public class SpatialKeysTest {
+
+    @Test
+    public void testMorton() {
+        final Coordinate coordinate = new Coordinate(39.904211, 116.407395);
+        final long key = SpatialKeys.morton(coordinate);
+        assertTrue(key >= 0);
+        assertEquals(coordinate.getLatE6(), SpatialKeys.mortonLatE6(key));
+        assertEquals(coordinate.getLngE6(), SpatialKeys.mortonLngE6(key));
+        assertEquals(key, SpatialKeys.morton(coordinate.getLat(), coordinate.getLng()));
+        assertEquals(key, SpatialKeys.morton(SpatialKeys.decodeMorton(key)));
+
+        assertEquals(0, SpatialKeys.morton(-90, -180));
+        assertEquals(0, SpatialKeys.mortonLatE6(SpatialKeys.morton(0, 0)));
+        assertEquals(-1, SpatialKeys.mortonLngE6(SpatialKeys.morton(0, -0.0000001)));
+        final long max = SpatialKeys.morton(90, 180);
+        assertEquals(90000000, SpatialKeys.mortonLatE6(max));
+        assertEquals(180000000, SpatialKeys.mortonLngE6(max));
+        assertEquals(max, SpatialKeys.morton(SpatialKeys.decodeMorton(max)));
+
+        // Keys of the same sign interleave both axes
+        assertTrue(SpatialKeys.morton(10, 10) < SpatialKeys.morton(10, 10.000001));
+        assertTrue(SpatialKeys.morton(10, 10) < SpatialKeys.morton(10.000001, 10));
+        assertTrue(SpatialKeys.morton(10.000001, 10) < SpatialKeys.morton(10, 10.000001));
+    }
+
+    @Test
+    public void testMortonOfDecodedValues() {
+        // -67.065019 times 1e6 rounds down to less than -67065019
+        final Coordinate coordinate = Coordinate.parseCommaSeparatedHexString("fc00ab45,00989680");
+        final long key = SpatialKeys.morton(coordinate);
+        assertEquals(-67065019, SpatialKeys.mortonLatE6(key));
+        assertEquals(coordinate.getLatE6(), SpatialKeys.mortonLatE6(key));
+        assertEquals(coordinate.getLngE6(), SpatialKeys.mortonLngE6(key));
+        final double[] lat = {coordinate.getLat()};
+        final double[] lng = {coordinate.getLng()};
+        final long[] keys = new long[1];
+        SpatialKeys.morton(lat, lng, 0, 1, keys);
+        assertEquals(key, keys[0]);
+    }
+
+    @Test
+    public void testMortonBatch() {
+        final Random random = new Random(7);
+        final int size = 1000;
+        final double[] lat = new double[size + 2];
+        final double[] lng = new double[size + 2];
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = random.nextDouble() * 180 - 90;
+            lng[i] = random.nextDouble() * 360 - 180;
+        }
+        final long[] keys = new long[size + 2];
+        SpatialKeys.morton(lat, lng, 1, size, keys);
+        assertEquals(0, keys[0]);
+        assertEquals(0, keys[size + 1]);
+        for (int i = 1; i <= size; i++) {
+            assertEquals(SpatialKeys.morton(lat[i], lng[i]), keys[i]);
+        }
+        final double[] outLat = new double[size + 2];
+        final double[] outLng = new double[size + 2];
+        SpatialKeys.decodeMorton(keys, 1, size, outLat, outLng);
+        for (int i = 1; i <= size; i++) {
+            assertEquals(lat[i], outLat[i], 1e-6);
+            assertEquals(lng[i], outLng[i], 1e-6);
+            assertEquals(keys[i], SpatialKeys.morton(outLat[i], outLng[i]));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMortonInvalidCoordinate() {
+        SpatialKeys.morton(new double[]{0, 91}, new double[]{0, 0}, 0, 2, new long[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMortonOutOfBounds() {
+        SpatialKeys.morton(new double[2], new double[2], 1, 2, new long[3]);
+    }
+
+    @Test
+    public void testGeohash() {
+        assertEquals("ezs42", SpatialKeys.geohash(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", SpatialKeys.geohash(new Coordinate(57.64911, 10.40744), 11));
+        assertEquals("wx4g0", SpatialKeys.geohash(39.9042, 116.4074, 5));
+        assertEquals("s0000000000", SpatialKeys.geohash(0, 0, 11));
+        assertEquals("zzzzzzzzzzzz", SpatialKeys.geohash(90, 180, 12));
+        assertEquals("000000000000", SpatialKeys.geohash(-90, -180, 12));
+
+        final Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            final double lat = random.nextDouble() * 180 - 90;
+            final double lng = random.nextDouble() * 360 - 180;
+            final int precision = 1 + random.nextInt(SpatialKeys.MAX_GEOHASH_PRECISION);
+            final String geohash = SpatialKeys.geohash(lat, lng, precision);
+            assertEquals(bisect(lat, lng, precision), geohash);
+            assertEquals(SpatialKeys.geohashBits(lat, lng, precision), SpatialKeys.parseGeohash(geohash));
+            final double[] bounds = new double[4];
+            SpatialKeys.geohashBounds(geohash, bounds);
+            assertTrue(bounds[0] <= lat && lat < bounds[2]);
+            assertTrue(bounds[1] <= lng && lng < bounds[3]);
+            assertEquals(geohash, SpatialKeys.geohash(SpatialKeys.decodeGeohash(geohash), precision));
+        }
+        assertEquals(SpatialKeys.parseGeohash("wx4g0"), SpatialKeys.parseGeohash("WX4G0"));
+    }
+
+    @Test
+    public void testGeohashBounds() {
+        final double[] bounds = new double[4];
+        SpatialKeys.geohashBounds("ezs42", bounds);
+        assertArrayEquals(new double[]{42.5830078125, -5.625, 42.626953125, -5.5810546875}, bounds, 0);
+        final Coordinate center = SpatialKeys.decodeGeohash("ezs42");
+        assertEquals(42.60498046875, center.getLat(), 0);
+        assertEquals(-5.60302734375, center.getLng(), 0);
+    }
+
+    @Test
+    public void testGeohashBatch() {
+        final double[] lat = {42.6, 57.64911, 39.9042};
+        final double[] lng = {-5.6, 10.40744, 116.4074};
+        final long[] bits = new long[3];
+        SpatialKeys.geohashBits(lat, lng, 0, 3, 5, bits);
+        assertEquals("ezs42", SpatialKeys.geohashToString(bits[0], 5));
+        assertEquals("u4pru", SpatialKeys.geohashToString(bits[1], 5));
+        assertEquals("wx4g0", SpatialKeys.geohashToString(bits[2], 5));
+    }
+
+    @Test
+    public void testGeohashNeighbors() {
+        final String[] neighbors = SpatialKeys.geohashNeighbors("ezs42");
+        assertEquals(Arrays.asList("ezs48", "ezs49", "ezs43", "ezs41", "ezs40", "ezefp", "ezefr", "ezefx"),
+                Arrays.asList(neighbors));
+        final double[] center = new double[4];
+        final double[] other = new double[4];
+        SpatialKeys.geohashBounds("ezs42", center);
+        final int[][] steps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+        for (int i = 0; i < steps.length; i++) {
+            SpatialKeys.geohashBounds(neighbors[i], other);
+            final double latSize = center[2] - center[0];
+            final double lngSize = center[3] - center[1];
+            assertEquals(center[0] + steps[i][0] * latSize, other[0], 1e-12);
+            assertEquals(center[1] + steps[i][1] * lngSize, other[1], 1e-12);
+        }
+
+        // Wraps around the antimeridian, stops at poles
+        assertEquals("2", SpatialKeys.geohashNeighbor("r", 0, 1));
+        assertEquals("r", SpatialKeys.geohashNeighbor("2", 0, -1));
+        assertNull(SpatialKeys.geohashNeighbor("z", 1, 0));
+        assertNull(SpatialKeys.geohashNeighbors("0")[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGeohash() {
+        SpatialKeys.parseGeohash("ezs4a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrecision() {
+        SpatialKeys.geohash(0, 0, 13);
+    }
+
+    private static String bisect(final double lat, final double lng, final int precision) {
+        final String base32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+        double minLat = -90;
+        double maxLat = 90;
+        double minLng = -180;
+        double maxLng = 180;
+        final StringBuilder builder = new StringBuilder();
+        boolean even = true;
+        int value = 0;
+        for (int bit = 0; bit < precision * 5; bit++) {
+            if (even) {
+                final double mid = (minLng + maxLng) / 2;
+                value = (value << 1) | (lng >= mid ? 1 : 0);
+                if (lng >= mid) {
+                    minLng = mid;
+                } else {
+                    maxLng = mid;
+                }
+            } else {
+                final double mid = (minLat + maxLat) / 2;
+                value = (value << 1) | (lat >= mid ? 1 : 0);
+                if (lat >= mid) {
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+            even = !even;
+            if (bit % 5 == 4) {
+                builder.append(base32.charAt(value));
+                value = 0;
+            }
+        }
+        return builder.toString();
+    }
+
+}